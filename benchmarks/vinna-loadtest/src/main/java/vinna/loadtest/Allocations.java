@@ -0,0 +1,43 @@
+package vinna.loadtest;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the server threads, identified by their name prefix. The load generator threads
+ * are left out.
+ */
+final class Allocations {
+    private final String threadPrefix;
+    private final com.sun.management.ThreadMXBean threads;
+
+    Allocations(String threadPrefix) {
+        this.threadPrefix = threadPrefix;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threads = (com.sun.management.ThreadMXBean) bean;
+            this.threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.threads = null;
+        }
+    }
+
+    /**
+     * @return the bytes allocated so far by the live server threads, -1 if the JVM can't tell
+     */
+    long allocatedBytes() {
+        if (threads == null) {
+            return -1;
+        }
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(threadPrefix)) {
+                long allocated = threads.getThreadAllocatedBytes(thread.getId());
+                if (allocated > 0) {
+                    total += allocated;
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,134 @@
+package vinna.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * A minimal blocking HTTP/1.1 client, keeping its connection alive: the load generator measures the server, not a
+ * client library. Bodies are read and discarded, chunked or not.
+ */
+final class HttpClient implements Closeable {
+    private static final int TIMEOUT_MS = 30000;
+
+    private final String host;
+    private final int port;
+    private final byte[] scratch = new byte[8192];
+    private final StringBuilder line = new StringBuilder(128);
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+
+    HttpClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sends an encoded request and reads the whole response.
+     *
+     * @return the status of the response
+     */
+    int send(byte[] request) throws IOException {
+        if (socket == null) {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(TIMEOUT_MS);
+            socket.connect(new InetSocketAddress(host, port), TIMEOUT_MS);
+            in = new BufferedInputStream(socket.getInputStream(), scratch.length);
+            out = socket.getOutputStream();
+        }
+        out.write(request);
+        out.flush();
+
+        String statusLine = readLine();
+        if (statusLine.length() < 12 || !statusLine.startsWith("HTTP/1.")) {
+            throw new IOException("Invalid status line: " + statusLine);
+        }
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        long length = -1;
+        boolean chunked = false;
+        boolean close = statusLine.startsWith("HTTP/1.0");
+        String header;
+        while (!(header = readLine()).isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                length = Long.parseLong(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.equalsIgnoreCase("chunked");
+            } else if (name.equalsIgnoreCase("Connection")) {
+                close = value.equalsIgnoreCase("close");
+            }
+        }
+
+        if (status < 200 || status == 204 || status == 304) {
+            // no body
+        } else if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine().split(";")[0].trim(), 16)) > 0) {
+                skip(size);
+                readLine();
+            }
+            while (!readLine().isEmpty()) {
+                // trailers
+            }
+        } else if (length >= 0) {
+            skip(length);
+        } else {
+            // delimited by the end of the connection
+            while (in.read(scratch) >= 0) {
+                // discarded
+            }
+            close = true;
+        }
+        if (close) {
+            close();
+        }
+        return status;
+    }
+
+    private void skip(long length) throws IOException {
+        while (length > 0) {
+            int read = in.read(scratch, 0, (int) Math.min(scratch.length, length));
+            if (read < 0) {
+                throw new IOException("Connection closed before the end of the body");
+            }
+            length -= read;
+        }
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing more to do
+            }
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package vinna.loadtest;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import vinna.VinnaFilter;
+
+import javax.servlet.DispatcherType;
+import java.io.Closeable;
+import java.util.EnumSet;
+
+/**
+ * Runs a sample application in-process on an embedded Jetty, declared as in its web.xml, on a random port.
+ */
+public final class JettyRunner implements Closeable {
+    /**
+     * The name prefix of the Jetty threads, whose allocations are measured
+     */
+    public static final String THREAD_PREFIX = "loadtest-jetty";
+
+    private final Server server;
+    private final SelectChannelConnector connector;
+
+    public JettyRunner(SampleApp app, int threads) {
+        server = new Server();
+        QueuedThreadPool pool = new QueuedThreadPool(threads);
+        // a fixed size, no thread (nor its allocations) goes away during a measure
+        pool.setMinThreads(threads);
+        pool.setName(THREAD_PREFIX);
+        server.setThreadPool(pool);
+
+        connector = new SelectChannelConnector();
+        connector.setHost("127.0.0.1");
+        connector.setPort(0);
+        server.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath(app.contextPath);
+        FilterHolder filter = new FilterHolder(VinnaFilter.class);
+        filter.setAsyncSupported(true);
+        filter.setInitParameters(app.initParameters);
+        context.addFilter(filter, "/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addServlet(DefaultServlet.class, "/");
+        server.setHandler(context);
+    }
+
+    public JettyRunner start() throws Exception {
+        server.start();
+        return this;
+    }
+
+    public String getHost() {
+        return "127.0.0.1";
+    }
+
+    public int getPort() {
+        return connector.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.stop();
+            server.join();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to stop Jetty", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package vinna.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The latencies recorded by a load generator thread, in nanoseconds. Every latency is kept, the percentiles are exact.
+ */
+final class Latencies {
+    private long[] values = new long[1 << 16];
+    private int size;
+
+    void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return all the latencies, sorted
+     */
+    static long[] merge(List<Latencies> recorders) {
+        int total = 0;
+        for (Latencies recorder : recorders) {
+            total += recorder.size;
+        }
+        long[] merged = new long[total];
+        int position = 0;
+        for (Latencies recorder : recorders) {
+            System.arraycopy(recorder.values, 0, merged, position, recorder.size);
+            position += recorder.size;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * @param sorted   latencies, sorted
+     * @param quantile between 0 and 1
+     * @return the latency below which the given quantile of the latencies are, 0 if there are none
+     */
+    static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+}
@@ -0,0 +1,119 @@
+package vinna.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends a scenario over a fixed number of keep-alive connections, one thread per connection.
+ * <p/>
+ * In the open mode, the requests are scheduled at a fixed rate and their latency is measured from their scheduled
+ * time, not from the time they were actually sent: a stalled server delays the requests queued behind, and these
+ * delays are part of the latencies (no coordinated omission).
+ */
+public final class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final Settings settings;
+    private final String host;
+    private final int port;
+
+    public LoadGenerator(Settings settings, String host, int port) {
+        this.settings = settings;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sends the scenario for the given duration. The latencies are only recorded when measure is true.
+     */
+    public RouteResult run(final Scenario scenario, long durationNanos, final boolean measure, Allocations allocations) throws InterruptedException {
+        final byte[] request = scenario.encode(host, port);
+        final int connections = settings.connections;
+        final long interval = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+        final AtomicLong sequence = new AtomicLong();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(connections);
+        final List<Latencies> recorders = new ArrayList<>();
+
+        long allocatedBefore = measure && allocations != null ? allocations.allocatedBytes() : -1;
+        final long start = System.nanoTime();
+        final long end = start + durationNanos;
+        for (int i = 0; i < connections; i++) {
+            final Latencies latencies = new Latencies();
+            recorders.add(latencies);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    HttpClient client = new HttpClient(host, port);
+                    try {
+                        while (true) {
+                            long sent;
+                            if (settings.mode == Settings.Mode.OPEN) {
+                                sent = start + sequence.getAndIncrement() * interval;
+                                if (sent >= end) {
+                                    break;
+                                }
+                                long wait;
+                                while ((wait = sent - System.nanoTime()) > 0) {
+                                    LockSupport.parkNanos(wait);
+                                }
+                            } else {
+                                sent = System.nanoTime();
+                                if (sent >= end) {
+                                    break;
+                                }
+                            }
+                            try {
+                                if (client.send(request) != scenario.expectedStatus) {
+                                    errors.incrementAndGet();
+                                }
+                            } catch (IOException e) {
+                                errors.incrementAndGet();
+                                client.close();
+                                client = new HttpClient(host, port);
+                            }
+                            if (measure) {
+                                latencies.record(System.nanoTime() - sent);
+                            }
+                            requests.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        logger.error("Load generator failure on " + scenario, e);
+                    } finally {
+                        client.close();
+                        done.countDown();
+                    }
+                }
+            }, "loadtest-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBefore < 0 ? -1 : allocations.allocatedBytes() - allocatedBefore;
+        return new RouteResult(scenario, requests.get(), errors.get(), elapsed, Latencies.merge(recorders), allocated);
+    }
+
+    /**
+     * Sends a request once.
+     *
+     * @return its response status
+     */
+    public int sendOnce(Scenario scenario) throws IOException {
+        HttpClient client = new HttpClient(host, port);
+        try {
+            return client.send(scenario.encode(host, port));
+        } finally {
+            client.close();
+        }
+    }
+}
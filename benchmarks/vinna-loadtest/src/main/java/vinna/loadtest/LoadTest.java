@@ -0,0 +1,128 @@
+package vinna.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the sample applications in-process, loads each of their routes, and reports the throughput, the latency
+ * percentiles and the allocations per route, on the console and in a JSON file.
+ * <p/>
+ * Settings, as system properties:
+ * <ul>
+ * <li>loadtest.apps: the sample applications, comma separated, among todo, declarative and programmatic, all by
+ * default</li>
+ * <li>loadtest.mode: closed (as fast as possible, by default) or open (at a fixed rate)</li>
+ * <li>loadtest.connections: the concurrent keep-alive connections, 16 by default</li>
+ * <li>loadtest.rate: the requests per second of the open mode, 1000 by default</li>
+ * <li>loadtest.warmup and loadtest.duration: in seconds per route, 5 and 10 by default</li>
+ * <li>loadtest.serverThreads: the size of the Jetty thread pool, 32 by default</li>
+ * <li>loadtest.output: the JSON report, target/loadtest-&lt;timestamp&gt;.json by default</li>
+ * </ul>
+ * <pre>
+ * mvn -pl benchmarks/vinna-loadtest exec:java -Dloadtest.mode=open -Dloadtest.rate=5000
+ * </pre>
+ */
+public final class LoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private final Settings settings;
+
+    public LoadTest(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Map<String, List<RouteResult>> run() throws Exception {
+        Map<String, List<RouteResult>> results = new LinkedHashMap<>();
+        for (String name : settings.apps) {
+            SampleApp app = SampleApp.get(name);
+            JettyRunner jetty = new JettyRunner(app, settings.serverThreads).start();
+            try {
+                results.put(app.name, run(app, jetty));
+            } finally {
+                jetty.close();
+            }
+        }
+        return results;
+    }
+
+    private List<RouteResult> run(SampleApp app, JettyRunner jetty) throws Exception {
+        LoadGenerator generator = new LoadGenerator(settings, jetty.getHost(), jetty.getPort());
+        Allocations allocations = new Allocations(JettyRunner.THREAD_PREFIX);
+        for (Scenario setup : app.setup) {
+            int status = generator.sendOnce(setup);
+            if (status != setup.expectedStatus) {
+                throw new IllegalStateException("Setup request " + setup + " of " + app.name + " answered " + status + " instead of " + setup.expectedStatus);
+            }
+        }
+        List<RouteResult> results = new ArrayList<>();
+        for (Scenario scenario : app.scenarios) {
+            logger.info("Loading {} {}", app.name, scenario);
+            if (settings.warmupSeconds > 0) {
+                generator.run(scenario, TimeUnit.SECONDS.toNanos(settings.warmupSeconds), false, null);
+            }
+            RouteResult result = generator.run(scenario, TimeUnit.SECONDS.toNanos(settings.durationSeconds), true, allocations);
+            logger.info("{}", result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    public void write(Map<String, List<RouteResult>> results, File output) throws Exception {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("mode", settings.mode.name().toLowerCase());
+        config.put("connections", settings.connections);
+        if (settings.mode == Settings.Mode.OPEN) {
+            config.put("rate", settings.rate);
+        }
+        config.put("warmupSeconds", settings.warmupSeconds);
+        config.put("durationSeconds", settings.durationSeconds);
+        config.put("serverThreads", settings.serverThreads);
+
+        Map<String, Object> apps = new LinkedHashMap<>();
+        for (Map.Entry<String, List<RouteResult>> entry : results.entrySet()) {
+            List<Map<String, Object>> routes = new ArrayList<>();
+            for (RouteResult result : entry.getValue()) {
+                routes.add(result.toMap());
+            }
+            apps.put(entry.getKey(), routes);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date()));
+        report.put("java", System.getProperty("java.version"));
+        report.put("cpus", Runtime.getRuntime().availableProcessors());
+        report.put("settings", config);
+        report.put("apps", apps);
+
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IllegalStateException("Unable to create " + parent);
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, report);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        LoadTest loadTest = new LoadTest(settings);
+        Map<String, List<RouteResult>> results = loadTest.run();
+        for (Map.Entry<String, List<RouteResult>> entry : results.entrySet()) {
+            System.out.println(entry.getKey());
+            for (RouteResult result : entry.getValue()) {
+                System.out.println("  " + result);
+            }
+        }
+        File output = new File(settings.output);
+        loadTest.write(results, output);
+        System.out.println("Report written to " + output.getAbsolutePath());
+    }
+}
@@ -0,0 +1,69 @@
+package vinna.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measures of a scenario.
+ */
+public final class RouteResult {
+    public final Scenario scenario;
+    public final long requests;
+    public final long errors;
+    public final long elapsedNanos;
+    /**
+     * The sorted latencies, in nanoseconds
+     */
+    public final long[] latencies;
+    /**
+     * The bytes allocated by the server threads, -1 if unknown
+     */
+    public final long allocatedBytes;
+
+    public RouteResult(Scenario scenario, long requests, long errors, long elapsedNanos, long[] latencies, long allocatedBytes) {
+        this.scenario = scenario;
+        this.requests = requests;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public double throughput() {
+        return requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    public double percentileMillis(double quantile) {
+        return Latencies.percentile(latencies, quantile) / 1e6;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", percentileMillis(0.5));
+        latency.put("p99", percentileMillis(0.99));
+        latency.put("p999", percentileMillis(0.999));
+        latency.put("max", latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("route", scenario.toString());
+        map.put("requests", requests);
+        map.put("errors", errors);
+        map.put("throughput", throughput());
+        map.put("latencyMs", latency);
+        if (allocatedBytes >= 0) {
+            Map<String, Object> allocation = new LinkedHashMap<>();
+            allocation.put("bytesPerRequest", requests == 0 ? 0 : allocatedBytes / requests);
+            allocation.put("mbPerSecond", allocatedBytes / 1e6 * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+            map.put("allocation", allocation);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-50s %10.0f req/s  p50 %8.3f ms  p99 %8.3f ms  p999 %8.3f ms  %s  errors %d",
+                scenario, throughput(), percentileMillis(0.5), percentileMillis(0.99), percentileMillis(0.999),
+                allocatedBytes < 0 || requests == 0 ? "" : allocatedBytes / requests + " B/req", errors);
+    }
+}
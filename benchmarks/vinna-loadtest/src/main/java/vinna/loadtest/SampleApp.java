@@ -0,0 +1,78 @@
+package vinna.loadtest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sample application, declared as in its web.xml, and the routes it is loaded on.
+ */
+public final class SampleApp {
+    public static final SampleApp TODO = new SampleApp("todo", "/todo",
+            Collections.singletonMap("base-package", "vinna.samples.todo"),
+            Arrays.asList(
+                    new Scenario("POST", "/todo/api", "application/json", "{\"title\":\"Load\",\"description\":\"Seeded by the load test\"}", 201)),
+            Arrays.asList(
+                    new Scenario("GET", "/todo/"),
+                    new Scenario("GET", "/todo/new"),
+                    new Scenario("GET", "/todo/api"),
+                    new Scenario("GET", "/todo/api/1")));
+
+    public static final SampleApp DECLARATIVE = new SampleApp("declarative", "/declarative-sample",
+            Collections.singletonMap("base-package", "vinna.samples.declarative"),
+            Collections.<Scenario>emptyList(),
+            Arrays.asList(
+                    new Scenario("GET", "/declarative-sample/user/42"),
+                    new Scenario("GET", "/declarative-sample/hello/true/42/vinna"),
+                    new Scenario("GET", "/declarative-sample/header")));
+
+    public static final SampleApp PROGRAMMATIC = new SampleApp("programmatic", "/programmatic-sample",
+            Collections.singletonMap("application-class", "vinna.samples.programmatic.ProgrammaticSampleApp"),
+            Collections.<Scenario>emptyList(),
+            Arrays.asList(
+                    new Scenario("GET", "/programmatic-sample/user/42"),
+                    new Scenario("GET", "/programmatic-sample/params?a=x&b=y&c=3"),
+                    new Scenario("GET", "/programmatic-sample/allheaders")));
+
+    private static final Map<String, SampleApp> APPS = new LinkedHashMap<>();
+
+    static {
+        for (SampleApp app : Arrays.asList(TODO, DECLARATIVE, PROGRAMMATIC)) {
+            APPS.put(app.name, app);
+        }
+    }
+
+    public final String name;
+    public final String contextPath;
+    /**
+     * The init parameters of the VinnaFilter
+     */
+    public final Map<String, String> initParameters;
+    /**
+     * The requests sent once, before the load, e.g. to create some data
+     */
+    public final List<Scenario> setup;
+    public final List<Scenario> scenarios;
+
+    public SampleApp(String name, String contextPath, Map<String, String> initParameters, List<Scenario> setup, List<Scenario> scenarios) {
+        this.name = name;
+        this.contextPath = contextPath;
+        this.initParameters = initParameters;
+        this.setup = setup;
+        this.scenarios = scenarios;
+    }
+
+    public static SampleApp get(String name) {
+        SampleApp app = APPS.get(name.trim());
+        if (app == null) {
+            throw new IllegalArgumentException("Unknown sample application " + name + ", expected one of " + APPS.keySet());
+        }
+        return app;
+    }
+
+    public static List<String> names() {
+        return Arrays.asList(APPS.keySet().toArray(new String[APPS.size()]));
+    }
+}
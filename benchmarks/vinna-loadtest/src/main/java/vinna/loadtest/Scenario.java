@@ -0,0 +1,54 @@
+package vinna.loadtest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A request sent over and over to a route, and the status expected in return.
+ */
+public final class Scenario {
+    public final String method;
+    public final String path;
+    public final String contentType;
+    public final String body;
+    public final int expectedStatus;
+
+    public Scenario(String method, String path) {
+        this(method, path, null, null, 200);
+    }
+
+    public Scenario(String method, String path, String contentType, String body, int expectedStatus) {
+        this.method = method;
+        this.path = path;
+        this.contentType = contentType;
+        this.body = body;
+        this.expectedStatus = expectedStatus;
+    }
+
+    /**
+     * @return the whole request, encoded once for all the sends
+     */
+    byte[] encode(String host, int port) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+        sb.append("Host: ").append(host).append(':').append(port).append("\r\n");
+        sb.append("Accept: */*\r\n");
+        byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        if (contentType != null) {
+            sb.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        if (body != null) {
+            sb.append("Content-Length: ").append(content.length).append("\r\n");
+        }
+        sb.append("\r\n");
+        byte[] head = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] request = new byte[head.length + content.length];
+        System.arraycopy(head, 0, request, 0, head.length);
+        System.arraycopy(content, 0, request, head.length, content.length);
+        return request;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path;
+    }
+}
@@ -0,0 +1,72 @@
+package vinna.loadtest;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The load test settings, read from the loadtest.* system properties.
+ */
+public final class Settings {
+    public enum Mode {
+        /**
+         * Each connection sends its next request as soon as it gets a response: measures the maximum throughput
+         */
+        CLOSED,
+        /**
+         * The requests are sent at a fixed rate, whatever the response times: measures the latencies under a given load
+         */
+        OPEN
+    }
+
+    public final List<String> apps;
+    public final Mode mode;
+    public final int connections;
+    /**
+     * The requests per second of the open mode, for all the connections
+     */
+    public final int rate;
+    public final int warmupSeconds;
+    public final int durationSeconds;
+    public final int serverThreads;
+    public final String output;
+
+    public Settings(List<String> apps, Mode mode, int connections, int rate, int warmupSeconds, int durationSeconds, int serverThreads, String output) {
+        if (connections <= 0 || rate <= 0 || warmupSeconds < 0 || durationSeconds <= 0 || serverThreads <= 0) {
+            throw new IllegalArgumentException("The connections, rate, duration and server threads must be positive");
+        }
+        this.apps = apps;
+        this.mode = mode;
+        this.connections = connections;
+        this.rate = rate;
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+        this.serverThreads = serverThreads;
+        this.output = output;
+    }
+
+    public static Settings fromSystemProperties() {
+        List<String> apps = new ArrayList<>();
+        String appsProperty = System.getProperty("loadtest.apps");
+        if (appsProperty == null || appsProperty.trim().isEmpty()) {
+            apps.addAll(SampleApp.names());
+        } else {
+            for (String app : appsProperty.split(",")) {
+                apps.add(SampleApp.get(app).name);
+            }
+        }
+        String output = System.getProperty("loadtest.output");
+        if (output == null) {
+            output = "target/loadtest-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json";
+        }
+        return new Settings(apps,
+                Mode.valueOf(System.getProperty("loadtest.mode", "closed").trim().toUpperCase()),
+                Integer.getInteger("loadtest.connections", 16),
+                Integer.getInteger("loadtest.rate", 1000),
+                Integer.getInteger("loadtest.warmup", 5),
+                Integer.getInteger("loadtest.duration", 10),
+                Integer.getInteger("loadtest.serverThreads", 32),
+                output);
+    }
+}
@@ -0,0 +1,94 @@
+package vinna.loadtest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import vinna.Vinna;
+import vinna.embedded.VinnaServer;
+import vinna.response.Response;
+import vinna.response.StringResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LoadGeneratorTest {
+
+    public static class Greeter {
+        public Response hello(String name) {
+            return new StringResponse("hello " + name);
+        }
+    }
+
+    private VinnaServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = new VinnaServer(new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/hello/{name}").withController(Greeter.class).hello(param("name").asString());
+            }
+        }).port(0).workers(2).start();
+    }
+
+    @After
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    private static Settings settings(Settings.Mode mode) {
+        return new Settings(Collections.<String>emptyList(), mode, 2, 200, 0, 1, 1, "unused");
+    }
+
+    @Test
+    public void closedLoopRecordsEveryResponse() throws Exception {
+        LoadGenerator generator = new LoadGenerator(settings(Settings.Mode.CLOSED), "127.0.0.1", server.getPort());
+        RouteResult result = generator.run(new Scenario("GET", "/hello/vinna"), TimeUnit.MILLISECONDS.toNanos(200), true, null);
+
+        assertTrue(result.requests > 0);
+        assertEquals(0, result.errors);
+        assertEquals(result.requests, result.latencies.length);
+        assertEquals(-1, result.allocatedBytes);
+    }
+
+    @Test
+    public void openLoopSendsAtTheGivenRate() throws Exception {
+        LoadGenerator generator = new LoadGenerator(settings(Settings.Mode.OPEN), "127.0.0.1", server.getPort());
+        RouteResult result = generator.run(new Scenario("GET", "/hello/vinna"), TimeUnit.MILLISECONDS.toNanos(500), true, null);
+
+        // 200 req/s for half a second
+        assertEquals(100, result.requests);
+        assertEquals(0, result.errors);
+    }
+
+    @Test
+    public void unexpectedStatusesAreErrors() throws Exception {
+        LoadGenerator generator = new LoadGenerator(settings(Settings.Mode.CLOSED), "127.0.0.1", server.getPort());
+        assertEquals(404, generator.sendOnce(new Scenario("GET", "/nowhere")));
+
+        RouteResult result = generator.run(new Scenario("GET", "/nowhere"), TimeUnit.MILLISECONDS.toNanos(100), false, null);
+        assertEquals(result.requests, result.errors);
+        assertEquals(0, result.latencies.length);
+    }
+
+    @Test
+    public void percentiles() {
+        Latencies latencies = new Latencies();
+        for (long i = 1000; i >= 1; i--) {
+            latencies.record(i);
+        }
+        long[] sorted = Latencies.merge(Arrays.asList(latencies, new Latencies()));
+
+        assertEquals(1000, sorted.length);
+        assertEquals(500, Latencies.percentile(sorted, 0.5));
+        assertEquals(990, Latencies.percentile(sorted, 0.99));
+        assertEquals(999, Latencies.percentile(sorted, 0.999));
+        assertEquals(1000, Latencies.percentile(sorted, 1));
+        assertEquals(0, Latencies.percentile(new long[0], 0.5));
+    }
+}
@@ -0,0 +1,305 @@
+package vinna.embedded;
+
+import vinna.util.BufferPool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A client connection of the {@link VinnaServer}, reading HTTP/1.1 requests one after the other.
+ * <p/>
+ * The bytes are read into a pooled buffer, which is only grown for the requests that don't fit in it, and is given
+ * back to the pool whenever no request is pending. Once a request is complete, the connection stops reading until the
+ * response is written: the request body is read in place, and pipelined requests wait in the buffer.
+ * <p/>
+ * Only the selector thread reads and writes the connection, the workers only build the response.
+ */
+final class Connection {
+    private final BufferPool pool;
+    private final int maxRequestSize;
+
+    final SocketChannel channel;
+    final InetSocketAddress local;
+    final InetSocketAddress remote;
+    SelectionKey key;
+    long lastActive;
+
+    private byte[] buffer;
+    // the current request spans from start, the bytes read up to end
+    private int start;
+    private int end;
+    // where to resume the search of the end of the head
+    private int scanned;
+
+    // the head of the current request, once parsed
+    private int bodyStart = -1;
+    private int contentLength;
+    private String method;
+    private String target;
+    private String protocol;
+    private List<String> headerNames;
+    private List<String> headerValues;
+    private boolean expectsContinue;
+
+    private EmbeddedResponse response;
+    private ByteBuffer[] output;
+    private boolean closeAfterWrite;
+
+    Connection(SocketChannel channel, BufferPool pool, int maxRequestSize) throws IOException {
+        this.channel = channel;
+        this.pool = pool;
+        this.maxRequestSize = maxRequestSize;
+        this.local = (InetSocketAddress) channel.getLocalAddress();
+        this.remote = (InetSocketAddress) channel.getRemoteAddress();
+    }
+
+    /**
+     * @return false if the client closed the connection
+     */
+    boolean read() throws IOException {
+        if (buffer == null) {
+            buffer = pool.acquire();
+        }
+        if (end == buffer.length) {
+            if (start > 0) {
+                compact();
+            } else if (buffer.length < maxRequestSize) {
+                grow(Math.min(maxRequestSize, buffer.length * 2));
+            } else {
+                // the request is too large, next() fails
+                return true;
+            }
+        }
+        int read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+        if (read < 0) {
+            return false;
+        }
+        end += read;
+        return true;
+    }
+
+    /**
+     * @return the next complete request, or null if more bytes are needed
+     * @throws HttpError if the request is invalid, or too large
+     */
+    EmbeddedRequest next() throws HttpError {
+        if (buffer == null) {
+            return null;
+        }
+        if (bodyStart < 0 && !parseHead()) {
+            return null;
+        }
+        if (end - bodyStart < contentLength) {
+            int total = bodyStart - start + contentLength;
+            if (start + total > buffer.length) {
+                if (total <= buffer.length) {
+                    compact();
+                } else {
+                    grow(total);
+                }
+            }
+            return null;
+        }
+        return new EmbeddedRequest(method, target, protocol, headerNames, headerValues,
+                buffer, bodyStart, contentLength, local, remote);
+    }
+
+    /**
+     * @return true once, if the client waits for a 100 Continue before sending the body
+     */
+    boolean takeContinue() {
+        if (expectsContinue) {
+            expectsContinue = false;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean parseHead() throws HttpError {
+        // empty lines before a request are ignored
+        while (end - start >= 2 && buffer[start] == '\r' && buffer[start + 1] == '\n') {
+            start += 2;
+        }
+        int headEnd = -1;
+        for (int i = Math.max(start, scanned - 3); i + 3 < end; i++) {
+            if (buffer[i] == '\r' && buffer[i + 1] == '\n' && buffer[i + 2] == '\r' && buffer[i + 3] == '\n') {
+                headEnd = i;
+                break;
+            }
+        }
+        if (headEnd < 0) {
+            scanned = end;
+            if (end - start >= maxRequestSize) {
+                throw new HttpError(431);
+            }
+            return false;
+        }
+
+        List<String> lines = new ArrayList<>();
+        int lineStart = start;
+        for (int i = start; i <= headEnd; i++) {
+            if (i == headEnd || buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                lines.add(new String(buffer, lineStart, i - lineStart, StandardCharsets.ISO_8859_1));
+                lineStart = i + 2;
+                i++;
+            }
+        }
+
+        String[] requestLine = lines.get(0).split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.") || !requestLine[1].startsWith("/")) {
+            throw new HttpError(400);
+        }
+        List<String> names = new ArrayList<>(lines.size() - 1);
+        List<String> values = new ArrayList<>(lines.size() - 1);
+        int length = 0;
+        boolean expect = false;
+        for (int i = 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int colon = line.indexOf(':');
+            if (colon <= 0 || line.charAt(0) == ' ' || line.charAt(0) == '\t') {
+                throw new HttpError(400);
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                try {
+                    length = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new HttpError(400);
+                }
+                if (length < 0) {
+                    throw new HttpError(400);
+                }
+            } else if (name.equalsIgnoreCase("Transfer-Encoding") && !value.equalsIgnoreCase("identity")) {
+                // chunked request bodies are not supported
+                throw new HttpError(501);
+            } else if (name.equalsIgnoreCase("Expect") && value.equalsIgnoreCase("100-continue")) {
+                expect = true;
+            }
+            names.add(name);
+            values.add(value);
+        }
+        int bodyOffset = headEnd + 4;
+        if ((long) bodyOffset - start + length > maxRequestSize) {
+            throw new HttpError(413);
+        }
+
+        this.method = requestLine[0];
+        this.target = requestLine[1];
+        this.protocol = requestLine[2];
+        this.headerNames = names;
+        this.headerValues = values;
+        this.contentLength = length;
+        this.bodyStart = bodyOffset;
+        this.expectsContinue = expect && end - bodyOffset < length && "HTTP/1.1".equals(protocol);
+        return true;
+    }
+
+    void respond(EmbeddedResponse response, ByteBuffer[] output, boolean close) {
+        this.response = response;
+        this.output = output;
+        this.closeAfterWrite = close;
+    }
+
+    /**
+     * Writes as much of the pending response as the socket accepts.
+     *
+     * @return true once the response is completely written
+     */
+    boolean write() throws IOException {
+        long written;
+        do {
+            written = channel.write(output);
+        } while (written > 0 && output[output.length - 1].hasRemaining());
+        return !output[output.length - 1].hasRemaining();
+    }
+
+    /**
+     * Done with the current request, whose response is written: moves on to the next one.
+     *
+     * @return false if the connection must be closed
+     */
+    boolean complete() {
+        response.release();
+        response = null;
+        output = null;
+        if (closeAfterWrite) {
+            return false;
+        }
+        start = bodyStart + contentLength;
+        scanned = start;
+        bodyStart = -1;
+        contentLength = 0;
+        headerNames = null;
+        headerValues = null;
+        if (start == end) {
+            start = 0;
+            end = 0;
+            scanned = 0;
+            releaseBuffer();
+        }
+        return true;
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing more to do
+        }
+        if (response != null) {
+            response.release();
+            response = null;
+        }
+        releaseBuffer();
+    }
+
+    private void releaseBuffer() {
+        // grown buffers are not pooled
+        pool.release(buffer);
+        buffer = null;
+    }
+
+    private void compact() {
+        System.arraycopy(buffer, start, buffer, 0, end - start);
+        end -= start;
+        scanned = Math.max(0, scanned - start);
+        if (bodyStart >= 0) {
+            bodyStart -= start;
+        }
+        start = 0;
+    }
+
+    private void grow(int capacity) {
+        byte[] grown = new byte[capacity];
+        System.arraycopy(buffer, start, grown, 0, end - start);
+        pool.release(buffer);
+        buffer = grown;
+        end -= start;
+        scanned = Math.max(0, scanned - start);
+        if (bodyStart >= 0) {
+            bodyStart -= start;
+        }
+        start = 0;
+    }
+
+    /**
+     * A request the server answers with an error status, before closing the connection.
+     */
+    static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status) {
+            super(null, null, false, false);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package vinna.embedded;
+
+import vinna.exception.ConfigException;
+
+import javax.servlet.*;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.Part;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * A request read by the {@link VinnaServer}, exposed to Vinna as a servlet request.
+ * <p/>
+ * The body is not copied: it is read straight from the buffer of the connection, which is left untouched until the
+ * response is sent. There is no servlet container behind it: no sessions, no request dispatcher, no async support.
+ */
+final class EmbeddedRequest implements HttpServletRequest {
+    private static final Cookie[] NO_COOKIES = new Cookie[0];
+
+    private final String method;
+    private final String uri;
+    private final String queryString;
+    private final String protocol;
+    private final List<String> headerNames;
+    private final List<String> headerValues;
+    private final byte[] body;
+    private final int bodyOffset;
+    private final int bodyLength;
+    private final InetSocketAddress local;
+    private final InetSocketAddress remote;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+    private String characterEncoding;
+    private String path;
+    private Map<String, String[]> parameters;
+    private Cookie[] cookies;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    EmbeddedRequest(String method, String target, String protocol, List<String> headerNames, List<String> headerValues,
+                    byte[] body, int bodyOffset, int bodyLength, InetSocketAddress local, InetSocketAddress remote) {
+        this.method = method;
+        int query = target.indexOf('?');
+        this.uri = query < 0 ? target : target.substring(0, query);
+        this.queryString = query < 0 ? null : target.substring(query + 1);
+        this.protocol = protocol;
+        this.headerNames = headerNames;
+        this.headerValues = headerValues;
+        this.body = body;
+        this.bodyOffset = bodyOffset;
+        this.bodyLength = bodyLength;
+        this.local = local;
+        this.remote = remote;
+    }
+
+    /**
+     * @return true if the connection can be kept open after the response (HTTP/1.1, or HTTP/1.0 with keep-alive)
+     */
+    boolean isKeepAlive() {
+        String connection = getHeader("Connection");
+        if ("HTTP/1.1".equals(protocol)) {
+            return connection == null || !"close".equalsIgnoreCase(connection.trim());
+        }
+        return connection != null && "keep-alive".equalsIgnoreCase(connection.trim());
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort()).append(uri);
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public String getScheme() {
+        return "http";
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    /**
+     * @return the decoded path of the request, the whole application being mapped on /
+     */
+    @Override
+    public String getServletPath() {
+        if (path == null) {
+            path = decodePath(uri);
+        }
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                return headerValues.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = new ArrayList<>(1);
+        for (int i = 0; i < headerNames.size(); i++) {
+            if (headerNames.get(i).equalsIgnoreCase(name)) {
+                values.add(headerValues.get(i));
+            }
+        }
+        return Collections.enumeration(values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(new LinkedHashSet<>(headerNames));
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        try {
+            return format.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date header " + name + ": " + value);
+        }
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public int getContentLength() {
+        return bodyLength;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        if (characterEncoding == null) {
+            String contentType = getContentType();
+            if (contentType != null) {
+                int charset = contentType.toLowerCase().indexOf("charset=");
+                if (charset >= 0) {
+                    String value = contentType.substring(charset + 8);
+                    int end = value.indexOf(';');
+                    characterEncoding = (end < 0 ? value : value.substring(0, end)).trim().replace("\"", "");
+                }
+            }
+        }
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        if (!Charset.isSupported(env)) {
+            throw new UnsupportedEncodingException(env);
+        }
+        this.characterEncoding = env;
+    }
+
+    private Charset charset() {
+        String encoding = getCharacterEncoding();
+        return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        if (inputStream == null) {
+            inputStream = new ServletInputStream() {
+                private int position = bodyOffset;
+                private final int end = bodyOffset + bodyLength;
+
+                @Override
+                public int read() {
+                    return position < end ? body[position++] & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (position >= end) {
+                        return -1;
+                    }
+                    int count = Math.min(len, end - position);
+                    System.arraycopy(body, position, b, off, count);
+                    position += count;
+                    return count;
+                }
+
+                @Override
+                public int available() {
+                    return end - position;
+                }
+            };
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset()));
+        }
+        return reader;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterMap().get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return getParameterMap().get(name);
+    }
+
+    /**
+     * The parameters of the query string, and of the url-encoded form body, parsed on first access.
+     */
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (parameters == null) {
+            Map<String, List<String>> params = new LinkedHashMap<>();
+            String encoding = charset().name();
+            if (queryString != null) {
+                parseParameters(queryString, encoding, params);
+            }
+            String contentType = getContentType();
+            if (bodyLength > 0 && contentType != null && contentType.toLowerCase().startsWith("application/x-www-form-urlencoded")) {
+                parseParameters(new String(body, bodyOffset, bodyLength, StandardCharsets.ISO_8859_1), encoding, params);
+            }
+            Map<String, String[]> res = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> param : params.entrySet()) {
+                res.put(param.getKey(), param.getValue().toArray(new String[param.getValue().size()]));
+            }
+            parameters = Collections.unmodifiableMap(res);
+        }
+        return parameters;
+    }
+
+    private static void parseParameters(String encoded, String encoding, Map<String, List<String>> params) {
+        try {
+            for (String pair : encoded.split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int eq = pair.indexOf('=');
+                String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), encoding);
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), encoding);
+                List<String> values = params.get(name);
+                if (values == null) {
+                    values = new ArrayList<>(1);
+                    params.put(name, values);
+                }
+                values.add(value);
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            // malformed parameters are ignored, like most containers do
+        }
+    }
+
+    /**
+     * Decodes the %XX escapes of a path as UTF-8 ('+' is left as is in paths).
+     */
+    static String decodePath(String uri) {
+        if (uri.indexOf('%') < 0) {
+            return uri;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(uri.length());
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '%' && i + 2 < uri.length() && Character.digit(uri.charAt(i + 1), 16) >= 0
+                    && Character.digit(uri.charAt(i + 2), 16) >= 0) {
+                bytes.write(Character.digit(uri.charAt(i + 1), 16) << 4 | Character.digit(uri.charAt(i + 2), 16));
+                i += 2;
+            } else {
+                byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded, 0, encoded.length);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        if (cookies == null) {
+            List<Cookie> res = new ArrayList<>();
+            for (int i = 0; i < headerNames.size(); i++) {
+                if (headerNames.get(i).equalsIgnoreCase("Cookie")) {
+                    for (String pair : headerValues.get(i).split(";")) {
+                        int eq = pair.indexOf('=');
+                        String name = eq < 0 ? pair.trim() : pair.substring(0, eq).trim();
+                        if (name.isEmpty() || name.startsWith("$")) {
+                            continue;
+                        }
+                        String value = eq < 0 ? "" : pair.substring(eq + 1).trim();
+                        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                            value = value.substring(1, value.length() - 1);
+                        }
+                        try {
+                            res.add(new Cookie(name, value));
+                        } catch (IllegalArgumentException e) {
+                            // not a valid cookie name
+                        }
+                    }
+                }
+            }
+            cookies = res.isEmpty() ? NO_COOKIES : res.toArray(new Cookie[res.size()]);
+        }
+        return cookies;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if (o == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public Locale getLocale() {
+        String language = getHeader("Accept-Language");
+        if (language == null || language.trim().isEmpty()) {
+            return Locale.getDefault();
+        }
+        String tag = language.split(",")[0].split(";")[0].trim();
+        String[] parts = tag.split("-");
+        return parts.length > 1 ? new Locale(parts[0], parts[1]) : new Locale(parts[0]);
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(Collections.singletonList(getLocale()));
+    }
+
+    @Override
+    public String getServerName() {
+        String host = getHeader("Host");
+        if (host == null) {
+            return local.getHostString();
+        }
+        int colon = host.lastIndexOf(':');
+        return colon > host.lastIndexOf(']') ? host.substring(0, colon) : host;
+    }
+
+    @Override
+    public int getServerPort() {
+        String host = getHeader("Host");
+        if (host != null) {
+            int colon = host.lastIndexOf(':');
+            if (colon > host.lastIndexOf(']')) {
+                try {
+                    return Integer.parseInt(host.substring(colon + 1));
+                } catch (NumberFormatException e) {
+                    return local.getPort();
+                }
+            }
+            return 80;
+        }
+        return local.getPort();
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remote.getAddress().getHostAddress();
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return getRemoteAddr();
+    }
+
+    @Override
+    public int getRemotePort() {
+        return remote.getPort();
+    }
+
+    @Override
+    public String getLocalName() {
+        return local.getHostString();
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return local.getAddress().getHostAddress();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return local.getPort();
+    }
+
+    /**
+     * @return null, there is no servlet container to forward to
+     */
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public String getRealPath(String path) {
+        return null;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Asynchronous processing is not supported by the embedded server");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Asynchronous processing is not supported by the embedded server");
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        throw new IllegalStateException("Asynchronous processing is not supported by the embedded server");
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    /**
+     * @return null when no session is asked for, sessions are not supported by the embedded server
+     */
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new ConfigException("Sessions are not supported by the embedded server");
+        }
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+        return false;
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) throws ServletException {
+        throw new ServletException("Authentication is not supported by the embedded server");
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("Authentication is not supported by the embedded server");
+    }
+
+    @Override
+    public void logout() {
+    }
+
+    @Override
+    public Collection<Part> getParts() throws ServletException {
+        throw new ServletException("Servlet multipart parts are not supported by the embedded server");
+    }
+
+    @Override
+    public Part getPart(String name) throws ServletException {
+        throw new ServletException("Servlet multipart parts are not supported by the embedded server");
+    }
+}
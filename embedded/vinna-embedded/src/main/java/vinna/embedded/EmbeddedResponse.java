@@ -0,0 +1,448 @@
+package vinna.embedded;
+
+import vinna.response.ResponseHeaders;
+import vinna.util.BufferPool;
+import vinna.util.HttpDate;
+import vinna.util.Utf8Writer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A response of the {@link VinnaServer}, exposed to Vinna as a servlet response.
+ * <p/>
+ * The whole response is buffered into pooled chunks, and sent with its exact Content-Length by a single gathering
+ * write, the head included: nothing is committed before the action returns, and the connection can always be kept
+ * alive.
+ */
+final class EmbeddedResponse implements HttpServletResponse {
+    private static final Map<Integer, String> REASONS = new HashMap<>();
+
+    static {
+        REASONS.put(100, "Continue");
+        REASONS.put(200, "OK");
+        REASONS.put(201, "Created");
+        REASONS.put(202, "Accepted");
+        REASONS.put(204, "No Content");
+        REASONS.put(301, "Moved Permanently");
+        REASONS.put(302, "Found");
+        REASONS.put(303, "See Other");
+        REASONS.put(304, "Not Modified");
+        REASONS.put(307, "Temporary Redirect");
+        REASONS.put(400, "Bad Request");
+        REASONS.put(401, "Unauthorized");
+        REASONS.put(403, "Forbidden");
+        REASONS.put(404, "Not Found");
+        REASONS.put(405, "Method Not Allowed");
+        REASONS.put(406, "Not Acceptable");
+        REASONS.put(409, "Conflict");
+        REASONS.put(410, "Gone");
+        REASONS.put(411, "Length Required");
+        REASONS.put(413, "Request Entity Too Large");
+        REASONS.put(415, "Unsupported Media Type");
+        REASONS.put(431, "Request Header Fields Too Large");
+        REASONS.put(500, "Internal Server Error");
+        REASONS.put(501, "Not Implemented");
+        REASONS.put(503, "Service Unavailable");
+    }
+
+    private final BufferPool pool;
+    private final ResponseHeaders headers = new ResponseHeaders();
+    private final List<Cookie> cookies = new ArrayList<>();
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int position;
+    private int status = 200;
+    private String contentType;
+    private String characterEncoding = "ISO-8859-1";
+    private long declaredLength = -1;
+    private Locale locale = Locale.getDefault();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    EmbeddedResponse(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Encodes the head, and collects it along with the body chunks for a gathering write.
+     *
+     * @param head      true to only send the head, for HEAD requests
+     * @param keepAlive whether the connection is kept open after the response
+     */
+    ByteBuffer[] encode(boolean head, boolean keepAlive) {
+        if (writer != null) {
+            writer.close();
+        }
+        long length = length();
+        boolean noContent = status < 200 || status == 204 || status == 304;
+
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("HTTP/1.1 ").append(status).append(' ');
+        String reason = REASONS.get(status);
+        sb.append(reason == null ? "" : reason).append("\r\n");
+        if (!headers.contains("Date")) {
+            sb.append("Date: ").append(HttpDate.now()).append("\r\n");
+        }
+        if (contentType != null) {
+            sb.append("Content-Type: ").append(contentType);
+            String type = contentType.toLowerCase();
+            if ((writer != null || type.startsWith("text/")) && !type.contains("charset=")) {
+                sb.append(";charset=").append(characterEncoding);
+            }
+            sb.append("\r\n");
+        }
+        for (int i = 0; i < headers.size(); i++) {
+            sb.append(headers.name(i)).append(": ").append(headers.value(i)).append("\r\n");
+        }
+        for (Cookie cookie : cookies) {
+            sb.append("Set-Cookie: ").append(cookie.getName()).append('=').append(cookie.getValue() == null ? "" : cookie.getValue());
+            if (cookie.getMaxAge() >= 0) {
+                sb.append("; Max-Age=").append(cookie.getMaxAge());
+            }
+            if (cookie.getDomain() != null) {
+                sb.append("; Domain=").append(cookie.getDomain());
+            }
+            if (cookie.getPath() != null) {
+                sb.append("; Path=").append(cookie.getPath());
+            }
+            if (cookie.getSecure()) {
+                sb.append("; Secure");
+            }
+            if (cookie.isHttpOnly()) {
+                sb.append("; HttpOnly");
+            }
+            sb.append("\r\n");
+        }
+        if (!noContent) {
+            sb.append("Content-Length: ").append(head && declaredLength >= 0 ? declaredLength : length).append("\r\n");
+        }
+        if (!keepAlive) {
+            sb.append("Connection: close\r\n");
+        }
+        sb.append("\r\n");
+
+        int bodyChunks = head || noContent ? 0 : chunks.size();
+        ByteBuffer[] buffers = new ByteBuffer[1 + bodyChunks];
+        buffers[0] = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+        for (int i = 0; i < bodyChunks; i++) {
+            byte[] chunk = chunks.get(i);
+            buffers[i + 1] = ByteBuffer.wrap(chunk, 0, i == chunks.size() - 1 ? position : chunk.length);
+        }
+        return buffers;
+    }
+
+    /**
+     * Gives the body chunks back to the pool, once they're written.
+     */
+    void release() {
+        for (byte[] chunk : chunks) {
+            pool.release(chunk);
+        }
+        chunks.clear();
+        position = 0;
+    }
+
+    private long length() {
+        return chunks.isEmpty() ? 0 : (long) (chunks.size() - 1) * pool.getBufferSize() + position;
+    }
+
+    private void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (chunks.isEmpty() || position == pool.getBufferSize()) {
+                chunks.add(pool.acquire());
+                position = 0;
+            }
+            byte[] chunk = chunks.get(chunks.size() - 1);
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(b, off, chunk, position, count);
+            position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                private final byte[] single = new byte[1];
+
+                @Override
+                public void write(int b) {
+                    single[0] = (byte) b;
+                    EmbeddedResponse.this.write(single, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    EmbeddedResponse.this.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            Charset charset = Charset.forName(characterEncoding);
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                writer = new PrintWriter(new Utf8Writer(getOutputStream(), pool));
+            } else {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+            }
+        }
+        return writer;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+        this.status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        reset();
+        status = sc;
+        if (msg != null) {
+            setContentType("text/plain");
+            setCharacterEncoding("utf-8");
+            getWriter().write(msg);
+        }
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        sendError(sc, REASONS.get(sc));
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        resetBuffer();
+        status = 302;
+        headers.set("Location", location);
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type == null) {
+            contentType = null;
+            return;
+        }
+        int charset = type.toLowerCase().indexOf("charset=");
+        if (charset >= 0) {
+            String value = type.substring(charset + 8);
+            int end = value.indexOf(';');
+            setCharacterEncoding((end < 0 ? value : value.substring(0, end)).trim().replace("\"", ""));
+        }
+        contentType = type;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (writer == null && charset != null) {
+            this.characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        declaredLength = len;
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        this.locale = loc;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        cookies.add(cookie);
+    }
+
+    /**
+     * Content-Type and Content-Length are tracked apart from the other headers: the first one is completed with the
+     * charset, the second one is always the length of the buffered body.
+     */
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else if ("Content-Length".equalsIgnoreCase(name)) {
+            declaredLength = Long.parseLong(value.trim());
+        } else {
+            headers.set(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name)) {
+            setHeader(name, value);
+        } else {
+            headers.add(name, value);
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        headers.setDate(name, date);
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        headers.addDate(name, date);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            declaredLength = value;
+        } else {
+            headers.setInt(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            return contentType != null;
+        }
+        return headers.contains(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            return contentType;
+        }
+        return headers.getFirst(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            return contentType == null ? Collections.<String>emptyList() : Collections.singletonList(contentType);
+        }
+        return headers.getAll(name);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        Set<String> names = new LinkedHashSet<>();
+        if (contentType != null) {
+            names.add("Content-Type");
+        }
+        for (int i = 0; i < headers.size(); i++) {
+            names.add(headers.name(i));
+        }
+        return names;
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    /**
+     * Nothing is sent before the action returns: flushing is a no-op.
+     */
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return pool.getBufferSize();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        release();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        status = 200;
+        contentType = null;
+        characterEncoding = "ISO-8859-1";
+        declaredLength = -1;
+        cookies.clear();
+        while (headers.size() > 0) {
+            headers.remove(headers.name(0));
+        }
+    }
+}
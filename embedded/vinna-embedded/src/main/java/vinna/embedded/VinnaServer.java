@@ -0,0 +1,433 @@
+package vinna.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.Vinna;
+import vinna.VinnaHandler;
+import vinna.exception.ConfigException;
+import vinna.util.BufferPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a Vinna application over HTTP/1.1, without a servlet container.
+ * <p/>
+ * A single selector thread accepts the connections, reads the requests and writes the responses, with keep-alive and
+ * pipelining. The actions are run by a pool of worker threads, or by the selector thread itself when there are no
+ * workers (for applications which never block).
+ * <pre>
+ * VinnaServer server = new VinnaServer(new TodoApp()).port(8080).workers(64).start();
+ * </pre>
+ * Or from the command line: {@code java vinna.embedded.VinnaServer com.example.TodoApp 8080}
+ * <p/>
+ * There is no servlet container behind the requests: sessions, forwards to the container (JSP) and asynchronous
+ * responses (event streams) are not supported. Chunked request bodies are answered with a 501.
+ */
+public class VinnaServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(VinnaServer.class);
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_WORKERS = 32;
+    public static final int DEFAULT_MAX_REQUEST_SIZE = 1024 * 1024;
+    public static final long DEFAULT_KEEP_ALIVE_MS = 30000;
+
+    private static final ByteBuffer CONTINUE = ByteBuffer.wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+    private static final AtomicInteger servers = new AtomicInteger();
+
+    private final Vinna vinna;
+    private final Map<String, Object> config;
+    private final BufferPool pool = BufferPool.DEFAULT;
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+
+    private String host;
+    private int port = DEFAULT_PORT;
+    private int workers = DEFAULT_WORKERS;
+    private ExecutorService executor;
+    private boolean ownsExecutor;
+    private int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+    private long keepAliveTimeout = DEFAULT_KEEP_ALIVE_MS;
+
+    private VinnaHandler handler;
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public VinnaServer(Vinna vinna) {
+        this(vinna, new HashMap<String, Object>());
+    }
+
+    /**
+     * @param config the configuration of the application, as the init parameters of the VinnaFilter
+     */
+    public VinnaServer(Vinna vinna, Map<String, Object> config) {
+        this.vinna = vinna;
+        this.config = config;
+    }
+
+    /**
+     * @param host the address to listen on, all of them by default
+     */
+    public VinnaServer host(String host) {
+        this.host = host;
+        return this;
+    }
+
+    /**
+     * @param port the port to listen on, any free port if 0
+     */
+    public VinnaServer port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * @param workers the number of threads running the actions, 0 to run them on the selector thread
+     */
+    public VinnaServer workers(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("workers should be positive");
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * Runs the actions with the given executor instead of a pool of workers. The executor is not shut down with the
+     * server.
+     */
+    public VinnaServer executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @param maxRequestSize the maximum size in bytes of a request, head and body
+     */
+    public VinnaServer maxRequestSize(int maxRequestSize) {
+        if (maxRequestSize < pool.getBufferSize()) {
+            throw new IllegalArgumentException("maxRequestSize should be at least " + pool.getBufferSize());
+        }
+        this.maxRequestSize = maxRequestSize;
+        return this;
+    }
+
+    /**
+     * @param keepAliveTimeout the delay in milliseconds after which an idle connection is closed
+     */
+    public VinnaServer keepAliveTimeout(long keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+        return this;
+    }
+
+    /**
+     * Initializes the application, and starts listening.
+     */
+    public VinnaServer start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("The server is already started");
+        }
+        vinna.init(config);
+        handler = new VinnaHandler(vinna, null);
+
+        final int id = servers.incrementAndGet();
+        if (executor == null && workers > 0) {
+            executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "vinna-server-" + id + "-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            ownsExecutor = true;
+        }
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        selectorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "vinna-server-" + id + "-selector");
+        selectorThread.start();
+        logger.info("Vinna server listening on {}", serverChannel.getLocalAddress());
+        return this;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("The server is not started", e);
+        }
+    }
+
+    /**
+     * Stops listening, closes the connections (the responses being processed are lost) and destroys the application.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(keepAliveTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        vinna.destroy();
+    }
+
+    private void loop() {
+        long lastSweep = System.currentTimeMillis();
+        try {
+            while (running) {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            if (!connection.read()) {
+                                connection.close();
+                                continue;
+                            }
+                            connection.lastActive = System.currentTimeMillis();
+                            process(connection);
+                        } else if (key.isWritable()) {
+                            connection.lastActive = System.currentTimeMillis();
+                            if (flush(connection)) {
+                                process(connection);
+                            }
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Connection closed", e);
+                        connection.close();
+                    }
+                }
+
+                Connection connection;
+                while ((connection = completed.poll()) != null) {
+                    try {
+                        if (connection.channel.isOpen() && flush(connection)) {
+                            process(connection);
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Connection closed", e);
+                        connection.close();
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= 1000) {
+                    lastSweep = now;
+                    sweep(now);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("The Vinna server stopped", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close the server channel", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel, pool, maxRequestSize);
+                connection.lastActive = System.currentTimeMillis();
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                logger.debug("Cannot accept a connection", e);
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Handles the complete requests in the connection buffer, until one is pending or processed by a worker.
+     */
+    private void process(final Connection connection) throws IOException {
+        while (true) {
+            final EmbeddedRequest request;
+            try {
+                request = connection.next();
+            } catch (Connection.HttpError e) {
+                EmbeddedResponse response = new EmbeddedResponse(pool);
+                response.sendError(e.status);
+                connection.respond(response, response.encode(false, false), true);
+                flush(connection);
+                return;
+            }
+            if (request == null) {
+                if (connection.takeContinue()) {
+                    connection.channel.write(CONTINUE.duplicate());
+                }
+                connection.key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+
+            connection.key.interestOps(0);
+            if (executor != null) {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            handle(connection, request);
+                            completed.offer(connection);
+                            selector.wakeup();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    logger.warn("The executor rejected a request, answering 503");
+                    EmbeddedResponse response = new EmbeddedResponse(pool);
+                    response.sendError(503);
+                    connection.respond(response, response.encode(false, false), true);
+                    flush(connection);
+                }
+                return;
+            }
+            handle(connection, request);
+            if (!flush(connection)) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Connection connection, EmbeddedRequest request) {
+        EmbeddedResponse response = new EmbeddedResponse(pool);
+        boolean keepAlive = running && request.isKeepAlive();
+        try {
+            if (!handler.handle(request, response)) {
+                response.sendError(404);
+            }
+        } catch (Exception e) {
+            logger.error("Error while processing the request", e);
+            response.reset();
+            response.setStatus(500);
+        }
+        connection.respond(response, response.encode("HEAD".equals(request.getMethod()), keepAlive), !keepAlive);
+    }
+
+    /**
+     * @return true if the response is written and the connection is kept open for the next request
+     */
+    private boolean flush(Connection connection) throws IOException {
+        if (!connection.write()) {
+            connection.key.interestOps(SelectionKey.OP_WRITE);
+            return false;
+        }
+        if (!connection.complete()) {
+            connection.close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Closes the connections idle (waiting for a request, or for the client to read the response) for too long.
+     */
+    private void sweep(long now) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.interestOps() != 0 && key.attachment() instanceof Connection) {
+                Connection connection = (Connection) key.attachment();
+                if (now - connection.lastActive > keepAliveTimeout) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Usage: {@code VinnaServer [application-class] [port]}, the application class being a subclass of Vinna.
+     */
+    public static void main(String[] args) throws IOException {
+        Vinna vinna;
+        if (args.length > 0) {
+            try {
+                vinna = (Vinna) Class.forName(args[0]).newInstance();
+            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+                throw new ConfigException("Cannot create the application " + args[0], e);
+            }
+        } else {
+            vinna = new Vinna();
+        }
+        final VinnaServer server = new VinnaServer(vinna).port(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT).start();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    logger.warn("Cannot stop the Vinna server", e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,165 @@
+package vinna.embedded;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import vinna.Vinna;
+import vinna.response.Response;
+import vinna.response.StringResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class VinnaServerTest {
+
+    public static class Greeter {
+        public Response hello(String name) {
+            return new StringResponse("hello " + name);
+        }
+
+        public Response echo(String message) {
+            return new StringResponse(message);
+        }
+    }
+
+    private VinnaServer server;
+
+    private static Vinna application() {
+        return new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/hello/{name}").withController(Greeter.class).hello(param("name").asString());
+                post("/echo").withController(Greeter.class).echo(req.param("message").asString());
+            }
+        };
+    }
+
+    @Before
+    public void start() throws IOException {
+        server = new VinnaServer(application()).port(0).workers(2).start();
+    }
+
+    @After
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    private static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (!head.toString("ISO-8859-1").endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            head.write(b);
+        }
+        String response = head.toString("ISO-8859-1");
+        int length = 0;
+        for (String line : response.split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        byte[] body = new byte[length];
+        for (int read = 0; read < length; ) {
+            int count = in.read(body, read, length - read);
+            if (count < 0) {
+                throw new IOException("Connection closed");
+            }
+            read += count;
+        }
+        return response + new String(body, StandardCharsets.UTF_8);
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    @Test
+    public void servesPipelinedRequestsOnAKeptAliveConnection() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("GET /hello/world HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                    "GET /hello/caf%C3%A9 HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+            String first = readResponse(socket.getInputStream());
+            assertTrue(first, first.startsWith("HTTP/1.1 200 OK\r\n"));
+            assertTrue(first, first.contains("Content-Length: 11\r\n"));
+            assertTrue(first, first.endsWith("\r\n\r\nhello world"));
+            assertFalse(first, first.contains("Connection: close"));
+
+            assertTrue(readResponse(socket.getInputStream()).endsWith("hello café"));
+
+            socket.getOutputStream().write("GET /hello/again HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            String last = readResponse(socket.getInputStream());
+            assertTrue(last, last.contains("Connection: close\r\n"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void readsTheFormBody() throws IOException {
+        try (Socket socket = connect()) {
+            String body = "message=h%C3%A9+there";
+            socket.getOutputStream().write(("POST /echo HTTP/1.1\r\nContent-Type: application/x-www-form-urlencoded\r\n" +
+                    "Content-Length: " + body.length() + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+            socket.getOutputStream().write(body.getBytes(StandardCharsets.ISO_8859_1));
+
+            assertTrue(readResponse(socket.getInputStream()).endsWith("\r\n\r\nhé there"));
+        }
+    }
+
+    @Test
+    public void answersTheRequestsWithoutRoute() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /nowhere HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 404 Not Found\r\n"));
+        }
+    }
+
+    @Test
+    public void rejectsTheInvalidRequests() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response, response.startsWith("HTTP/1.1 501 "));
+            assertTrue(response, response.contains("Connection: close\r\n"));
+        }
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("NONSENSE\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 400 "));
+        }
+    }
+
+    @Test
+    public void answersTheRequestsRejectedByTheExecutor() throws IOException {
+        server.close();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        server = new VinnaServer(application()).port(0).executor(executor).start();
+
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /hello/world HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response, response.startsWith("HTTP/1.1 503 "));
+            assertTrue(response, response.contains("Connection: close\r\n"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void decodesThePath() {
+        assertEquals("/a b/é+", EmbeddedRequest.decodePath("/a%20b/%C3%A9+"));
+        assertEquals("/plain", EmbeddedRequest.decodePath("/plain"));
+    }
+}
@@ -0,0 +1,71 @@
+package vinna.virtual;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports the virtual threads pinned to their carrier thread: a virtual thread blocking inside a synchronized block
+ * or method (or a native frame) can't be unmounted, and holds a platform thread for the whole wait.
+ * <p/>
+ * The pinned waits longer than the threshold are logged as warnings with their stack trace, which shows the
+ * synchronized frame to replace by a {@link java.util.concurrent.locks.ReentrantLock}. The events come from the
+ * jdk.VirtualThreadPinned JFR event, recorded in-process, and are reported with a delay of about a second.
+ */
+public final class PinningMonitor implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PinningMonitor.class);
+    private static final int MAX_FRAMES = 16;
+
+    private final RecordingStream stream;
+    private final AtomicLong pinned = new AtomicLong();
+
+    public PinningMonitor(Duration threshold) {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::report);
+        stream.startAsync();
+    }
+
+    /**
+     * @return the number of pinned waits reported so far
+     */
+    public long getPinnedCount() {
+        return pinned.get();
+    }
+
+    private void report(RecordedEvent event) {
+        pinned.incrementAndGet();
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            int count = 0;
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                if (count++ == MAX_FRAMES) {
+                    sb.append("\n\t...");
+                    break;
+                }
+                sb.append("\n\tat ").append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+                        .append(" (line ").append(frame.getLineNumber()).append(')');
+            }
+        }
+        RecordedThread thread = event.getThread();
+        String name = thread == null ? "?" : thread.getJavaName().isEmpty() ? "#" + thread.getJavaThreadId() : thread.getJavaName();
+        logger.warn("Virtual thread {} pinned to its carrier for {} ms{}", new Object[]{name, event.getDuration().toMillis(), sb});
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -0,0 +1,115 @@
+package vinna.virtual;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.VinnaContext;
+import vinna.VinnaFilter;
+import vinna.sse.EventStream;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A VinnaFilter running the actions, and sending their responses, on virtual threads.
+ * <p/>
+ * The interceptors and the route matching run on the container thread: the requests without a route still go down
+ * the filter chain. A matched request is put in asynchronous mode, and its action runs on a new virtual thread, with
+ * the {@link VinnaContext} of the request. The container thread is given back right away.
+ * <p/>
+ * Requires &lt;async-supported&gt;true&lt;/async-supported&gt; in the filter declaration, the actions run on the
+ * container thread otherwise. The pass routes go down the filter chain on the container thread, but an action
+ * returning a pass response gets a 404: the filter chain can't be resumed from another thread.
+ * <p/>
+ * Init parameters, on top of the VinnaFilter ones:
+ * <ul>
+ * <li>async-timeout: the delay in milliseconds before the container times out an action, its default otherwise</li>
+ * <li>pinned-threshold: the virtual threads pinned for longer than this delay in milliseconds are logged (see
+ * {@link PinningMonitor}), 20 by default, 0 to disable the monitoring</li>
+ * </ul>
+ */
+public class VirtualThreadVinnaFilter extends VinnaFilter {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadVinnaFilter.class);
+
+    public static final String ASYNC_TIMEOUT = "async-timeout";
+    public static final String PINNED_THRESHOLD = "pinned-threshold";
+    public static final long DEFAULT_PINNED_THRESHOLD_MS = 20;
+
+    private ExecutorService executor;
+    private PinningMonitor pinningMonitor;
+    private long asyncTimeout = -1;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        super.init(filterConfig);
+        String timeout = filterConfig.getInitParameter(ASYNC_TIMEOUT);
+        if (timeout != null) {
+            asyncTimeout = Long.parseLong(timeout.trim());
+        }
+        String threshold = filterConfig.getInitParameter(PINNED_THRESHOLD);
+        long pinnedThreshold = threshold == null ? DEFAULT_PINNED_THRESHOLD_MS : Long.parseLong(threshold.trim());
+        if (pinnedThreshold > 0) {
+            pinningMonitor = new PinningMonitor(Duration.ofMillis(pinnedThreshold));
+        }
+        executor = VirtualThreads.newExecutor();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse) || !request.isAsyncSupported()) {
+            super.doFilter(request, response, chain);
+            return;
+        }
+        final VinnaContext context = handler.match((HttpServletRequest) request, (HttpServletResponse) response);
+        if (context == null) {
+            return;
+        }
+        if (!context.isResolved() || context.isPass()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final AsyncContext async = request.startAsync();
+        if (asyncTimeout >= 0) {
+            async.setTimeout(asyncTimeout);
+        }
+        executor.execute(() -> {
+            boolean streaming = false;
+            try {
+                if (!handler.execute(context)) {
+                    context.response.sendError(404);
+                }
+                streaming = async.getRequest().getAttribute(EventStream.STREAMING) != null;
+            } catch (IOException | ServletException | RuntimeException e) {
+                logger.error("Error while processing the request", e);
+                if (!context.response.isCommitted()) {
+                    context.response.reset();
+                    context.response.setStatus(500);
+                }
+            } finally {
+                if (!streaming) {
+                    async.complete();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.close();
+        }
+        if (pinningMonitor != null) {
+            pinningMonitor.close();
+        }
+        super.destroy();
+    }
+}
@@ -0,0 +1,27 @@
+package vinna.virtual;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the Vinna actions on virtual threads (Java 21+): blocking calls (JDBC, HTTP clients, ...) park the virtual
+ * thread instead of holding a platform thread, and the concurrency isn't capped by a thread pool anymore.
+ * <p/>
+ * In a servlet container, declare the {@link VirtualThreadVinnaFilter} instead of the VinnaFilter. With the embedded
+ * server:
+ * <pre>
+ * new VinnaServer(new TodoApp()).executor(VirtualThreads.newExecutor()).start();
+ * </pre>
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return an executor starting a new virtual thread per task, named vinna-virtual-N
+     */
+    public static ExecutorService newExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vinna-virtual-", 0).factory());
+    }
+}
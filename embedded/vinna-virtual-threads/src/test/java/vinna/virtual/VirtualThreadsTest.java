@@ -0,0 +1,78 @@
+package vinna.virtual;
+
+import org.junit.Test;
+import vinna.Vinna;
+import vinna.VinnaContext;
+import vinna.embedded.VinnaServer;
+import vinna.response.Response;
+import vinna.response.StringResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadsTest {
+
+    public static class ThreadController {
+        public Response thread() {
+            return new StringResponse(Thread.currentThread().isVirtual() + " " + (VinnaContext.get() != null));
+        }
+    }
+
+    private static String get(int port, String path) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(("GET " + path + " HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            InputStream in = socket.getInputStream();
+            int b;
+            while ((b = in.read()) >= 0) {
+                bytes.write(b);
+            }
+            return bytes.toString("UTF-8");
+        }
+    }
+
+    @Test
+    public void runsTheActionsOnVirtualThreadsWithTheirContext() throws IOException {
+        try (ExecutorService executor = VirtualThreads.newExecutor();
+             VinnaServer server = new VinnaServer(new Vinna() {
+                 @Override
+                 protected void routes(Map<String, Object> config) {
+                     get("/thread").withController(ThreadController.class).thread();
+                 }
+             }).port(0).executor(executor).start()) {
+
+            assertTrue(get(server.getPort(), "/thread").endsWith("\r\n\r\ntrue true"));
+        }
+    }
+
+    @Test
+    public void reportsThePinnedVirtualThreads() throws Exception {
+        try (PinningMonitor monitor = new PinningMonitor(Duration.ofMillis(10))) {
+            final Object lock = new Object();
+            Thread thread = Thread.ofVirtual().start(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            thread.join();
+
+            for (int i = 0; i < 100 && monitor.getPinnedCount() == 0; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(1, monitor.getPinnedCount());
+        }
+    }
+}
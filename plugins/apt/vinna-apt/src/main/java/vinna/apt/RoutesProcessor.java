@@ -0,0 +1,373 @@
+package vinna.apt;
+
+import vinna.annotation.*;
+import vinna.exception.ConfigException;
+import vinna.http.MediaType;
+import vinna.route.AnnotatedRoutes;
+import vinna.route.RoutesParser;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Generates, for each controller having {@link Get} (and similar) annotated methods, an {@link AnnotatedRoutes}
+ * class holding its routes, with their path patterns built and their actions calling the controller methods directly.
+ * The generated classes are registered in META-INF/services/vinna.route.AnnotatedRoutes.
+ */
+@SupportedAnnotationTypes({"vinna.annotation.Get", "vinna.annotation.Post", "vinna.annotation.Put", "vinna.annotation.Delete"})
+public class RoutesProcessor extends AbstractProcessor {
+    private static final String SERVICES = "META-INF/services/" + AnnotatedRoutes.class.getName();
+
+    private static final Map<Class<? extends Annotation>, String> VERBS = new LinkedHashMap<>();
+
+    static {
+        VERBS.put(Get.class, "GET");
+        VERBS.put(Post.class, "POST");
+        VERBS.put(Put.class, "PUT");
+        VERBS.put(Delete.class, "DELETE");
+    }
+
+    private final Set<String> generated = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!generated.isEmpty()) {
+                writeServices();
+            }
+            return false;
+        }
+
+        Set<TypeElement> controllers = new LinkedHashSet<>();
+        for (Class<? extends Annotation> annotation : VERBS.keySet()) {
+            for (Element method : roundEnv.getElementsAnnotatedWith(annotation)) {
+                controllers.add((TypeElement) method.getEnclosingElement());
+            }
+        }
+        for (TypeElement controller : controllers) {
+            generate(controller);
+        }
+        return true;
+    }
+
+    private void generate(TypeElement controller) {
+        if (controller.getModifiers().contains(Modifier.PRIVATE)
+                || controller.getNestingKind() == NestingKind.MEMBER && !controller.getModifiers().contains(Modifier.STATIC)
+                || controller.getNestingKind().isNested() && controller.getNestingKind() != NestingKind.MEMBER) {
+            error(controller, "A routed controller has to be a top level or a static nested class, and not private");
+            return;
+        }
+
+        StringBuilder routes = new StringBuilder();
+        boolean valid = true;
+        for (ExecutableElement method : ElementFilter.methodsIn(controller.getEnclosedElements())) {
+            for (Map.Entry<Class<? extends Annotation>, String> verb : VERBS.entrySet()) {
+                Annotation annotation = method.getAnnotation(verb.getKey());
+                if (annotation != null) {
+                    valid &= route(controller, method, verb.getValue(), path(annotation), mediaTypes(annotation, true),
+                            mediaTypes(annotation, false), routes);
+                }
+            }
+        }
+        if (!valid) {
+            return;
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(controller).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(controller).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_')
+                + AnnotatedRoutes.SUFFIX;
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(className, controller).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("import vinna.exception.VuntimeException;\nimport vinna.response.Response;\nimport vinna.route.ActionArgument;\n"
+                    + "import vinna.route.AnnotatedRoutes;\nimport vinna.route.CompiledAction;\nimport vinna.route.Route;\n\n"
+                    + "import java.util.Arrays;\nimport java.util.List;\n\n");
+            writer.write("/**\n * Generated by the vinna-apt annotation processor from the routes of " + controller.getQualifiedName()
+                    + ", do not edit.\n */\n");
+            writer.write("public final class " + simpleName + " extends AnnotatedRoutes {\n\n");
+            writer.write("    @Override\n    protected void routes(String prefix, List<Route> routes) {\n");
+            writer.write(routes.toString());
+            writer.write("    }\n}\n");
+        } catch (IOException e) {
+            error(controller, "Cannot generate the routes of " + controller.getQualifiedName() + ": " + e.getMessage());
+            return;
+        }
+        generated.add(className);
+    }
+
+    private boolean route(TypeElement controller, ExecutableElement method, String verb, String path, String[] produces,
+                          String[] consumes, StringBuilder routes) {
+        Types types = processingEnv.getTypeUtils();
+        if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+            error(method, "A routed method can't be private or static");
+            return false;
+        }
+        if (!types.isAssignable(method.getReturnType(), type("vinna.response.Response"))) {
+            error(method, "A routed method has to return a Response");
+            return false;
+        }
+        if (!path.startsWith("/")) {
+            error(method, "The path of a routed method has to start with /");
+            return false;
+        }
+        RoutesParser.ParsedPath parsedPath;
+        try {
+            parsedPath = RoutesParser.parsePath(path);
+        } catch (ConfigException | PatternSyntaxException e) {
+            error(method, "Invalid path " + path + ": " + e.getMessage());
+            return false;
+        }
+        try {
+            MediaType.parseAll(produces);
+            MediaType.parseAll(consumes);
+        } catch (ConfigException e) {
+            error(method, e.getMessage());
+            return false;
+        }
+
+        StringBuilder arguments = new StringBuilder();
+        StringBuilder classes = new StringBuilder();
+        StringBuilder call = new StringBuilder();
+        boolean generic = false;
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            String argument = argument(parameter, parsedPath.variableNames);
+            if (argument == null) {
+                return false;
+            }
+            TypeMirror erasure = types.erasure(parameter.asType());
+            String separator = i == 0 ? "" : ", ";
+            arguments.append(separator).append(argument);
+            classes.append(separator).append(erasure).append(".class");
+            String boxed = erasure.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) erasure).getQualifiedName().toString() : erasure.toString();
+            call.append(separator).append('(').append(boxed).append(") args[").append(i).append(']');
+            generic |= parameter.asType().getKind() == TypeKind.DECLARED && !((DeclaredType) parameter.asType()).getTypeArguments().isEmpty();
+        }
+
+        StringBuilder names = new StringBuilder();
+        for (String name : parsedPath.variableNames) {
+            names.append(names.length() == 0 ? "" : ", ").append(literal(name));
+        }
+        String controllerName = types.erasure(controller.asType()).toString();
+        String invocation = "((" + controllerName + ") controller)." + method.getSimpleName() + "(" + call + ")";
+
+        routes.append("        // ").append(verb).append(' ').append(comment(path)).append(' ').append(method.getSimpleName()).append('\n');
+        routes.append("        routes.add(route(").append(literal(verb)).append(", prefix, ").append(literal(parsedPath.pathPattern.pattern()))
+                .append(", Arrays.<String>asList(").append(names).append("),\n");
+        if (produces.length > 0 || consumes.length > 0) {
+            routes.append("                new String[]{").append(literals(produces)).append("}, new String[]{")
+                    .append(literals(consumes)).append("},\n");
+        }
+        routes.append("                new CompiledAction(null, ").append(controllerName).append(".class, ").append(literal(method.getSimpleName().toString()))
+                .append(", new ActionArgument[]{").append(arguments).append("}, new Class<?>[]{").append(classes).append("}) {\n");
+        routes.append("                    @Override\n");
+        if (generic) {
+            // the arguments are cast to the erasure of the generic parameters
+            routes.append("                    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        }
+        routes.append("                    protected Response invoke(Object controller, Object[] args) {\n");
+        if (method.getThrownTypes().isEmpty()) {
+            routes.append("                        return ").append(invocation).append(";\n");
+        } else {
+            routes.append("                        try {\n");
+            routes.append("                            return ").append(invocation).append(";\n");
+            routes.append("                        } catch (RuntimeException | Error e) {\n");
+            routes.append("                            throw e;\n");
+            routes.append("                        } catch (Throwable e) {\n");
+            routes.append("                            throw new VuntimeException(e);\n");
+            routes.append("                        }\n");
+        }
+        routes.append("                    }\n");
+        routes.append("                }));\n");
+        return true;
+    }
+
+    /**
+     * @return the source of the action argument resolving the parameter, or null if it can't be resolved
+     */
+    private String argument(VariableElement parameter, Collection<String> variableNames) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror type = parameter.asType();
+
+        Param param = parameter.getAnnotation(Param.class);
+        Header header = parameter.getAnnotation(Header.class);
+        CookieValue cookie = parameter.getAnnotation(CookieValue.class);
+        Part part = parameter.getAnnotation(Part.class);
+        Argument custom = parameter.getAnnotation(Argument.class);
+        if (param != null) {
+            return "new ActionArgument.RequestParameter(" + literal(param.value()) + ")" + typed(parameter);
+        } else if (header != null) {
+            return "new ActionArgument.Header(" + literal(header.value()) + ")" + typed(parameter);
+        } else if (cookie != null) {
+            return "new ActionArgument.CookieArgument(" + literal(cookie.value()) + ")";
+        } else if (part != null) {
+            if (!types.isAssignable(type("vinna.http.UploadedFile"), type)) {
+                error(parameter, "A @Part parameter has to be an UploadedFile");
+                return null;
+            }
+            return "new ActionArgument.RequestPart(" + literal(part.value()) + ")";
+        } else if (parameter.getAnnotation(Body.class) != null) {
+            if (types.isAssignable(type("java.io.InputStream"), type)) {
+                return "new ActionArgument.RequestBody()";
+            }
+            if (type.getKind().isPrimitive()) {
+                error(parameter, "A @Body parameter has to be an InputStream, or an object read from JSON");
+                return null;
+            }
+            return "new vinna.json.JsonBody()";
+        } else if (custom != null) {
+            TypeMirror argumentType;
+            try {
+                custom.value();
+                throw new IllegalStateException("The @Argument class should only be available as a type mirror");
+            } catch (MirroredTypeException e) {
+                argumentType = e.getTypeMirror();
+            }
+            return "new " + types.erasure(argumentType) + "()";
+        } else {
+            String name = parameter.getSimpleName().toString();
+            if (!variableNames.contains(name)) {
+                error(parameter, "The parameter " + name + " isn't a path variable, and has no binding annotation");
+                return null;
+            }
+            return "new ActionArgument.Variable(" + literal(name) + ")" + typed(parameter);
+        }
+    }
+
+    /**
+     * Collections parameters (Collection, List or Set) need their elements type to be converted.
+     */
+    private String typed(VariableElement parameter) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror type = parameter.asType();
+        if (type.getKind() != TypeKind.DECLARED || !types.isAssignable(types.erasure(type), types.erasure(type("java.util.Collection")))) {
+            return "";
+        }
+        TypeMirror collectionType = types.erasure(type);
+        if (!types.isSameType(collectionType, types.erasure(type("java.util.Collection")))
+                && !types.isSameType(collectionType, types.erasure(type("java.util.List")))
+                && !types.isSameType(collectionType, types.erasure(type("java.util.Set")))) {
+            error(parameter, "A collection parameter has to be a Collection, a List or a Set");
+            return "";
+        }
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+        if (typeArguments.size() != 1 || typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+            error(parameter, "A collection parameter has to declare its elements type");
+            return "";
+        }
+        return ".typed(" + collectionType + ".class, " + types.erasure(typeArguments.get(0)) + ".class)";
+    }
+
+    private String path(Annotation annotation) {
+        if (annotation instanceof Get) {
+            return ((Get) annotation).value();
+        } else if (annotation instanceof Post) {
+            return ((Post) annotation).value();
+        } else if (annotation instanceof Put) {
+            return ((Put) annotation).value();
+        } else {
+            return ((Delete) annotation).value();
+        }
+    }
+
+    private String[] mediaTypes(Annotation annotation, boolean produces) {
+        if (annotation instanceof Get) {
+            return produces ? ((Get) annotation).produces() : ((Get) annotation).consumes();
+        } else if (annotation instanceof Post) {
+            return produces ? ((Post) annotation).produces() : ((Post) annotation).consumes();
+        } else if (annotation instanceof Put) {
+            return produces ? ((Put) annotation).produces() : ((Put) annotation).consumes();
+        } else {
+            return produces ? ((Delete) annotation).produces() : ((Delete) annotation).consumes();
+        }
+    }
+
+    private static String literals(String[] values) {
+        StringBuilder res = new StringBuilder();
+        for (String value : values) {
+            res.append(res.length() == 0 ? "" : ", ").append(literal(value));
+        }
+        return res.toString();
+    }
+
+    /**
+     * Merges the generated classes with the ones registered by a previous (incremental) compilation.
+     */
+    private void writeServices() {
+        Set<String> classes = new TreeSet<>(generated);
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), "utf-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && processingEnv.getElementUtils().getTypeElement(line) != null) {
+                        classes.add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // no previous registrations
+        }
+
+        try (Writer writer = new OutputStreamWriter(processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES).openOutputStream(), "utf-8")) {
+            for (String className : classes) {
+                writer.write(className);
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + SERVICES + ": " + e.getMessage());
+        }
+    }
+
+    private TypeMirror type(String name) {
+        return processingEnv.getElementUtils().getTypeElement(name).asType();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static String literal(String s) {
+        StringBuilder res = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                res.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                res.append(String.format("\\u%04x", (int) c));
+            } else {
+                res.append(c);
+            }
+        }
+        return res.append('"').toString();
+    }
+
+    private static String comment(String s) {
+        // javac translates unicode escapes even in comments
+        return s.replace("\\u", "\\\\u");
+    }
+}
@@ -0,0 +1,182 @@
+package vinna.apt;
+
+import org.junit.Assume;
+import org.junit.Test;
+import vinna.Vinna;
+import vinna.VinnaHandler;
+import vinna.route.AnnotatedRoutes;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RoutesProcessorTest {
+
+    private static final String ITEMS = "package demo;\n\n" +
+            "import vinna.annotation.*;\n" +
+            "import vinna.response.Response;\n" +
+            "import vinna.response.StringResponse;\n\n" +
+            "import java.util.List;\n" +
+            "import java.util.Set;\n\n" +
+            "public class Items {\n" +
+            "    @Get(\"/items/{id}\")\n" +
+            "    public Response show(long id) {\n" +
+            "        return new StringResponse(\"item \" + id);\n" +
+            "    }\n\n" +
+            "    @Get(\"/items\")\n" +
+            "    public Response list(@Param(\"id\") List<Long> ids, @Param(\"tag\") Set<String> tags) {\n" +
+            "        return new StringResponse((ids.get(0) + ids.get(1)) + \" \" + tags);\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String INVALID = "package demo;\n\n" +
+            "import vinna.annotation.*;\n" +
+            "import vinna.response.Response;\n\n" +
+            "import java.util.ArrayList;\n\n" +
+            "public class Invalid {\n" +
+            "    @Get(\"/invalid\")\n" +
+            "    public Response list(@Param(\"id\") ArrayList<Long> ids) {\n" +
+            "        return null;\n" +
+            "    }\n" +
+            "}\n";
+
+    private static File source(File dir, String className, String source) throws IOException {
+        File file = new File(dir, "src/" + className.replace('.', '/') + ".java");
+        assertTrue(file.getParentFile().mkdirs());
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "utf-8")) {
+            writer.write(source);
+        }
+        return file;
+    }
+
+    /**
+     * Compiles the source with the processor into dir/classes, the generated sources going into dir/generated.
+     */
+    private static boolean compile(File dir, File source, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(javac);
+
+        File classes = new File(dir, "classes");
+        File generated = new File(dir, "generated");
+        assertTrue(classes.mkdirs());
+        assertTrue(generated.mkdirs());
+        try (StandardJavaFileManager files = javac.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = javac.getTask(null, files, diagnostics,
+                    Arrays.asList("-Xlint:all", "-Xlint:-options", "-Xlint:-processing", "-cp", System.getProperty("java.class.path"),
+                            "-d", classes.getPath(), "-s", generated.getPath()),
+                    null, files.getJavaFileObjects(source));
+            task.setProcessors(Collections.singletonList(new RoutesProcessor()));
+            return task.call();
+        }
+    }
+
+    private static HttpServletRequest request(String path, Map<String, String[]> params) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.<String>emptyList()));
+        when(request.getParameterNames()).thenReturn(Collections.enumeration(params.keySet()));
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            when(request.getParameterValues(param.getKey())).thenReturn(param.getValue());
+            when(request.getParameter(param.getKey())).thenReturn(param.getValue()[0]);
+        }
+        return request;
+    }
+
+    private static String get(VinnaHandler handler, String path, Map<String, String[]> params) throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        assertTrue(handler.handle(request(path, params), response));
+        return body.toString("UTF-8");
+    }
+
+    @Test
+    public void generatesTheRoutesOfTheAnnotatedControllers() throws Exception {
+        File dir = Files.createTempDirectory("vinna-apt").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertTrue(diagnostics.getDiagnostics().toString(), compile(dir, source(dir, "demo.Items", ITEMS), diagnostics));
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            // the generated casts to the generic parameters don't warn either
+            assertEquals(diagnostic.toString(), Diagnostic.Kind.NOTE, diagnostic.getKind());
+        }
+
+        assertTrue(new File(dir, "generated/demo/Items" + AnnotatedRoutes.SUFFIX + ".java").isFile());
+        File services = new File(dir, "classes/META-INF/services/" + AnnotatedRoutes.class.getName());
+        assertEquals(Collections.singletonList("demo.Items" + AnnotatedRoutes.SUFFIX), Files.readAllLines(services.toPath(), StandardCharsets.UTF_8));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{new File(dir, "classes").toURI().toURL()}, getClass().getClassLoader())) {
+            List<String> found = new ArrayList<>();
+            for (Iterator<AnnotatedRoutes> it = ServiceLoader.load(AnnotatedRoutes.class, loader).iterator(); it.hasNext(); ) {
+                found.add(it.next().getClass().getName());
+            }
+            assertEquals(Collections.singletonList("demo.Items" + AnnotatedRoutes.SUFFIX), found);
+
+            Vinna vinna = new Vinna() {
+                @Override
+                protected void routes(Map<String, Object> config) {
+                    // the annotated routes only
+                }
+            };
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(loader);
+            try {
+                vinna.init(Collections.<String, Object>emptyMap());
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+            VinnaHandler handler = new VinnaHandler(vinna, null);
+
+            assertEquals("item 42", get(handler, "/items/42", Collections.<String, String[]>emptyMap()));
+            Map<String, String[]> params = new HashMap<>();
+            params.put("id", new String[]{"1", "2"});
+            params.put("tag", new String[]{"a", "a"});
+            assertEquals("3 [a]", get(handler, "/items", params));
+            vinna.destroy();
+        }
+    }
+
+    @Test
+    public void rejectsTheConcreteCollectionParameters() throws Exception {
+        File dir = Files.createTempDirectory("vinna-apt").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertFalse(compile(dir, source(dir, "demo.Invalid", INVALID), diagnostics));
+        assertEquals(Diagnostic.Kind.ERROR, diagnostics.getDiagnostics().get(0).getKind());
+        assertEquals("A collection parameter has to be a Collection, a List or a Set", diagnostics.getDiagnostics().get(0).getMessage(null));
+    }
+}
@@ -0,0 +1,63 @@
+package vinna.maven;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+import vinna.util.Placeholders;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Base class of the goals working on the application compiled classes and resources.
+ */
+public abstract class AbstractVinnaMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    protected File outputDirectory;
+
+    /**
+     * The application base package, as configured with the base-package filter parameter.
+     */
+    @Parameter(required = true)
+    protected String basePackage;
+
+    private Map<String, Object> conf;
+
+    /**
+     * @return the value of a configuration entry, as read from the vinna and the application conf.properties
+     */
+    protected String conf(String key, String defaultValue) throws MojoExecutionException {
+        if (conf == null) {
+            Map<String, Object> values = new HashMap<>();
+            try (InputStream stream = AbstractVinnaMojo.class.getClassLoader().getResourceAsStream("vinna/conf.properties")) {
+                if (stream != null) {
+                    load(new InputStreamReader(stream, "utf-8"), values);
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot read the default vinna configuration", e);
+            }
+            File file = new File(outputDirectory, basePackage.replace(".", "/") + "/conf.properties");
+            if (file.isFile()) {
+                try (Reader reader = new InputStreamReader(new FileInputStream(file), "utf-8")) {
+                    load(reader, values);
+                } catch (IOException e) {
+                    throw new MojoExecutionException("Cannot read " + file, e);
+                }
+            }
+            conf = Placeholders.resolve(values);
+        }
+        Object res = conf.get(key);
+        return res == null ? defaultValue : res.toString().trim();
+    }
+
+    private static void load(Reader reader, Map<String, Object> values) throws IOException {
+        Properties props = new Properties();
+        props.load(reader);
+        for (Map.Entry<Object, Object> entry : props.entrySet()) {
+            values.put(entry.getKey().toString(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package vinna.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import vinna.route.CompiledRoutes;
+import vinna.route.RoutesCompiler;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+/**
+ * Compiles the application routes files into a {@link CompiledRoutes} class, failing the build on invalid routes or
+ * on actions referencing unknown controllers or methods.
+ * <p/>
+ * The generated class is compiled in the output directory, where {@link vinna.Vinna} picks it up instead of parsing
+ * the routes files at startup.
+ */
+@Mojo(name = "routes", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true,
+        requiresDependencyResolution = ResolutionScope.COMPILE)
+public class RoutesMojo extends AbstractVinnaMojo {
+
+    @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true, required = true)
+    private List<String> classpathElements;
+
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/vinna", required = true)
+    private File generatedSourcesDirectory;
+
+    /**
+     * The routes files, as configured with the routes filter parameter. Defaults to base-package/routes.
+     */
+    @Parameter
+    private String routes;
+
+    /**
+     * The routes prefix, as configured with the routes-prefix filter parameter. Read from the application
+     * conf.properties when not set.
+     */
+    @Parameter
+    private String routesPrefix;
+
+    /**
+     * The controllers package, relative to the base package. Read from the application conf.properties when not set.
+     */
+    @Parameter
+    private String controllersPackage;
+
+    @Parameter(property = "maven.compiler.source", defaultValue = "1.7")
+    private String source;
+
+    @Parameter(property = "maven.compiler.target", defaultValue = "1.7")
+    private String target;
+
+    @Parameter(defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Routes compilation skipped");
+            return;
+        }
+        if (!outputDirectory.isDirectory()) {
+            getLog().info("No output directory, skipping routes compilation");
+            return;
+        }
+
+        List<File> classpath = new ArrayList<>();
+        classpath.add(outputDirectory);
+        for (String element : classpathElements) {
+            classpath.add(new File(element));
+        }
+
+        File sourceFile;
+        try (URLClassLoader loader = new URLClassLoader(urls(classpath), getClass().getClassLoader())) {
+            String[] routesPaths = routesPaths(loader);
+            if (routesPaths == null) {
+                getLog().info("No routes file, skipping routes compilation");
+                return;
+            }
+
+            RoutesCompiler compiler = new RoutesCompiler(basePackage,
+                    controllersPackage != null ? controllersPackage : conf("controllers-package", "controllers"),
+                    routesPrefix != null ? routesPrefix : conf("routes-prefix", ""), loader);
+            for (String routesPath : routesPaths) {
+                InputStream stream = loader.getResourceAsStream(routesPath);
+                if (stream == null) {
+                    throw new MojoFailureException("Cannot open routes file '" + routesPath + "'");
+                }
+                try (Reader reader = new InputStreamReader(stream, "utf-8")) {
+                    compiler.add(routesPath, reader);
+                }
+            }
+
+            if (!compiler.getErrors().isEmpty()) {
+                StringBuilder message = new StringBuilder("Invalid routes:");
+                for (String error : compiler.getErrors()) {
+                    message.append("\n  ").append(error);
+                }
+                throw new MojoFailureException(message.toString());
+            }
+
+            sourceFile = new File(generatedSourcesDirectory, compiler.getClassName().replace(".", "/") + ".java");
+            if (!sourceFile.getParentFile().isDirectory() && !sourceFile.getParentFile().mkdirs()) {
+                throw new MojoExecutionException("Cannot create the directory " + sourceFile.getParentFile());
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(sourceFile), "utf-8")) {
+                compiler.write(writer);
+            }
+            getLog().info(compiler.getRoutesCount() + " route(s) compiled from " + Arrays.asList(routesPaths));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error while compiling the routes", e);
+        }
+
+        compile(sourceFile, classpath);
+    }
+
+    private String[] routesPaths(ClassLoader loader) throws MojoExecutionException {
+        String configured = routes != null ? routes : conf("routes", null);
+        if (configured != null) {
+            return configured.trim().split("\\s*,\\s*");
+        }
+        String path = basePackage.replace(".", "/") + "/routes";
+        return loader.getResource(path) == null ? null : new String[]{path};
+    }
+
+    private void compile(File sourceFile, List<File> classpath) throws MojoExecutionException, MojoFailureException {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new MojoExecutionException("Compiling the routes requires a JDK");
+        }
+        StringBuilder path = new StringBuilder();
+        for (File element : classpath) {
+            path.append(path.length() == 0 ? "" : File.pathSeparator).append(element.getPath());
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = javac.getStandardFileManager(diagnostics, null, null)) {
+            List<String> options = Arrays.asList("-nowarn", "-encoding", "utf-8", "-source", source, "-target", target,
+                    "-classpath", path.toString(), "-d", outputDirectory.getPath());
+            Boolean success = javac.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(sourceFile)).call();
+            if (!success) {
+                StringBuilder message = new StringBuilder("Cannot compile the generated routes " + sourceFile + ":");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                        message.append("\n  ").append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+                    }
+                }
+                throw new MojoFailureException(message.toString());
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error while compiling " + sourceFile, e);
+        }
+    }
+
+    private static URL[] urls(List<File> files) throws MojoExecutionException {
+        URL[] res = new URL[files.size()];
+        try {
+            for (int i = 0; i < res.length; i++) {
+                res[i] = files.get(i).toURI().toURL();
+            }
+        } catch (MalformedURLException e) {
+            throw new MojoExecutionException("Invalid classpath element", e);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,130 @@
+package vinna.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import vinna.template.Templates;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+/**
+ * Parses every liquidrods template of the application views directories, failing the build with all the syntax
+ * errors found, and writes the templates index used by the runtime to preload them.
+ * <p/>
+ * The templates are looked up the same way {@link vinna.template.LiquidrodsView} does: in the views package
+ * (base-package/views-package) and in the packages of the view classes.
+ */
+@Mojo(name = "templates", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
+public class TemplatesMojo extends AbstractVinnaMojo {
+
+    /**
+     * The views package, relative to the base package. Read from the application conf.properties when not set.
+     */
+    @Parameter
+    private String viewsPackage;
+
+    /**
+     * Additional packages holding view classes with their templates.
+     */
+    @Parameter
+    private List<String> viewPackages;
+
+    @Parameter(defaultValue = ".html")
+    private String extension;
+
+    @Parameter(defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Templates validation skipped");
+            return;
+        }
+        if (!outputDirectory.isDirectory()) {
+            getLog().info("No output directory, skipping templates validation");
+            return;
+        }
+
+        final String prefix = basePackage.replace(".", "/") + "/" + viewsPackage() + "/";
+        Set<String> directories = new LinkedHashSet<>();
+        directories.add(prefix);
+        if (viewPackages != null) {
+            for (String viewPackage : viewPackages) {
+                directories.add(viewPackage.replace(".", "/") + "/");
+            }
+        }
+
+        SortedSet<String> templates = new TreeSet<>();
+        for (String directory : directories) {
+            collect(new File(outputDirectory, directory), directory, templates);
+        }
+
+        Map<String, String> errors = new LinkedHashMap<>();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{outputDirectory.toURI().toURL()}, getClass().getClassLoader())) {
+            for (String template : templates) {
+                try {
+                    Templates.parse(loader, template, prefix);
+                    getLog().debug("Template " + template + " is valid");
+                } catch (RuntimeException e) {
+                    errors.put(template, e.getMessage() == null ? e.toString() : e.getMessage());
+                }
+            }
+        } catch (MalformedURLException e) {
+            throw new MojoExecutionException("Invalid output directory " + outputDirectory, e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error while validating the templates", e);
+        }
+
+        if (!errors.isEmpty()) {
+            StringBuilder message = new StringBuilder("Invalid templates:");
+            for (Map.Entry<String, String> error : errors.entrySet()) {
+                message.append("\n  ").append(error.getKey()).append(": ").append(error.getValue());
+            }
+            throw new MojoFailureException(message.toString());
+        }
+
+        writeIndex(templates);
+        getLog().info(templates.size() + " template(s) validated and indexed");
+    }
+
+    private String viewsPackage() throws MojoExecutionException {
+        return viewsPackage != null ? viewsPackage : conf("views-package", "views");
+    }
+
+    private void collect(File directory, String path, Set<String> templates) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collect(file, path + file.getName() + "/", templates);
+            } else if (file.getName().endsWith(extension)) {
+                templates.add(path + file.getName());
+            }
+        }
+    }
+
+    private void writeIndex(Collection<String> templates) throws MojoExecutionException {
+        File index = new File(outputDirectory, Templates.INDEX);
+        if (!index.getParentFile().isDirectory() && !index.getParentFile().mkdirs()) {
+            throw new MojoExecutionException("Cannot create the directory " + index.getParentFile());
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(index), "utf-8")) {
+            writer.write("# Generated by the vinna-maven-plugin, do not edit\n");
+            for (String template : templates) {
+                writer.write(template);
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the templates index " + index, e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 import vinna.Vinna;
 import vinna.VinnaContext;
 import vinna.interceptor.InterceptorAdapter;
+import vinna.response.Response;
 import vinna.response.ResponseBuilder;
 import vinna.response.StringResponse;
 import vinna.samples.todo.controller.ApiTodoController;
@@ -15,6 +16,7 @@ import java.util.Map;
 
 public class TodoApp extends Vinna {
     private static final Logger logger = LoggerFactory.getLogger(TodoApp.class);
+    private static final Response ROUTE_NOT_FOUND = new StringResponse("Route not found").freeze();
 
     @Override
     protected void routes(Map<String, Object> config) {
@@ -25,8 +27,9 @@ public class TodoApp extends Vinna {
         post("/new").withController(TodoController.class).create(req.param("title").asString(), req.param("description").asString());
 
         get("/api").withController(ApiTodoController.class).list();
+        get("/api/events").withController(ApiTodoController.class).events();
         get("/api/{id: \\d+}").withController(ApiTodoController.class).show(param("id").asLong());
-        post("/api").withController(ApiTodoController.class).create(custom(JacksonArgument.class).<Todo>asT());
+        post("/api").withController(ApiTodoController.class).create(req.json(Todo.class));
 
         get("/create").withController(TodoController.class).create(custom(TodoParameter.class).asTodo());
         get("/create/{title}/{description}").withController(TodoController.class).create(custom(TodoParameter.class).asTodo());
@@ -59,7 +62,7 @@ public class TodoApp extends Vinna {
                 if (!context.isResolved() && context.request.getPath().startsWith("/css")) {
                     context.abortWith(ResponseBuilder.pass());
                 } else if (!context.isResolved()) {
-                    context.abortWith(new StringResponse("Route not found"));
+                    context.abortWith(ROUTE_NOT_FOUND);
                 }
             }
         });
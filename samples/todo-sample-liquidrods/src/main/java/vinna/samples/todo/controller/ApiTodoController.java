@@ -1,22 +1,27 @@
 package vinna.samples.todo.controller;
 
 import vinna.Validation;
+import vinna.json.JsonResponse;
 import vinna.response.ClientError;
 import vinna.response.Response;
 import vinna.response.Success;
 import vinna.samples.todo.model.Todo;
 import vinna.samples.todo.model.TodoRepository;
-import vinna.samples.todo.view.JsonResponse;
+import vinna.sse.Broadcaster;
+import vinna.sse.Event;
 
 import java.util.Collection;
 
 public class ApiTodoController {
 
+    private static final Broadcaster EVENTS = new Broadcaster();
+
     public Response create(Todo todo) {
         Validation validation = new Validation().validate(todo);
 
         if (!validation.hasErrors()) {
             Long id = TodoRepository.addNewTodo(todo);
+            EVENTS.broadcast(new Event(todo.getTitle()).id(String.valueOf(id)).name("created"));
             return Success.created().redirect("api/" + id);
         }
 
@@ -27,19 +32,23 @@ public class ApiTodoController {
         Collection<Todo> todos = TodoRepository.findAll();
 
         if (todos.isEmpty()) {
-            return Success.noContent();
+            return Success.NO_CONTENT;
         }
 
         return new JsonResponse().entity(todos);
     }
 
+    public Response events() {
+        return EVENTS.subscribe();
+    }
+
     public Response show(long id) {
 
         Todo todo = TodoRepository.get(id);
         if (todo != null) {
             return new JsonResponse().entity(todo);
         }
-        return ClientError.notFound();
+        return ClientError.NOT_FOUND;
 
     }
 }
@@ -7,13 +7,14 @@ import java.util.Collection;
 
 public class ListView extends LiquidrodsView {
 
-    private final Collection<Todo> todos;
+    private final Iterable<Todo> todos;
 
     public ListView(Collection<Todo> todos) {
-        this.todos = todos;
+        streaming(true);
+        this.todos = flushEvery(50, todos);
     }
 
-    public Collection<Todo> getTodos() {
+    public Iterable<Todo> getTodos() {
         return todos;
     }
 }
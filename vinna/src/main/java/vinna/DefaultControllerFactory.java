@@ -23,23 +23,8 @@ public class DefaultControllerFactory implements ControllerFactory {
         if (clazz == null && cache.containsKey(id)) {
             clazz = cache.get(id);
         } else if (clazz == null) {
-            try {
-                clazz = Class.forName(id);
-                cache.put(id, clazz);
-            } catch (ClassNotFoundException e) {
-                String id2 = basePackage + "." + controllersPackage + "." + id;
-                Matcher m = Pattern.compile("(.+\\.)([^\\.])([^\\.]+)").matcher(id2);
-                if (!m.matches()) {
-                    throw new VuntimeException("Something really fishy here: " + id2);
-                }
-                id2 = m.group(1) + m.group(2).toUpperCase() + m.group(3);
-                try {
-                    clazz = Class.forName(id2);
-                    cache.put(id, clazz);
-                } catch (ClassNotFoundException e1) {
-                    throw new VuntimeException("Invalid object id '" + id + "' : Tried classes " + id + " and " + id2 + " but none were found");
-                }
-            }
+            clazz = controllerClass(id, basePackage, controllersPackage, DefaultControllerFactory.class.getClassLoader());
+            cache.put(id, clazz);
         }
         try {
             return clazz.newInstance();
@@ -47,4 +32,26 @@ public class DefaultControllerFactory implements ControllerFactory {
             throw new VuntimeException("Can't create an instance of the controller " + (clazz == null ? " with the id " + id : " of type " + clazz), e);
         }
     }
+
+    /**
+     * Resolves a controller id as a class name, or else as the name of a class of the controllers package
+     * (capitalizing its first letter).
+     */
+    public static Class<?> controllerClass(String id, String basePackage, String controllersPackage, ClassLoader loader) {
+        try {
+            return Class.forName(id, true, loader);
+        } catch (ClassNotFoundException e) {
+            String id2 = basePackage + "." + controllersPackage + "." + id;
+            Matcher m = Pattern.compile("(.+\\.)([^\\.])([^\\.]+)").matcher(id2);
+            if (!m.matches()) {
+                throw new VuntimeException("Something really fishy here: " + id2);
+            }
+            id2 = m.group(1) + m.group(2).toUpperCase() + m.group(3);
+            try {
+                return Class.forName(id2, true, loader);
+            } catch (ClassNotFoundException e1) {
+                throw new VuntimeException("Invalid object id '" + id + "' : Tried classes " + id + " and " + id2 + " but none were found");
+            }
+        }
+    }
 }
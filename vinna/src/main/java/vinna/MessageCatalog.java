@@ -0,0 +1,151 @@
+package vinna;
+
+import vinna.util.VinnaMessagesControl;
+
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The messages of an application: the messages bundles of the application base package, falling back on the
+ * ones provided by vinna.
+ * <p/>
+ * Each locale bundle is flattened once (including its parent bundles) so that looking a message up is a single map
+ * access.
+ * <p/>
+ * The requested locales come from the clients: they are resolved to the closest preloaded locale or existing bundle,
+ * and only those are cached, along with a bounded number of resolved locales. The compiled {@link MessageFormat}s
+ * are cached per resolved locale and key, since they format with the requested locale, not the one of the bundle.
+ */
+public class MessageCatalog {
+    public static final String BUNDLE_NAME = "messages";
+
+    private static final int MAX_RESOLVED_LOCALES = 64;
+
+    private final ResourceBundle.Control control;
+    // the preloaded locales and the locales of the loaded bundles
+    private final ConcurrentMap<Locale, LocaleMessages> locales = new ConcurrentHashMap<>();
+    // the requested locales which were resolved to one of the above, up to MAX_RESOLVED_LOCALES
+    private final ConcurrentMap<Locale, ResolvedLocale> resolved = new ConcurrentHashMap<>();
+
+    public MessageCatalog(String basePackage) {
+        this(basePackage, Collections.<Locale>emptyList());
+    }
+
+    /**
+     * @param preloadedLocales locales whose bundles are loaded right away instead of on first use
+     */
+    public MessageCatalog(String basePackage, Collection<Locale> preloadedLocales) {
+        this.control = new VinnaMessagesControl(basePackage);
+        for (Locale locale : preloadedLocales) {
+            ResourceBundle bundle = ResourceBundle.getBundle(BUNDLE_NAME, locale, control);
+            locales.putIfAbsent(locale, load(bundle));
+        }
+    }
+
+    /**
+     * @throws MissingResourceException if there's no message for the given key
+     */
+    public String get(Locale locale, String key) {
+        return get(resolve(locale), key);
+    }
+
+    private static String get(ResolvedLocale resolvedLocale, String key) {
+        final String message = resolvedLocale.messages.patterns.get(key);
+        if (message == null) {
+            throw new MissingResourceException("Can't find the message '" + key + "' for the locale " + resolvedLocale.locale,
+                    BUNDLE_NAME, key);
+        }
+        return message;
+    }
+
+    /**
+     * @throws MissingResourceException if there's no message for the given key
+     */
+    public String format(Locale locale, String key, Object... args) {
+        final ResolvedLocale resolvedLocale = resolve(locale);
+        MessageFormat format = resolvedLocale.formats.get(key);
+        if (format == null) {
+            format = new MessageFormat(get(resolvedLocale, key), locale);
+            final MessageFormat previous = resolvedLocale.formats.putIfAbsent(key, format);
+            if (previous != null) {
+                format = previous;
+            }
+        }
+        // MessageFormat isn't thread safe: each call formats with a copy, which is cheaper than parsing the pattern
+        return ((MessageFormat) format.clone()).format(args);
+    }
+
+    public Set<Locale> getLoadedLocales() {
+        return Collections.unmodifiableSet(locales.keySet());
+    }
+
+    private ResolvedLocale resolve(Locale locale) {
+        ResolvedLocale resolvedLocale = resolved.get(locale);
+        if (resolvedLocale != null) {
+            return resolvedLocale;
+        }
+        LocaleMessages messages = null;
+        for (Locale candidate : control.getCandidateLocales(BUNDLE_NAME, locale)) {
+            // the base bundle is only the closest one when there's no bundle for the language
+            if (candidate.equals(Locale.ROOT)) {
+                break;
+            }
+            messages = locales.get(candidate);
+            if (messages != null) {
+                break;
+            }
+        }
+        if (messages == null) {
+            messages = load(ResourceBundle.getBundle(BUNDLE_NAME, locale, control));
+        }
+        resolvedLocale = new ResolvedLocale(locale, messages);
+        if (resolved.size() < MAX_RESOLVED_LOCALES) {
+            final ResolvedLocale previous = resolved.putIfAbsent(locale, resolvedLocale);
+            if (previous != null) {
+                resolvedLocale = previous;
+            }
+        }
+        return resolvedLocale;
+    }
+
+    /**
+     * @return the messages of the bundle, cached by the locale of the bundle
+     */
+    private LocaleMessages load(ResourceBundle bundle) {
+        LocaleMessages messages = locales.get(bundle.getLocale());
+        if (messages == null) {
+            messages = new LocaleMessages(bundle);
+            final LocaleMessages previous = locales.putIfAbsent(bundle.getLocale(), messages);
+            if (previous != null) {
+                messages = previous;
+            }
+        }
+        return messages;
+    }
+
+    private static final class LocaleMessages {
+        private final Map<String, String> patterns = new HashMap<>();
+
+        private LocaleMessages(ResourceBundle bundle) {
+            for (String key : bundle.keySet()) {
+                patterns.put(key, bundle.getString(key));
+            }
+        }
+    }
+
+    /**
+     * A requested locale, with the messages it resolved to.
+     */
+    private static final class ResolvedLocale {
+        private final Locale locale;
+        private final LocaleMessages messages;
+        private final ConcurrentMap<String, MessageFormat> formats = new ConcurrentHashMap<>();
+
+        private ResolvedLocale(Locale locale, LocaleMessages messages) {
+            this.locale = locale;
+            this.messages = messages;
+        }
+    }
+}
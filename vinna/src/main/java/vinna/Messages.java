@@ -1,17 +1,11 @@
 package vinna;
 
-import vinna.VinnaContext;
-import vinna.util.VinnaMessagesControl;
-
-import java.text.MessageFormat;
 import java.util.Locale;
-import java.util.ResourceBundle;
 
 public class Messages {
-    private static final ResourceBundle.Control CONTROL = new VinnaMessagesControl();
 
     public static String get(Locale locale, String key) {
-        return ResourceBundle.getBundle("messages", locale, CONTROL).getString(key);
+        return VinnaContext.get().vinna.getMessages().get(locale, key);
     }
 
     public static String get(String key) {
@@ -24,7 +18,6 @@ public class Messages {
     }
 
     public static String format(Locale locale, String key, Object... args) {
-        MessageFormat fmt = new MessageFormat(get(key), locale);
-        return fmt.format(args);
+        return VinnaContext.get().vinna.getMessages().format(locale, key, args);
     }
 }
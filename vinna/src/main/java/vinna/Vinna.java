@@ -2,31 +2,68 @@ package vinna;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import vinna.batch.Batch;
+import vinna.deferred.DeferredExecutor;
 import vinna.exception.ConfigException;
 import vinna.exception.VuntimeException;
 import vinna.http.UploadedFile;
 import vinna.interceptor.Interceptor;
+import vinna.json.JsonBody;
 import vinna.route.*;
+import vinna.template.Templates;
+import vinna.util.Placeholders;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 public class Vinna {
     private static final Logger logger = LoggerFactory.getLogger(Vinna.class);
 
     public static final String BASE_PACKAGE = "base-package";
     public static final String ROUTES = "routes";
+    public static final String ROUTES_RELOAD = "routes-reload";
+    public static final String ROUTES_REORDER = "routes-reorder";
     public static final String CONF = "conf";
     public static final String CONTROLLER_FACTORY = "controller-factory";
     public static final String UPLOAD_DIR = "upload-dir";
     public static final String UPLOAD_MAX_SIZE = "upload-max-size";
+    public static final String MESSAGES_LOCALES = "messages-locales";
+    public static final String BATCH_PATH = "batch-path";
+    public static final String BATCH_THREADS = "batch-threads";
+    public static final String BATCH_MAX_REQUESTS = "batch-max-requests";
+    public static final String BATCH_MAX_BYTES = "batch-max-bytes";
+    public static final String DEFERRED_THREADS = "deferred-threads";
+    public static final String DEFERRED_QUEUE_SIZE = "deferred-queue-size";
+    public static final String DEFERRED_OFFER_TIMEOUT = "deferred-offer-timeout";
+    // how long destroy() waits for the deferred tasks still queued
+    private static final long DEFERRED_SHUTDOWN_TIMEOUT_MS = 5000;
 
     private Map<String, Object> config;
+    private Map<String, Object> readOnlyConfig;
+    private VinnaConfig settings;
     private String basePackage;
-    private Router router;
+    private volatile Router router;
+    // the router being built, receiving the routes until it's complete
+    private Router loadingRouter;
+    private RoutesWatcher routesWatcher;
     private ControllerFactory controllerFactory;
+    private MessageCatalog messages;
+    private Templates templates;
     private List<ActionArgument> routeParameters;
     private List<Interceptor> interceptors;
+    // runs the batch sub-requests in parallel, null if they run one after the other
+    private ExecutorService batchExecutor;
+    // created with the first deferred task
+    private volatile DeferredExecutor deferredExecutor;
 
     // is true when a route is created with the programmatic API without specify a controller and/or a method
     private boolean isDirtyState = false;
@@ -44,19 +81,135 @@ public class Vinna {
             basePackage = (String) config.get(BASE_PACKAGE);
         }
 
+        this.readOnlyConfig = Collections.unmodifiableMap(this.config);
+
         conf(this.config);
         registerCallback(this.config);
+        uploadSettings(this.config);
+        this.settings = new VinnaConfig(this.config);
+        logger.debug("Configuration: {}", settings);
 
         this.controllerFactory = controllerFactory(this.config);
-        this.router = new Router();
-        routes(this.config);
+        this.messages = messageCatalog(this.config);
+        this.templates = new Templates(settings.viewsCache);
+        this.batchExecutor = batchExecutor();
+        this.router = buildRouter();
 
-        if (isDirtyState) {
-            // TODO enhance the message
-            throw new ConfigException("Something is going wrong");
+        preloadViews();
+        watchRoutes();
+    }
+
+    private Router buildRouter() {
+        loadingRouter = settings.routesReorder ? new Router(Router.DEFAULT_REORDER_PERIOD_MS) : new Router();
+        isDirtyState = false;
+        try {
+            batchRoute();
+            annotatedRoutes();
+            routes(this.config);
+
+            if (isDirtyState) {
+                // TODO enhance the message
+                throw new ConfigException("Something is going wrong");
+            }
+            return loadingRouter;
+        } finally {
+            loadingRouter = null;
         }
+    }
 
-        uploadSettings(this.config);
+    /**
+     * Rebuilds the routes and publishes them at once: the requests being processed keep the previous routes. If the
+     * new routes are invalid, the previous ones are kept.
+     *
+     * @return true if the routes were reloaded
+     */
+    public synchronized boolean reloadRoutes() {
+        try {
+            this.router = buildRouter();
+            logger.info("Routes reloaded");
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Invalid routes, keeping the previous ones", e);
+            return false;
+        }
+    }
+
+    private void watchRoutes() {
+        if (!settings.routesReload) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        for (String routesPath : routesPaths(config)) {
+            URL url = Thread.currentThread().getContextClassLoader().getResource(routesPath);
+            try {
+                if (url != null && "file".equals(url.getProtocol())) {
+                    files.add(Paths.get(url.toURI()));
+                } else {
+                    logger.warn("Cannot watch the routes file '{}': {} isn't a file", routesPath, url);
+                }
+            } catch (URISyntaxException e) {
+                logger.warn("Cannot watch the routes file '" + routesPath + "'", e);
+            }
+        }
+        if (!files.isEmpty()) {
+            try {
+                routesWatcher = new RoutesWatcher(files, new Runnable() {
+                    @Override
+                    public void run() {
+                        reloadRoutes();
+                    }
+                });
+                routesWatcher.start();
+                logger.info("Watching the routes files {}", files);
+            } catch (IOException e) {
+                logger.warn("Cannot watch the routes files", e);
+            }
+        }
+    }
+
+    private ExecutorService batchExecutor() {
+        if (settings.batchPath == null || settings.batchThreads <= 0) {
+            return null;
+        }
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(settings.batchThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "vinna-batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Adds the POST route of the batches, if a batch path is configured. It comes before the application routes, so that
+     * none of them hides it.
+     */
+    private void batchRoute() {
+        if (settings.batchPath == null) {
+            return;
+        }
+        RoutesParser.ParsedPath path = RoutesParser.parsePath(settings.routesPrefix + settings.batchPath);
+        addRoute(new Route("POST", path.pathPattern, path.variableNames, Collections.<String, Pattern>emptyMap(),
+                Collections.<String, Pattern>emptyMap(), new Batch(settings.batchMaxRequests, settings.batchMaxBytes, batchExecutor)));
+    }
+
+    public void destroy() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+        }
+        DeferredExecutor deferred = deferredExecutor;
+        if (deferred != null) {
+            deferred.shutdown(DEFERRED_SHUTDOWN_TIMEOUT_MS);
+        }
+        if (routesWatcher != null) {
+            try {
+                routesWatcher.close();
+            } catch (IOException e) {
+                logger.warn("Cannot stop watching the routes files", e);
+            }
+        }
     }
 
     protected Session newSession() {
@@ -96,8 +249,22 @@ public class Vinna {
         }
     }
 
+    private void preloadViews() {
+        int count = templates.preload(Thread.currentThread().getContextClassLoader(), settings.viewsPath);
+        if (count > 0) {
+            logger.info("{} templates preloaded from {}", count, Templates.INDEX);
+        }
+    }
+
     public Map<String, Object> getConfig() {
-        return Collections.unmodifiableMap(config);
+        return readOnlyConfig;
+    }
+
+    /**
+     * @return the typed configuration, available once the configuration files are loaded
+     */
+    public VinnaConfig getSettings() {
+        return settings;
     }
 
     protected void conf(Map<String, Object> config) {
@@ -136,25 +303,37 @@ public class Vinna {
                 throw new VuntimeException("Error while reading conf file " + confPath, e);
             }
         }
+        config.putAll(injectVariables(config));
     }
 
+    /**
+     * Resolves the {name} placeholders of all the conf values at once, see {@link Placeholders#resolve(Map)}.
+     *
+     * @return the resolved values
+     */
+    protected Map<String, Object> injectVariables(Map<String, Object> config) {
+        return Placeholders.resolve(config);
+    }
+
+    /**
+     * Resolves the {name} placeholders of a single value, see {@link Placeholders#resolve(String, Map)}.
+     */
+    protected String injectVariables(String s, Map<String, Object> values) {
+        return Placeholders.resolve(s, values);
+    }
+
+    /**
+     * Loads the raw values of a conf file. The {name} placeholders are resolved once all the conf files are loaded,
+     * so a value can reference any other entry, whatever the file or the order it was declared in.
+     */
     protected void loadConf(Reader reader, Map<String, Object> config) throws IOException {
         Properties props = new Properties();
         props.load(reader);
         for (Map.Entry<Object, Object> entry : props.entrySet()) {
-            config.put(entry.getKey().toString(), injectVariables((String) entry.getValue(), config));
+            config.put(entry.getKey().toString(), entry.getValue());
         }
     }
 
-    protected String injectVariables(String s, Map<String, Object> values) {
-        for (Map.Entry<String, Object> e : values.entrySet()) {
-            if (e.getValue() != null) {
-                s = s.replace("{" + e.getKey() + "}", e.getValue().toString());
-            }
-        }
-        return s;
-    }
-
     protected Reader getConfReader(String confPath) {
         InputStream stream = Thread.currentThread().getContextClassLoader().getResourceAsStream(confPath);
         if (stream == null) {
@@ -186,11 +365,53 @@ public class Vinna {
     }
 
     /**
-     * Override to define the app routes
+     * Adds the routes generated by the vinna-apt annotation processor, found with a {@link ServiceLoader}.
+     */
+    private void annotatedRoutes() {
+        Iterator<AnnotatedRoutes> it = ServiceLoader.load(AnnotatedRoutes.class, Thread.currentThread().getContextClassLoader()).iterator();
+        while (it.hasNext()) {
+            try {
+                AnnotatedRoutes annotatedRoutes = it.next();
+                for (Route route : annotatedRoutes.getRoutes(settings.routesPrefix)) {
+                    addRoute(route);
+                }
+            } catch (ServiceConfigurationError e) {
+                logger.warn("Cannot load annotated routes", e);
+            }
+        }
+    }
+
+    /**
+     * Override to define the app routes. By default, the routes are loaded from the routes files, or from the routes
+     * compiled from these files at build time if any.
      *
      * @param config
      */
     protected void routes(Map<String, Object> config) {
+        String[] routesPaths = routesPaths(config);
+
+        CompiledRoutes compiled = settings.routesReload ? null : CompiledRoutes.load(Thread.currentThread().getContextClassLoader(), basePackage);
+        if (compiled != null) {
+            if (compiled.getPrefix().equals(settings.routesPrefix) && compiled.getSources().equals(Arrays.asList(routesPaths))) {
+                logger.info("Using the routes compiled from {}", compiled.getSources());
+                routesTarget().addRoutes(compiled.getRoutes());
+                return;
+            }
+            logger.warn("Ignoring the routes compiled from {} with the prefix '{}', parsing {} instead",
+                    new Object[]{compiled.getSources(), compiled.getPrefix(), Arrays.asList(routesPaths)});
+        }
+        for (String routesPath : routesPaths) {
+            Reader reader = getRoutesReader(routesPath);
+            if (reader == null) {
+                throw new VuntimeException("Cannot open routes file '" + routesPath + "'");
+            }
+            loadRoutes(reader);
+        }
+
+        //TODO: define default catchall routes
+    }
+
+    private String[] routesPaths(Map<String, Object> config) {
         String[] routesPaths;
         if (config.get(ROUTES) == null) {
             String path = this.basePackage.replace(".", "/") + "/routes";
@@ -208,32 +429,7 @@ public class Vinna {
         } else {
             routesPaths = ((String) config.get(ROUTES)).trim().split("\\s*,\\s*");
         }
-        for (String routesPath : routesPaths) {
-            Reader reader = getRoutesReader(routesPath);
-            if (reader == null) {
-                throw new VuntimeException("Cannot open routes file '" + routesPath + "'");
-            }
-            loadRoutes(reader);
-        }
-
-        /*try {
-            final URL resource = getClass().getClassLoader().getResource(routeFile);
-            if (resource != null) {
-                if ("file".equals(resource.getProtocol())) {
-
-                }
-                System.out.println(resource);
-                File file = new File(resource.toURI());
-                System.out.println(file.exists());
-            } else {
-
-            }
-
-        } catch (URISyntaxException e) {
-            e.printStackTrace();
-        }
-*/
-        //TODO: define default catchall routes
+        return routesPaths;
     }
 
     protected Reader getRoutesReader(String routesPath) {
@@ -270,6 +466,53 @@ public class Vinna {
         }
     }
 
+    /**
+     * override to provide a custom message catalog. The bundles of the locales listed in the messages-locales
+     * parameter are loaded right away.
+     *
+     * @param config
+     * @return the catalog used by {@link Messages} and the validation subsystem
+     */
+    protected MessageCatalog messageCatalog(Map<String, Object> config) {
+        List<Locale> locales = new ArrayList<>();
+        Object localesConfig = config.get(MESSAGES_LOCALES);
+        if (localesConfig != null && !localesConfig.toString().trim().isEmpty()) {
+            for (String tag : localesConfig.toString().trim().split("\\s*,\\s*")) {
+                locales.add(Locale.forLanguageTag(tag.replace('_', '-')));
+            }
+        }
+        return new MessageCatalog(this.basePackage, locales);
+    }
+
+    public MessageCatalog getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the executor of the tasks deferred after the responses, see {@link VinnaContext#afterResponse}, created
+     *         on first use
+     */
+    public DeferredExecutor getDeferredExecutor() {
+        DeferredExecutor executor = deferredExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = deferredExecutor;
+                if (executor == null) {
+                    executor = new DeferredExecutor(settings.deferredThreads, settings.deferredQueueSize, settings.deferredOfferTimeout);
+                    deferredExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * @return the parsed templates of the application views
+     */
+    public Templates getTemplates() {
+        return templates;
+    }
+
     public ControllerFactory getControllerFactory() {
         return controllerFactory;
     }
@@ -281,7 +524,7 @@ public class Vinna {
     public final void addRoute(Route route) {
         logger.debug("Route created: {}", route);
         this.isDirtyState = false;
-        this.router.addRoute(route);
+        routesTarget().addRoute(route);
     }
 
     public String getBasePackage() {
@@ -299,12 +542,12 @@ public class Vinna {
     }
 
     protected void loadRoutes(Reader reader) {
-        String prefix = (String) config.get("routes-prefix");
-        if (prefix == null) {
-            prefix = "";
-        }
-        List<Route> routes = new RoutesParser(reader).load(prefix, this);
-        router.addRoutes(routes);
+        List<Route> routes = new RoutesParser(reader).load(settings.routesPrefix, this);
+        routesTarget().addRoutes(routes);
+    }
+
+    private Router routesTarget() {
+        return loadingRouter != null ? loadingRouter : router;
     }
 
     protected final RouteBuilder get(String path) {
@@ -326,11 +569,7 @@ public class Vinna {
         }
         routeParameters = new ArrayList<>();
         isDirtyState = true;
-        String prefix = (String) config.get("routes-prefix");
-        if (prefix == null) {
-            prefix = "";
-        }
-        return new RouteBuilder(verb.toUpperCase(), prefix + path, this, routeParameters);
+        return new RouteBuilder(verb.toUpperCase(), settings.routesPrefix + path, this, routeParameters);
     }
 
     protected final ActionArgument.Variable param(String name) {
@@ -399,6 +638,14 @@ public class Vinna {
             return null;
         }
 
+        /**
+         * The request body, read as JSON into the action parameter type. Requires jackson-databind.
+         */
+        public final <T> T json(Class<T> type) {
+            routeParameters.add(new JsonBody());
+            return null;
+        }
+
         public final UploadedFile part(String name) {
             ActionArgument.RequestPart partActionArgument = new ActionArgument.RequestPart(name);
             routeParameters.add(partActionArgument);
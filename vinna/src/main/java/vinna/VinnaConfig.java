@@ -0,0 +1,126 @@
+package vinna;
+
+import vinna.exception.ConfigException;
+import vinna.template.LiquidrodsView;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Typed and immutable snapshot of the application configuration, built once the configuration files are loaded.
+ * Request processing reads its fields instead of looking values up (and casting them) in {@link Vinna#getConfig()}.
+ */
+public final class VinnaConfig {
+    public static final int DEFAULT_BATCH_MAX_REQUESTS = 20;
+    public static final int DEFAULT_BATCH_MAX_BYTES = 1024 * 1024;
+    public static final int DEFAULT_DEFERRED_THREADS = 2;
+    public static final int DEFAULT_DEFERRED_QUEUE_SIZE = 1000;
+
+    public final String basePackage;
+    public final String controllersPackage;
+    public final String viewsPackage;
+    /**
+     * Resource path of the views directory, i.e. base-package/views-package/
+     */
+    public final String viewsPath;
+    public final boolean viewsCache;
+    public final String routesPrefix;
+    /**
+     * Whether the routes files are watched and reloaded when they change
+     */
+    public final boolean routesReload;
+    /**
+     * Whether the most hit routes are tried first, see {@link vinna.route.Router}
+     */
+    public final boolean routesReorder;
+    /**
+     * The path of the batch route, see {@link vinna.batch.Batch}, null when there is no batch route
+     */
+    public final String batchPath;
+    /**
+     * The number of threads running the batch sub-requests in parallel, 0 to run them one after the other
+     */
+    public final int batchThreads;
+    public final int batchMaxRequests;
+    /**
+     * The maximum size of a batch body, in bytes
+     */
+    public final int batchMaxBytes;
+    /**
+     * The threads and the queue capacity of the {@link vinna.deferred.DeferredExecutor}
+     */
+    public final int deferredThreads;
+    public final int deferredQueueSize;
+    /**
+     * How long a request waits for some room in the full queue of deferred tasks before dropping its task, in
+     * milliseconds, 0 by default
+     */
+    public final int deferredOfferTimeout;
+    /**
+     * Where the uploaded files are stored, may be null if no temporary directory is available.
+     */
+    public final File uploadDir;
+    public final int uploadMaxSize;
+
+    /**
+     * @param config the configuration, with the upload settings already normalized to a File and an Integer
+     */
+    public VinnaConfig(Map<String, Object> config) {
+        this.basePackage = (String) config.get(Vinna.BASE_PACKAGE);
+        this.controllersPackage = (String) config.get("controllers-package");
+        this.viewsPackage = (String) config.get("views-package");
+        this.viewsPath = basePackage.replace(".", "/") + "/" + viewsPackage + "/";
+        this.viewsCache = !"false".equals(String.valueOf(config.get(LiquidrodsView.VIEWS_CACHE)));
+        String prefix = (String) config.get("routes-prefix");
+        this.routesPrefix = prefix == null ? "" : prefix;
+        this.routesReload = "true".equals(String.valueOf(config.get(Vinna.ROUTES_RELOAD)).trim());
+        this.routesReorder = "true".equals(String.valueOf(config.get(Vinna.ROUTES_REORDER)).trim());
+        Object batchPath = config.get(Vinna.BATCH_PATH);
+        this.batchPath = batchPath == null || batchPath.toString().trim().isEmpty() ? null : batchPath.toString().trim();
+        this.batchThreads = intValue(config, Vinna.BATCH_THREADS, 0);
+        this.batchMaxRequests = intValue(config, Vinna.BATCH_MAX_REQUESTS, DEFAULT_BATCH_MAX_REQUESTS);
+        this.batchMaxBytes = intValue(config, Vinna.BATCH_MAX_BYTES, DEFAULT_BATCH_MAX_BYTES);
+        this.deferredThreads = intValue(config, Vinna.DEFERRED_THREADS, DEFAULT_DEFERRED_THREADS);
+        this.deferredQueueSize = intValue(config, Vinna.DEFERRED_QUEUE_SIZE, DEFAULT_DEFERRED_QUEUE_SIZE);
+        this.deferredOfferTimeout = intValue(config, Vinna.DEFERRED_OFFER_TIMEOUT, 0);
+        this.uploadDir = (File) config.get(Vinna.UPLOAD_DIR);
+        this.uploadMaxSize = (Integer) config.get(Vinna.UPLOAD_MAX_SIZE);
+    }
+
+    private static int intValue(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new ConfigException("Invalid value for " + key + ": should be a numeric", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VinnaConfig{" +
+                "basePackage='" + basePackage + '\'' +
+                ", controllersPackage='" + controllersPackage + '\'' +
+                ", viewsPackage='" + viewsPackage + '\'' +
+                ", viewsCache=" + viewsCache +
+                ", routesPrefix='" + routesPrefix + '\'' +
+                ", routesReload=" + routesReload +
+                ", routesReorder=" + routesReorder +
+                ", batchPath='" + batchPath + '\'' +
+                ", batchThreads=" + batchThreads +
+                ", batchMaxRequests=" + batchMaxRequests +
+                ", batchMaxBytes=" + batchMaxBytes +
+                ", deferredThreads=" + deferredThreads +
+                ", deferredQueueSize=" + deferredQueueSize +
+                ", deferredOfferTimeout=" + deferredOfferTimeout +
+                ", uploadDir=" + uploadDir +
+                ", uploadMaxSize=" + uploadMaxSize +
+                '}';
+    }
+}
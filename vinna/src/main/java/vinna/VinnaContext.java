@@ -1,5 +1,6 @@
 package vinna;
 
+import vinna.deferred.DeferredTask;
 import vinna.http.VinnaRequestWrapper;
 import vinna.http.VinnaResponseWrapper;
 import vinna.response.Response;
@@ -8,6 +9,8 @@ import vinna.route.RouteResolution;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class VinnaContext {
     private static ThreadLocal<VinnaContext> context = new ThreadLocal<>();
@@ -21,6 +24,7 @@ public class VinnaContext {
     RouteResolution routeResolution;
     private boolean canAbort = true;
     private Response abortedResponse;
+    private List<DeferredTask> deferredTasks;
 
     VinnaContext(Vinna vinna, VinnaRequestWrapper request, VinnaResponseWrapper response, ServletContext servletContext, Session session) {
         this.vinna = vinna;
@@ -34,6 +38,13 @@ public class VinnaContext {
         return routeResolution != null;
     }
 
+    /**
+     * @return true if the request is resolved to a pass route, to be handed to the filter chain
+     */
+    public boolean isPass() {
+        return routeResolution != null && routeResolution.isPass();
+    }
+
     public void abortWith(Response response) {
         if (canAbort) {
             this.abortedResponse = response;
@@ -42,6 +53,26 @@ public class VinnaContext {
         }
     }
 
+    /**
+     * Runs the task once the response is sent, on the {@link vinna.deferred.DeferredExecutor} of the application.
+     * The tasks of a request Vinna doesn't answer, passed to the filter chain, are queued once it is matched.
+     */
+    public void afterResponse(DeferredTask task) {
+        if (deferredTasks == null) {
+            deferredTasks = new ArrayList<>(2);
+        }
+        deferredTasks.add(task);
+    }
+
+    /**
+     * @return the tasks deferred so far, which are forgotten, null if there is none
+     */
+    List<DeferredTask> takeDeferredTasks() {
+        List<DeferredTask> tasks = deferredTasks;
+        deferredTasks = null;
+        return tasks;
+    }
+
     boolean isAborted() {
         return abortedResponse != null;
     }
@@ -1,34 +1,21 @@
 package vinna;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import vinna.exception.ConfigException;
-import vinna.exception.InternalVinnaException;
-import vinna.exception.PassException;
-import vinna.exception.VuntimeException;
-import vinna.http.VinnaMultipartWrapper;
-import vinna.http.VinnaRequestWrapper;
-import vinna.http.VinnaResponseWrapper;
-import vinna.interceptor.Interceptor;
-import vinna.response.Response;
-
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import java.io.File;
 import java.io.IOException;
-import java.util.*;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
 
 public class VinnaFilter implements Filter {
-    private final static Logger logger = LoggerFactory.getLogger(VinnaFilter.class);
-
     public static final String APPLICATION_CLASS = "application-class";
     public static final String VINNA_SESSION_KEY = "vinna.session";
 
     private Vinna vinna;
+    protected VinnaHandler handler;
     protected ServletContext servletContext;
-    private List<Interceptor> interceptors = new ArrayList<>();
 
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
@@ -54,7 +41,7 @@ public class VinnaFilter implements Filter {
         }
 
         vinna.init(cfg);
-        this.interceptors.addAll(vinna.getInterceptors());
+        this.handler = new VinnaHandler(vinna, servletContext);
     }
 
     protected Vinna createUserVinnaApp(String appClass, Map<String, Object> cfg) throws ServletException {
@@ -69,102 +56,18 @@ public class VinnaFilter implements Filter {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
         if (request instanceof HttpServletRequest && response instanceof HttpServletResponse) {
-            VinnaRequestWrapper vinnaRequest;
-            if (isMultipartContent((HttpServletRequest) request)) {
-                try {
-                    File temporaryDirectory = (File) vinna.getConfig().get(Vinna.UPLOAD_DIR);
-                    Integer maxSize = (Integer) vinna.getConfig().get(Vinna.UPLOAD_MAX_SIZE);
-                    vinnaRequest = new VinnaMultipartWrapper((HttpServletRequest) request, temporaryDirectory, maxSize);
-                } catch (NoClassDefFoundError e) {
-                    throw new ConfigException("commons-fileupload is not available. For using multipart, you have to add commons-fileupload and commons-io to your classpath");
-                }
-
-            } else {
-                vinnaRequest = new VinnaRequestWrapper((HttpServletRequest) request);
-            }
-            VinnaResponseWrapper vinnaResponse = new VinnaResponseWrapper((HttpServletResponse) response);
-
-            HttpSession httpSession = vinnaRequest.getSession(false);
-            Session session;
-            if (httpSession != null && httpSession.getAttribute(VINNA_SESSION_KEY) != null) {
-                session = (Session) httpSession.getAttribute(VINNA_SESSION_KEY);
-            } else {
-                session = vinna.newSession();
-            }
-            VinnaContext vinnaContext = new VinnaContext(vinna, vinnaRequest, vinnaResponse, servletContext, session);
-            VinnaContext.set(vinnaContext);
-
-            logger.debug("Resolving '{} {}'", vinnaRequest.getMethod(), vinnaRequest.getPath());
-
-            try {
-                for (Interceptor interceptor : interceptors) {
-                    interceptor.beforeMatch(vinnaContext);
-                    if (vinnaContext.isAborted()) {
-                        vinnaContext.sendResponse();
-                        return;
-                    }
-                }
-
-                vinnaContext.routeResolution = vinna.getRouter().match(vinnaRequest);
-
-                for (Interceptor interceptor : interceptors) {
-                    interceptor.afterMatch(vinnaContext);
-                    if (vinnaContext.isAborted()) {
-                        vinnaContext.sendResponse();
-                        return;
-                    }
-                }
-
-                if (vinnaContext.isResolved()) {
-                    vinnaContext.canAbort(false);
-
-                    Response routeResponse = vinnaContext.routeResolution.callAction(vinnaRequest, vinna);
-                    routeResponse.execute(vinnaRequest, vinnaResponse);
-
-                    httpSession = vinnaRequest.getSession(false);
-                    if (httpSession != null) {
-                        httpSession.setAttribute(VINNA_SESSION_KEY, session);
-                    }
-
-                    callAfterExecute(vinnaContext);
-
-                } else {
-                    logger.debug("Unable to resolve '{} {}'", vinnaRequest.getMethod(), vinnaRequest.getPath());
-                    chain.doFilter(request, response);
-                }
-
-            } catch (PassException e) {
-                logger.info("Response delegated to FilterChain.doChain");
+            if (!handler.handle((HttpServletRequest) request, (HttpServletResponse) response)) {
                 chain.doFilter(request, response);
-            } catch (VuntimeException e) {
-                logger.error("Error while processing the request", e);
-                vinnaResponse.setStatus(500);
-                e.printStackTrace(vinnaResponse.getWriter());
-            } catch (InternalVinnaException e) {
-                logger.error("Vinna internal error occurred !", e);
-                throw new ServletException(e);
             }
-
         } else {
             chain.doFilter(request, response);
         }
     }
 
-    private void callAfterExecute(VinnaContext context) {
-        for (Interceptor interceptor : interceptors) {
-            interceptor.afterExecute(context);
-        }
-    }
-
-    private boolean isMultipartContent(HttpServletRequest request) {
-        if ("GET".equals(request.getMethod().toUpperCase())) {
-            return false;
-        }
-        String contentType = request.getContentType();
-        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
-    }
-
     @Override
     public void destroy() {
+        if (vinna != null) {
+            vinna.destroy();
+        }
     }
 }
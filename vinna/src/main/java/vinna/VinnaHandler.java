@@ -0,0 +1,248 @@
+package vinna;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.deferred.CapturedRequest;
+import vinna.deferred.DeferredExecutor;
+import vinna.deferred.DeferredTask;
+import vinna.exception.ConfigException;
+import vinna.exception.InternalVinnaException;
+import vinna.exception.PassException;
+import vinna.exception.VuntimeException;
+import vinna.http.VinnaMultipartWrapper;
+import vinna.http.VinnaRequestWrapper;
+import vinna.http.VinnaResponseWrapper;
+import vinna.interceptor.Interceptor;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a request through an initialized Vinna application: interceptors, route matching, action and response.
+ * <p/>
+ * Shared by the {@link VinnaFilter} and the servers embedding Vinna without a servlet container.
+ */
+public class VinnaHandler {
+    private final static Logger logger = LoggerFactory.getLogger(VinnaHandler.class);
+
+    private final Vinna vinna;
+    private final VinnaConfig settings;
+    private final ServletContext servletContext;
+    private final List<Interceptor> interceptors;
+
+    /**
+     * @param servletContext the context of the application, null when there is no servlet container
+     */
+    public VinnaHandler(Vinna vinna, ServletContext servletContext) {
+        this.vinna = vinna;
+        this.settings = vinna.getSettings();
+        this.servletContext = servletContext;
+        this.interceptors = new ArrayList<>(vinna.getInterceptors());
+    }
+
+    public Vinna getVinna() {
+        return vinna;
+    }
+
+    /**
+     * @return false if no route handled the request, which is left untouched, true otherwise
+     */
+    public boolean handle(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        VinnaContext context = match(request, response);
+        if (context == null) {
+            return true;
+        }
+        return context.isResolved() && execute(context);
+    }
+
+    /**
+     * Handles a request nested in the request being processed, e.g. a batch sub-request, possibly on another thread.
+     * The context bound to the calling thread is restored afterwards.
+     *
+     * @return false if no route handled the request, true otherwise
+     */
+    public boolean handleNested(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        VinnaContext previous = VinnaContext.get();
+        try {
+            return handle(request, response);
+        } finally {
+            VinnaContext.set(previous);
+        }
+    }
+
+    /**
+     * Runs the interceptors and matches the request against the routes.
+     *
+     * @return the context of the request, resolved or not, or null if an interceptor already answered the request
+     */
+    public VinnaContext match(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+        VinnaRequestWrapper vinnaRequest;
+        if (isMultipartContent(request)) {
+            try {
+                vinnaRequest = new VinnaMultipartWrapper(request, settings.uploadDir, settings.uploadMaxSize);
+            } catch (NoClassDefFoundError e) {
+                throw new ConfigException("commons-fileupload is not available. For using multipart, you have to add commons-fileupload and commons-io to your classpath");
+            }
+
+        } else {
+            vinnaRequest = new VinnaRequestWrapper(request);
+        }
+        VinnaResponseWrapper vinnaResponse = new VinnaResponseWrapper(response);
+
+        HttpSession httpSession = vinnaRequest.getSession(false);
+        Session session;
+        if (httpSession != null && httpSession.getAttribute(VinnaFilter.VINNA_SESSION_KEY) != null) {
+            session = (Session) httpSession.getAttribute(VinnaFilter.VINNA_SESSION_KEY);
+        } else {
+            session = vinna.newSession();
+        }
+        VinnaContext vinnaContext = new VinnaContext(vinna, vinnaRequest, vinnaResponse, servletContext, session);
+        VinnaContext.set(vinnaContext);
+
+        logger.debug("Resolving '{} {}'", vinnaRequest.getMethod(), vinnaRequest.getPath());
+
+        try {
+            for (Interceptor interceptor : interceptors) {
+                interceptor.beforeMatch(vinnaContext);
+                if (vinnaContext.isAborted()) {
+                    vinnaContext.sendResponse();
+                    submitDeferredTasks(vinnaContext, true);
+                    return null;
+                }
+            }
+
+            vinnaContext.routeResolution = vinna.getRouter().match(vinnaRequest);
+
+            for (Interceptor interceptor : interceptors) {
+                interceptor.afterMatch(vinnaContext);
+                if (vinnaContext.isAborted()) {
+                    vinnaContext.sendResponse();
+                    submitDeferredTasks(vinnaContext, true);
+                    return null;
+                }
+            }
+            if (!vinnaContext.isResolved()) {
+                logger.debug("Unable to resolve '{} {}'", vinnaRequest.getMethod(), vinnaRequest.getPath());
+            }
+            if (!vinnaContext.isResolved() || vinnaContext.isPass()) {
+                submitDeferredTasks(vinnaContext, false);
+            }
+            return vinnaContext;
+
+        } catch (PassException e) {
+            logger.debug("Response delegated to FilterChain.doChain");
+            vinnaContext.routeResolution = null;
+            submitDeferredTasks(vinnaContext, false);
+            return vinnaContext;
+        } catch (VuntimeException e) {
+            logger.error("Error while processing the request", e);
+            vinnaResponse.setStatus(500);
+            e.printStackTrace(vinnaResponse.getWriter());
+            submitDeferredTasks(vinnaContext, true);
+            return null;
+        } catch (InternalVinnaException e) {
+            logger.error("Vinna internal error occurred !", e);
+            throw new ServletException(e);
+        }
+    }
+
+    /**
+     * Calls the action of a resolved request, and sends its response. The context is bound to the calling thread
+     * while the action runs, which doesn't have to be the thread which matched the request.
+     *
+     * @return false if the action passed the request, which is left untouched, true otherwise
+     */
+    public boolean execute(VinnaContext vinnaContext) throws IOException, ServletException {
+        VinnaContext.set(vinnaContext);
+        VinnaRequestWrapper vinnaRequest = vinnaContext.request;
+        VinnaResponseWrapper vinnaResponse = vinnaContext.response;
+        boolean sent = false;
+        try {
+            vinnaContext.canAbort(false);
+
+            if (vinnaContext.isPass()) {
+                logger.debug("Response delegated to FilterChain.doChain");
+                return false;
+            }
+            Response routeResponse = vinnaContext.routeResolution.callAction(vinnaRequest, vinna);
+            if (ResponseBuilder.isPass(routeResponse)) {
+                logger.debug("Response delegated to FilterChain.doChain");
+                return false;
+            }
+            routeResponse.execute(vinnaRequest, vinnaResponse);
+            sent = true;
+
+            HttpSession httpSession = vinnaRequest.getSession(false);
+            if (httpSession != null) {
+                httpSession.setAttribute(VinnaFilter.VINNA_SESSION_KEY, vinnaContext.session);
+            }
+
+            callAfterExecute(vinnaContext);
+            return true;
+
+        } catch (PassException e) {
+            logger.debug("Response delegated to FilterChain.doChain");
+            return false;
+        } catch (VuntimeException e) {
+            logger.error("Error while processing the request", e);
+            vinnaResponse.setStatus(500);
+            e.printStackTrace(vinnaResponse.getWriter());
+            sent = true;
+            return true;
+        } catch (InternalVinnaException e) {
+            logger.error("Vinna internal error occurred !", e);
+            throw new ServletException(e);
+        } finally {
+            submitDeferredTasks(vinnaContext, sent);
+        }
+    }
+
+    /**
+     * Queues the tasks deferred by the action and the interceptors, with a snapshot of the request.
+     *
+     * @param sent whether Vinna answered the request, whose response is then flushed first
+     */
+    private void submitDeferredTasks(VinnaContext context, boolean sent) {
+        List<DeferredTask> tasks = context.takeDeferredTasks();
+        if (tasks == null) {
+            return;
+        }
+        if (sent) {
+            try {
+                context.response.flushBuffer();
+            } catch (IOException e) {
+                logger.debug("Cannot flush the response before its deferred tasks", e);
+            }
+        }
+        VinnaRequestWrapper request = context.request;
+        CapturedRequest captured = new CapturedRequest(request.getMethod(), request.getPath(), request.getRemoteAddr(),
+                context.response.getStatus(), context.routeResolution == null ? null : context.routeResolution.matchedVars,
+                request.getParameters(), request.getHeaders());
+        DeferredExecutor executor = vinna.getDeferredExecutor();
+        for (DeferredTask task : tasks) {
+            executor.submit(task, captured);
+        }
+    }
+
+    private void callAfterExecute(VinnaContext context) {
+        for (Interceptor interceptor : interceptors) {
+            interceptor.afterExecute(context);
+        }
+    }
+
+    private boolean isMultipartContent(HttpServletRequest request) {
+        if ("GET".equals(request.getMethod().toUpperCase())) {
+            return false;
+        }
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+    }
+}
@@ -0,0 +1,17 @@
+package vinna.annotation;
+
+import vinna.route.ActionArgument;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Resolves a routed method parameter with a custom {@link ActionArgument}, which needs a public no-arg constructor.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.PARAMETER)
+public @interface Argument {
+    Class<? extends ActionArgument> value();
+}
@@ -0,0 +1,15 @@
+package vinna.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a routed method parameter to the request body stream, as {req.body} in a routes file. A parameter of any other
+ * type than InputStream is read from the JSON body, as {req.body: json}.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.PARAMETER)
+public @interface Body {
+}
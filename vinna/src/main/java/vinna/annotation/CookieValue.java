@@ -0,0 +1,15 @@
+package vinna.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a routed method parameter to a cookie, as {req.cookie.name} in a routes file.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.PARAMETER)
+public @interface CookieValue {
+    String value();
+}
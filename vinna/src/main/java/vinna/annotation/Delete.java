@@ -0,0 +1,25 @@
+package vinna.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Routes the DELETE requests matching the path to the annotated controller method, see {@link Get}.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Delete {
+    String value();
+
+    /**
+     * The media types the method responds with, negotiated with the request Accept header.
+     */
+    String[] produces() default {};
+
+    /**
+     * The media types of the request bodies the method accepts.
+     */
+    String[] consumes() default {};
+}
@@ -0,0 +1,29 @@
+package vinna.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Routes the GET requests matching the path to the annotated controller method. The route and its invoker are
+ * generated at compile time by the vinna-apt annotation processor.
+ * <p/>
+ * The path has the same syntax as with {@link vinna.Vinna#get(String)}, e.g. /api/{id: \\d+}. The method parameters that aren't
+ * annotated are bound to the path variables of the same name.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Get {
+    String value();
+
+    /**
+     * The media types the method responds with, negotiated with the request Accept header.
+     */
+    String[] produces() default {};
+
+    /**
+     * The media types of the request bodies the method accepts.
+     */
+    String[] consumes() default {};
+}
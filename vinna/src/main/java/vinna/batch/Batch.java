@@ -0,0 +1,282 @@
+package vinna.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.VinnaContext;
+import vinna.VinnaHandler;
+import vinna.exception.ConversionException;
+import vinna.exception.VuntimeException;
+import vinna.http.BufferedServletResponse;
+import vinna.json.Json;
+import vinna.json.JsonResponse;
+import vinna.response.ClientError;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+import vinna.response.ResponseHeaders;
+import vinna.route.RouteResolution;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The action of the batch route: runs a list of sub-requests in-process, and responds with all their responses.
+ * <p/>
+ * The batch body is a JSON array of sub-requests, each an object with a path (and an optional query string), and
+ * optionally a method (GET by default), params and headers (objects of strings or arrays of strings) and a body
+ * string:
+ * <pre>
+ * [{"path": "/users/12"}, {"method": "POST", "path": "/users/12/tags", "params": {"tag": ["a", "b"]}}]
+ * </pre>
+ * Each sub-request goes through the interceptors and the routes like any request, with the session and the headers
+ * of the batch request. The response is a JSON array of {"status", "headers", "body"} objects, in the order of the
+ * sub-requests. A sub-request no route handles gets a 404, one failing a 500, and a batch with more sub-requests
+ * or bytes than allowed a 413.
+ * <p/>
+ * With an executor, the sub-requests run in parallel: their actions must then be safe to run concurrently on the
+ * same session.
+ */
+public final class Batch implements RouteResolution.Action {
+    private static final Logger logger = LoggerFactory.getLogger(Batch.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The request attribute set on the sub-requests: batches can't be nested
+     */
+    public static final String SUB_REQUEST = "vinna.batch.sub-request";
+
+    private final int maxRequests;
+    private final long maxBytes;
+    private final ExecutorService executor;
+
+    /**
+     * @param maxBytes the maximum size of the batch body
+     * @param executor runs the sub-requests, one after the other on the batch thread when null
+     */
+    public Batch(int maxRequests, long maxBytes, ExecutorService executor) {
+        this.maxRequests = maxRequests;
+        this.maxBytes = maxBytes;
+        this.executor = executor;
+    }
+
+    @Override
+    public Response execute(Environment environment) {
+        VinnaContext context = VinnaContext.get();
+        if (context.request.getAttribute(SUB_REQUEST) != null) {
+            logger.debug("Nested batch rejected");
+            return ClientError.BAD_REQUEST;
+        }
+        if (context.request.getContentLength() > maxBytes) {
+            logger.debug("Batch of {} bytes rejected, the maximum is {}", context.request.getContentLength(), maxBytes);
+            return ResponseBuilder.withStatus(413);
+        }
+        List<SubRequest> subRequests;
+        try {
+            JsonNode root = (JsonNode) Json.read(new LimitedInputStream(context.request.getInputStream(), maxBytes), JsonNode.class);
+            if (root == null || !root.isArray()) {
+                throw new IllegalArgumentException("a batch is an array of sub-requests");
+            }
+            if (root.size() > maxRequests) {
+                logger.debug("Batch of {} sub-requests rejected, the maximum is {}", root.size(), maxRequests);
+                return ResponseBuilder.withStatus(413);
+            }
+            HttpServletRequest request = (HttpServletRequest) context.request.getRequest();
+            subRequests = new ArrayList<>(root.size());
+            for (JsonNode node : root) {
+                subRequests.add(subRequest(request, node));
+            }
+        } catch (ConversionException | IllegalArgumentException e) {
+            logger.debug("Invalid batch", e);
+            return ClientError.BAD_REQUEST;
+        } catch (TooLargeException e) {
+            logger.debug("Batch rejected, larger than the maximum of {} bytes", maxBytes);
+            return ResponseBuilder.withStatus(413);
+        } catch (IOException e) {
+            throw new VuntimeException("Cannot read the batch", e);
+        }
+
+        VinnaHandler handler = new VinnaHandler(environment.vinna, context.servletContext);
+        HttpServletResponse response = (HttpServletResponse) context.response.getResponse();
+        List<Map<String, Object>> results = new ArrayList<>(subRequests.size());
+        if (executor == null || subRequests.size() < 2) {
+            for (SubRequest subRequest : subRequests) {
+                results.add(run(handler, subRequest, response));
+            }
+        } else {
+            results.addAll(runAll(handler, subRequests, response));
+        }
+        return new JsonResponse().entity(results);
+    }
+
+    private List<Map<String, Object>> runAll(final VinnaHandler handler, List<SubRequest> subRequests, final HttpServletResponse response) {
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>(subRequests.size());
+        for (final SubRequest subRequest : subRequests) {
+            tasks.add(new Callable<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> call() {
+                    return run(handler, subRequest, response);
+                }
+            });
+        }
+        try {
+            List<Map<String, Object>> results = new ArrayList<>(tasks.size());
+            for (Future<Map<String, Object>> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VuntimeException("Interrupted while running the batch", e);
+        } catch (ExecutionException e) {
+            throw new VuntimeException("Error while running the batch", e.getCause());
+        }
+    }
+
+    private static Map<String, Object> run(VinnaHandler handler, SubRequest request, HttpServletResponse outerResponse) {
+        BufferedServletResponse response = new BufferedServletResponse(outerResponse);
+        try {
+            if (!handler.handleNested(request, response)) {
+                response.reset();
+                response.setStatus(404);
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            logger.error("Error while processing the batch sub-request " + request.getMethod() + " " + request.getServletPath(), e);
+            response.reset();
+            response.setStatus(500);
+        }
+        return result(response);
+    }
+
+    private static Map<String, Object> result(BufferedServletResponse response) {
+        Map<String, Object> headers = new LinkedHashMap<>();
+        if (response.getContentType() != null) {
+            headers.put("Content-Type", response.getContentType());
+        }
+        ResponseHeaders responseHeaders = response.getResponseHeaders();
+        for (int i = 0; i < responseHeaders.size(); i++) {
+            String name = responseHeaders.name(i);
+            if (!responseHeaders.isAdded(i)) {
+                List<String> values = responseHeaders.getAll(name);
+                headers.put(name, values.size() == 1 ? values.get(0) : values);
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", response.getStatus());
+        result.put("headers", headers);
+        result.put("body", response.getBodyAsString());
+        return result;
+    }
+
+    private static SubRequest subRequest(HttpServletRequest request, JsonNode node) {
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("a sub-request is an object");
+        }
+        JsonNode path = node.get("path");
+        if (path == null || !path.isTextual() || !path.asText().startsWith("/")) {
+            throw new IllegalArgumentException("a sub-request path is a string starting with /");
+        }
+        String method = text(node, "method");
+        String body = text(node, "body");
+        SubRequest subRequest = new SubRequest(request, method == null ? "GET" : method, path.asText(), values(node, "params"),
+                values(node, "headers"), body == null ? null : body.getBytes(UTF_8));
+        subRequest.setAttribute(SUB_REQUEST, Boolean.TRUE);
+        return subRequest;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (!value.isTextual()) {
+            throw new IllegalArgumentException("a sub-request " + field + " is a string");
+        }
+        return value.asText();
+    }
+
+    private static Map<String, List<String>> values(JsonNode node, String field) {
+        JsonNode object = node.get(field);
+        if (object == null || object.isNull()) {
+            return Collections.emptyMap();
+        }
+        if (!object.isObject()) {
+            throw new IllegalArgumentException("the sub-request " + field + " are an object");
+        }
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            List<String> list = new ArrayList<>(1);
+            if (entry.getValue().isArray()) {
+                for (JsonNode value : entry.getValue()) {
+                    list.add(value.asText());
+                }
+            } else {
+                list.add(entry.getValue().asText());
+            }
+            values.put(entry.getKey(), list);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "batch";
+    }
+
+    private static final class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Fails once more than the maximum number of bytes are read, whatever the announced content length.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws TooLargeException {
+            remaining -= read;
+            if (remaining < 0) {
+                throw new TooLargeException();
+            }
+        }
+    }
+}
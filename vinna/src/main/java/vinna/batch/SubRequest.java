@@ -0,0 +1,329 @@
+package vinna.batch;
+
+import vinna.util.HttpDate;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A sub-request of a batch: its own method, path, parameters, headers and body, on top of the batch request.
+ * <p/>
+ * The headers of the batch request are inherited, but the ones describing its body, and are overridden by the
+ * sub-request headers of the same name. The session, the cookies and the client are the ones of the batch request.
+ * The attributes are the sub-request own ones.
+ */
+class SubRequest extends HttpServletRequestWrapper {
+    private static final String[] BODY_HEADERS = {"content-type", "content-length", "transfer-encoding", "content-encoding"};
+
+    private final String method;
+    private final String path;
+    private final String queryString;
+    private final Map<String, String[]> parameters;
+    // the header values by lower case name, and their names as given
+    private final Map<String, List<String>> headers = new LinkedHashMap<>();
+    private final Map<String, String> headerNames = new LinkedHashMap<>();
+    private final byte[] body;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    /**
+     * @param path       the path of the sub-request within the application, optionally followed by a query string
+     * @param parameters the parameters, on top of the query string ones
+     * @param headers    the sub-request headers
+     * @param body       the body, null if none
+     */
+    SubRequest(HttpServletRequest request, String method, String path, Map<String, List<String>> parameters,
+               Map<String, List<String>> headers, byte[] body) {
+        super(request);
+        this.method = method.toUpperCase(Locale.ENGLISH);
+        int query = path.indexOf('?');
+        this.path = query < 0 ? path : path.substring(0, query);
+        this.queryString = query < 0 ? null : path.substring(query + 1);
+        this.body = body == null ? new byte[0] : body;
+
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        if (queryString != null) {
+            parseQuery(queryString, params);
+        }
+        for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+            values(params, parameter.getKey()).addAll(parameter.getValue());
+        }
+        this.parameters = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> parameter : params.entrySet()) {
+            this.parameters.put(parameter.getKey(), parameter.getValue().toArray(new String[parameter.getValue().size()]));
+        }
+
+        Enumeration<String> names = request.getHeaderNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (!isBodyHeader(name)) {
+                addHeader(name, Collections.list(request.getHeaders(name)));
+            }
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            String key = header.getKey().toLowerCase(Locale.ENGLISH);
+            this.headers.remove(key);
+            this.headerNames.remove(key);
+            addHeader(header.getKey(), header.getValue());
+        }
+        if (body != null && !this.headers.containsKey("content-length")) {
+            addHeader("Content-Length", Collections.singletonList(Integer.toString(body.length)));
+        }
+    }
+
+    private static boolean isBodyHeader(String name) {
+        for (String header : BODY_HEADERS) {
+            if (header.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addHeader(String name, List<String> values) {
+        String key = name.toLowerCase(Locale.ENGLISH);
+        if (!headers.containsKey(key)) {
+            headers.put(key, new ArrayList<String>());
+            headerNames.put(key, name);
+        }
+        headers.get(key).addAll(values);
+    }
+
+    private static void parseQuery(String query, Map<String, List<String>> params) {
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = decode(eq < 0 ? pair : pair.substring(0, eq));
+            String value = eq < 0 ? "" : decode(pair.substring(eq + 1));
+            values(params, name).add(value);
+        }
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> values(Map<String, List<String>> map, String name) {
+        List<String> values = map.get(name);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            map.put(name, values);
+        }
+        return values;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getServletPath() {
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer();
+        url.append(getScheme()).append("://").append(getServerName());
+        int port = getServerPort();
+        if (!("http".equals(getScheme()) && port == 80) && !("https".equals(getScheme()) && port == 443)) {
+            url.append(':').append(port);
+        }
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = parameters.get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name.toLowerCase(Locale.ENGLISH));
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = headers.get(name.toLowerCase(Locale.ENGLISH));
+        return Collections.enumeration(values == null ? Collections.<String>emptyList() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headerNames.values());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : HttpDate.parse(value);
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        String contentType = getContentType();
+        if (contentType != null) {
+            int i = contentType.toLowerCase(Locale.ENGLISH).indexOf("charset=");
+            if (i >= 0) {
+                int end = contentType.indexOf(';', i);
+                return (end < 0 ? contentType.substring(i + 8) : contentType.substring(i + 8, end)).trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) {
+        // the encoding of the body is the one of its content type
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                return in.available();
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding == null ? Charset.forName("ISO-8859-1") : Charset.forName(encoding);
+        return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), charset));
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if (o == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Batch sub-requests can't be asynchronous");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Batch sub-requests can't be asynchronous");
+    }
+}
@@ -0,0 +1,77 @@
+package vinna.deferred;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable snapshot of a request and of its response status, taken on the request thread once the response is
+ * sent, and handed to its {@link DeferredTask}s.
+ */
+public final class CapturedRequest {
+    public final String method;
+    public final String path;
+    public final String remoteAddr;
+    /**
+     * The status of the response, 200 if it wasn't set
+     */
+    public final int status;
+    /**
+     * The path variables of the matched route, empty if the request wasn't resolved
+     */
+    public final Map<String, String> matchedVars;
+    public final Map<String, List<String>> parameters;
+    /**
+     * The headers, by case-insensitive name
+     */
+    public final Map<String, List<String>> headers;
+    /**
+     * When the snapshot was taken, in milliseconds since the epoch
+     */
+    public final long time;
+
+    public CapturedRequest(String method, String path, String remoteAddr, int status, Map<String, String> matchedVars,
+                           Map<String, ? extends Collection<String>> parameters, Map<String, ? extends Collection<String>> headers) {
+        this.method = method;
+        this.path = path;
+        this.remoteAddr = remoteAddr;
+        this.status = status == 0 ? 200 : status;
+        this.matchedVars = matchedVars == null ? Collections.<String, String>emptyMap()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(matchedVars));
+        this.parameters = Collections.unmodifiableMap(copy(parameters, new LinkedHashMap<String, List<String>>()));
+        this.headers = Collections.unmodifiableMap(copy(headers, new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER)));
+        this.time = System.currentTimeMillis();
+    }
+
+    private static Map<String, List<String>> copy(Map<String, ? extends Collection<String>> values, Map<String, List<String>> copy) {
+        for (Map.Entry<String, ? extends Collection<String>> entry : values.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+        }
+        return copy;
+    }
+
+    /**
+     * @return the first value of the parameter, null if it wasn't sent
+     */
+    public String getParameter(String name) {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * @return the first value of the header, null if it wasn't sent
+     */
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path + " " + status;
+    }
+}
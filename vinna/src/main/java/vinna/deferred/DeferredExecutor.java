@@ -0,0 +1,163 @@
+package vinna.deferred;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the {@link DeferredTask}s on a few daemon threads, from a bounded queue.
+ * <p/>
+ * When the queue is full, the request thread waits for up to the offer timeout for some room, and the task is
+ * dropped if there is still none: a backlog of deferred work never holds the request threads for longer, nor grows
+ * the memory unbounded. The dropped tasks are counted, and logged as warnings with an exponential back off. The
+ * failing tasks are logged and counted too.
+ */
+public final class DeferredExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(DeferredExecutor.class);
+
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+    private final long offerTimeoutMillis;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param offerTimeoutMillis how long a request thread waits for some room in a full queue, 0 to drop the task
+     *                           right away
+     */
+    public DeferredExecutor(int threads, int queueCapacity, long offerTimeoutMillis) {
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "vinna-deferred-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                offer(r, executor);
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return false if the task was dropped
+     */
+    public boolean submit(final DeferredTask task, final CapturedRequest request) {
+        Run run = new Run(task, request);
+        submitted.incrementAndGet();
+        executor.execute(run);
+        return !run.dropped;
+    }
+
+    private void offer(Runnable r, ThreadPoolExecutor executor) {
+        boolean queued = false;
+        if (!executor.isShutdown() && offerTimeoutMillis > 0) {
+            try {
+                queued = queue.offer(r, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queued) {
+            Run run = (Run) r;
+            run.dropped = true;
+            submitted.decrementAndGet();
+            long count = dropped.incrementAndGet();
+            if (Long.bitCount(count) == 1) {
+                logger.warn("Deferred task {} dropped after {}: {} tasks dropped so far", new Object[]{run.task, run.request, count});
+            }
+        }
+    }
+
+    /**
+     * @return the number of tasks queued or run so far, but the dropped ones
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return the number of tasks which threw an exception
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of tasks waiting in the queue
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting tasks, and waits for the queued ones for up to the given delay. The tasks still queued then are
+     * dropped.
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                int remaining = executor.shutdownNow().size();
+                submitted.addAndGet(-remaining);
+                dropped.addAndGet(remaining);
+                logger.warn("{} deferred tasks dropped on shutdown", remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeferredExecutor{submitted=" + submitted + ", completed=" + completed + ", failed=" + failed
+                + ", dropped=" + dropped + ", queued=" + queue.size() + '}';
+    }
+
+    private final class Run implements Runnable {
+        private final DeferredTask task;
+        private final CapturedRequest request;
+        private boolean dropped;
+
+        private Run(DeferredTask task, CapturedRequest request) {
+            this.task = task;
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run(request);
+                completed.incrementAndGet();
+            } catch (Exception | LinkageError e) {
+                failed.incrementAndGet();
+                logger.error("Deferred task " + task + " failed after " + request, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package vinna.deferred;
+
+/**
+ * Work to run once the response is sent, e.g. audit logging, cache warming or analytics events, see
+ * {@link vinna.VinnaContext#afterResponse(DeferredTask)}.
+ * <p/>
+ * The task runs on a {@link DeferredExecutor} thread, once the request is over: it mustn't use the servlet request,
+ * the response or the {@link vinna.VinnaContext}, which is null on this thread, but the given snapshot of the request
+ * and the values it captured itself.
+ */
+public interface DeferredTask {
+
+    void run(CapturedRequest request) throws Exception;
+}
@@ -12,4 +12,8 @@ public class InternalVinnaException extends RuntimeException {
     public InternalVinnaException(String msg, Throwable e) {
         super(msg, e);
     }
+
+    protected InternalVinnaException(String msg, Throwable e, boolean enableSuppression, boolean writableStackTrace) {
+        super(msg, e, enableSuppression, writableStackTrace);
+    }
 }
@@ -0,0 +1,13 @@
+package vinna.exception;
+
+/**
+ * A conversion failing because of what the client sent, e.g. a malformed request body: the request is answered with
+ * a 400 instead of a 500.
+ */
+public class InvalidRequestException extends ConversionException {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidRequestException(String msg, Throwable e) {
+        super(msg, e);
+    }
+}
@@ -1,4 +1,15 @@
 package vinna.exception;
 
+/**
+ * Passes the request on to the filter chain, from an interceptor or an action. Control flow only: it has no stack
+ * trace, and the same instance can be thrown each time.
+ * <p/>
+ * The pass routes and the {@link vinna.response.ResponseBuilder#pass()} responses are recognized without it.
+ */
 public class PassException extends InternalVinnaException {
+    public static final PassException INSTANCE = new PassException();
+
+    public PassException() {
+        super(null, null, false, false);
+    }
 }
@@ -0,0 +1,115 @@
+package vinna.http;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parsed Accept header: its media ranges, the most specific first.
+ * <p/>
+ * Clients send the same few Accept headers over and over, so the parsed headers are cached by their raw value. The
+ * cache is bounded, as the header values are under the clients control.
+ */
+public final class Accept {
+    private static final int CACHE_SIZE = 256;
+    private static final ConcurrentMap<String, Accept> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * A missing Accept header accepts any media type.
+     */
+    public static final Accept ANY = new Accept(new MediaType[]{new MediaType(MediaType.WILDCARD, MediaType.WILDCARD, 1f)});
+
+    private final MediaType[] ranges;
+    /**
+     * The best quality a media type can get, i.e. the quality of the preferred media ranges.
+     */
+    public final float maxQuality;
+
+    private Accept(MediaType[] ranges) {
+        this.ranges = ranges;
+        float max = 0f;
+        for (MediaType range : ranges) {
+            max = Math.max(max, range.quality);
+        }
+        this.maxQuality = max;
+    }
+
+    public static Accept of(Request request) {
+        Collection<String> values = request.getHeaderValues("Accept");
+        if (values.isEmpty()) {
+            return ANY;
+        }
+        if (values.size() == 1) {
+            return of(values.iterator().next());
+        }
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            joined.append(joined.length() == 0 ? "" : ",").append(value);
+        }
+        return of(joined.toString());
+    }
+
+    public static Accept of(String header) {
+        if (header == null || header.trim().isEmpty()) {
+            return ANY;
+        }
+        Accept accept = CACHE.get(header);
+        if (accept == null) {
+            accept = parse(header);
+            if (CACHE.size() >= CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(header, accept);
+        }
+        return accept;
+    }
+
+    private static Accept parse(String header) {
+        List<MediaType> ranges = new ArrayList<>();
+        for (String element : header.split(",")) {
+            MediaType range = MediaType.parse(element);
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+        if (ranges.isEmpty()) {
+            return ANY;
+        }
+        // stable sort: the ranges of the same specificity keep the header order
+        Collections.sort(ranges, new Comparator<MediaType>() {
+            @Override
+            public int compare(MediaType m1, MediaType m2) {
+                return m2.specificity() - m1.specificity();
+            }
+        });
+        return new Accept(ranges.toArray(new MediaType[ranges.size()]));
+    }
+
+    /**
+     * @return the quality of the most specific media range including the media type, 0 if it isn't acceptable
+     */
+    public float quality(MediaType mediaType) {
+        for (MediaType range : ranges) {
+            if (range.includes(mediaType)) {
+                return range.quality;
+            }
+        }
+        return 0f;
+    }
+
+    /**
+     * @return the best quality among the media types
+     */
+    public float quality(List<MediaType> mediaTypes) {
+        float res = 0f;
+        for (MediaType mediaType : mediaTypes) {
+            res = Math.max(res, quality(mediaType));
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(ranges);
+    }
+}
@@ -0,0 +1,338 @@
+package vinna.http;
+
+import vinna.response.ResponseHeaders;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+
+/**
+ * A response kept in memory instead of being sent: its status, headers and body are read once it is complete, e.g.
+ * for the sub-requests of a batch.
+ * <p/>
+ * The response is never committed. The cookies are still added to the wrapped response, see {@link #hasCookies()}.
+ */
+public class BufferedServletResponse extends HttpServletResponseWrapper {
+    private static final String DEFAULT_ENCODING = "ISO-8859-1";
+
+    private final ResponseHeaders headers = new ResponseHeaders();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private int status = 200;
+    private String contentType;
+    private String characterEncoding;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private volatile boolean cookies;
+
+    public BufferedServletResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int sc, String sm) {
+        this.status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        resetBuffer();
+        this.status = sc;
+        if (msg != null) {
+            setContentType("text/plain");
+            byte[] bytes = msg.getBytes(Charset.forName(getCharacterEncoding()));
+            body.write(bytes, 0, bytes.length);
+        }
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        resetBuffer();
+        this.status = 302;
+        headers.set("Location", location);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else {
+            headers.set(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else {
+            headers.add(name, value);
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        headers.setDate(name, date);
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        headers.addDate(name, date);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        headers.setInt(name, value);
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        headers.add(name, Integer.toString(value));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return "Content-Type".equalsIgnoreCase(name) ? contentType != null : headers.contains(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return "Content-Type".equalsIgnoreCase(name) ? getContentType() : headers.getFirst(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            Collection<String> res = new ArrayList<>(1);
+            if (contentType != null) {
+                res.add(getContentType());
+            }
+            return res;
+        }
+        return headers.getAll(name);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        Collection<String> names = new LinkedHashSet<>();
+        if (contentType != null) {
+            names.add("Content-Type");
+        }
+        for (int i = 0; i < headers.size(); i++) {
+            names.add(headers.name(i));
+        }
+        return names;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type == null) {
+            this.contentType = null;
+            return;
+        }
+        int i = type.toLowerCase(Locale.ENGLISH).indexOf("charset=");
+        if (i >= 0) {
+            int end = type.indexOf(';', i);
+            String charset = (end < 0 ? type.substring(i + 8) : type.substring(i + 8, end)).trim();
+            if (charset.length() > 1 && charset.startsWith("\"") && charset.endsWith("\"")) {
+                charset = charset.substring(1, charset.length() - 1);
+            }
+            setCharacterEncoding(charset);
+            type = type.substring(0, i).trim();
+            if (type.endsWith(";")) {
+                type = type.substring(0, type.length() - 1).trim();
+            }
+        }
+        this.contentType = type;
+    }
+
+    /**
+     * @return the content type with its charset, if any
+     */
+    @Override
+    public String getContentType() {
+        if (contentType == null) {
+            return null;
+        }
+        return characterEncoding == null ? contentType : contentType + ";charset=" + characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (writer == null) {
+            this.characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding == null ? DEFAULT_ENCODING : characterEncoding;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        cookies = true;
+        // the responses of a batch may be buffered in parallel
+        synchronized (getResponse()) {
+            super.addCookie(cookie);
+        }
+    }
+
+    /**
+     * @return true if cookies were added, to the wrapped response
+     */
+    public boolean hasCookies() {
+        return cookies;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        // the length of the buffered body
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        // kept out of the wrapped response
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        // the whole body is buffered
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (outputStream != null && writer == null) {
+            throw new IllegalStateException("getOutputStream() has already been called on this response");
+        }
+        if (writer == null) {
+            try {
+                writer = new PrintWriter(new OutputStreamWriter(body, getCharacterEncoding()));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException("Unsupported response encoding " + getCharacterEncoding(), e);
+            }
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        while (headers.size() > 0) {
+            headers.remove(headers.name(0));
+        }
+        status = 200;
+        contentType = null;
+        if (writer == null) {
+            characterEncoding = null;
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        body.reset();
+    }
+
+    /**
+     * @return the headers set on the response, but the Content-Type
+     */
+    public ResponseHeaders getResponseHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the body written so far
+     */
+    public byte[] getBody() {
+        flushBuffer();
+        return body.toByteArray();
+    }
+
+    /**
+     * @return the body written so far, decoded with the response encoding
+     */
+    public String getBodyAsString() {
+        flushBuffer();
+        try {
+            return body.toString(getCharacterEncoding());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("Unsupported response encoding " + getCharacterEncoding(), e);
+        }
+    }
+
+    /**
+     * Sends the buffered response through the given response, which mustn't be committed.
+     */
+    public void writeTo(HttpServletResponse response) throws IOException {
+        response.setStatus(status);
+        if (contentType != null) {
+            response.setContentType(getContentType());
+        }
+        headers.writeTo(response);
+        byte[] bytes = getBody();
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+}
@@ -0,0 +1,99 @@
+package vinna.http;
+
+import vinna.exception.ConfigException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A media type or media range (e.g. text/html, text/*, or *&#47;*), with its quality when it comes from an Accept
+ * header. The parameters other than q are ignored.
+ */
+public final class MediaType {
+    public static final String WILDCARD = "*";
+
+    public final String type;
+    public final String subtype;
+    public final float quality;
+
+    public MediaType(String type, String subtype, float quality) {
+        this.type = type;
+        this.subtype = subtype;
+        this.quality = quality;
+    }
+
+    /**
+     * @return the media type, or null if the value isn't a valid media type
+     */
+    public static MediaType parse(String value) {
+        String[] parts = value.split(";");
+        String range = parts[0].trim().toLowerCase(Locale.ENGLISH);
+        int slash = range.indexOf('/');
+        if (slash <= 0 || slash == range.length() - 1 || range.indexOf('/', slash + 1) >= 0) {
+            return null;
+        }
+        String type = range.substring(0, slash).trim();
+        String subtype = range.substring(slash + 1).trim();
+        if (type.equals(WILDCARD) && !subtype.equals(WILDCARD)) {
+            return null;
+        }
+        float quality = 1f;
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    quality = Math.max(0f, Math.min(1f, Float.parseFloat(parameter.substring(2).trim())));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return new MediaType(type, subtype, quality);
+    }
+
+    /**
+     * Parses the media types of a route declaration, each value being possibly a comma separated list.
+     *
+     * @throws ConfigException if one of the media types is invalid
+     */
+    public static List<MediaType> parseAll(String... values) {
+        List<MediaType> res = new ArrayList<>();
+        for (String value : values) {
+            for (String element : value.split(",")) {
+                MediaType mediaType = parse(element);
+                if (mediaType == null) {
+                    throw new ConfigException("Invalid media type '" + element.trim() + "'");
+                }
+                res.add(mediaType);
+            }
+        }
+        return Collections.unmodifiableList(res);
+    }
+
+    /**
+     * @return true if this media range includes the given media type, e.g. text/* includes text/html
+     */
+    public boolean includes(MediaType other) {
+        if (type.equals(WILDCARD)) {
+            return true;
+        }
+        if (!type.equals(other.type)) {
+            return false;
+        }
+        return subtype.equals(WILDCARD) || subtype.equals(other.subtype);
+    }
+
+    /**
+     * @return 2 for a full media type, 1 for type/*, and 0 for *&#47;*
+     */
+    public int specificity() {
+        return type.equals(WILDCARD) ? 0 : subtype.equals(WILDCARD) ? 1 : 2;
+    }
+
+    @Override
+    public String toString() {
+        return type + "/" + subtype + (quality < 1f ? ";q=" + quality : "");
+    }
+}
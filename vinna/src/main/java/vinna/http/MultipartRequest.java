@@ -8,7 +8,7 @@ public interface MultipartRequest extends Request {
 
     public Collection<String> getPartsNames();
 
-    public UploadedFile getPart(String name);
+    public UploadedFile getUploadedFile(String name);
 
-    public Map<String, UploadedFile> getParts();
+    public Map<String, UploadedFile> getUploadedFiles();
 }
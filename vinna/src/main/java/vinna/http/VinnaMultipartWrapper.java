@@ -70,7 +70,7 @@ public class VinnaMultipartWrapper extends VinnaRequestWrapper implements Multip
     }
 
     @Override
-    public UploadedFile getPart(String name) {
+    public UploadedFile getUploadedFile(String name) {
         init(temporaryDirectory, maxSize);
         UploadedFile fileItem = files.get(name);
         if (fileItem != null) {
@@ -81,25 +81,25 @@ public class VinnaMultipartWrapper extends VinnaRequestWrapper implements Multip
     }
 
     @Override
-    public Map<String, UploadedFile> getParts() {
+    public Map<String, UploadedFile> getUploadedFiles() {
         init(temporaryDirectory, maxSize);
         return Collections.unmodifiableMap(files);
     }
 
     @Override
-    public String getParameter(String name) {
+    protected String requestParameter(String name) {
         init(temporaryDirectory, maxSize);
         return this.parameters.getFirst(name);
     }
 
     @Override
-    public Collection<String> getParameters(String name) {
+    protected Collection<String> requestParameters(String name) {
         init(temporaryDirectory, maxSize);
         return Collections.unmodifiableCollection(this.parameters.get(name));
     }
 
     @Override
-    public Map<String, Collection<String>> getParameters() {
+    protected Map<String, Collection<String>> requestParameters() {
         init(temporaryDirectory, maxSize);
         return Collections.<String, Collection<String>>unmodifiableMap(this.parameters);
     }
@@ -2,29 +2,147 @@ package vinna.http;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.util.*;
 
 public class VinnaRequestWrapper extends HttpServletRequestWrapper implements Request {
 
     private final HttpServletRequest servletRequest;
+    // the target of an in-process forward, with its query string, null if the request isn't forwarded
+    private String forwardPath;
+    private String forwardServletPath;
+    private Map<String, List<String>> forwardParameters;
 
     public VinnaRequestWrapper(HttpServletRequest servletRequest) {
         super(servletRequest);
         this.servletRequest = servletRequest;
     }
 
+    /**
+     * Rewrites the path of the request, for an in-process {@link vinna.response.Forward}: the request is then routed
+     * as if it was sent to this path. The parameters of the path query string, if any, take precedence over the
+     * request ones.
+     *
+     * @param path the path within the application, optionally followed by a query string, null to route the request
+     *             on its own path again
+     */
+    public void setForwardPath(String path) {
+        this.forwardPath = path;
+        if (path == null) {
+            forwardServletPath = null;
+            forwardParameters = null;
+            return;
+        }
+        int query = path.indexOf('?');
+        forwardServletPath = query < 0 ? path : path.substring(0, query);
+        forwardParameters = query < 0 ? null : parseQuery(path.substring(query + 1));
+    }
+
+    /**
+     * @return the path the request is forwarded to in-process, with its query string, null if it isn't forwarded
+     */
+    public String getForwardPath() {
+        return forwardPath;
+    }
+
+    private static Map<String, List<String>> parseQuery(String query) {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = decode(eq < 0 ? pair : pair.substring(0, eq));
+            List<String> values = parameters.get(name);
+            if (values == null) {
+                values = new ArrayList<>(1);
+                parameters.put(name, values);
+            }
+            values.add(eq < 0 ? "" : decode(pair.substring(eq + 1)));
+        }
+        return parameters.isEmpty() ? null : parameters;
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public String getPath() {
-        return servletRequest.getServletPath();
+        return forwardServletPath != null ? forwardServletPath : servletRequest.getServletPath();
+    }
+
+    @Override
+    public String getServletPath() {
+        return forwardServletPath != null ? forwardServletPath : super.getServletPath();
+    }
+
+    @Override
+    public String getPathInfo() {
+        return forwardServletPath != null ? null : super.getPathInfo();
+    }
+
+    @Override
+    public String getQueryString() {
+        if (forwardPath == null) {
+            return super.getQueryString();
+        }
+        int query = forwardPath.indexOf('?');
+        return query < 0 ? null : forwardPath.substring(query + 1);
+    }
+
+    @Override
+    public String getRequestURI() {
+        return forwardServletPath != null ? getContextPath() + forwardServletPath : super.getRequestURI();
     }
 
     @Override
     public String getParameter(String name) {
-        return servletRequest.getParameter(name);
+        if (forwardParameters != null && forwardParameters.containsKey(name)) {
+            return forwardParameters.get(name).get(0);
+        }
+        return requestParameter(name);
     }
 
     @Override
     public Collection<String> getParameters(String name) {
+        if (forwardParameters != null && forwardParameters.containsKey(name)) {
+            List<String> values = new ArrayList<>(forwardParameters.get(name));
+            values.addAll(requestParameters(name));
+            return Collections.unmodifiableList(values);
+        }
+        return requestParameters(name);
+    }
+
+    @Override
+    public Map<String, Collection<String>> getParameters() {
+        Map<String, Collection<String>> params = requestParameters();
+        if (forwardParameters == null) {
+            return params;
+        }
+        Map<String, Collection<String>> merged = new HashMap<>(params);
+        for (String name : forwardParameters.keySet()) {
+            merged.put(name, getParameters(name));
+        }
+        return Collections.unmodifiableMap(merged);
+    }
+
+    /**
+     * @return the first value of a parameter sent with the request, regardless of any forward
+     */
+    protected String requestParameter(String name) {
+        return servletRequest.getParameter(name);
+    }
+
+    /**
+     * @return the values of a parameter sent with the request, regardless of any forward
+     */
+    protected Collection<String> requestParameters(String name) {
         String[] parameterValues = servletRequest.getParameterValues(name);
         if (parameterValues != null) {
             return Arrays.asList(parameterValues);
@@ -32,15 +150,17 @@ public class VinnaRequestWrapper extends HttpServletRequestWrapper implements Re
         return Collections.emptyList();
     }
 
-    @Override
-    public Map<String, Collection<String>> getParameters() {
+    /**
+     * @return the parameters sent with the request, regardless of any forward
+     */
+    protected Map<String, Collection<String>> requestParameters() {
         Map<String, Collection<String>> params = new HashMap<>();
 
         Enumeration enumeration = servletRequest.getParameterNames();
         if (enumeration != null) {
             while (enumeration.hasMoreElements()) {
                 String paramName = (String) enumeration.nextElement();
-                params.put(paramName, getParameters(paramName));
+                params.put(paramName, requestParameters(paramName));
             }
         }
 
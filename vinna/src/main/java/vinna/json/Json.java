@@ -0,0 +1,91 @@
+package vinna.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import vinna.exception.InvalidRequestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The object mapper used by {@link JsonBody} and {@link JsonResponse}, with its readers and writers cached per type.
+ * <p/>
+ * Requires jackson-databind, an optional dependency of vinna.
+ */
+public final class Json {
+
+    private static volatile Mappers mappers = new Mappers(new ObjectMapper());
+
+    private Json() {
+    }
+
+    /**
+     * Replaces the object mapper, e.g. to register modules or to change the date format. The readers and writers
+     * cached for the previous mapper are dropped.
+     */
+    public static void configure(ObjectMapper mapper) {
+        mappers = new Mappers(mapper);
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        Mappers current = mappers;
+        ObjectReader reader = current.readers.get(type);
+        if (reader == null) {
+            reader = current.mapper.reader(type);
+            ObjectReader previous = current.readers.putIfAbsent(type, reader);
+            if (previous != null) {
+                reader = previous;
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Reads a JSON document into an instance of the given type.
+     *
+     * @throws InvalidRequestException if the document is malformed or doesn't match the type
+     */
+    public static Object read(InputStream in, Class<?> type) throws IOException {
+        try {
+            return reader(type).readValue(in);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestException("Invalid JSON for type " + type.getName(), e);
+        }
+    }
+
+    /**
+     * The writers don't flush after each value, the response body is flushed once when it is complete.
+     */
+    public static ObjectWriter writer(Class<?> type) {
+        Mappers current = mappers;
+        ObjectWriter writer = current.writers.get(type);
+        if (writer == null) {
+            writer = current.mapper.writerWithType(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            ObjectWriter previous = current.writers.putIfAbsent(type, writer);
+            if (previous != null) {
+                writer = previous;
+            }
+        }
+        return writer;
+    }
+
+    public static JsonFactory factory() {
+        return mappers.mapper.getFactory();
+    }
+
+    private static final class Mappers {
+        private final ObjectMapper mapper;
+        private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+        private Mappers(ObjectMapper mapper) {
+            this.mapper = mapper;
+        }
+    }
+}
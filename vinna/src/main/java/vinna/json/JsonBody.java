@@ -0,0 +1,34 @@
+package vinna.json;
+
+import vinna.exception.VuntimeException;
+import vinna.route.ActionArgument;
+import vinna.route.RouteResolution;
+
+import java.io.IOException;
+
+/**
+ * Binds the JSON request body to the action parameter type, as {req.body: json} in a routes file.
+ * <p/>
+ * Doesn't reference the Jackson classes itself, so that routes using it can be parsed and compiled without them.
+ */
+public class JsonBody implements ActionArgument {
+
+    @Override
+    public Object resolve(RouteResolution.Action.Environment env, Class<?> targetType) {
+        try {
+            return Json.read(env.request.getInputStream(), targetType);
+        } catch (IOException e) {
+            throw new VuntimeException("unexpected exception while reading the request", e);
+        }
+    }
+
+    @Override
+    public boolean compatibleWith(Class<?> type) {
+        return !type.isPrimitive();
+    }
+
+    @Override
+    public String toString() {
+        return "req.body: json";
+    }
+}
@@ -0,0 +1,78 @@
+package vinna.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import vinna.response.ResponseBuilder;
+import vinna.response.StreamingResponse;
+import vinna.util.Utf8Writer;
+
+import javax.servlet.ServletOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * A response whose body is its entity serialized to JSON.
+ * <p/>
+ * The entity is encoded into a pooled buffer, handed to the servlet stream whenever it is full. An {@link Iterable}
+ * entity is written element by element, so a lazily fetched result is never held in memory as a whole.
+ */
+public class JsonResponse extends ResponseBuilder implements StreamingResponse {
+
+    private Object entity;
+
+    public JsonResponse() {
+        this(200);
+    }
+
+    public JsonResponse(int status) {
+        super(status);
+        type("application/json; charset=utf-8");
+    }
+
+    public JsonResponse entity(Object entity) {
+        this.entity = entity;
+        return this;
+    }
+
+    /**
+     * @return true if the entity is an iterable which isn't a collection, likely fetched as it is written
+     */
+    @Override
+    public boolean isStreaming() {
+        return entity instanceof Iterable && !(entity instanceof Collection);
+    }
+
+    @Override
+    protected void writeBody(ServletOutputStream out) throws IOException {
+        try (Utf8Writer writer = new Utf8Writer(out)) {
+            JsonGenerator generator = Json.factory().createGenerator(writer);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (entity instanceof Iterable) {
+                writeElements(generator, (Iterable<?>) entity);
+            } else if (entity == null) {
+                generator.writeNull();
+            } else {
+                Json.writer(entity.getClass()).writeValue(generator, entity);
+            }
+            generator.close();
+        }
+    }
+
+    private static void writeElements(JsonGenerator generator, Iterable<?> elements) throws IOException {
+        generator.writeStartArray();
+        Class<?> type = null;
+        ObjectWriter writer = null;
+        for (Object element : elements) {
+            if (element == null) {
+                generator.writeNull();
+                continue;
+            }
+            if (element.getClass() != type) {
+                type = element.getClass();
+                writer = Json.writer(type);
+            }
+            writer.writeValue(generator, element);
+        }
+        generator.writeEndArray();
+    }
+}
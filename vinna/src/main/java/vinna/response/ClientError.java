@@ -19,6 +19,19 @@ public class ClientError extends ResponseBuilder {
         }
     }
 
+    /*
+     * Bodyless responses, frozen once and shared. The factory methods below return responses which can be completed.
+     */
+    public static final FrozenResponse BAD_REQUEST = new ClientError(Kind.BAD_REQUEST).freeze();
+    public static final FrozenResponse UNAUTHORIZED = new ClientError(Kind.UNAUTHORIZED).freeze();
+    public static final FrozenResponse FORBIDDEN = new ClientError(Kind.FORBIDDEN).freeze();
+    public static final FrozenResponse NOT_FOUND = new ClientError(Kind.NOT_FOUND).freeze();
+    public static final FrozenResponse METHOD_NOT_ALLOWED = new ClientError(Kind.METHOD_NOT_ALLOWED).freeze();
+    public static final FrozenResponse NOT_ACCEPTABLE = new ClientError(Kind.NOT_ACCEPTABLE).freeze();
+    public static final FrozenResponse CONFLICT = new ClientError(Kind.CONFLICT).freeze();
+    public static final FrozenResponse GONE = new ClientError(Kind.GONE).freeze();
+    public static final FrozenResponse TOO_MANY_REQUESTS = new ClientError(Kind.TOO_MANY_REQUESTS).freeze();
+
     public static ClientError badRequest() {
         return new ClientError(Kind.BAD_REQUEST);
     }
@@ -0,0 +1,139 @@
+package vinna.response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.util.BufferPool;
+import vinna.util.Utf8Writer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The body of a {@link ResponseBuilder}, written straight to the response stream.
+ * <p/>
+ * Generated content is best written by a callback, overriding {@link #writeTo(OutputStream)}:
+ * <pre>
+ * content(new Content() {
+ *     public void writeTo(OutputStream out) throws IOException {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ * When the length of the body is known, it is sent as the Content-Length of the response, and the container doesn't
+ * have to fall back to the chunked transfer encoding.
+ */
+public abstract class Content {
+    private static final Logger logger = LoggerFactory.getLogger(Content.class);
+
+    /**
+     * @return the length of the body in bytes, or -1 if it isn't known before the body is written
+     */
+    public long length() {
+        return -1;
+    }
+
+    public abstract void writeTo(OutputStream out) throws IOException;
+
+    public static Content of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    public static Content of(final byte[] bytes, final int offset, final int length) {
+        return new Content() {
+            @Override
+            public long length() {
+                return length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(bytes, offset, length);
+            }
+        };
+    }
+
+    /**
+     * The remaining bytes of the buffer, which is left untouched: the body can be written more than once.
+     */
+    public static Content of(ByteBuffer buffer) {
+        final ByteBuffer content = buffer.duplicate();
+        if (content.hasArray()) {
+            return of(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        }
+        return new Content() {
+            @Override
+            public long length() {
+                return content.remaining();
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                ByteBuffer source = content.duplicate();
+                byte[] chunk = BufferPool.DEFAULT.acquire();
+                try {
+                    while (source.hasRemaining()) {
+                        int len = Math.min(chunk.length, source.remaining());
+                        source.get(chunk, 0, len);
+                        out.write(chunk, 0, len);
+                    }
+                } finally {
+                    BufferPool.DEFAULT.release(chunk);
+                }
+            }
+        };
+    }
+
+    /**
+     * UTF-8 content is encoded while written, into a pooled buffer. Content in any other charset is encoded once,
+     * when the body is created.
+     */
+    public static Content of(final CharSequence chars, Charset charset) {
+        if (!StandardCharsets.UTF_8.equals(charset)) {
+            ByteBuffer encoded = charset.encode(chars.toString());
+            return of(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+        }
+        final long length = Utf8Writer.encodedLength(chars);
+        return new Content() {
+            @Override
+            public long length() {
+                return length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (Utf8Writer writer = new Utf8Writer(out)) {
+                    writer.append(chars);
+                }
+            }
+        };
+    }
+
+    /**
+     * A stream of unknown length, copied through a pooled buffer and closed once written.
+     */
+    public static Content of(final InputStream in) {
+        return new Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                byte[] buffer = BufferPool.DEFAULT.acquire();
+                try {
+                    int len;
+                    while ((len = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, len);
+                    }
+                } finally {
+                    BufferPool.DEFAULT.release(buffer);
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        logger.warn("Cannot close the response body input stream", e);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -1,8 +1,12 @@
 package vinna.response;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.VinnaContext;
 import vinna.exception.VuntimeException;
 import vinna.http.VinnaRequestWrapper;
 import vinna.http.VinnaResponseWrapper;
+import vinna.route.RouteResolution;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
@@ -10,7 +14,22 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Forwards the request to another path.
+ * <p/>
+ * When a route matches the path, its action is called in-process: the request is routed again on the new path, with
+ * the same context, request wrapper and session, and without going through the container and the interceptors
+ * again. Otherwise, e.g. for a JSP or a static file, and always for the paths under /WEB-INF/ and /META-INF/, the
+ * request is forwarded by the container's {@link RequestDispatcher}.
+ */
 public class Forward implements Response {
+    private static final Logger logger = LoggerFactory.getLogger(Forward.class);
+
+    /**
+     * The maximum number of in-process forwards of a request, which most likely loops beyond
+     */
+    public static final int MAX_FORWARDS = 16;
+    private static final String FORWARDS = "vinna.response.forwards";
 
     private final String path;
     private final Map<String, Object> attributes;
@@ -34,6 +53,9 @@ public class Forward implements Response {
             request.setAttribute(param.getKey(), param.getValue());
         }
 
+        if (forwardInProcess(request, response)) {
+            return;
+        }
         RequestDispatcher requestDispatcher = request.getRequestDispatcher(path);
         if (requestDispatcher != null) {
             requestDispatcher.forward(request, response);
@@ -42,4 +64,46 @@ public class Forward implements Response {
         }
 
     }
+
+    private boolean forwardInProcess(VinnaRequestWrapper request, VinnaResponseWrapper response) throws IOException, ServletException {
+        VinnaContext context = VinnaContext.get();
+        if (context == null || context.request != request || !path.startsWith("/")
+                || path.startsWith("/WEB-INF/") || path.startsWith("/META-INF/")) {
+            return false;
+        }
+        String previousPath = request.getForwardPath();
+        String previousServletPath = request.getServletPath();
+        String previousUri = request.getRequestURI();
+        String previousQuery = request.getQueryString();
+        String previousPathInfo = request.getPathInfo();
+        request.setForwardPath(path);
+        RouteResolution resolution = context.vinna.getRouter().match(request);
+        if (resolution == null || resolution.isPass()) {
+            request.setForwardPath(previousPath);
+            return false;
+        }
+
+        Integer forwards = (Integer) request.getAttribute(FORWARDS);
+        int count = forwards == null ? 1 : forwards + 1;
+        if (count > MAX_FORWARDS) {
+            throw new VuntimeException("More than " + MAX_FORWARDS + " forwards of " + previousServletPath + ", last to " + path);
+        }
+        request.setAttribute(FORWARDS, count);
+        if (request.getAttribute(RequestDispatcher.FORWARD_REQUEST_URI) == null) {
+            request.setAttribute(RequestDispatcher.FORWARD_REQUEST_URI, previousUri);
+            request.setAttribute(RequestDispatcher.FORWARD_CONTEXT_PATH, request.getContextPath());
+            request.setAttribute(RequestDispatcher.FORWARD_SERVLET_PATH, previousServletPath);
+            request.setAttribute(RequestDispatcher.FORWARD_PATH_INFO, previousPathInfo);
+            request.setAttribute(RequestDispatcher.FORWARD_QUERY_STRING, previousQuery);
+        }
+
+        logger.debug("Forwarding '{}' to '{}' in-process", previousServletPath, path);
+        Response forwarded = resolution.callAction(request, context.vinna);
+        if (ResponseBuilder.isPass(forwarded)) {
+            request.setForwardPath(previousPath);
+            return false;
+        }
+        forwarded.execute(request, response);
+        return true;
+    }
 }
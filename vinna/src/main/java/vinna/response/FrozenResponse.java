@@ -0,0 +1,68 @@
+package vinna.response;
+
+import vinna.http.VinnaRequestWrapper;
+import vinna.http.VinnaResponseWrapper;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * An immutable response, whose status, headers and encoded body are computed once, by
+ * {@link ResponseBuilder#freeze()}, and sent as is for every request: nothing is allocated per request.
+ * <p/>
+ * For constant replies, shared in static fields:
+ * <pre>
+ * private static final Response NOT_FOUND = new StringResponse("Page not found").status(404).freeze();
+ * </pre>
+ */
+public final class FrozenResponse implements Response {
+    private final int status;
+    private final String[] headerNames;
+    private final String[] headerValues;
+    /**
+     * whether each header is added to the previous values of the same header, or sets it
+     */
+    private final boolean[] added;
+    private final String encoding;
+    private final byte[] body;
+
+    FrozenResponse(int status, String[] headerNames, String[] headerValues, boolean[] added, String encoding, byte[] body) {
+        this.status = status;
+        this.headerNames = headerNames;
+        this.headerValues = headerValues;
+        this.added = added;
+        this.encoding = encoding;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void execute(VinnaRequestWrapper request, VinnaResponseWrapper response) throws IOException, ServletException {
+        response.setStatus(status);
+        for (int i = 0; i < headerNames.length; i++) {
+            if (added[i]) {
+                response.addHeader(headerNames[i], headerValues[i]);
+            } else {
+                response.setHeader(headerNames[i], headerValues[i]);
+            }
+        }
+        if (encoding != null) {
+            response.setCharacterEncoding(encoding);
+        }
+        // no Content-Length for the statuses without content
+        if (status >= 200 && status != 204 && status != 304) {
+            response.setContentLength(body.length);
+        }
+        if (body.length > 0) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenResponse{" + status + ", " + body.length + " bytes}";
+    }
+}
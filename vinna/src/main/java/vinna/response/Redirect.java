@@ -16,6 +16,11 @@ public class Redirect extends ResponseBuilder {
         }
     }
 
+    /**
+     * A bodyless 304, frozen once and shared. {@link #notModified()} returns a response which can be completed.
+     */
+    public static final FrozenResponse NOT_MODIFIED = new Redirect(null, Kind.NOT_MODIFIED).freeze();
+
     public static Redirect found(String location) {
         return new Redirect(location, Kind.FOUND);
     }
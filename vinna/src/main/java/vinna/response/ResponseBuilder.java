@@ -2,16 +2,18 @@ package vinna.response;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import vinna.exception.ConfigException;
 import vinna.exception.PassException;
 import vinna.http.Cookie;
 import vinna.http.VinnaRequestWrapper;
 import vinna.http.VinnaResponseWrapper;
-import vinna.util.MultivaluedHashMap;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -22,10 +24,10 @@ public class ResponseBuilder implements Response {
     private static final Response PASS_RESPONSE = new DoPass();
 
     private int status;
-    private MultivaluedHashMap<String, Object> headers = new MultivaluedHashMap<>();
+    private final ResponseHeaders headers = new ResponseHeaders();
     private Map<String, Cookie> cookies = new HashMap<>();
     private String location;
-    private InputStream body;
+    private Content body;
     private String encoding;
     private boolean isRedirect = false;
 
@@ -37,6 +39,13 @@ public class ResponseBuilder implements Response {
         return PASS_RESPONSE;
     }
 
+    /**
+     * @return true if the response passes the request on to the filter chain
+     */
+    public static boolean isPass(Response response) {
+        return response == PASS_RESPONSE;
+    }
+
     public ResponseBuilder(int status) {
         status(status);
     }
@@ -84,8 +93,7 @@ public class ResponseBuilder implements Response {
     }
 
     public final ResponseBuilder lastModified(Date lastModified) {
-        setHeader("Last-Modified", lastModified);
-        return this;
+        return setDateHeader("Last-Modified", lastModified.getTime());
     }
 
     public final ResponseBuilder cacheControl(String cacheControl) {
@@ -94,17 +102,44 @@ public class ResponseBuilder implements Response {
     }
 
     public final ResponseBuilder expires(Date expires) {
-        setHeader("Expires", expires);
-        return this;
+        return setDateHeader("Expires", expires.getTime());
     }
 
+    /**
+     * Dates are sent as RFC 1123 HTTP dates, other values as their string representation.
+     */
     public final ResponseBuilder addHeader(String name, Object value) {
-        headers.add(name, value);
+        if (value instanceof Date) {
+            headers.addDate(name, ((Date) value).getTime());
+        } else {
+            headers.add(name, value);
+        }
         return this;
     }
 
+    /**
+     * Dates are sent as RFC 1123 HTTP dates, other values as their string representation.
+     */
     public final ResponseBuilder setHeader(String name, Object value) {
-        headers.putSingle(name, value);
+        if (value instanceof Date) {
+            headers.setDate(name, ((Date) value).getTime());
+        } else if (value instanceof Integer) {
+            headers.setInt(name, (Integer) value);
+        } else if (value instanceof Long) {
+            headers.setLong(name, (Long) value);
+        } else {
+            headers.set(name, value);
+        }
+        return this;
+    }
+
+    public final ResponseBuilder setDateHeader(String name, long millis) {
+        headers.setDate(name, millis);
+        return this;
+    }
+
+    public final ResponseBuilder setIntHeader(String name, int value) {
+        headers.setInt(name, value);
         return this;
     }
 
@@ -114,6 +149,14 @@ public class ResponseBuilder implements Response {
     }
 
     public final ResponseBuilder body(InputStream body) {
+        this.body = body == null ? null : Content.of(body);
+        return this;
+    }
+
+    /**
+     * Sets the body, whose length is sent as the Content-Length of the response when known.
+     */
+    public final ResponseBuilder content(Content body) {
         this.body = body;
         return this;
     }
@@ -121,17 +164,7 @@ public class ResponseBuilder implements Response {
     protected void writeBody(ServletOutputStream out) throws IOException {
         logger.debug("Start sending response body");
         if (body != null) {
-            int size = 512;//FIXME: make this configurable ?
-            byte[] buffer = new byte[size];
-            int len;
-            while ((len = body.read(buffer)) >= 0) {
-                out.write(buffer, 0, len);
-            }
-            try {
-                body.close();
-            } catch (IOException e) {
-                logger.warn("Cannot close the response body input stream", e);
-            }
+            body.writeTo(out);
         }
     }
 
@@ -140,11 +173,11 @@ public class ResponseBuilder implements Response {
     }
 
     public final Object getFirstHeader(String header) {
-        return headers.getFirst(header);
+        return headers.getFirstRaw(header);
     }
 
     public final List<Object> getHeaders(String header) {
-        return headers.get(header);
+        return headers.getAllRaw(header);
     }
 
     public final String getEncoding() {
@@ -155,17 +188,7 @@ public class ResponseBuilder implements Response {
     public final void execute(VinnaRequestWrapper request, VinnaResponseWrapper response) throws IOException, ServletException {
         response.setStatus(status);
 
-        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
-
-            if (header.getValue().size() == 1) {
-                response.setHeader(header.getKey(), header.getValue().get(0).toString());
-            } else {
-                for (Object value : header.getValue()) {
-                    response.addHeader(header.getKey(), value.toString());
-                }
-            }
-
-        }
+        headers.writeTo(response);
 
         for (Cookie cookie : cookies.values()) {
             final javax.servlet.http.Cookie servletCookie = new javax.servlet.http.Cookie(cookie.getName(), cookie.getValue());
@@ -207,10 +230,74 @@ public class ResponseBuilder implements Response {
             response.setCharacterEncoding(encoding);
         }
 
+        if (body != null && body.length() >= 0) {
+            if (body.length() <= Integer.MAX_VALUE) {
+                response.setContentLength((int) body.length());
+            } else {
+                response.setHeader("Content-Length", Long.toString(body.length()));
+            }
+        }
+
         writeBody(response.getOutputStream());
         response.getOutputStream().flush();
     }
 
+    /**
+     * Computes the status, headers and body of this response once, into an immutable response which can be shared,
+     * and sent with no per request work.
+     *
+     * @throws ConfigException if the response can't be frozen, because it has cookies, or redirects to a relative
+     *                         location (both depend on the request)
+     */
+    public final FrozenResponse freeze() {
+        if (!cookies.isEmpty()) {
+            throw new ConfigException("A response with cookies cannot be frozen");
+        }
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        List<Boolean> added = new ArrayList<>();
+        for (int i = 0; i < headers.size(); i++) {
+            names.add(headers.name(i));
+            values.add(headers.value(i));
+            added.add(headers.isAdded(i));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (isRedirect) {
+            if (location != null) {
+                if (!hasScheme(location)) {
+                    throw new ConfigException("A redirect to the relative location " + location + " cannot be frozen");
+                }
+                names.add("Location");
+                values.add(location);
+                added.add(false);
+            }
+        } else {
+            try {
+                writeBody(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        bytes.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        bytes.write(b, off, len);
+                    }
+                });
+            } catch (IOException e) {
+                throw new ConfigException("Cannot freeze the response body", e);
+            }
+        }
+
+        boolean[] addedArray = new boolean[added.size()];
+        for (int i = 0; i < addedArray.length; i++) {
+            addedArray[i] = added.get(i);
+        }
+        return new FrozenResponse(status, names.toArray(new String[names.size()]), values.toArray(new String[values.size()]),
+                addedArray, encoding, bytes.toByteArray());
+    }
+
     private boolean hasScheme(String uri) {
         for (int i = 0; i < uri.length(); i++) {
             char c = uri.charAt(i);
@@ -225,7 +312,7 @@ public class ResponseBuilder implements Response {
     private static class DoPass implements Response {
         @Override
         public void execute(VinnaRequestWrapper request, VinnaResponseWrapper response) throws IOException, ServletException {
-            throw new PassException();
+            throw PassException.INSTANCE;
         }
     }
 }
@@ -0,0 +1,209 @@
+package vinna.response;
+
+import vinna.util.HttpDate;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The headers of a response, in the order they were set.
+ * <p/>
+ * Each value is an entry of small parallel arrays, rather than a list per header: most headers have a single value,
+ * and most responses a handful of headers. Dates and numbers are kept unformatted, and handed to the container
+ * through setDateHeader and setIntHeader. The other values are kept as they were set, and formatted with their string
+ * representation when sent.
+ */
+public final class ResponseHeaders {
+    private static final byte STRING = 0;
+    private static final byte DATE = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+
+    private String[] names = new String[8];
+    private byte[] kinds = new byte[8];
+    private Object[] objects = new Object[8];
+    private long[] numbers = new long[8];
+    private int size;
+
+    public void set(String name, Object value) {
+        remove(name);
+        add(name, value);
+    }
+
+    public void add(String name, Object value) {
+        append(name, STRING, value, 0);
+    }
+
+    public void setDate(String name, long millis) {
+        remove(name);
+        addDate(name, millis);
+    }
+
+    public void addDate(String name, long millis) {
+        append(name, DATE, null, millis);
+    }
+
+    public void setInt(String name, int value) {
+        remove(name);
+        append(name, INT, null, value);
+    }
+
+    public void setLong(String name, long value) {
+        remove(name);
+        append(name, LONG, null, value);
+    }
+
+    public void remove(String name) {
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (!names[i].equalsIgnoreCase(name)) {
+                names[j] = names[i];
+                kinds[j] = kinds[i];
+                objects[j] = objects[i];
+                numbers[j] = numbers[i];
+                j++;
+            }
+        }
+        for (int i = j; i < size; i++) {
+            names[i] = null;
+            objects[i] = null;
+        }
+        size = j;
+    }
+
+    public boolean contains(String name) {
+        return indexOf(name, 0) >= 0;
+    }
+
+    /**
+     * @return the first value of the header, formatted, or null if it isn't set
+     */
+    public String getFirst(String name) {
+        int i = indexOf(name, 0);
+        return i < 0 ? null : value(i);
+    }
+
+    public List<String> getAll(String name) {
+        List<String> res = new ArrayList<>(1);
+        for (int i = indexOf(name, 0); i >= 0; i = indexOf(name, i + 1)) {
+            res.add(value(i));
+        }
+        return res;
+    }
+
+    /**
+     * @return the first value of the header as it was set, dates as {@link Date}, or null if it isn't set
+     */
+    public Object getFirstRaw(String name) {
+        int i = indexOf(name, 0);
+        return i < 0 ? null : raw(i);
+    }
+
+    public List<Object> getAllRaw(String name) {
+        List<Object> res = new ArrayList<>(1);
+        for (int i = indexOf(name, 0); i >= 0; i = indexOf(name, i + 1)) {
+            res.add(raw(i));
+        }
+        return res;
+    }
+
+    /**
+     * @return the number of header values
+     */
+    public int size() {
+        return size;
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return the formatted value, dates as RFC 1123 HTTP dates
+     */
+    public String value(int index) {
+        switch (kinds[index]) {
+            case DATE:
+                return HttpDate.format(numbers[index]);
+            case STRING:
+                return objects[index].toString();
+            default:
+                return Long.toString(numbers[index]);
+        }
+    }
+
+    private Object raw(int index) {
+        switch (kinds[index]) {
+            case DATE:
+                return new Date(numbers[index]);
+            case INT:
+                return (int) numbers[index];
+            case LONG:
+                return numbers[index];
+            default:
+                return objects[index];
+        }
+    }
+
+    /**
+     * @return true if the value is added to the previous values of the same header
+     */
+    public boolean isAdded(int index) {
+        return indexOf(names[index], 0) < index;
+    }
+
+    public void writeTo(HttpServletResponse response) {
+        for (int i = 0; i < size; i++) {
+            boolean added = isAdded(i);
+            String name = names[i];
+            switch (kinds[i]) {
+                case STRING:
+                    if (added) {
+                        response.addHeader(name, objects[i].toString());
+                    } else {
+                        response.setHeader(name, objects[i].toString());
+                    }
+                    break;
+                case DATE:
+                    if (added) {
+                        response.addDateHeader(name, numbers[i]);
+                    } else {
+                        response.setDateHeader(name, numbers[i]);
+                    }
+                    break;
+                case INT:
+                    response.setIntHeader(name, (int) numbers[i]);
+                    break;
+                default:
+                    response.setHeader(name, Long.toString(numbers[i]));
+            }
+        }
+    }
+
+    private int indexOf(String name, int from) {
+        for (int i = from; i < size; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(String name, byte kind, Object object, long number) {
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        names[size] = name;
+        kinds[size] = kind;
+        objects[size] = object;
+        numbers[size] = number;
+        size++;
+    }
+}
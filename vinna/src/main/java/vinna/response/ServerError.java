@@ -15,6 +15,15 @@ public class ServerError extends ResponseBuilder {
         }
     }
 
+    /*
+     * Bodyless responses, frozen once and shared. The factory methods below return responses which can be completed.
+     */
+    public static final FrozenResponse INTERNAL_ERROR = new ServerError(Kind.INTERNAL_ERROR).freeze();
+    public static final FrozenResponse NOT_IMPLEMENTED = new ServerError(Kind.NOT_IMPLEMENTED).freeze();
+    public static final FrozenResponse BAD_GATEWAY = new ServerError(Kind.BAD_GATEWAY).freeze();
+    public static final FrozenResponse SERVICE_UNAVAILABLE = new ServerError(Kind.SERVICE_UNAVAILABLE).freeze();
+    public static final FrozenResponse GATEWAY_TIMEOUT = new ServerError(Kind.GATEWAY_TIMEOUT).freeze();
+
     public static ServerError internalError() {
         return new ServerError(Kind.INTERNAL_ERROR);
     }
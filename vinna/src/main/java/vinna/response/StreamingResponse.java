@@ -0,0 +1,10 @@
+package vinna.response;
+
+/**
+ * A response which may be sent as it is produced, e.g. a view flushing its chunks or a lazily fetched JSON array:
+ * buffering it would hold it in memory as a whole.
+ */
+public interface StreamingResponse extends Response {
+
+    boolean isStreaming();
+}
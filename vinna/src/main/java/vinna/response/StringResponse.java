@@ -2,8 +2,9 @@ package vinna.response;
 
 import vinna.exception.VuntimeException;
 
-import java.io.ByteArrayInputStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 
 // FIXME rename me
 public class StringResponse extends ResponseBuilder {
@@ -16,8 +17,8 @@ public class StringResponse extends ResponseBuilder {
         super(200);
         if (content != null) {
             try {
-                body(new ByteArrayInputStream(content.getBytes(encoding)));
-            } catch (UnsupportedEncodingException e) {
+                content(Content.of(content, Charset.forName(encoding)));
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
                 throw new VuntimeException("Invalid encoding", e);
             }
         }
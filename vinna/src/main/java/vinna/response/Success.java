@@ -15,6 +15,13 @@ public class Success extends ResponseBuilder {
         }
     }
 
+    /*
+     * Bodyless responses, frozen once and shared. The factory methods below return responses which can be completed.
+     */
+    public static final FrozenResponse OK = new Success(Kind.OK).freeze();
+    public static final FrozenResponse ACCEPTED = new Success(Kind.ACCEPTED).freeze();
+    public static final FrozenResponse NO_CONTENT = new Success(Kind.NO_CONTENT).freeze();
+
     public static Success ok() {
         return new Success(Kind.OK);
     }
@@ -10,7 +10,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -18,7 +17,7 @@ import java.util.Map;
 public interface ActionArgument {
 
     public static class Const<T> implements ActionArgument {
-        private final T value;
+        final T value;
 
         public Const(T value) {
             this.value = value;
@@ -41,8 +40,31 @@ public interface ActionArgument {
         }
     }
 
+    public static class NumConst implements ActionArgument {
+        final BigDecimal value;
+
+        public NumConst(BigDecimal value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object resolve(RouteResolution.Action.Environment env, Class<?> targetType) {
+            return Conversions.convertNumeric(value, targetType);
+        }
+
+        @Override
+        public boolean compatibleWith(Class<?> type) {
+            return Number.class.isAssignableFrom(type);
+        }
+
+        @Override
+        public String toString() {
+            return "num['" + value + "']";
+        }
+    }
+
     public static class Variable extends ChameleonArgument {
-        private final String name;
+        final String name;
 
         public Variable(String name) {
             this.name = name;
@@ -51,11 +73,10 @@ public interface ActionArgument {
         @Override
         public Object resolve(RouteResolution.Action.Environment env, Class<?> targetType) {
             String value = env.matchedVars.get(name);
-            if (targetType.isAssignableFrom(Collection.class)) {
+            if (isCollection(targetType)) {
                 //TODO: simply do not expose asCollection for path variables ?
                 if (typeArg != null) {
-                    Object convertedValue = Conversions.convertString(value, typeArg);
-                    return Collections.unmodifiableCollection(Arrays.asList(convertedValue));
+                    return Conversions.convertCollection(Collections.singletonList(value), targetType, typeArg);
                 } else {
                     throw new VuntimeException("need an argType when the target is a collection");
                 }
@@ -71,7 +92,7 @@ public interface ActionArgument {
 
     public static class RequestParameter extends ChameleonArgument {
 
-        private final String name;
+        final String name;
 
         public RequestParameter(String name) {
             this.name = name;
@@ -79,9 +100,9 @@ public interface ActionArgument {
 
         @Override
         public Object resolve(RouteResolution.Action.Environment env, Class<?> targetType) {
-            if (targetType.isAssignableFrom(Collection.class)) {
+            if (isCollection(targetType)) {
                 if (typeArg != null) {
-                    return Conversions.convertCollection(env.request.getParameters(name), typeArg);
+                    return Conversions.convertCollection(env.request.getParameters(name), targetType, typeArg);
                 } else {
                     throw new VuntimeException("need an argType when the target is a collection");
                 }
@@ -96,7 +117,7 @@ public interface ActionArgument {
     }
 
     public static class RequestPart implements ActionArgument {
-        private final String name;
+        final String name;
 
         public RequestPart(String name) {
             this.name = name;
@@ -106,7 +127,7 @@ public interface ActionArgument {
         public Object resolve(RouteResolution.Action.Environment env, Class<?> targetType) {
             if (env.request instanceof MultipartRequest) {
                 final MultipartRequest request = (MultipartRequest) env.request;
-                return request.getPart(name);
+                return request.getUploadedFile(name);
             } else {
                 throw new VuntimeException("Trying to get a file from a non multipart request");
             }
@@ -142,7 +163,7 @@ public interface ActionArgument {
 
     public static class Header extends ChameleonArgument {
 
-        private final String headerName;
+        final String headerName;
 
         public Header(String headerName) {
             this.headerName = headerName;
@@ -156,9 +177,9 @@ public interface ActionArgument {
 
         @Override
         public Object resolve(RouteResolution.Action.Environment env, Class<?> targetType) {
-            if (targetType.isAssignableFrom(Collection.class)) {
+            if (isCollection(targetType)) {
                 if (typeArg != null) {
-                    return Conversions.convertCollection(env.request.getHeaderValues(headerName), typeArg);
+                    return Conversions.convertCollection(env.request.getHeaderValues(headerName), targetType, typeArg);
                 } else {
                     throw new VuntimeException("need an argType when the target is a collection");
                 }
@@ -210,7 +231,7 @@ public interface ActionArgument {
 
     public static class CookieArgument extends ChameleonArgument {
 
-        private final String cookieName;
+        final String cookieName;
 
         public CookieArgument(String cookieName) {
             this.cookieName = cookieName;
@@ -289,10 +310,26 @@ public interface ActionArgument {
             return null;
         }
 
+        /**
+         * Sets the declared type, as with {type} in a routes file, for the routes compiled at build time.
+         */
+        public final ChameleonArgument typed(Class<?> type, Class<?> typeArg) {
+            this.type = type;
+            this.typeArg = typeArg;
+            return this;
+        }
+
         @Override
         public boolean compatibleWith(Class<?> argType) {
             return (type == null || argType.isAssignableFrom(type));
         }
+
+        /**
+         * @return true if the elements of the resolved values are converted into a collection of the target type
+         */
+        protected final boolean isCollection(Class<?> targetType) {
+            return targetType.isAssignableFrom(Collection.class) || typeArg != null && Collection.class.isAssignableFrom(targetType);
+        }
     }
 
     Object resolve(RouteResolution.Action.Environment env, Class<?> targetType);
@@ -0,0 +1,46 @@
+package vinna.route;
+
+import vinna.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Base class of the routes generated by the vinna-apt annotation processor from the {@link vinna.annotation.Get}
+ * (and similar) annotations of a controller.
+ * <p/>
+ * The generated classes are listed in META-INF/services/vinna.route.AnnotatedRoutes, and their routes are added by
+ * {@link vinna.Vinna} before the application ones.
+ */
+public abstract class AnnotatedRoutes {
+    public static final String SUFFIX = "_VinnaRoutes";
+
+    public final List<Route> getRoutes(String prefix) {
+        List<Route> routes = new ArrayList<>();
+        routes(prefix == null ? "" : prefix, routes);
+        return routes;
+    }
+
+    protected abstract void routes(String prefix, List<Route> routes);
+
+    /**
+     * @param pathPattern the pattern of the path, without the routes prefix
+     */
+    protected static Route route(String verb, String prefix, String pathPattern, List<String> variableNames,
+                                 RouteResolution.Action action) {
+        return new Route(verb, Pattern.compile(prefix + pathPattern), variableNames, Collections.<String, Pattern>emptyMap(),
+                Collections.<String, Pattern>emptyMap(), action);
+    }
+
+    /**
+     * @param produces the media types the action responds with
+     * @param consumes the media types of the request bodies the action accepts
+     */
+    protected static Route route(String verb, String prefix, String pathPattern, List<String> variableNames,
+                                 String[] produces, String[] consumes, RouteResolution.Action action) {
+        return new Route(verb, Pattern.compile(prefix + pathPattern), variableNames, Collections.<String, Pattern>emptyMap(),
+                Collections.<String, Pattern>emptyMap(), MediaType.parseAll(produces), MediaType.parseAll(consumes), action);
+    }
+}
@@ -0,0 +1,259 @@
+package vinna.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.VinnaContext;
+import vinna.exception.ConfigException;
+import vinna.exception.VuntimeException;
+import vinna.http.BufferedServletResponse;
+import vinna.http.Request;
+import vinna.http.VinnaRequestWrapper;
+import vinna.http.VinnaResponseWrapper;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+import vinna.response.StreamingResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the identical requests running concurrently on a route: the first one calls the action, and the others
+ * wait for its response, buffered and sent to each of them.
+ * <p/>
+ * The requests are identical when they have the same method, path, and values for the selected parameters and
+ * headers, e.g. req.param.page or req.header.Accept-Language. Once the response is known, a waiting request whose
+ * values differ from the first one for a header listed in the response Vary header runs the action on its own. So do
+ * the requests waiting for longer than the maximum wait, and all the waiting requests if the action fails or passes.
+ * <p/>
+ * The response is shared once it is complete, buffered in memory. A streaming response (see
+ * {@link StreamingResponse}) is never buffered: it is sent to the first request only, and the waiting requests run
+ * the action on their own. Neither is a response setting cookies shared.
+ * <p/>
+ * Meant for the expensive GET routes whose responses depend neither on the session nor on the cookies: only the
+ * first request sees the changes the action makes to the session.
+ */
+public final class CoalescingAction implements RouteResolution.Action {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingAction.class);
+
+    public static final long DEFAULT_MAX_WAIT_MS = 1000;
+    private static final String PARAM = "req.param.";
+    private static final String HEADER = "req.header.";
+
+    private final RouteResolution.Action action;
+    private final long maxWaitMillis;
+    private final List<String> keys;
+    private final List<String> parameters = new ArrayList<>();
+    private final List<String> headers = new ArrayList<>();
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * @param keys the parameters and headers telling the requests apart, as req.param.name and req.header.name
+     */
+    public CoalescingAction(RouteResolution.Action action, long maxWaitMillis, List<String> keys) {
+        this.action = action;
+        this.maxWaitMillis = maxWaitMillis;
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        for (String key : keys) {
+            checkKey(key);
+            if (key.startsWith(PARAM)) {
+                parameters.add(key.substring(PARAM.length()));
+            } else {
+                headers.add(key.substring(HEADER.length()));
+            }
+        }
+    }
+
+    static void checkKey(String key) {
+        if (!(key.startsWith(PARAM) && key.length() > PARAM.length()) && !(key.startsWith(HEADER) && key.length() > HEADER.length())) {
+            throw new ConfigException("Invalid coalescing key '" + key + "': should be req.param.name or req.header.name");
+        }
+    }
+
+    public RouteResolution.Action getAction() {
+        return action;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the number of times the action was called
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * @return the number of requests answered with the response of another request
+     */
+    public long getShared() {
+        return shared.get();
+    }
+
+    @Override
+    public Response execute(Environment environment) {
+        VinnaContext context = VinnaContext.get();
+        if (context == null || context.request != environment.request) {
+            executions.incrementAndGet();
+            return action.execute(environment);
+        }
+        String key = key(environment.request);
+        Flight flight = new Flight();
+        Flight running = flights.putIfAbsent(key, flight);
+        if (running == null) {
+            return lead(key, flight, environment, context);
+        }
+
+        SharedResponse response = running.await(maxWaitMillis);
+        if (response != null && response.accepts(environment.request)) {
+            shared.incrementAndGet();
+            return response;
+        }
+        logger.debug("Calling {} on its own, after waiting for an identical request", action);
+        executions.incrementAndGet();
+        return action.execute(environment);
+    }
+
+    private Response lead(String key, Flight flight, Environment environment, VinnaContext context) {
+        SharedResponse response = null;
+        try {
+            executions.incrementAndGet();
+            Response actionResponse = action.execute(environment);
+            if (actionResponse == null || ResponseBuilder.isPass(actionResponse) || isStreaming(actionResponse)) {
+                return actionResponse;
+            }
+            BufferedServletResponse buffered = new BufferedServletResponse(context.response);
+            actionResponse.execute(context.request, new VinnaResponseWrapper(buffered));
+            SharedResponse shared = new SharedResponse(buffered, environment.request);
+            // the cookies belong to the first request
+            response = buffered.hasCookies() ? null : shared;
+            return shared;
+        } catch (IOException | ServletException e) {
+            throw new VuntimeException("Cannot buffer the response of " + action, e);
+        } finally {
+            flights.remove(key, flight);
+            flight.complete(response);
+        }
+    }
+
+    private static boolean isStreaming(Response response) {
+        return response instanceof StreamingResponse && ((StreamingResponse) response).isStreaming();
+    }
+
+    private String key(Request request) {
+        StringBuilder key = new StringBuilder(request.getMethod()).append(' ').append(request.getPath());
+        for (String parameter : parameters) {
+            key.append('\u0000');
+            for (String value : request.getParameters(parameter)) {
+                key.append('\u0001').append(value);
+            }
+        }
+        for (String header : headers) {
+            key.append('\u0000');
+            for (String value : request.getHeaderValues(header)) {
+                key.append('\u0001').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    @Override
+    public String toString() {
+        return action + " coalesced on " + keys;
+    }
+
+    private static final class Flight {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile SharedResponse response;
+
+        private void complete(SharedResponse response) {
+            this.response = response;
+            done.countDown();
+        }
+
+        /**
+         * @return the shared response, or null if the wait timed out or the action didn't complete
+         */
+        private SharedResponse await(long maxWaitMillis) {
+            try {
+                if (!done.await(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return response;
+        }
+    }
+
+    private final class SharedResponse implements Response {
+        private final BufferedServletResponse buffered;
+        // the values of the first request for the headers of the Vary header which aren't keys, null for Vary: *
+        private final Map<String, List<String>> vary;
+
+        private SharedResponse(BufferedServletResponse buffered, Request request) {
+            this.buffered = buffered;
+            Map<String, List<String>> vary = new HashMap<>();
+            for (String value : buffered.getHeaders("Vary")) {
+                for (String name : value.split(",")) {
+                    name = name.trim();
+                    if (name.equals("*")) {
+                        vary = null;
+                        break;
+                    }
+                    if (!name.isEmpty() && !isKey(name)) {
+                        vary.put(name, new ArrayList<>(request.getHeaderValues(name)));
+                    }
+                }
+                if (vary == null) {
+                    break;
+                }
+            }
+            this.vary = vary;
+        }
+
+        private boolean isKey(String header) {
+            for (String key : headers) {
+                if (key.equalsIgnoreCase(header)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean accepts(Request request) {
+            if (vary == null) {
+                return false;
+            }
+            for (Map.Entry<String, List<String>> header : vary.entrySet()) {
+                if (!header.getValue().equals(new ArrayList<>(request.getHeaderValues(header.getKey())))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void execute(VinnaRequestWrapper request, VinnaResponseWrapper response) throws IOException, ServletException {
+            buffered.writeTo(response);
+        }
+    }
+}
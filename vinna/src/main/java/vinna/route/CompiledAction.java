@@ -0,0 +1,90 @@
+package vinna.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.ControllerFactory;
+import vinna.DefaultControllerFactory;
+import vinna.exception.ConversionException;
+import vinna.exception.InvalidRequestException;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Action of a route compiled at build time, by {@link RoutesCompiler} or by the vinna-apt annotation processor: the
+ * controller method was selected when compiling the routes, and is called directly instead of through reflection.
+ * <p/>
+ * The controller is only known to be an instance of the compiled class when it comes from the
+ * {@link DefaultControllerFactory}: with any other factory, which may return proxies or classes of another loader,
+ * the method is invoked through reflection as usual.
+ */
+public abstract class CompiledAction implements RouteResolution.Action {
+    private static final Logger log = LoggerFactory.getLogger(CompiledAction.class);
+
+    private final String controllerId;
+    private final Class<?> controllerClass;
+    private final String methodName;
+    private final ActionArgument[] arguments;
+    private final Class<?>[] types;
+    private volatile InvokeMethodAction reflective;
+
+    /**
+     * @param types the types of the controller method parameters, the arguments are resolved to
+     */
+    protected CompiledAction(String controllerId, String methodName, ActionArgument[] arguments, Class<?>[] types) {
+        this(controllerId, null, methodName, arguments, types);
+    }
+
+    /**
+     * @param controllerClass the controller class, passed to the controller factory along with the controller id
+     */
+    protected CompiledAction(String controllerId, Class<?> controllerClass, String methodName, ActionArgument[] arguments, Class<?>[] types) {
+        this.controllerId = controllerId;
+        this.controllerClass = controllerClass;
+        this.methodName = methodName;
+        this.arguments = arguments;
+        this.types = types;
+    }
+
+    @Override
+    public final Response execute(Environment environment) {
+        ControllerFactory factory = environment.vinna.getControllerFactory();
+        if (factory.getClass() != DefaultControllerFactory.class) {
+            return reflective().execute(environment);
+        }
+        Object controller = factory.create(controllerId, controllerClass);
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            try {
+                values[i] = InvokeMethodAction.checkPrimitive(arguments[i].resolve(environment, types[i]), types[i], arguments[i], this);
+            } catch (InvalidRequestException e) {
+                log.debug("Invalid request for argument " + arguments[i] + " of type " + types[i], e);
+                return ResponseBuilder.withStatus(400);
+            } catch (ConversionException e) {
+                log.error("Error while converting argument " + arguments[i] + " to type " + types[i], e);
+                return ResponseBuilder.withStatus(500);
+            }
+        }
+        return invoke(controller, values);
+    }
+
+    private InvokeMethodAction reflective() {
+        InvokeMethodAction action = reflective;
+        if (action == null) {
+            action = new InvokeMethodAction(controllerId, controllerClass, methodName, Arrays.asList(arguments));
+            reflective = action;
+        }
+        return action;
+    }
+
+    /**
+     * Calls the controller method with the resolved arguments.
+     */
+    protected abstract Response invoke(Object controller, Object[] args);
+
+    @Override
+    public String toString() {
+        return (controllerClass == null ? controllerId : controllerClass.getName()) + "." + methodName;
+    }
+}
@@ -0,0 +1,81 @@
+package vinna.route;
+
+import vinna.exception.ConfigException;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Base class of the routes generated at build time from the routes files by the vinna-maven-plugin.
+ * <p/>
+ * The generated class is named {@link #CLASS_NAME} and lives in the application base package. When present, and
+ * compiled from the routes files and prefix the application is configured with, {@link vinna.Vinna} uses it instead
+ * of parsing the routes files.
+ */
+public abstract class CompiledRoutes {
+    public static final String CLASS_NAME = "VinnaRoutes";
+
+    private final String prefix;
+    private final List<String> sources;
+
+    /**
+     * @param prefix  the routes prefix the routes were compiled with
+     * @param sources the routes files the routes were compiled from
+     */
+    protected CompiledRoutes(String prefix, String... sources) {
+        this.prefix = prefix;
+        this.sources = Collections.unmodifiableList(Arrays.asList(sources));
+    }
+
+    public final String getPrefix() {
+        return prefix;
+    }
+
+    public final List<String> getSources() {
+        return sources;
+    }
+
+    public final List<Route> getRoutes() {
+        List<Route> routes = new ArrayList<>();
+        routes(routes);
+        return routes;
+    }
+
+    protected abstract void routes(List<Route> routes);
+
+    protected static List<String> names(String... names) {
+        return Arrays.asList(names);
+    }
+
+    /**
+     * @param namesAndPatterns the constraints names, each one followed by its pattern or null
+     */
+    protected static Map<String, Pattern> constraints(String... namesAndPatterns) {
+        Map<String, Pattern> res = new HashMap<>();
+        for (int i = 0; i < namesAndPatterns.length; i += 2) {
+            String pattern = namesAndPatterns[i + 1];
+            res.put(namesAndPatterns[i], pattern == null ? null : Pattern.compile(pattern));
+        }
+        return res;
+    }
+
+    /**
+     * @return the routes compiled for the given base package, or null if there are none
+     */
+    public static CompiledRoutes load(ClassLoader loader, String basePackage) {
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(basePackage + "." + CLASS_NAME, true, loader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!CompiledRoutes.class.isAssignableFrom(clazz)) {
+            throw new ConfigException(clazz + " has to extend CompiledRoutes");
+        }
+        try {
+            return (CompiledRoutes) clazz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new ConfigException("Can't create an instance of the compiled routes " + clazz, e);
+        }
+    }
+}
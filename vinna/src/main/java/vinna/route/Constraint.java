@@ -0,0 +1,68 @@
+package vinna.route;
+
+import vinna.http.Request;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A request parameter or header a route requires, optionally with a pattern all its values have to match. A literal
+ * pattern is checked with a plain string comparison.
+ * <p/>
+ * Equal constraints, whatever the route declaring them, are evaluated once per request by the {@link Router}.
+ */
+final class Constraint {
+    private final boolean header;
+    private final String name;
+    private final Pattern pattern;
+    // the pattern, when it only matches itself
+    private final String literal;
+    // the header names are case insensitive
+    private final String key;
+
+    Constraint(boolean header, String name, Pattern pattern) {
+        this.header = header;
+        this.name = name;
+        this.pattern = pattern;
+        this.literal = pattern != null && pattern.flags() == 0 && PathShape.isLiteral(pattern.pattern()) ? pattern.pattern() : null;
+        this.key = (header ? "header:" + name.toLowerCase(Locale.ENGLISH) : "param:" + name)
+                + (pattern == null ? "" : ":" + pattern.flags() + ":" + pattern.pattern());
+    }
+
+    boolean test(Request request) {
+        Collection<String> values = header ? request.getHeaderValues(name) : request.getParameters(name);
+        if (values.isEmpty()) {
+            return false;
+        }
+        if (literal != null) {
+            for (String value : values) {
+                if (!literal.equals(value)) {
+                    return false;
+                }
+            }
+        } else if (pattern != null) {
+            for (String value : values) {
+                if (!pattern.matcher(value).matches()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Constraint && key.equals(((Constraint) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
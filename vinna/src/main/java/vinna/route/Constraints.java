@@ -0,0 +1,76 @@
+package vinna.route;
+
+import vinna.http.Request;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The constraints of a set of routes, deduplicated: each distinct constraint gets an identifier, and its result is
+ * memoized for the request being matched, however many routes declare it.
+ */
+final class Constraints {
+    // the identifiers of the constraints of each route, by route index
+    private final int[][] ids;
+    private final int count;
+
+    Constraints(Route[] routes) {
+        Map<Constraint, Integer> distinct = new HashMap<>();
+        ids = new int[routes.length][];
+        for (int i = 0; i < routes.length; i++) {
+            Constraint[] constraints = routes[i].getConstraints();
+            ids[i] = new int[constraints.length];
+            for (int j = 0; j < constraints.length; j++) {
+                Integer id = distinct.get(constraints[j]);
+                if (id == null) {
+                    id = distinct.size();
+                    distinct.put(constraints[j], id);
+                }
+                ids[i][j] = id;
+            }
+        }
+        count = distinct.size();
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return the results of the constraints for a request, null if there are no constraints
+     */
+    Results newResults(Request request) {
+        return count == 0 ? null : new Results(request);
+    }
+
+    final class Results {
+        private static final byte UNKNOWN = 0;
+        private static final byte TRUE = 1;
+        private static final byte FALSE = 2;
+
+        private final Request request;
+        private final byte[] results = new byte[count];
+
+        private Results(Request request) {
+            this.request = request;
+        }
+
+        /**
+         * @return true if the request meets all the constraints of the route of the given index
+         */
+        boolean test(int route, Constraint[] constraints) {
+            int[] routeIds = ids[route];
+            for (int i = 0; i < routeIds.length; i++) {
+                byte result = results[routeIds[i]];
+                if (result == UNKNOWN) {
+                    result = constraints[i].test(request) ? TRUE : FALSE;
+                    results[routeIds[i]] = result;
+                }
+                if (result == FALSE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
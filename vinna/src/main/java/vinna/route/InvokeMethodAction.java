@@ -3,6 +3,7 @@ package vinna.route;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import vinna.exception.ConversionException;
+import vinna.exception.InvalidRequestException;
 import vinna.exception.VuntimeException;
 import vinna.response.Response;
 import vinna.response.ResponseBuilder;
@@ -26,8 +27,16 @@ public class InvokeMethodAction implements RouteResolution.Action {
     public final List<ActionArgument> methodParameters;
 
     public InvokeMethodAction(String controllerId, String methodName, List<ActionArgument> methodParameters) {
+        this(controllerId, null, methodName, methodParameters);
+    }
+
+    /**
+     * @param controllerClass the controller class, passed to the controller factory along with the controller id; the
+     *                        method is looked up on the class of the created controller
+     */
+    public InvokeMethodAction(String controllerId, Class<?> controllerClass, String methodName, List<ActionArgument> methodParameters) {
         this.controllerId = controllerId;
-        this.controllerClass = null;
+        this.controllerClass = controllerClass;
         this.methodName = methodName;
         this.method = null;
         this.methodParameters = methodParameters;
@@ -60,7 +69,7 @@ public class InvokeMethodAction implements RouteResolution.Action {
         Class<?> controllerClz = controllerInstance.getClass();
         Method toCall = method;
         if (toCall == null) {
-            toCall = selectMethod(controllerClz, methodName);
+            toCall = selectMethod(controllerClz, methodName, methodParameters);
             if (toCall == null) {
                 throw new VuntimeException("no methodName " + methodName + " in " + controllerId);
             }
@@ -77,7 +86,10 @@ public class InvokeMethodAction implements RouteResolution.Action {
                 final ActionArgument actionArgument = methodParameters.get(i);
 
                 try {
-                    castedParams.add(actionArgument.resolve(environment, argType));
+                    castedParams.add(checkPrimitive(actionArgument.resolve(environment, argType), argType, actionArgument, this));
+                } catch (InvalidRequestException e) {
+                    log.debug("Invalid request for argument " + actionArgument + " of type " + argType, e);
+                    return ResponseBuilder.withStatus(400);
                 } catch (ConversionException e) {
                     //FIXME: handle conversion errors in resolve: what to do ? 404 ?
                     log.error("Error while converting argument " + actionArgument + " to type " + argType, e);
@@ -97,6 +109,16 @@ public class InvokeMethodAction implements RouteResolution.Action {
         }
     }
 
+    /**
+     * @throws VuntimeException if the value is null and the parameter a primitive
+     */
+    static Object checkPrimitive(Object value, Class<?> type, ActionArgument argument, RouteResolution.Action action) {
+        if (value == null && type.isPrimitive()) {
+            throw new VuntimeException("Cannot pass a null " + argument + " to the " + type + " parameter of " + action);
+        }
+        return value;
+    }
+
     private String evaluate(String s, Map<String, String> paramValues) {
         StringBuffer res = new StringBuffer();
         Matcher m = EVALUATE_PATTERN.matcher(s);
@@ -111,10 +133,10 @@ public class InvokeMethodAction implements RouteResolution.Action {
         return res.toString();
     }
 
-    private Method selectMethod(Class<?> controllerClz, String methodName) {
+    static Method selectMethod(Class<?> controllerClz, String methodName, List<ActionArgument> methodParameters) {
         List<Method> matchingMethods = new ArrayList<>();
         for (Method controllerMethod : controllerClz.getDeclaredMethods()) {
-            if (isSuitable(controllerMethod, methodName)) {
+            if (isSuitable(controllerMethod, methodName, methodParameters)) {
                 matchingMethods.add(controllerMethod);
             }
         }
@@ -129,7 +151,7 @@ public class InvokeMethodAction implements RouteResolution.Action {
         }
     }
 
-    private boolean isSuitable(Method controllerMethod, String methodName) {
+    private static boolean isSuitable(Method controllerMethod, String methodName, List<ActionArgument> methodParameters) {
         if (controllerMethod.getName().equals(methodName) && controllerMethod.getParameterTypes().length == methodParameters.size()) {
             for (int i = 0, methodParametersSize = methodParameters.size(); i < methodParametersSize; i++) {
                 ActionArgument argument = methodParameters.get(i);
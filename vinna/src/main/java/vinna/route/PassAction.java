@@ -11,7 +11,7 @@ public class PassAction implements RouteResolution.Action {
 
     @Override
     public Response execute(Environment environment) {
-        throw new PassException();
+        throw PassException.INSTANCE;
     }
 
     @Override
@@ -0,0 +1,670 @@
+package vinna.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a path against the path patterns of all the routes at once: the patterns are compiled into a single
+ * automaton, the union of the patterns, determinized lazily as paths are scanned. One scan of the path tells which
+ * routes have a matching path pattern.
+ * <p/>
+ * Only the regular constructs are compiled: literals, escapes, character classes, groups, alternatives and
+ * quantifiers. The patterns using anything else (back references, lookarounds, boundaries, flags, ...) are left to
+ * java.util.regex: their routes are always reported as candidates. The variables are not captured by the automaton,
+ * the pattern of the selected route extracts them.
+ * <p/>
+ * The states are created on demand and cached, up to a limit after which the new states are computed for each scan.
+ */
+final class PathAutomaton {
+    private static final int MAX_STATES = 4096;
+    private static final int ASCII = 128;
+    private static final int MAX_REPEAT = 64;
+
+    private static final int CHARS = 0;
+    private static final int SPLIT = 1;
+    private static final int MATCH = 2;
+
+    // the NFA, indexed by state
+    private final int[] kinds;
+    private final CharRanges[] ranges;
+    private final int[] outs;
+    private final int[] alternativeOuts;
+    private final int[] routes;
+
+    private final long[] fallbacks;
+    private final int fallbackCount;
+    private final ConcurrentMap<Key, State> states = new ConcurrentHashMap<>();
+    private final State start;
+
+    PathAutomaton(List<Pattern> patterns) {
+        Nfa nfa = new Nfa();
+        fallbacks = new long[(patterns.size() + 63) / 64];
+        int fallbackCount = 0;
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            Node node = Parser.parse(patterns.get(i));
+            if (node == null) {
+                fallbacks[i >>> 6] |= 1L << i;
+                fallbackCount++;
+            } else {
+                starts.add(node.compile(nfa, nfa.add(MATCH, null, -1, -1, i)));
+            }
+        }
+        this.fallbackCount = fallbackCount;
+        int first = -1;
+        for (int i = starts.size() - 1; i >= 0; i--) {
+            first = first < 0 ? starts.get(i) : nfa.add(SPLIT, null, starts.get(i), first, -1);
+        }
+
+        int size = nfa.kinds.size();
+        kinds = new int[size];
+        ranges = nfa.ranges.toArray(new CharRanges[size]);
+        outs = new int[size];
+        alternativeOuts = new int[size];
+        routes = new int[size];
+        for (int i = 0; i < size; i++) {
+            kinds[i] = nfa.kinds.get(i);
+            outs[i] = nfa.outs.get(i);
+            alternativeOuts[i] = nfa.alternativeOuts.get(i);
+            routes[i] = nfa.routes.get(i);
+        }
+        start = state(first < 0 ? new int[0] : closure(new int[]{first}));
+    }
+
+    /**
+     * @return the number of patterns left to java.util.regex
+     */
+    int getFallbackCount() {
+        return fallbackCount;
+    }
+
+    /**
+     * @return the bits of the routes whose pattern may match the path, by index: the ones whose pattern matches and
+     * the ones left to java.util.regex. Not to be modified
+     */
+    long[] match(String path) {
+        State state = start;
+        for (int i = 0; i < path.length() && state.nfa.length > 0; ) {
+            int c = path.codePointAt(i);
+            i += Character.charCount(c);
+            state = step(state, c);
+        }
+        return state.accepts;
+    }
+
+    static boolean isCandidate(long[] candidates, int index) {
+        return (candidates[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * @return true if the pattern of the given index is left to java.util.regex
+     */
+    boolean isFallback(int index) {
+        return isCandidate(fallbacks, index);
+    }
+
+    private State step(State state, int c) {
+        if (c < ASCII) {
+            State next = state.ascii[c];
+            if (next != null) {
+                return next;
+            }
+        }
+        int[] targets = new int[state.nfa.length];
+        int count = 0;
+        for (int nfaState : state.nfa) {
+            if (kinds[nfaState] == CHARS && ranges[nfaState].contains(c)) {
+                targets[count++] = outs[nfaState];
+            }
+        }
+        State next = state(closure(Arrays.copyOf(targets, count)));
+        if (c < ASCII && next.cached) {
+            state.ascii[c] = next;
+        }
+        return next;
+    }
+
+    private State state(int[] nfa) {
+        Key key = new Key(nfa);
+        State state = states.get(key);
+        if (state == null) {
+            long[] accepts = fallbacks.clone();
+            for (int nfaState : nfa) {
+                if (kinds[nfaState] == MATCH) {
+                    accepts[routes[nfaState] >>> 6] |= 1L << routes[nfaState];
+                }
+            }
+            boolean cache = states.size() < MAX_STATES;
+            state = new State(nfa, accepts, cache);
+            if (cache) {
+                State previous = states.putIfAbsent(key, state);
+                if (previous != null) {
+                    state = previous;
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @return the character and match states reachable from the given states without consuming a character, sorted
+     */
+    private int[] closure(int[] from) {
+        boolean[] visited = new boolean[kinds.length];
+        int[] stack = new int[kinds.length];
+        int top = 0;
+        for (int state : from) {
+            if (!visited[state]) {
+                visited[state] = true;
+                stack[top++] = state;
+            }
+        }
+        int[] reached = new int[kinds.length];
+        int count = 0;
+        while (top > 0) {
+            int state = stack[--top];
+            if (kinds[state] == SPLIT) {
+                for (int out : new int[]{outs[state], alternativeOuts[state]}) {
+                    if (!visited[out]) {
+                        visited[out] = true;
+                        stack[top++] = out;
+                    }
+                }
+            } else {
+                reached[count++] = state;
+            }
+        }
+        int[] result = Arrays.copyOf(reached, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static final class State {
+        final int[] nfa;
+        final long[] accepts;
+        final boolean cached;
+        // the next states for the ASCII characters, filled as they are met
+        final State[] ascii = new State[ASCII];
+
+        State(int[] nfa, long[] accepts, boolean cached) {
+            this.nfa = nfa;
+            this.accepts = accepts;
+            this.cached = cached;
+        }
+    }
+
+    private static final class Key {
+        private final int[] nfa;
+        private final int hash;
+
+        Key(int[] nfa) {
+            this.nfa = nfa;
+            this.hash = Arrays.hashCode(nfa);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(nfa, ((Key) o).nfa);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Nfa {
+        final List<Integer> kinds = new ArrayList<>();
+        final List<CharRanges> ranges = new ArrayList<>();
+        final List<Integer> outs = new ArrayList<>();
+        final List<Integer> alternativeOuts = new ArrayList<>();
+        final List<Integer> routes = new ArrayList<>();
+
+        int add(int kind, CharRanges range, int out, int alternativeOut, int route) {
+            kinds.add(kind);
+            ranges.add(range);
+            outs.add(out);
+            alternativeOuts.add(alternativeOut);
+            routes.add(route);
+            return kinds.size() - 1;
+        }
+    }
+
+    /**
+     * A parsed regexp, compiled backwards: each node is given the state following it and returns its first state.
+     */
+    private abstract static class Node {
+        abstract int compile(Nfa nfa, int next);
+    }
+
+    private static final class Chars extends Node {
+        final CharRanges ranges;
+
+        Chars(CharRanges ranges) {
+            this.ranges = ranges;
+        }
+
+        @Override
+        int compile(Nfa nfa, int next) {
+            return nfa.add(CHARS, ranges, next, -1, -1);
+        }
+    }
+
+    private static final class Sequence extends Node {
+        final List<Node> nodes;
+
+        Sequence(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        int compile(Nfa nfa, int next) {
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                next = nodes.get(i).compile(nfa, next);
+            }
+            return next;
+        }
+    }
+
+    private static final class Alternatives extends Node {
+        final List<Node> nodes;
+
+        Alternatives(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        int compile(Nfa nfa, int next) {
+            int first = nodes.get(nodes.size() - 1).compile(nfa, next);
+            for (int i = nodes.size() - 2; i >= 0; i--) {
+                first = nfa.add(SPLIT, null, nodes.get(i).compile(nfa, next), first, -1);
+            }
+            return first;
+        }
+    }
+
+    private static final class Repeat extends Node {
+        final Node node;
+        final int min;
+        // -1 when unbounded
+        final int max;
+
+        Repeat(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        int compile(Nfa nfa, int next) {
+            int first = next;
+            if (max < 0) {
+                int loop = nfa.add(SPLIT, null, -1, next, -1);
+                nfa.outs.set(loop, node.compile(nfa, loop));
+                first = loop;
+            } else {
+                for (int i = min; i < max; i++) {
+                    first = nfa.add(SPLIT, null, node.compile(nfa, first), next, -1);
+                }
+            }
+            for (int i = 0; i < min; i++) {
+                first = node.compile(nfa, first);
+            }
+            return first;
+        }
+    }
+
+    /**
+     * Parses the regular subset of the java.util.regex syntax, by code point as java.util.regex does.
+     */
+    private static final class Parser {
+        private final String regex;
+        private int position;
+
+        private Parser(String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * @return the parsed pattern, null if it uses constructs the automaton doesn't support
+         */
+        static Node parse(Pattern pattern) {
+            if (pattern.flags() != 0) {
+                return null;
+            }
+            Parser parser = new Parser(pattern.pattern());
+            try {
+                Node node = parser.alternatives();
+                return parser.position == parser.regex.length() ? node : null;
+            } catch (UnsupportedSyntax e) {
+                return null;
+            }
+        }
+
+        private boolean more() {
+            return position < regex.length();
+        }
+
+        private int peek() {
+            return regex.codePointAt(position);
+        }
+
+        private int next() throws UnsupportedSyntax {
+            if (!more()) {
+                throw new UnsupportedSyntax();
+            }
+            int c = peek();
+            position += Character.charCount(c);
+            return c;
+        }
+
+        private boolean accept(char c) {
+            if (more() && peek() == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private Node alternatives() throws UnsupportedSyntax {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(sequence());
+            while (accept('|')) {
+                nodes.add(sequence());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Alternatives(nodes);
+        }
+
+        private Node sequence() throws UnsupportedSyntax {
+            List<Node> nodes = new ArrayList<>();
+            while (more() && peek() != '|' && peek() != ')') {
+                Node atom = atom();
+                if (atom != null) {
+                    nodes.add(quantified(atom));
+                }
+            }
+            return new Sequence(nodes);
+        }
+
+        /**
+         * @return the next atom, null for an anchor at the bounds of the pattern, which matches the whole path anyway
+         */
+        private Node atom() throws UnsupportedSyntax {
+            int start = position;
+            int c = next();
+            switch (c) {
+                case '(':
+                    if (accept('?')) {
+                        // non capturing or named groups only
+                        if (!accept(':')) {
+                            if (!accept('<') || !more() || !Character.isLetter(peek())) {
+                                throw new UnsupportedSyntax();
+                            }
+                            while (more() && Character.isLetterOrDigit(peek())) {
+                                next();
+                            }
+                            if (!accept('>')) {
+                                throw new UnsupportedSyntax();
+                            }
+                        }
+                    }
+                    Node group = alternatives();
+                    if (!accept(')')) {
+                        throw new UnsupportedSyntax();
+                    }
+                    return group;
+                case '[':
+                    return new Chars(characterClass());
+                case '.':
+                    return new Chars(CharRanges.DOT);
+                case '\\':
+                    return new Chars(escape());
+                case '^':
+                    if (start != 0) {
+                        throw new UnsupportedSyntax();
+                    }
+                    return null;
+                case '$':
+                    if (position != regex.length()) {
+                        throw new UnsupportedSyntax();
+                    }
+                    return null;
+                case ')':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case ']':
+                case '}':
+                    throw new UnsupportedSyntax();
+                default:
+                    return new Chars(CharRanges.of(c, c));
+            }
+        }
+
+        private Node quantified(Node atom) throws UnsupportedSyntax {
+            while (more()) {
+                int min;
+                int max;
+                if (accept('*')) {
+                    min = 0;
+                    max = -1;
+                } else if (accept('+')) {
+                    min = 1;
+                    max = -1;
+                } else if (accept('?')) {
+                    min = 0;
+                    max = 1;
+                } else if (accept('{')) {
+                    min = number();
+                    max = min;
+                    if (accept(',')) {
+                        max = more() && peek() == '}' ? -1 : number();
+                    }
+                    if (!accept('}') || max >= 0 && max < min) {
+                        throw new UnsupportedSyntax();
+                    }
+                } else {
+                    return atom;
+                }
+                if (accept('+')) {
+                    // possessive quantifiers change what matches
+                    throw new UnsupportedSyntax();
+                }
+                // reluctant quantifiers only change the captured spans
+                accept('?');
+                atom = new Repeat(atom, min, max);
+            }
+            return atom;
+        }
+
+        private int number() throws UnsupportedSyntax {
+            int start = position;
+            while (more() && peek() >= '0' && peek() <= '9') {
+                position++;
+            }
+            if (position == start || position - start > 2) {
+                throw new UnsupportedSyntax();
+            }
+            int number = Integer.parseInt(regex.substring(start, position));
+            if (number > MAX_REPEAT) {
+                throw new UnsupportedSyntax();
+            }
+            return number;
+        }
+
+        private CharRanges characterClass() throws UnsupportedSyntax {
+            boolean negated = accept('^');
+            if (more() && peek() == ']') {
+                throw new UnsupportedSyntax();
+            }
+            CharRanges ranges = CharRanges.NONE;
+            while (!accept(']')) {
+                int c = next();
+                if (c == '[' || c == '&' && more() && peek() == '&') {
+                    // nested classes and intersections
+                    throw new UnsupportedSyntax();
+                }
+                CharRanges item = c == '\\' ? escape() : CharRanges.of(c, c);
+                if (more() && peek() == '-' && position + 1 < regex.length() && regex.charAt(position + 1) != ']') {
+                    position++;
+                    int hi = next();
+                    CharRanges high = hi == '\\' ? escape() : CharRanges.of(hi, hi);
+                    if (!item.isSingle() || !high.isSingle() || high.first() < item.first()) {
+                        throw new UnsupportedSyntax();
+                    }
+                    item = CharRanges.of(item.first(), high.first());
+                }
+                ranges = ranges.union(item);
+            }
+            return negated ? ranges.complement() : ranges;
+        }
+
+        private CharRanges escape() throws UnsupportedSyntax {
+            int c = next();
+            switch (c) {
+                case 'd':
+                    return CharRanges.DIGIT;
+                case 'D':
+                    return CharRanges.DIGIT.complement();
+                case 'w':
+                    return CharRanges.WORD;
+                case 'W':
+                    return CharRanges.WORD.complement();
+                case 's':
+                    return CharRanges.SPACE;
+                case 'S':
+                    return CharRanges.SPACE.complement();
+                case 't':
+                    return CharRanges.of('\t', '\t');
+                case 'n':
+                    return CharRanges.of('\n', '\n');
+                case 'r':
+                    return CharRanges.of('\r', '\r');
+                case 'f':
+                    return CharRanges.of('\f', '\f');
+                case 'a':
+                    return CharRanges.of('\u0007', '\u0007');
+                case 'e':
+                    return CharRanges.of('\u001B', '\u001B');
+                case 'x':
+                    return hex(2);
+                case 'u':
+                    return hex(4);
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        // back references, boundaries, properties, quotes...
+                        throw new UnsupportedSyntax();
+                    }
+                    return CharRanges.of(c, c);
+            }
+        }
+
+        private CharRanges hex(int digits) throws UnsupportedSyntax {
+            if (position + digits > regex.length()) {
+                throw new UnsupportedSyntax();
+            }
+            try {
+                int c = Integer.parseInt(regex.substring(position, position + digits), 16);
+                position += digits;
+                return CharRanges.of(c, c);
+            } catch (NumberFormatException e) {
+                throw new UnsupportedSyntax();
+            }
+        }
+    }
+
+    private static final class UnsupportedSyntax extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedSyntax() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A set of code points, as sorted and disjoint inclusive ranges.
+     */
+    private static final class CharRanges {
+        static final CharRanges NONE = new CharRanges(new int[0]);
+        static final CharRanges DIGIT = of('0', '9');
+        static final CharRanges WORD = of('a', 'z').union(of('A', 'Z')).union(of('_', '_')).union(DIGIT);
+        static final CharRanges SPACE = of('\t', '\r').union(of(' ', ' '));
+        static final CharRanges DOT = of('\n', '\n').union(of('\r', '\r')).union(of('\u0085', '\u0085'))
+                .union(of(0x2028, 0x2029)).complement();
+
+        // lo0, hi0, lo1, hi1...
+        private final int[] bounds;
+
+        private CharRanges(int[] bounds) {
+            this.bounds = bounds;
+        }
+
+        static CharRanges of(int lo, int hi) {
+            return new CharRanges(new int[]{lo, hi});
+        }
+
+        boolean contains(int c) {
+            for (int i = 0; i < bounds.length && bounds[i] <= c; i += 2) {
+                if (c <= bounds[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isSingle() {
+            return bounds.length == 2 && bounds[0] == bounds[1];
+        }
+
+        int first() {
+            return bounds[0];
+        }
+
+        CharRanges union(CharRanges other) {
+            int[] all = Arrays.copyOf(bounds, bounds.length + other.bounds.length);
+            System.arraycopy(other.bounds, 0, all, bounds.length, other.bounds.length);
+            // sort the ranges by their lower bound
+            long[] sorted = new long[all.length / 2];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = (long) all[2 * i] << 32 | all[2 * i + 1];
+            }
+            Arrays.sort(sorted);
+            int[] merged = new int[all.length];
+            int count = 0;
+            for (long range : sorted) {
+                int lo = (int) (range >>> 32);
+                int hi = (int) range;
+                if (count > 0 && lo <= merged[count - 1] + 1) {
+                    merged[count - 1] = Math.max(merged[count - 1], hi);
+                } else {
+                    merged[count++] = lo;
+                    merged[count++] = hi;
+                }
+            }
+            return new CharRanges(Arrays.copyOf(merged, count));
+        }
+
+        CharRanges complement() {
+            int[] complement = new int[bounds.length + 2];
+            int count = 0;
+            int lo = 0;
+            for (int i = 0; i < bounds.length; i += 2) {
+                if (bounds[i] > lo) {
+                    complement[count++] = lo;
+                    complement[count++] = bounds[i] - 1;
+                }
+                lo = bounds[i + 1] + 1;
+            }
+            if (lo <= Character.MAX_CODE_POINT) {
+                complement[count++] = lo;
+                complement[count++] = Character.MAX_CODE_POINT;
+            }
+            return new CharRanges(Arrays.copyOf(complement, count));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package vinna.route;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The segments a path pattern is known to match, read from the pattern: literal segments, single segment variables,
+ * then anything else (user regexps, multi-segment variables, ...) ends the known part.
+ * <p/>
+ * Two paths patterns with different literals at the same segment can't match the same path.
+ */
+final class PathShape {
+    private static final Pattern SINGLE_SEGMENT_VARIABLE = Pattern.compile("\\(\\?<[a-zA-Z][a-zA-Z0-9]*>\\[\\^/\\]\\+\\)");
+    private static final String META = "\\.[]{}()*+?^$|";
+
+    /**
+     * The known segments, null for a single segment variable
+     */
+    private final List<String> segments;
+    /**
+     * Whether the whole pattern is known, i.e. it matches exactly segments.size() segments
+     */
+    private final boolean exact;
+
+    private PathShape(List<String> segments, boolean exact) {
+        this.segments = segments;
+        this.exact = exact;
+    }
+
+    static PathShape of(Pattern pattern) {
+        List<String> segments = new ArrayList<>();
+        if (pattern.flags() != 0) {
+            return new PathShape(segments, false);
+        }
+        String regex = pattern.pattern();
+        int depth = 0;
+        boolean inClass = false;
+        int start = 0;
+        List<String> split = new ArrayList<>();
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && c == '|') {
+                // a top level alternative, nothing is known
+                return new PathShape(segments, false);
+            } else if (depth == 0 && c == '/') {
+                split.add(regex.substring(start, i));
+                start = i + 1;
+            }
+        }
+        split.add(regex.substring(start));
+
+        for (String segment : split) {
+            if (SINGLE_SEGMENT_VARIABLE.matcher(segment).matches()) {
+                segments.add(null);
+            } else if (isLiteral(segment)) {
+                segments.add(segment);
+            } else {
+                return new PathShape(segments, false);
+            }
+        }
+        return new PathShape(segments, true);
+    }
+
+    /**
+     * @return true if the regexp only matches itself
+     */
+    static boolean isLiteral(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (META.indexOf(segment.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if no path can match both shapes
+     */
+    boolean excludes(PathShape other) {
+        int known = Math.min(segments.size(), other.segments.size());
+        for (int i = 0; i < known; i++) {
+            String segment = segments.get(i);
+            String otherSegment = other.segments.get(i);
+            if (segment != null && otherSegment != null) {
+                if (!segment.equals(otherSegment)) {
+                    return true;
+                }
+            } else if (segment != null ? segment.isEmpty() : otherSegment != null && otherSegment.isEmpty()) {
+                // a variable never matches an empty segment
+                return true;
+            }
+        }
+        return exact && other.exact && segments.size() != other.segments.size();
+    }
+}
@@ -1,9 +1,13 @@
 package vinna.route;
 
+import vinna.http.Accept;
+import vinna.http.MediaType;
 import vinna.http.Request;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -18,64 +22,178 @@ public class Route {
     private final Map<String, Pattern> mandatoryQueryParameters;
     private final Map<String, Pattern> mandatoryRequestHeaders;
 
+    private final List<MediaType> produces;
+    private final List<MediaType> consumes;
+
     private final RouteResolution.Action action;
+    // the query parameters then the headers constraints
+    private final Constraint[] constraints;
+    private PathShape pathShape;
 
     public Route(String verb, Pattern pathPattern, Collection<String> pathVariableNames, Map<String, Pattern> mandatoryQueryParameters,
                  Map<String, Pattern> mandatoryRequestHeaders, RouteResolution.Action action) {
+        this(verb, pathPattern, pathVariableNames, mandatoryQueryParameters, mandatoryRequestHeaders,
+                Collections.<MediaType>emptyList(), Collections.<MediaType>emptyList(), action);
+    }
+
+    /**
+     * @param produces the media types the action responds with, negotiated with the request Accept header. Any media
+     *                 type when empty
+     * @param consumes the media types the request Content-Type has to match. Any content when empty
+     */
+    public Route(String verb, Pattern pathPattern, Collection<String> pathVariableNames, Map<String, Pattern> mandatoryQueryParameters,
+                 Map<String, Pattern> mandatoryRequestHeaders, List<MediaType> produces, List<MediaType> consumes,
+                 RouteResolution.Action action) {
         this.verb = verb;
+        this.produces = produces;
+        this.consumes = consumes;
         this.pathPattern = pathPattern;
         this.mandatoryQueryParameters = mandatoryQueryParameters;
         this.pathVariableNames = pathVariableNames;
         this.action = action;
         this.mandatoryRequestHeaders = mandatoryRequestHeaders;
+        this.constraints = new Constraint[mandatoryQueryParameters.size() + mandatoryRequestHeaders.size()];
+        int i = 0;
+        for (Map.Entry<String, Pattern> parameter : mandatoryQueryParameters.entrySet()) {
+            constraints[i++] = new Constraint(false, parameter.getKey(), parameter.getValue());
+        }
+        for (Map.Entry<String, Pattern> header : mandatoryRequestHeaders.entrySet()) {
+            constraints[i++] = new Constraint(true, header.getKey(), header.getValue());
+        }
     }
 
     public RouteResolution match(Request request) {
-        if (request.getMethod().equalsIgnoreCase(verb) || request.getMethod().equalsIgnoreCase("HEAD") && verb.equals("GET")) {
+        return match(request, false, null, -1);
+    }
 
-            Matcher m = pathPattern.matcher(request.getPath());
-            if (m.matches()) {
-                Map<String, String> paramValues = new HashMap<>();
+    /**
+     * @param pathMatches true if the path is already known to match the path pattern, which is then only run to
+     *                    extract the path variables
+     * @param results     the results of the constraints shared by the routes, this route being the given index. Null
+     *                    to evaluate the constraints of the route
+     */
+    RouteResolution match(Request request, boolean pathMatches, Constraints.Results results, int index) {
+        if (request.getMethod().equalsIgnoreCase(verb) || request.getMethod().equalsIgnoreCase("HEAD") && verb.equals("GET")) {
 
-                for (Map.Entry<String, Pattern> paramEntry : mandatoryQueryParameters.entrySet()) {
-                    Collection<String> params = request.getParameters(paramEntry.getKey());
-                    if (!matchMandatoryCollectionWithPattern(params, paramEntry.getValue())) {
-                        return null;
-                    }
+            Matcher m = null;
+            if (!pathMatches) {
+                m = pathPattern.matcher(request.getPath());
+                if (!m.matches()) {
+                    return null;
                 }
+            }
 
-                for (Map.Entry<String, Pattern> headerEntry : mandatoryRequestHeaders.entrySet()) {
-                    Collection<String> headers = request.getHeaderValues(headerEntry.getKey());
-                    if (!matchMandatoryCollectionWithPattern(headers, headerEntry.getValue())) {
-                        return null;
-                    }
+            if (results != null) {
+                if (!results.test(index, constraints)) {
+                    return null;
                 }
-
-                for (String variableName : pathVariableNames) {
-                    if (m.group(variableName) != null) {
-                        paramValues.put(variableName, m.group(variableName));
-                    } else {
+            } else {
+                for (Constraint constraint : constraints) {
+                    if (!constraint.test(request)) {
                         return null;
                     }
                 }
+            }
 
-                return new RouteResolution(action, paramValues);
+            if (!consumes.isEmpty() && !consumes(request.getHeader("Content-Type"))) {
+                return null;
+            }
+
+            if (pathVariableNames.isEmpty()) {
+                return new RouteResolution(action, Collections.<String, String>emptyMap());
+            }
+            if (m == null) {
+                m = pathPattern.matcher(request.getPath());
+                m.matches();
             }
+            Map<String, String> paramValues = new HashMap<>();
+            for (String variableName : pathVariableNames) {
+                if (m.group(variableName) != null) {
+                    paramValues.put(variableName, m.group(variableName));
+                } else {
+                    return null;
+                }
+            }
+
+            return new RouteResolution(action, paramValues);
         }
         return null;
     }
 
+    Pattern getPathPattern() {
+        return pathPattern;
+    }
+
+    Constraint[] getConstraints() {
+        return constraints;
+    }
+
     public String getVerb() {
         return this.verb;
     }
 
-    private boolean matchMandatoryCollectionWithPattern(Collection<String> collection, Pattern pattern) {
-        if (collection.isEmpty()) {
+    public boolean hasProduces() {
+        return !produces.isEmpty();
+    }
+
+    /**
+     * @return the quality of the best media type the route produces for the Accept header, 0 if none is acceptable
+     */
+    public float quality(Accept accept) {
+        return produces.isEmpty() ? accept.maxQuality : accept.quality(produces);
+    }
+
+    /**
+     * Tells, from the declarations alone, whether no request can match both routes: disjoint verbs, different literal
+     * path segments, different literal values for the same parameter or header, or disjoint consumed media types.
+     * False when in doubt.
+     */
+    boolean excludes(Route other) {
+        return !matchesSameMethod(verb, other.verb) && !matchesSameMethod(other.verb, verb)
+                || pathShape().excludes(other.pathShape())
+                || excludes(mandatoryQueryParameters, other.mandatoryQueryParameters, false)
+                || excludes(mandatoryRequestHeaders, other.mandatoryRequestHeaders, true)
+                || excludes(consumes, other.consumes);
+    }
+
+    private PathShape pathShape() {
+        if (pathShape == null) {
+            pathShape = PathShape.of(pathPattern);
+        }
+        return pathShape;
+    }
+
+    private static boolean matchesSameMethod(String verb, String otherVerb) {
+        return verb.equalsIgnoreCase(otherVerb) || verb.equals("GET") && otherVerb.equalsIgnoreCase("HEAD");
+    }
+
+    private static boolean excludes(Map<String, Pattern> constraints, Map<String, Pattern> otherConstraints, boolean ignoreCase) {
+        for (Map.Entry<String, Pattern> constraint : constraints.entrySet()) {
+            for (Map.Entry<String, Pattern> otherConstraint : otherConstraints.entrySet()) {
+                boolean sameName = ignoreCase ? constraint.getKey().equalsIgnoreCase(otherConstraint.getKey())
+                        : constraint.getKey().equals(otherConstraint.getKey());
+                // every value has to match both patterns, and there is at least one value
+                if (sameName && constraint.getValue() != null && otherConstraint.getValue() != null
+                        && isLiteral(constraint.getValue()) && isLiteral(otherConstraint.getValue())
+                        && !constraint.getValue().pattern().equals(otherConstraint.getValue().pattern())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLiteral(Pattern pattern) {
+        return pattern.flags() == 0 && PathShape.isLiteral(pattern.pattern());
+    }
+
+    private static boolean excludes(List<MediaType> consumes, List<MediaType> otherConsumes) {
+        if (consumes.isEmpty() || otherConsumes.isEmpty()) {
             return false;
         }
-        if (pattern != null) {
-            for (String element : collection) {
-                if (!pattern.matcher(element).matches()) {
+        for (MediaType consumed : consumes) {
+            for (MediaType otherConsumed : otherConsumes) {
+                if (consumed.includes(otherConsumed) || otherConsumed.includes(consumed)) {
                     return false;
                 }
             }
@@ -83,6 +201,19 @@ public class Route {
         return true;
     }
 
+    private boolean consumes(String contentType) {
+        MediaType mediaType = contentType == null ? null : MediaType.parse(contentType);
+        if (mediaType == null) {
+            return false;
+        }
+        for (MediaType consumed : consumes) {
+            if (consumed.includes(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         return "Route{" + verb + " " + pathPattern + " " + action + " }";
@@ -5,9 +5,12 @@ import javassist.util.proxy.MethodHandler;
 import javassist.util.proxy.ProxyFactory;
 import vinna.Vinna;
 import vinna.exception.ConfigException;
+import vinna.http.MediaType;
 import vinna.response.Response;
 
 import java.lang.reflect.*;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +29,13 @@ public final class RouteBuilder {
     private final Map<String, Pattern> mandatoryQueryParameters;
     private final Map<String, Pattern> mandatoryRequestHeaders;
 
+    private List<MediaType> produces = Collections.emptyList();
+    private List<MediaType> consumes = Collections.emptyList();
+
+    // the coalescing keys, null if the identical requests aren't coalesced
+    private List<String> coalesceKeys;
+    private long coalesceWait;
+
     private Class controller;
     private Method method;
     private String controllerId;
@@ -66,6 +76,46 @@ public final class RouteBuilder {
         return this;
     }
 
+    /**
+     * The media types the action responds with: the route is selected according to the request Accept header.
+     */
+    public RouteBuilder produces(String... mediaTypes) {
+        this.produces = MediaType.parseAll(mediaTypes);
+        return this;
+    }
+
+    /**
+     * The media types of the request bodies the action accepts, matched against the request Content-Type header.
+     */
+    public RouteBuilder consumes(String... mediaTypes) {
+        this.consumes = MediaType.parseAll(mediaTypes);
+        return this;
+    }
+
+    /**
+     * Coalesces the identical concurrent requests, waiting for at most {@link CoalescingAction#DEFAULT_MAX_WAIT_MS}
+     * for the response of the first one, see {@link CoalescingAction}. The streaming responses and the responses
+     * setting cookies aren't shared, and only the first request sees the changes the action makes to the session.
+     *
+     * @param keys the parameters and headers telling the requests apart, as req.param.name and req.header.name
+     */
+    public RouteBuilder coalesce(String... keys) {
+        return coalesce(CoalescingAction.DEFAULT_MAX_WAIT_MS, keys);
+    }
+
+    public RouteBuilder coalesce(long maxWaitMillis, String... keys) {
+        if (!"GET".equals(verb) && !"HEAD".equals(verb)) {
+            throw new ConfigException("Only the GET and HEAD routes can be coalesced, not " + verb + " " + path);
+        }
+        this.coalesceKeys = Arrays.asList(keys);
+        this.coalesceWait = maxWaitMillis;
+        return this;
+    }
+
+    private RouteResolution.Action coalescing(RouteResolution.Action action) {
+        return coalesceKeys == null ? action : new CoalescingAction(action, coalesceWait, coalesceKeys);
+    }
+
     public RouteBuilder withControllerId(String controllerId) {
         if (this.controllerId != null) {
             throw new ConfigException("ControllerId already defined");
@@ -76,7 +126,7 @@ public final class RouteBuilder {
 
     public void pass() {
         RoutesParser.ParsedPath parsedPath = RoutesParser.parsePath(path);
-        Route route = new Route(this.verb, parsedPath.pathPattern, parsedPath.variableNames, this.mandatoryQueryParameters, mandatoryRequestHeaders, PassAction.INSTANCE);
+        Route route = new Route(this.verb, parsedPath.pathPattern, parsedPath.variableNames, this.mandatoryQueryParameters, mandatoryRequestHeaders, produces, consumes, PassAction.INSTANCE);
         context.addRoute(route);
     }
 
@@ -87,8 +137,8 @@ public final class RouteBuilder {
             String methodArgs = methodMatcher.group("args");
 
             RoutesParser.ParsedPath parsedPath = RoutesParser.parsePath(path);
-            RouteResolution.Action action = new InvokeMethodAction(controllerId, methodName, RoutesParser.parseArgs(methodArgs, context));
-            Route route = new Route(this.verb, parsedPath.pathPattern, parsedPath.variableNames, this.mandatoryQueryParameters, mandatoryRequestHeaders, action);
+            RouteResolution.Action action = coalescing(new InvokeMethodAction(controllerId, methodName, RoutesParser.parseArgs(methodArgs, context)));
+            Route route = new Route(this.verb, parsedPath.pathPattern, parsedPath.variableNames, this.mandatoryQueryParameters, mandatoryRequestHeaders, produces, consumes, action);
             context.addRoute(route);
         } else {
             throw new ConfigException("Incorrect method pattern");
@@ -132,8 +182,8 @@ public final class RouteBuilder {
 
     private Route createRoute() {
         RoutesParser.ParsedPath parsedPath = RoutesParser.parsePath(path);
-        RouteResolution.Action action = new InvokeMethodAction(controllerId, controller, method, methodParameters);
-        return new Route(this.verb, parsedPath.pathPattern, parsedPath.variableNames, this.mandatoryQueryParameters, mandatoryRequestHeaders, action);
+        RouteResolution.Action action = coalescing(new InvokeMethodAction(controllerId, controller, method, methodParameters));
+        return new Route(this.verb, parsedPath.pathPattern, parsedPath.variableNames, this.mandatoryQueryParameters, mandatoryRequestHeaders, produces, consumes, action);
     }
 
     private class RouteMethodHandler implements MethodHandler, InvocationHandler {
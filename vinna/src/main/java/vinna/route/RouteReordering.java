@@ -0,0 +1,142 @@
+package vinna.route;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The hits of the routes, and the order putting the most hit ones first without changing the route matching a request.
+ * <p/>
+ * When the routes are added, each one is compared with the previous ones: a route which may match the same requests
+ * as a previous one must stay after it, the others are free to move. The order is a topological sort of these
+ * constraints, picking the most hit route among the ones whose constraints are satisfied: a route counts as hit as much
+ * as the most hit route which has to stay after it, so that a rarely hit route is moved forward along with the hot one
+ * it precedes. The routes are identified by their declaration index.
+ */
+final class RouteReordering {
+    private static final int CHECK_EVERY = 256;
+
+    private final long periodNanos;
+    private final List<Route> declared = new ArrayList<>();
+    // the later routes which must stay after each route
+    private final List<List<Integer>> successors = new ArrayList<>();
+    private final List<Integer> predecessorCounts = new ArrayList<>();
+    private volatile AtomicLongArray hits = new AtomicLongArray(0);
+    private volatile long nextReorder;
+    private final AtomicBoolean reordering = new AtomicBoolean();
+
+    RouteReordering(long periodNanos) {
+        this.periodNanos = periodNanos;
+        this.nextReorder = System.nanoTime() + periodNanos;
+    }
+
+    /**
+     * Not thread safe, the router adds the routes one at a time.
+     *
+     * @return the identifier of the route
+     */
+    int add(Route route) {
+        int id = declared.size();
+        int predecessors = 0;
+        for (int i = 0; i < id; i++) {
+            if (!declared.get(i).excludes(route)) {
+                successors.get(i).add(id);
+                predecessors++;
+            }
+        }
+        declared.add(route);
+        successors.add(new ArrayList<Integer>());
+        predecessorCounts.add(predecessors);
+
+        AtomicLongArray previous = hits;
+        AtomicLongArray grown = new AtomicLongArray(id + 1);
+        for (int i = 0; i < previous.length(); i++) {
+            grown.set(i, previous.get(i));
+        }
+        hits = grown;
+        return id;
+    }
+
+    /**
+     * Counts a hit of a route.
+     *
+     * @return true if it is time to reorder the routes, and the caller is the one doing it: it then has to call
+     * {@link #done()}
+     */
+    boolean hit(int id) {
+        AtomicLongArray hits = this.hits;
+        if (id >= hits.length()) {
+            // added concurrently
+            return false;
+        }
+        return hits.incrementAndGet(id) % CHECK_EVERY == 0 && System.nanoTime() - nextReorder >= 0
+                && reordering.compareAndSet(false, true);
+    }
+
+    void done() {
+        nextReorder = System.nanoTime() + periodNanos;
+        reordering.set(false);
+    }
+
+    /**
+     * Computes the order of the routes from their hits, then halves the hits so that the order follows the changes of
+     * the traffic.
+     *
+     * @return the identifiers of the routes, most hit first as far as the constraints allow
+     */
+    int[] order() {
+        final AtomicLongArray hits = this.hits;
+        final long[] counts = new long[declared.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = hits.get(i);
+            hits.set(i, counts[i] / 2);
+        }
+        // the successors are declared later
+        final long[] priorities = new long[counts.length];
+        for (int i = counts.length - 1; i >= 0; i--) {
+            priorities[i] = counts[i];
+            for (int successor : successors.get(i)) {
+                priorities[i] = Math.max(priorities[i], priorities[successor]);
+            }
+        }
+
+        PriorityQueue<Integer> ready = new PriorityQueue<>(Math.max(1, counts.length), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (priorities[a] != priorities[b]) {
+                    return priorities[a] > priorities[b] ? -1 : 1;
+                }
+                if (counts[a] != counts[b]) {
+                    return counts[a] > counts[b] ? -1 : 1;
+                }
+                return a.compareTo(b);
+            }
+        });
+        int[] remaining = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            remaining[i] = predecessorCounts.get(i);
+            if (remaining[i] == 0) {
+                ready.add(i);
+            }
+        }
+        int[] order = new int[counts.length];
+        int position = 0;
+        while (!ready.isEmpty()) {
+            int id = ready.poll();
+            order[position++] = id;
+            for (int successor : successors.get(id)) {
+                if (--remaining[successor] == 0) {
+                    ready.add(successor);
+                }
+            }
+        }
+        return order;
+    }
+
+    Route route(int id) {
+        return declared.get(id);
+    }
+}
@@ -15,6 +15,13 @@ public class RouteResolution {
         this.matchedVars = matchedVars;
     }
 
+    /**
+     * @return true if the route passes the request on to the filter chain, without calling an action
+     */
+    public boolean isPass() {
+        return action == PassAction.INSTANCE;
+    }
+
     public Response callAction(Request request, Vinna vinna) {
         Action.Environment env = new Action.Environment(request, matchedVars, vinna);
         return action.execute(env);
@@ -2,40 +2,219 @@ package vinna.route;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import vinna.http.Accept;
 import vinna.http.Request;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+/**
+ * The routes are held in a copy-on-write array: matching reads a snapshot of the routes without locking, while the
+ * (rare) additions publish a new array.
+ * <p/>
+ * The first matching route wins, except for the routes producing given media types: among those, the route producing
+ * the media type of best quality for the Accept header is selected, in the same pass. The paths patterns of all the
+ * routes are run at once by a {@link PathAutomaton}: only the routes whose path matches are tried. The parameters and
+ * headers constraints are evaluated at most once per request, however many routes declare them.
+ * <p/>
+ * In the adaptive mode, the hits of the routes are counted, and the most hit ones are periodically moved forward, so
+ * that they are tried first. A route is never moved before a previously declared route which may match the same
+ * requests (see {@link RouteReordering}): the route matching a request is the same as in the declaration order.
+ */
 public class Router {
     private final static Logger logger = LoggerFactory.getLogger(Router.class);
 
-    private final List<Route> routes = new ArrayList<>();
+    public static final long DEFAULT_REORDER_PERIOD_MS = 5000;
 
-    public final void addRoute(Route route) {
-        routes.add(route);
+    private volatile Table table = new Table(new Route[0], new int[0], null);
+    // null when the routes are kept in their declaration order
+    private final RouteReordering reordering;
+
+    public Router() {
+        this.reordering = null;
+    }
+
+    /**
+     * @param reorderPeriodMillis the delay between two reorderings of the routes by their hits, the routes are kept
+     *                            in their declaration order when 0
+     */
+    public Router(long reorderPeriodMillis) {
+        this.reordering = reorderPeriodMillis > 0 ? new RouteReordering(TimeUnit.MILLISECONDS.toNanos(reorderPeriodMillis)) : null;
+    }
+
+    public final synchronized void addRoute(Route route) {
+        addRoutes(Collections.singletonList(route));
     }
 
     public RouteResolution match(Request request) {
+        final Table table = this.table;
+        final Route[] routes = table.routes;
+        final Compiled compiled = table.compiled();
+        final PathAutomaton automaton = compiled.automaton;
+        final long[] candidates = automaton.match(request.getPath());
+        final Constraints.Results constraints = compiled.constraints.newResults(request);
         RouteResolution headResolution = null;
-        for (Route route : routes) {
-            RouteResolution routeResolution = route.match(request);
+        int headIndex = -1;
+        RouteResolution best = null;
+        int bestIndex = -1;
+        float bestQuality = 0f;
+        Accept accept = null;
+        for (int i = 0; i < routes.length; i++) {
+            // the automaton and the constraints are indexed in the declaration order
+            final int id = table.id(i);
+            if (!PathAutomaton.isCandidate(candidates, id)) {
+                continue;
+            }
+            Route route = routes[i];
+            RouteResolution routeResolution = route.match(request, !automaton.isFallback(id), constraints, id);
             if (routeResolution != null) {
                 if (route.getVerb().equalsIgnoreCase(request.getMethod())) {
-                    logger.debug("Route matched {}", route);
-                    return routeResolution;
+                    if (!route.hasProduces()) {
+                        if (best != null) {
+                            break;
+                        }
+                        logger.debug("Route matched {}", route);
+                        hit(table, i);
+                        return routeResolution;
+                    }
+                    if (accept == null) {
+                        accept = Accept.of(request);
+                    }
+                    float quality = route.quality(accept);
+                    if (quality > bestQuality) {
+                        logger.debug("Route matched {} with quality {}", route, quality);
+                        best = routeResolution;
+                        bestIndex = i;
+                        bestQuality = quality;
+                        if (quality >= accept.maxQuality) {
+                            break;
+                        }
+                    }
                 } else if (route.getVerb().equalsIgnoreCase("GET") && request.getMethod().equalsIgnoreCase("HEAD")
                         && headResolution == null) {
                     logger.debug("Potential route matched {}", route);
                     headResolution = routeResolution;
+                    headIndex = i;
                 }
             }
         }
 
+        if (best != null) {
+            hit(table, bestIndex);
+            return best;
+        }
+        if (headResolution != null) {
+            hit(table, headIndex);
+        }
         return headResolution;
     }
 
-    public void addRoutes(List<Route> routes) {
-        this.routes.addAll(routes);
+    private void hit(Table table, int index) {
+        if (reordering != null && reordering.hit(table.ids[index])) {
+            try {
+                reorder();
+            } finally {
+                reordering.done();
+            }
+        }
+    }
+
+    private synchronized void reorder() {
+        final Table table = this.table;
+        int[] ids = reordering.order();
+        if (Arrays.equals(ids, table.ids)) {
+            return;
+        }
+        Route[] routes = new Route[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            routes[i] = reordering.route(ids[i]);
+        }
+        // same routes: the compiled paths and constraints, indexed by route id, are still valid
+        this.table = new Table(routes, ids, table.compiled);
+        logger.debug("Routes reordered by hits: {}", Arrays.asList(routes));
+    }
+
+    public synchronized void addRoutes(List<Route> routes) {
+        Table table = this.table;
+        Route[] res = Arrays.copyOf(table.routes, table.routes.length + routes.size());
+        int[] ids = reordering == null ? null : Arrays.copyOf(table.ids, res.length);
+        for (int i = 0; i < routes.size(); i++) {
+            res[table.routes.length + i] = routes.get(i);
+            if (reordering != null) {
+                ids[table.routes.length + i] = reordering.add(routes.get(i));
+            }
+        }
+        this.table = new Table(res, ids, null);
+    }
+
+    /**
+     * @return the routes, in the order they are tried
+     */
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(Arrays.asList(table.routes));
+    }
+
+    private static final class Table {
+        final Route[] routes;
+        // the declaration index of each route, in the adaptive mode
+        final int[] ids;
+        // built on the first match, the routes are added one at a time while loading
+        private volatile Compiled compiled;
+
+        Table(Route[] routes, int[] ids, Compiled compiled) {
+            this.routes = routes;
+            this.ids = ids;
+            this.compiled = compiled;
+        }
+
+        /**
+         * @return the declaration index of the route at the given position
+         */
+        int id(int index) {
+            return ids == null ? index : ids[index];
+        }
+
+        Compiled compiled() {
+            Compiled compiled = this.compiled;
+            if (compiled == null) {
+                // racy but harmless: the compiled routes are thread safe, a duplicate is only garbage
+                compiled = new Compiled(declared());
+                this.compiled = compiled;
+            }
+            return compiled;
+        }
+
+        private Route[] declared() {
+            if (ids == null) {
+                return routes;
+            }
+            Route[] declared = new Route[routes.length];
+            for (int i = 0; i < routes.length; i++) {
+                declared[ids[i]] = routes[i];
+            }
+            return declared;
+        }
+    }
+
+    /**
+     * What all the routes of a table are matched with: their paths patterns and their deduplicated constraints, in
+     * the declaration order of the routes, so that they outlive the reorderings.
+     */
+    private static final class Compiled {
+        final PathAutomaton automaton;
+        final Constraints constraints;
+
+        Compiled(Route[] routes) {
+            List<Pattern> patterns = new ArrayList<>(routes.length);
+            for (Route route : routes) {
+                patterns.add(route.getPathPattern());
+            }
+            this.automaton = new PathAutomaton(patterns);
+            this.constraints = new Constraints(routes);
+        }
     }
 }
@@ -0,0 +1,338 @@
+package vinna.route;
+
+import vinna.DefaultControllerFactory;
+import vinna.exception.ConfigException;
+import vinna.response.Response;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles routes files into the Java source of a {@link CompiledRoutes} class.
+ * <p/>
+ * The routes are parsed and their paths turned into regular expressions at build time, and each action is bound to
+ * its controller method, so that an unknown controller or method fails the build instead of the first request.
+ * Actions whose controller or method is a path variable can't be bound, and are invoked through reflection as
+ * usual.
+ * <p/>
+ * The controllers are resolved the way {@link DefaultControllerFactory} does, and the compiled calls are only used
+ * along with it: an application with another controller factory invokes the same methods through reflection.
+ */
+public final class RoutesCompiler {
+
+    private final String basePackage;
+    private final String controllersPackage;
+    private final String prefix;
+    private final ClassLoader loader;
+
+    private final List<String> sources = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+    private final StringBuilder routes = new StringBuilder();
+    private int count;
+
+    /**
+     * @param loader the class loader of the application classes
+     */
+    public RoutesCompiler(String basePackage, String controllersPackage, String prefix, ClassLoader loader) {
+        this.basePackage = basePackage;
+        this.controllersPackage = controllersPackage;
+        this.prefix = prefix == null ? "" : prefix;
+        this.loader = loader;
+    }
+
+    /**
+     * Compiles the routes of a routes file. The errors are collected instead of failing on the first one.
+     *
+     * @param source the path of the routes file, as configured in the routes parameter
+     */
+    public void add(String source, Reader reader) {
+        sources.add(source);
+        List<RoutesParser.ParsedRoute> parsedRoutes;
+        try {
+            parsedRoutes = new RoutesParser(reader).parse(prefix);
+        } catch (RuntimeException e) {
+            errors.add(source + ": " + e.getMessage());
+            return;
+        }
+
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            for (RoutesParser.ParsedRoute route : parsedRoutes) {
+                try {
+                    compile(source, route);
+                } catch (RuntimeException e) {
+                    errors.add(source + ":" + route.line + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public int getRoutesCount() {
+        return count;
+    }
+
+    public String getClassName() {
+        return basePackage + "." + CompiledRoutes.CLASS_NAME;
+    }
+
+    public void write(Writer writer) throws IOException {
+        if (!errors.isEmpty()) {
+            throw new ConfigException("Cannot generate invalid routes: " + errors);
+        }
+        StringBuilder superArgs = new StringBuilder(literal(prefix));
+        for (String source : sources) {
+            superArgs.append(", ").append(literal(source));
+        }
+
+        writer.write("package " + basePackage + ";\n\n");
+        for (String type : Arrays.asList("vinna.exception.VuntimeException", "vinna.http.MediaType", "vinna.response.Response",
+                "vinna.route.ActionArgument", "vinna.route.CoalescingAction", "vinna.route.CompiledAction", "vinna.route.CompiledRoutes",
+                "vinna.route.InvokeMethodAction", "vinna.route.PassAction", "vinna.route.Route")) {
+            writer.write("import " + type + ";\n");
+        }
+        writer.write("\nimport java.math.BigDecimal;\nimport java.util.Arrays;\nimport java.util.List;\nimport java.util.regex.Pattern;\n\n");
+        writer.write("/**\n * Generated by the vinna-maven-plugin from " + comment(sources.toString()) + ", do not edit.\n */\n");
+        writer.write("public final class " + CompiledRoutes.CLASS_NAME + " extends CompiledRoutes {\n\n");
+        writer.write("    public " + CompiledRoutes.CLASS_NAME + "() {\n        super(" + superArgs + ");\n    }\n\n");
+        writer.write("    @Override\n    protected void routes(List<Route> routes) {\n");
+        writer.write(routes.toString());
+        writer.write("    }\n}\n");
+    }
+
+    private void compile(String source, RoutesParser.ParsedRoute route) {
+        RoutesParser.ParsedPath path = RoutesParser.parsePath(route.path, route.pathVariablesConstraints);
+        String action;
+        if (route.isPass()) {
+            action = "PassAction.INSTANCE";
+        } else {
+            List<ActionArgument> arguments = RoutesParser.parseArgs(route.args, basePackage);
+            if (route.controller.contains("{") || route.method.contains("{")) {
+                action = "new InvokeMethodAction(" + literal(route.controller) + ", " + literal(route.method)
+                        + ", Arrays.<ActionArgument>asList(" + arguments(arguments) + "))";
+            } else {
+                action = compiledAction(route, arguments);
+            }
+            if (route.coalesce != null) {
+                action = "new CoalescingAction(" + action + ", " + route.coalesceWait + "L, names(" + literals(route.coalesce) + "))";
+            }
+        }
+
+        StringBuilder variables = new StringBuilder();
+        for (String name : path.variableNames) {
+            variables.append(variables.length() == 0 ? "" : ", ").append(literal(name));
+        }
+        routes.append("        // ").append(comment(source + ":" + route.line + " " + route)).append('\n');
+        routes.append("        routes.add(new Route(").append(literal(route.verb))
+                .append(", Pattern.compile(").append(literal(path.pathPattern.pattern())).append("), names(").append(variables)
+                .append("),\n                constraints(").append(constraints(route.queryParameters))
+                .append("), constraints(").append(constraints(route.headers)).append("),\n                ");
+        if (!route.produces.isEmpty() || !route.consumes.isEmpty()) {
+            routes.append("MediaType.parseAll(").append(literals(route.produces)).append("), MediaType.parseAll(")
+                    .append(literals(route.consumes)).append("),\n                ");
+        }
+        routes.append(action).append("));\n");
+        count++;
+    }
+
+    private String compiledAction(RoutesParser.ParsedRoute route, List<ActionArgument> arguments) {
+        Class<?> controller = DefaultControllerFactory.controllerClass(route.controller, basePackage, controllersPackage, loader);
+        Method method = InvokeMethodAction.selectMethod(controller, route.method, arguments);
+        if (!accessible(controller) || !Modifier.isPublic(method.getModifiers())) {
+            throw new ConfigException("The controller method " + controller.getName() + "." + method.getName() + " has to be public");
+        }
+        if (!Response.class.isAssignableFrom(method.getReturnType())) {
+            throw new ConfigException("The controller method " + controller.getName() + "." + method.getName() + " has to return a Response");
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        StringBuilder types = new StringBuilder();
+        StringBuilder call = new StringBuilder();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            types.append(i == 0 ? "" : ", ").append(typeName(parameterTypes[i])).append(".class");
+            call.append(i == 0 ? "" : ", ").append('(').append(typeName(boxed(parameterTypes[i]))).append(") args[").append(i).append(']');
+        }
+        String invocation = "((" + typeName(controller) + ") controller)." + method.getName() + "(" + call + ")";
+
+        StringBuilder res = new StringBuilder();
+        res.append("new CompiledAction(").append(literal(route.controller)).append(", ").append(literal(route.method))
+                .append(", new ActionArgument[]{").append(arguments(arguments)).append("}, new Class<?>[]{").append(types).append("}) {\n");
+        res.append("                    @Override\n");
+        res.append("                    protected Response invoke(Object controller, Object[] args) {\n");
+        if (method.getExceptionTypes().length == 0) {
+            res.append("                        return ").append(invocation).append(";\n");
+        } else {
+            res.append("                        try {\n");
+            res.append("                            return ").append(invocation).append(";\n");
+            res.append("                        } catch (RuntimeException | Error e) {\n");
+            res.append("                            throw e;\n");
+            res.append("                        } catch (Throwable e) {\n");
+            res.append("                            throw new VuntimeException(e);\n");
+            res.append("                        }\n");
+        }
+        res.append("                    }\n");
+        res.append("                }");
+        return res.toString();
+    }
+
+    private String arguments(List<ActionArgument> arguments) {
+        StringBuilder res = new StringBuilder();
+        for (ActionArgument argument : arguments) {
+            res.append(res.length() == 0 ? "" : ", ").append(argument(argument));
+        }
+        return res.toString();
+    }
+
+    private String argument(ActionArgument argument) {
+        final Class<?> clazz = argument.getClass();
+        if (clazz == ActionArgument.Const.class) {
+            Object value = ((ActionArgument.Const<?>) argument).value;
+            String constant;
+            if (value == null) {
+                constant = "null";
+            } else if (value instanceof String) {
+                constant = literal((String) value);
+            } else {
+                constant = "Boolean." + value.toString().toUpperCase();
+            }
+            return "new ActionArgument.Const<Object>(" + constant + ")";
+        } else if (clazz == ActionArgument.NumConst.class) {
+            return "new ActionArgument.NumConst(new BigDecimal(" + literal(((ActionArgument.NumConst) argument).value.toString()) + "))";
+        } else if (clazz == ActionArgument.Variable.class) {
+            return "new ActionArgument.Variable(" + literal(((ActionArgument.Variable) argument).name) + ")" + typed(argument);
+        } else if (clazz == ActionArgument.RequestParameter.class) {
+            return "new ActionArgument.RequestParameter(" + literal(((ActionArgument.RequestParameter) argument).name) + ")" + typed(argument);
+        } else if (clazz == ActionArgument.Header.class) {
+            return "new ActionArgument.Header(" + literal(((ActionArgument.Header) argument).headerName) + ")" + typed(argument);
+        } else if (clazz == ActionArgument.CookieArgument.class) {
+            return "new ActionArgument.CookieArgument(" + literal(((ActionArgument.CookieArgument) argument).cookieName) + ")" + typed(argument);
+        } else if (clazz == ActionArgument.RequestPart.class) {
+            return "new ActionArgument.RequestPart(" + literal(((ActionArgument.RequestPart) argument).name) + ")";
+        } else if (clazz == ActionArgument.RequestBody.class || clazz == ActionArgument.Headers.class
+                || clazz == ActionArgument.RequestParameters.class) {
+            return "new ActionArgument." + clazz.getSimpleName() + "()";
+        } else {
+            try {
+                if (!accessible(clazz) || !Modifier.isPublic(clazz.getConstructor().getModifiers())) {
+                    throw new ConfigException("The action argument " + clazz.getName() + " has to be public");
+                }
+            } catch (NoSuchMethodException e) {
+                throw new ConfigException("The action argument " + clazz.getName() + " has to have a public no-arg constructor");
+            }
+            return "new " + typeName(clazz) + "()";
+        }
+    }
+
+    private String typed(ActionArgument argument) {
+        ActionArgument.ChameleonArgument chameleon = (ActionArgument.ChameleonArgument) argument;
+        if (chameleon.type == null) {
+            return "";
+        }
+        return ".typed(" + typeName(chameleon.type) + ".class, "
+                + (chameleon.typeArg == null ? "null" : typeName(chameleon.typeArg) + ".class") + ")";
+    }
+
+    private static String literals(List<String> values) {
+        StringBuilder res = new StringBuilder();
+        for (String value : values) {
+            res.append(res.length() == 0 ? "" : ", ").append(literal(value));
+        }
+        return res.toString();
+    }
+
+    private static String constraints(Map<String, Pattern> constraints) {
+        StringBuilder res = new StringBuilder();
+        for (Map.Entry<String, Pattern> constraint : new TreeMap<>(constraints).entrySet()) {
+            res.append(res.length() == 0 ? "" : ", ").append(literal(constraint.getKey())).append(", ")
+                    .append(constraint.getValue() == null ? "(String) null" : literal(constraint.getValue().pattern()));
+        }
+        return res.toString();
+    }
+
+    private static boolean accessible(Class<?> clazz) {
+        for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers()) || c.getEnclosingClass() != null && !Modifier.isStatic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String typeName(Class<?> clazz) {
+        final String name = clazz.getCanonicalName();
+        if (name == null) {
+            throw new ConfigException("Cannot reference the anonymous or local class " + clazz.getName());
+        }
+        return name;
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == Integer.TYPE) {
+            return Integer.class;
+        } else if (type == Long.TYPE) {
+            return Long.class;
+        } else if (type == Boolean.TYPE) {
+            return Boolean.class;
+        } else if (type == Double.TYPE) {
+            return Double.class;
+        } else if (type == Float.TYPE) {
+            return Float.class;
+        } else if (type == Short.TYPE) {
+            return Short.class;
+        } else if (type == Byte.TYPE) {
+            return Byte.class;
+        } else {
+            return Character.class;
+        }
+    }
+
+    private static String literal(String s) {
+        StringBuilder res = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    res.append("\\\"");
+                    break;
+                case '\\':
+                    res.append("\\\\");
+                    break;
+                case '\n':
+                    res.append("\\n");
+                    break;
+                case '\r':
+                    res.append("\\r");
+                    break;
+                case '\t':
+                    res.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        res.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        res.append(c);
+                    }
+            }
+        }
+        return res.append('"').toString();
+    }
+
+    private static String comment(String s) {
+        // javac translates unicode escapes even in comments
+        return s.replace("\\u", "\\\\u").replace("*/", "* /");
+    }
+}
@@ -4,7 +4,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import vinna.Vinna;
 import vinna.exception.ConfigException;
-import vinna.util.Conversions;
+import vinna.http.MediaType;
+import vinna.json.JsonBody;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -26,11 +27,14 @@ public class RoutesParser {
     }
 
     private List<String> lines = new ArrayList<>();
+    private int lineNumber;
 
     private String readLine() {
         if (lines.isEmpty()) {
             try {
-                return reader.readLine();
+                String line = reader.readLine();
+                lineNumber++;
+                return line;
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -50,7 +54,27 @@ public class RoutesParser {
         return l.isEmpty() || l.startsWith("#");
     }
 
-    private Pattern constraint(String prefix) {
+    private static final Pattern ROUTE_LINE;
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{(.+?)(\\*?)\\}");
+    private static final Pattern PATH_VARIABLE_CONSTRAINT = constraintWithPattern("");
+    private static final Pattern PARAM_PATTERN_CONSTRAINT = constraintWithPattern("req.param.");
+    private static final Pattern PARAM_CONSTRAINT = constraint("req.param.");
+    private static final Pattern HEADER_CONSTRAINT = constraint("req.header.");
+    private static final Pattern HEADER_PATTERN_CONSTRAINT = constraintWithPattern("req.header.");
+    private static final Pattern MEDIA_TYPES_CONSTRAINT = Pattern.compile("\\s+(produces|consumes)\\s*:\\s*(.+?)(\\s+#.*|\\s*)$");
+    // coalesce(maxWait): keys, see CoalescingAction: streaming responses and responses setting cookies aren't shared
+    private static final Pattern COALESCE_OPTION = Pattern.compile("\\s+coalesce(\\s*\\(\\s*(\\d+)\\s*\\))?(\\s*:\\s*(.*?))?(\\s+#.*|\\s*)$");
+
+    static {
+        String verbp = "(?<verb>[^\\s]+)";
+        String passp = "(?<pass>pass)";
+        String controllerAndMethodp = "(?<controller>.+)\\.(?<method>[^\\.]+)";
+        String actionp = controllerAndMethodp + "\\s*\\((?<args>.*)\\)";
+        String pathp = "(?<path>.+?)";
+        ROUTE_LINE = Pattern.compile(verbp + "\\s+" + pathp + "\\s+(" + actionp + "|" + passp + ")");
+    }
+
+    private static Pattern constraint(String prefix) {
         final String eolOrComment = "(\\s+#.*|\\s*)";
         if (!prefix.isEmpty()) {
             return Pattern.compile("\\s+" + Pattern.quote(prefix) + "(.+?)" + eolOrComment + "$");
@@ -59,7 +83,7 @@ public class RoutesParser {
         }
     }
 
-    private Pattern constraintWithPattern(String prefix) {
+    private static Pattern constraintWithPattern(String prefix) {
         final String eolOrComment = "(\\s+#.*|\\s*)";
         if (!prefix.isEmpty()) {
             return Pattern.compile("\\s+" + Pattern.quote(prefix) + "(.+?)\\s*:\\s*(.+?)" + eolOrComment + "$");
@@ -70,20 +94,33 @@ public class RoutesParser {
 
     public List<Route> load(String prefix, Vinna context) {
         List<Route> routes = new ArrayList<>();
+        for (ParsedRoute parsed : parse(prefix)) {
+            ParsedPath parsedPath = parsePath(parsed.path, parsed.pathVariablesConstraints);
+            RouteResolution.Action action = parsed.isPass() ? PassAction.INSTANCE :
+                    new InvokeMethodAction(parsed.controller, parsed.method, parseArgs(parsed.args, context));
+            if (parsed.coalesce != null && !parsed.isPass()) {
+                action = new CoalescingAction(action, parsed.coalesceWait, parsed.coalesce);
+            }
+            Route route = new Route(parsed.verb, parsedPath.pathPattern, parsedPath.variableNames, parsed.queryParameters, parsed.headers,
+                    MediaType.parseAll(parsed.produces.toArray(new String[0])), MediaType.parseAll(parsed.consumes.toArray(new String[0])), action);
+            logger.debug("Route created: {}", route);
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    /**
+     * Reads the routes definitions without binding them to actions, e.g. to compile them ahead of time.
+     */
+    public List<ParsedRoute> parse(String prefix) {
+        List<ParsedRoute> routes = new ArrayList<>();
         String line;
-        int lineNum = 0;
-        String verbp = "(?<verb>[^\\s]+)";
-        String passp = "(?<pass>pass)";
-        String controllerAndMethodp = "(?<controller>.+)\\.(?<method>[^\\.]+)";
-        String actionp = controllerAndMethodp + "\\s*\\((?<args>.*)\\)";
-        String pathp = "(?<path>.+?)";
-        Pattern routeLine = Pattern.compile(verbp + "\\s+" + pathp + "\\s+(" + actionp + "|" + passp + ")");
 
         try {
             while ((line = readLine()) != null) {
-                lineNum++;
+                int lineNum = lineNumber;
                 if (!ignoreLine(line)) {
-                    Matcher rm = routeLine.matcher(line);
+                    Matcher rm = ROUTE_LINE.matcher(line);
                     if (!rm.matches()) {
                         throw new ConfigException("Invalid syntax in routes file (line " + lineNum + ")\n" + line);
                     } else {
@@ -106,13 +143,12 @@ public class RoutesParser {
                         Map<String, Pattern> queryVars = new HashMap<>();
                         Map<String, Pattern> headers = new HashMap<>();
                         Map<String, String> pathVarsConstraints = new HashMap<>();
-
-                        Pattern constraintp = constraintWithPattern("");// Pattern.compile("\\s+(.+?)\\s*:\\s*(.+?)\\s*$");
-                        Pattern qvPatConstraintp = constraintWithPattern("req.param.");// Pattern.compile("\\s+req\\.param\\.(.+?)\\s*:\\s*(.+?)\\s*$");
-                        Pattern qvConstraintp = constraint("req.param.");// Pattern.compile("\\s+req\\.param\\.(.+?)\\s*$");
-
-                        Pattern hConstraintp = constraint("req.header.");// Pattern.compile("\\s+req\\.header\\.(.+?)\\s*$");
-                        Pattern hPatConstraintp = constraintWithPattern("req.header.");//  Pattern.compile("\\s+req\\.header\\.(.+?)\\s*:\\s*(.+?)\\s*$");
+                        List<String> produces = new ArrayList<>();
+                        List<String> consumes = new ArrayList<>();
+                        List<String> coalesce = null;
+                        long coalesceWait = CoalescingAction.DEFAULT_MAX_WAIT_MS;
+                        // a path variable can be named like a route option, its constraint comes first
+                        Set<String> pathVariables = pathVariables(path);
 
                         //think: should we add constraints for cookies ?
 
@@ -120,22 +156,43 @@ public class RoutesParser {
                         while ((cline = readLine()) != null) {
                             if (!ignoreLine(cline)) {
                                 Matcher m;
-                                if ((m = qvPatConstraintp.matcher(cline)).matches()) {
+                                if ((m = PARAM_PATTERN_CONSTRAINT.matcher(cline)).matches()) {
                                     queryVars.put(m.group(1), Pattern.compile(m.group(2)));
-                                } else if ((m = qvConstraintp.matcher(cline)).matches()) {
+                                } else if ((m = PARAM_CONSTRAINT.matcher(cline)).matches()) {
                                     queryVars.put(m.group(1), null);
-                                } else if ((m = hPatConstraintp.matcher(cline)).matches()) {
+                                } else if ((m = HEADER_PATTERN_CONSTRAINT.matcher(cline)).matches()) {
                                     headers.put(m.group(1), Pattern.compile(m.group(2)));
-                                } else if ((m = hConstraintp.matcher(cline)).matches()) {
+                                } else if ((m = HEADER_CONSTRAINT.matcher(cline)).matches()) {
                                     headers.put(m.group(1), null);
-                                } else if ((m = constraintp.matcher(cline)).matches()) {
-                                    String pat = m.group(2);
+                                } else if ((m = PATH_VARIABLE_CONSTRAINT.matcher(cline)).matches() && pathVariables.contains(m.group(1))) {
+                                    pathVariableConstraint(m, pathVarsConstraints);
+                                } else if ((m = MEDIA_TYPES_CONSTRAINT.matcher(cline)).matches()) {
                                     try {
-                                        Pattern.compile(pat);
-                                    } catch (PatternSyntaxException e) {
-                                        throw new ConfigException("Invalid path variable pattern '" + pat + "'", e);
+                                        MediaType.parseAll(m.group(2));
+                                    } catch (ConfigException e) {
+                                        throw new ConfigException(e.getMessage() + " (line " + lineNumber + ")");
+                                    }
+                                    (m.group(1).equals("produces") ? produces : consumes).add(m.group(2));
+                                } else if ((m = COALESCE_OPTION.matcher(cline)).matches()) {
+                                    if (!verb.equalsIgnoreCase("GET") && !verb.equalsIgnoreCase("HEAD")) {
+                                        throw new ConfigException("Only the GET and HEAD routes can be coalesced (line " + lineNumber + ")");
+                                    }
+                                    coalesce = new ArrayList<>();
+                                    if (m.group(2) != null) {
+                                        coalesceWait = Long.parseLong(m.group(2));
+                                    }
+                                    if (m.group(4) != null && !m.group(4).trim().isEmpty()) {
+                                        for (String key : m.group(4).trim().split("\\s*,\\s*")) {
+                                            try {
+                                                CoalescingAction.checkKey(key);
+                                            } catch (ConfigException e) {
+                                                throw new ConfigException(e.getMessage() + " (line " + lineNumber + ")");
+                                            }
+                                            coalesce.add(key);
+                                        }
                                     }
-                                    pathVarsConstraints.put(m.group(1), pat);
+                                } else if ((m = PATH_VARIABLE_CONSTRAINT.matcher(cline)).matches()) {
+                                    pathVariableConstraint(m, pathVarsConstraints);
                                 } else {
                                     pushBack(cline);
                                     break;
@@ -143,12 +200,8 @@ public class RoutesParser {
                             }
                         }
 
-                        ParsedPath parsedPath = parsePath(path, pathVarsConstraints);
-                        RouteResolution.Action action = pass ? PassAction.INSTANCE :
-                                new InvokeMethodAction(controller, method, parseArgs(args, context));
-                        Route route = new Route(verb, parsedPath.pathPattern, parsedPath.variableNames, queryVars, headers, action);
-                        logger.debug("Route created: {}", route);
-                        routes.add(route);
+                        routes.add(new ParsedRoute(lineNum, verb, path, controller, method, args, queryVars, headers, pathVarsConstraints,
+                                produces, consumes, coalesce, coalesceWait));
                     }
                 }
             }
@@ -162,17 +215,35 @@ public class RoutesParser {
         return routes;
     }
 
-    private static ParsedPath parsePath(String path, Map<String, String> pathVarsConstraints) {
-        if (!path.startsWith("/")) {
-            path = ".*?/" + path;
+    private static void pathVariableConstraint(Matcher m, Map<String, String> pathVarsConstraints) {
+        String pat = m.group(2);
+        try {
+            Pattern.compile(pat);
+        } catch (PatternSyntaxException e) {
+            throw new ConfigException("Invalid path variable pattern '" + pat + "'", e);
         }
-        String ref = "\\{(.+?)(\\*?)\\}";
+        pathVarsConstraints.put(m.group(1), pat);
+    }
 
-        Pattern refp = Pattern.compile(ref);
+    private static Set<String> pathVariables(String path) {
+        Set<String> pathVariables = new HashSet<>();
+        Matcher m = PATH_VARIABLE.matcher(path);
+        while (m.find()) {
+            pathVariables.add(m.group(1));
+        }
+        return pathVariables;
+    }
 
+    /**
+     * Builds the path pattern of a routes file entry, whose variables constraints are declared on the following lines.
+     */
+    public static ParsedPath parsePath(String path, Map<String, String> pathVarsConstraints) {
+        if (!path.startsWith("/")) {
+            path = ".*?/" + path;
+        }
         Set<String> pathVariables = new HashSet<>();
         StringBuffer pathPattern = new StringBuffer();
-        Matcher m = refp.matcher(path);
+        Matcher m = PATH_VARIABLE.matcher(path);
         while (m.find()) {
             String var = m.group(1);
             boolean multiSeg = !m.group(2).isEmpty();
@@ -257,6 +328,66 @@ public class RoutesParser {
         }
     }
 
+    public static final class ParsedRoute {
+        public final int line;
+        public final String verb;
+        public final String path;
+        /**
+         * null for a pass route
+         */
+        public final String controller;
+        public final String method;
+        public final String args;
+        public final Map<String, Pattern> queryParameters;
+        public final Map<String, Pattern> headers;
+        public final Map<String, String> pathVariablesConstraints;
+        /**
+         * the produces and consumes media types, as declared
+         */
+        public final List<String> produces;
+        public final List<String> consumes;
+        /**
+         * the coalescing keys, null if the route isn't coalesced, see {@link CoalescingAction}
+         */
+        public final List<String> coalesce;
+        public final long coalesceWait;
+
+        public ParsedRoute(int line, String verb, String path, String controller, String method, String args,
+                           Map<String, Pattern> queryParameters, Map<String, Pattern> headers,
+                           Map<String, String> pathVariablesConstraints, List<String> produces, List<String> consumes) {
+            this(line, verb, path, controller, method, args, queryParameters, headers, pathVariablesConstraints, produces, consumes,
+                    null, CoalescingAction.DEFAULT_MAX_WAIT_MS);
+        }
+
+        public ParsedRoute(int line, String verb, String path, String controller, String method, String args,
+                           Map<String, Pattern> queryParameters, Map<String, Pattern> headers,
+                           Map<String, String> pathVariablesConstraints, List<String> produces, List<String> consumes,
+                           List<String> coalesce, long coalesceWait) {
+            this.line = line;
+            this.verb = verb;
+            this.path = path;
+            this.controller = controller;
+            this.method = method;
+            this.args = args;
+            this.queryParameters = queryParameters;
+            this.headers = headers;
+            this.pathVariablesConstraints = pathVariablesConstraints;
+            this.produces = produces;
+            this.consumes = consumes;
+            this.coalesce = coalesce;
+            this.coalesceWait = coalesceWait;
+        }
+
+        public boolean isPass() {
+            return controller == null;
+        }
+
+        @Override
+        public String toString() {
+            return verb + " " + path + " " + (isPass() ? "pass" : controller + "." + method + "(" + args + ")");
+        }
+    }
+
     public static final class ParsedAction {
         public final String controller;
         public final String method;
@@ -328,8 +459,13 @@ public class RoutesParser {
     }
 
     public static List<ActionArgument> parseArgs(String argsString, Vinna vinna) {
+        return parseArgs(argsString, vinna.getBasePackage());
+    }
+
+    public static List<ActionArgument> parseArgs(String argsString, String basePackage) {
         List<ActionArgument> parameters = new ArrayList<>();
         Pattern pbody = Pattern.compile("\\{" + Pattern.quote("req.body") + "\\}");
+        Pattern pjson = Pattern.compile("\\{" + Pattern.quote("req.body") + "\\s*:\\s*json\\}");
         Pattern pqvar = argPattern("req.param.");
         Pattern pheader = argPattern("req.header.");
         Pattern pcookie = argPattern("req.cookie.");
@@ -348,6 +484,8 @@ public class RoutesParser {
                 if ((pm = pbody.matcher(arg)).matches()) {
                     final ActionArgument.RequestBody res = new ActionArgument.RequestBody();
                     parameters.add(res);
+                } else if ((pm = pjson.matcher(arg)).matches()) {
+                    parameters.add(new JsonBody());
                 } else if ((pm = pqvar.matcher(arg)).matches()) {
                     final ActionArgument.RequestParameter res = new ActionArgument.RequestParameter(pm.group(1));
                     fillInTypes(res, pm.group(2));
@@ -375,9 +513,9 @@ public class RoutesParser {
                     parameters.add(new ActionArgument.Const<Object>(null));
                 } else {
                     try {
-                        parameters.add(new NumConst(new BigDecimal(arg)));
+                        parameters.add(new ActionArgument.NumConst(new BigDecimal(arg)));
                     } catch (NumberFormatException e) {
-                        ActionArgument actionArgument = selectActionArgument(arg, vinna.getBasePackage());
+                        ActionArgument actionArgument = selectActionArgument(arg, basePackage);
                         if (actionArgument != null) {
                             parameters.add(actionArgument);
                         } else {
@@ -392,9 +530,13 @@ public class RoutesParser {
     }
 
     private static ActionArgument selectActionArgument(String value, String basePackage) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = RoutesParser.class.getClassLoader();
+        }
         Class<?> clazz;
         try {
-            clazz = Class.forName(value);
+            clazz = Class.forName(value, true, loader);
         } catch (ClassNotFoundException e) {
             String value2 = basePackage + "." + value;
             Matcher m = Pattern.compile("(.+\\.)([^\\.])([^\\.]+)").matcher(value2);
@@ -403,7 +545,7 @@ public class RoutesParser {
             }
             value2 = m.group(1) + m.group(2).toUpperCase() + m.group(3);
             try {
-                clazz = Class.forName(value2);
+                clazz = Class.forName(value2, true, loader);
             } catch (ClassNotFoundException e1) {
                 throw new ConfigException("Invalid ActionArgument '" + value + "' : Tried classes " + value + " and " + value2 + " but none were found");
             }
@@ -418,22 +560,4 @@ public class RoutesParser {
             throw new ConfigException("Can't create an instance of the controller " + clazz);
         }
     }
-
-    private static final class NumConst implements ActionArgument {
-        private final BigDecimal value;
-
-        public NumConst(BigDecimal value) {
-            this.value = value;
-        }
-
-        @Override
-        public Object resolve(RouteResolution.Action.Environment env, Class<?> targetType) {
-            return Conversions.convertNumeric(value, targetType);
-        }
-
-        @Override
-        public boolean compatibleWith(Class<?> type) {
-            return Number.class.isAssignableFrom(type);
-        }
-    }
 }
@@ -0,0 +1,92 @@
+package vinna.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches routes files, and calls back when one of them changes.
+ * <p/>
+ * Editors usually write a file in several steps, so the events are coalesced: the callback is called once the files
+ * stopped changing for a short while.
+ */
+public final class RoutesWatcher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(RoutesWatcher.class);
+    private static final long QUIET_PERIOD_MS = 100;
+
+    private final WatchService watchService;
+    private final Map<Path, Set<Path>> watchedFiles = new HashMap<>();
+    private final Runnable onChange;
+    private final Thread thread;
+
+    public RoutesWatcher(Collection<Path> files, Runnable onChange) throws IOException {
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path file : files) {
+            Path directory = file.toAbsolutePath().getParent();
+            Set<Path> names = watchedFiles.get(directory);
+            if (names == null) {
+                names = new HashSet<>();
+                watchedFiles.put(directory, names);
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            names.add(file.getFileName());
+        }
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "vinna-routes-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                // coalesce the events until the files are quiet
+                while (key != null) {
+                    changed |= isWatched(key);
+                    key.reset();
+                    key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Error while reloading the routes", e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Routes watcher stopped");
+        }
+    }
+
+    private boolean isWatched(WatchKey key) {
+        boolean res = false;
+        Set<Path> names = watchedFiles.get((Path) key.watchable());
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || names != null && names.contains(event.context())) {
+                res = true;
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
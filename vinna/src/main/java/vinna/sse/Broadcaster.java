@@ -0,0 +1,149 @@
+package vinna.sse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans server-sent events out to the subscribed clients.
+ * <p/>
+ * An event is encoded once, and queued for every subscriber. A few writer threads, shared by all the subscribers,
+ * drain the queues: a subscriber is scheduled on a writer only when it has pending events. The queues are bounded,
+ * and a client which doesn't keep up with the events (its queue is full) is evicted: its stream is closed, and the
+ * EventSource of the browser reconnects.
+ * <p/>
+ * A comment is periodically sent to all the subscribers, which keeps the connections alive through proxies, and
+ * evicts the clients which are gone.
+ * <p/>
+ * Typically one broadcaster per events topic, shared by the controllers:
+ * <pre>
+ * public Response events() {
+ *     return DASHBOARD.subscribe();
+ * }
+ * ...
+ * DASHBOARD.broadcast(new Event(json).name("stats"));
+ * </pre>
+ */
+public final class Broadcaster implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(Broadcaster.class);
+
+    public static final int DEFAULT_WRITERS = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    public static final long DEFAULT_HEARTBEAT_MS = 15000;
+
+    private static final AtomicInteger broadcasters = new AtomicInteger();
+
+    private final Set<Subscriber> subscribers = Collections.newSetFromMap(new ConcurrentHashMap<Subscriber, Boolean>());
+    private final ScheduledExecutorService writers;
+    private final int queueSize;
+    private volatile boolean closed;
+
+    public Broadcaster() {
+        this(DEFAULT_WRITERS, DEFAULT_QUEUE_SIZE, DEFAULT_HEARTBEAT_MS);
+    }
+
+    /**
+     * @param writers         the number of threads writing the events to the clients
+     * @param queueSize       the number of events a client can lag behind before being evicted
+     * @param heartbeatMillis the delay between two keep-alive comments, none if 0
+     */
+    public Broadcaster(int writers, int queueSize, long heartbeatMillis) {
+        if (writers < 1 || queueSize < 1 || heartbeatMillis < 0) {
+            throw new IllegalArgumentException("Invalid broadcaster settings");
+        }
+        this.queueSize = queueSize;
+        final String prefix = "vinna-sse-" + broadcasters.incrementAndGet() + "-writer-";
+        this.writers = Executors.newScheduledThreadPool(writers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (heartbeatMillis > 0) {
+            this.writers.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    publish(Event.HEARTBEAT);
+                }
+            }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the response keeping the connection open, and streaming to the client the events broadcast from now on
+     */
+    public EventStream subscribe() {
+        return new EventStream(this);
+    }
+
+    public void broadcast(String data) {
+        broadcast(new Event(data));
+    }
+
+    public void broadcast(Event event) {
+        publish(event.encode());
+    }
+
+    public int getSubscribersCount() {
+        return subscribers.size();
+    }
+
+    Subscriber add(OutputStream out, Runnable onClose) {
+        Subscriber subscriber = new Subscriber(this, out, queueSize, onClose);
+        subscribers.add(subscriber);
+        if (closed) {
+            evict(subscriber);
+        }
+        return subscriber;
+    }
+
+    private void publish(byte[] event) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(event)) {
+                schedule(subscriber);
+            } else {
+                logger.info("Evicting a client lagging more than {} events behind", queueSize);
+                evict(subscriber);
+            }
+        }
+    }
+
+    void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                writers.execute(subscriber);
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+                evict(subscriber);
+            }
+        }
+    }
+
+    void evict(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.close();
+        }
+    }
+
+    /**
+     * Stops the writer threads, and closes the streams of all the subscribers.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writers.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            evict(subscriber);
+        }
+    }
+}
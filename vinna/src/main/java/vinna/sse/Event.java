@@ -0,0 +1,71 @@
+package vinna.sse;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A server-sent event. It is encoded once, whatever the number of subscribers it is sent to.
+ */
+public final class Event {
+    /**
+     * A comment event, ignored by the clients but keeping the connection alive.
+     */
+    static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final String data;
+    private String id;
+    private String name;
+    private long retry = -1;
+
+    public Event(String data) {
+        this.data = data;
+    }
+
+    public Event id(String id) {
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * The event type, dispatched to the addEventListener(name) listeners of the client EventSource.
+     */
+    public Event name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * The delay the client waits before reconnecting, in milliseconds.
+     */
+    public Event retry(long retry) {
+        this.retry = retry;
+        return this;
+    }
+
+    byte[] encode() {
+        StringBuilder res = new StringBuilder();
+        if (id != null) {
+            field(res, "id", id);
+        }
+        if (name != null) {
+            field(res, "event", name);
+        }
+        if (retry >= 0) {
+            res.append("retry: ").append(retry).append('\n');
+        }
+        field(res, "data", data == null ? "" : data);
+        res.append('\n');
+        return res.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void field(StringBuilder res, String field, String value) {
+        // a line break ends a field, a multi-lines value is sent as several fields
+        for (String line : value.split("\r\n|\r|\n", -1)) {
+            res.append(field).append(": ").append(line).append('\n');
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(encode(), StandardCharsets.UTF_8);
+    }
+}
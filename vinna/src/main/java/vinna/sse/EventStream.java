@@ -0,0 +1,94 @@
+package vinna.sse;
+
+import vinna.exception.ConfigException;
+import vinna.http.VinnaRequestWrapper;
+import vinna.http.VinnaResponseWrapper;
+import vinna.response.StreamingResponse;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * A text/event-stream response, subscribing the client to a {@link Broadcaster}: the request is put in asynchronous
+ * mode, and the connection is kept open until the client goes away or is evicted.
+ * <p/>
+ * Requires the vinna filter to be declared with &lt;async-supported&gt;true&lt;/async-supported&gt; in the web.xml.
+ */
+public final class EventStream implements StreamingResponse {
+    /**
+     * The request attribute set on streaming requests, whose asynchronous context is completed by the stream itself
+     */
+    public static final String STREAMING = "vinna.sse.streaming";
+
+    private final Broadcaster broadcaster;
+    private long timeout;
+
+    EventStream(Broadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     * Closes the stream after the given delay, the client then reconnects. Never by default.
+     */
+    public EventStream timeout(long millis) {
+        this.timeout = millis;
+        return this;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public void execute(VinnaRequestWrapper request, VinnaResponseWrapper response) throws IOException, ServletException {
+        if (!request.isAsyncSupported()) {
+            throw new ConfigException("Server-sent events require async support: add <async-supported>true</async-supported> to the vinna filter declaration");
+        }
+        response.setStatus(200);
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+
+        // the request may already run asynchronously, e.g. on a virtual thread
+        final AsyncContext async = request.isAsyncStarted() ? request.getAsyncContext() : request.startAsync();
+        request.setAttribute(STREAMING, Boolean.TRUE);
+        async.setTimeout(timeout);
+        // commits the headers, the client knows it is connected
+        response.flushBuffer();
+
+        final Subscriber subscriber = broadcaster.add(response.getOutputStream(), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    async.complete();
+                } catch (IllegalStateException e) {
+                    // already completed by the container
+                }
+            }
+        });
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                broadcaster.evict(subscriber);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                broadcaster.evict(subscriber);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                broadcaster.evict(subscriber);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+}
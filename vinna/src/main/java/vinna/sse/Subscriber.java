@@ -0,0 +1,69 @@
+package vinna.sse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A client connection: the events broadcast to it wait in a bounded queue, until a writer thread drains it.
+ */
+final class Subscriber implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(Subscriber.class);
+
+    private final Broadcaster broadcaster;
+    private final OutputStream out;
+    private final BlockingQueue<byte[]> queue;
+    private final Runnable onClose;
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    Subscriber(Broadcaster broadcaster, OutputStream out, int queueSize, Runnable onClose) {
+        this.broadcaster = broadcaster;
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.onClose = onClose;
+    }
+
+    /**
+     * @return false if the queue is full, i.e. the client doesn't keep up with the events
+     */
+    boolean offer(byte[] event) {
+        return queue.offer(event);
+    }
+
+    @Override
+    public void run() {
+        try {
+            byte[] event;
+            while ((event = queue.poll()) != null) {
+                out.write(event);
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Cannot send the events to a client, closing its stream", e);
+            broadcaster.evict(this);
+        } finally {
+            scheduled.set(false);
+        }
+        // events queued after the last poll, and before the scheduled flag was reset
+        if (!queue.isEmpty() && !closed.get()) {
+            broadcaster.schedule(this);
+        }
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            try {
+                onClose.run();
+            } catch (RuntimeException e) {
+                logger.debug("Error while closing an events stream", e);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import liquidrods.Config;
 import liquidrods.Liquidrods;
 import vinna.VinnaContext;
 import vinna.response.ResponseBuilder;
+import vinna.util.Utf8Writer;
 
 import javax.servlet.ServletOutputStream;
 import java.io.*;
@@ -15,7 +16,7 @@ public class LiquidrodsResponse extends ResponseBuilder {
 
     private LiquidrodsResponse(String view, Object model) {
         super(200);
-        type("text/html");
+        type("text/html; charset=utf-8");
         this.view = view;
         this.model = model;
         this.prefix = VinnaContext.get().vinna.getBasePackage().replace(".", "/") + "/views/";
@@ -37,9 +38,9 @@ public class LiquidrodsResponse extends ResponseBuilder {
         });
 
 
-        final OutputStreamWriter writer = new OutputStreamWriter(out);
-        Liquidrods.parse(view).render(model, writer);
-        writer.flush();
+        try (Utf8Writer writer = new Utf8Writer(out)) {
+            Liquidrods.parse(view, config).render(model, writer);
+        }
     }
 
 
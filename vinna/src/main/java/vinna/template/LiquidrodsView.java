@@ -5,37 +5,60 @@ import liquidrods.Liquidrods;
 import liquidrods.Template;
 import vinna.Session;
 import vinna.Validation;
+import vinna.Vinna;
 import vinna.VinnaContext;
+import vinna.exception.VuntimeException;
 import vinna.response.ResponseBuilder;
+import vinna.response.StreamingResponse;
+import vinna.util.Utf8Writer;
 
 import javax.servlet.ServletOutputStream;
 import java.io.*;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class LiquidrodsView extends ResponseBuilder {
+public class LiquidrodsView extends ResponseBuilder implements StreamingResponse {
+    public static final String VIEWS_CACHE = "views-cache";
+
+    private static final Pattern VIEW_SUFFIX_PATTERN = Pattern.compile("(.+?)view");
+
     protected Reader templateReader;
     protected String templateName;
     protected Object model;
     protected Validation validation;
     private final Config config;
+    private final String prefix;
+    private final Templates templates;
+    private boolean streaming = false;
+    private Utf8Writer renderWriter;
 
     public LiquidrodsView() {
         super(200);
-        type("text/html");
-        final String prefix = VinnaContext.get().vinna.getBasePackage().replace(".", "/") + "/" + VinnaContext.get().vinna.getConfig().get("views-package") + "/";
+        type("text/html; charset=utf-8");
+        final Vinna vinna = VinnaContext.get().vinna;
+        prefix = vinna.getSettings().viewsPath;
+        templates = vinna.getTemplates();
+
+        config = templateConfig(templates, getClass(), prefix);
+    }
 
-        config = new Config();
+    /**
+     * The config of the parsed templates, which are cached and shared by the views: its loader must not reference a
+     * view instance, nor the request it was created for.
+     */
+    private static Config templateConfig(final Templates templates, final Class<?> viewClass, final String prefix) {
+        final Config config = new Config();
         config.templateLoader(new Config.TemplateLoader() {
             @Override
             public Reader load(String name) {
-                return getTemplateReader(prefix, name);
+                return Templates.open(viewClass.getClassLoader(), resolveTemplate(templates, viewClass, prefix, name));
             }
         });
-
+        return config;
     }
 
     @Override
@@ -47,38 +70,133 @@ public class LiquidrodsView extends ResponseBuilder {
         } else {
             if (templateName == null) {
                 templateName = getClass().getSimpleName().toLowerCase();
-                Matcher m = Pattern.compile("(.+?)view").matcher(templateName);
+                Matcher m = VIEW_SUFFIX_PATTERN.matcher(templateName);
                 if (m.matches()) {
                     templateName = m.group(1);
                 }
                 templateName = templateName + ".html";
             }
-            template = Liquidrods.parse(templateName, config);
+            template = getTemplate(templateName);
+        }
+
+        try (Utf8Writer writer = new Utf8Writer(out)) {
+            renderWriter = writer;
+            render(template, writer);
+        } finally {
+            renderWriter = null;
         }
+    }
 
-        final OutputStreamWriter writer = new OutputStreamWriter(out);
+    /**
+     * Renders the template with this view as its model.
+     */
+    protected void render(Template template, Writer writer) throws IOException {
         template.render(this, writer);
-        writer.flush();
     }
 
-    private Reader getTemplateReader(String prefix, String name) {
-        String viewPackage = getClass().getPackage().getName().replace(".", "/") + "/";
+    /**
+     * In streaming mode, the flush points of the template ({@code {{flush}}} and {@link #flushEvery(int, Iterable)})
+     * send what was rendered so far to the client instead of waiting for the whole page.
+     * Beware: once the first chunk is sent, the response is committed, and errors can't change the status anymore.
+     */
+    protected void streaming(boolean streaming) {
+        this.streaming = streaming;
+    }
 
-        InputStream stream = getClass().getClassLoader().getResourceAsStream(viewPackage + name);
-        if (stream == null) {
-            stream = getClass().getClassLoader().getResourceAsStream(prefix + name);
-        }
-        if (stream == null) {
-            stream = getClass().getClassLoader().getResourceAsStream(name);
+    @Override
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * A flush point, to be used as {@code {{flush}}} in the templates, e.g. right after {@code </head>} so that the
+     * browser can start fetching the page resources. Does nothing unless the view is in streaming mode.
+     *
+     * @return an empty string, so that nothing is rendered
+     */
+    public String flush() {
+        if (streaming && renderWriter != null) {
+            try {
+                renderWriter.flush();
+            } catch (IOException e) {
+                throw new VuntimeException("Cannot send the rendered content, the client probably went away", e);
+            }
         }
-        if (stream == null) {
-            throw new RuntimeException("Can't find a template for the view class " + getClass() + ": Tried " + (viewPackage + name) + ", " + (prefix + name) + " and " + name);
+        return "";
+    }
+
+    /**
+     * Wraps a model collection so that, in streaming mode, iterating over it in a template flushes the response every
+     * {@code count} items.
+     */
+    protected <T> Iterable<T> flushEvery(final int count, final Iterable<T> items) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count should be positive");
         }
-        try {
-            return new InputStreamReader(stream, "utf-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                final Iterator<T> iterator = items.iterator();
+                return new Iterator<T>() {
+                    private int rendered = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        if (rendered > 0 && rendered % count == 0) {
+                            flush();
+                        }
+                        rendered++;
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Exposes an iterator as a model value, so that large results (a database cursor for example) are rendered as
+     * they are read instead of being loaded in memory first.
+     * <p/>
+     * The returned iterable can only be iterated once: a template iterating it twice, e.g. checking its size before
+     * a for loop over it, fails with an {@link IllegalStateException} the second time. Expose the size or the
+     * emptiness as another model value instead.
+     */
+    protected static <T> Iterable<T> lazy(final Iterator<T> iterator) {
+        return new Iterable<T>() {
+            private boolean consumed = false;
+
+            @Override
+            public Iterator<T> iterator() {
+                if (consumed) {
+                    throw new IllegalStateException("A lazy model value can only be iterated once");
+                }
+                consumed = true;
+                return iterator;
+            }
+        };
+    }
+
+    private Template getTemplate(String name) {
+        return templates.get(getClass().getClassLoader(), resolveTemplate(templates, getClass(), prefix, name), config);
+    }
+
+    private static String resolveTemplate(Templates templates, Class<?> viewClass, String prefix, String name) {
+        String viewPackage = viewClass.getPackage().getName().replace(".", "/") + "/";
+        String path = templates.resolve(viewClass.getClassLoader(), viewPackage + "|" + name, viewPackage + name, prefix + name, name);
+        if (path == null) {
+            throw new RuntimeException("Can't find a template for the view class " + viewClass + ": Tried " + (viewPackage + name) + ", " + (prefix + name) + " and " + name);
         }
+        return path;
     }
 
     public Map<String, List<String>> errors() {
@@ -102,6 +220,6 @@ public class LiquidrodsView extends ResponseBuilder {
     }
 
     public String contextPath() {
-        return VinnaContext.get().servletContext.getContextPath();
+        return VinnaContext.get().request.getContextPath();
     }
 }
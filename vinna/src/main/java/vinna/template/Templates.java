@@ -0,0 +1,176 @@
+package vinna.template;
+
+import liquidrods.Config;
+import liquidrods.Liquidrods;
+import liquidrods.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vinna.exception.VuntimeException;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parsed templates registry of an application, keyed by the resource path of the template. See
+ * {@link vinna.Vinna#getTemplates()}.
+ * <p/>
+ * When the build generated a templates index (see the vinna maven plugin {@code templates} goal), the indexed
+ * templates are parsed once when the application starts instead of on their first request, and looking them up
+ * doesn't have to probe the classpath anymore.
+ * <p/>
+ * Nothing is cached when the views cache is disabled.
+ */
+public final class Templates {
+    private static final Logger logger = LoggerFactory.getLogger(Templates.class);
+
+    public static final String INDEX = "META-INF/vinna/templates.index";
+
+    private final boolean cache;
+    private final ConcurrentMap<String, Template> parsed = new ConcurrentHashMap<>();
+    // template resource paths, keyed by the view lookup, see resolve()
+    private final ConcurrentMap<String, String> resolved = new ConcurrentHashMap<>();
+    private volatile Set<String> indexed = Collections.emptySet();
+
+    public Templates(boolean cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return the template at the given resource path, parsed with the given config the first time (or every time
+     *         when the cache is disabled)
+     */
+    public Template get(ClassLoader loader, String path, Config config) {
+        if (!cache) {
+            return Liquidrods.parse(open(loader, path), config);
+        }
+        Template template = parsed.get(path);
+        if (template == null) {
+            template = Liquidrods.parse(open(loader, path), config);
+            final Template previous = parsed.putIfAbsent(path, template);
+            if (previous != null) {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * @param key        identifies the lookup, e.g. the view package and the template name
+     * @param candidates the resource paths to try, in order
+     * @return the first existing candidate, null if there's none
+     */
+    public String resolve(ClassLoader loader, String key, String... candidates) {
+        String path = cache ? resolved.get(key) : null;
+        if (path == null) {
+            for (String candidate : candidates) {
+                if (isIndexed(candidate) || exists(loader, candidate)) {
+                    path = candidate;
+                    break;
+                }
+            }
+            if (path != null && cache) {
+                resolved.put(key, path);
+            }
+        }
+        return path;
+    }
+
+    private boolean isIndexed(String path) {
+        return indexed.contains(path);
+    }
+
+    public static boolean exists(ClassLoader loader, String path) {
+        return loader.getResource(path) != null;
+    }
+
+    public static Reader open(ClassLoader loader, String path) {
+        InputStream stream = loader.getResourceAsStream(path);
+        if (stream == null) {
+            throw new VuntimeException("Can't find the template " + path);
+        }
+        try {
+            return new InputStreamReader(stream, "utf-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new VuntimeException(e);
+        }
+    }
+
+    /**
+     * Parses a template the same way a view living next to it would: included templates are looked up in the
+     * template's own directory, then in the views directory and finally at the classpath root.
+     *
+     * @param path   the resource path of the template
+     * @param prefix the views directory, i.e. base-package/views-package/
+     */
+    public static Template parse(final ClassLoader loader, String path, final String prefix) {
+        final int slash = path.lastIndexOf('/');
+        final String directory = slash < 0 ? "" : path.substring(0, slash + 1);
+        Config config = new Config();
+        config.templateLoader(new Config.TemplateLoader() {
+            @Override
+            public Reader load(String name) {
+                if (exists(loader, directory + name)) {
+                    return open(loader, directory + name);
+                } else if (exists(loader, prefix + name)) {
+                    return open(loader, prefix + name);
+                }
+                return open(loader, name);
+            }
+        });
+        return Liquidrods.parse(open(loader, path), config);
+    }
+
+    /**
+     * Reads the templates index generated at build time, if any.
+     *
+     * @return the resource paths of the indexed templates, or an empty list if there's no index
+     */
+    public static List<String> readIndex(ClassLoader loader) {
+        InputStream stream = loader.getResourceAsStream(INDEX);
+        if (stream == null) {
+            return Collections.emptyList();
+        }
+        List<String> paths = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "utf-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    paths.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new VuntimeException("Cannot read the templates index " + INDEX, e);
+        }
+        return paths;
+    }
+
+    /**
+     * Parses every template listed in the templates index, unless the cache is disabled.
+     *
+     * @param prefix the views directory, i.e. base-package/views-package/
+     * @return the number of preloaded templates
+     */
+    public int preload(ClassLoader loader, String prefix) {
+        if (!cache) {
+            return 0;
+        }
+        List<String> paths = readIndex(loader);
+        if (paths.isEmpty()) {
+            return 0;
+        }
+        indexed = Collections.unmodifiableSet(new HashSet<>(paths));
+        int count = 0;
+        for (String path : paths) {
+            try {
+                parsed.put(path, parse(loader, path, prefix));
+                count++;
+            } catch (RuntimeException e) {
+                logger.warn("Cannot preload the template " + path + ", it will be parsed on demand", e);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,53 @@
+package vinna.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of fixed-size byte buffers, shared by the parts of the framework that need a scratch buffer
+ * per request (template rendering, body copies, ...).
+ * <p/>
+ * Buffers are not bound to a thread: a buffer acquired on one thread can be released from another one.
+ */
+public final class BufferPool {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    public static final BufferPool DEFAULT = new BufferPool(DEFAULT_BUFFER_SIZE, 256);
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize should be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        if (buffer == null) {
+            return new byte[bufferSize];
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
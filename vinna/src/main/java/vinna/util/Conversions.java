@@ -7,6 +7,9 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 public class Conversions {
 
@@ -73,12 +76,26 @@ public class Conversions {
     }
 
     public static <T> Collection<T> convertCollection(Collection<String> collection, Class<T> type) {
-        Collection<T> convertedCollection = new ArrayList<>();
+        return convertCollection(collection, Collection.class, type);
+    }
 
-        for (String value : collection) {
-            convertedCollection.add((T) convertString(value, type));
+    /**
+     * @param collectionType Collection, List or Set (or one of their super types)
+     */
+    public static <T> Collection<T> convertCollection(Collection<String> collection, Class<?> collectionType, Class<T> type) {
+        if (collectionType.isAssignableFrom(Collection.class) || collectionType.isAssignableFrom(List.class)) {
+            List<T> convertedCollection = new ArrayList<>();
+            for (String value : collection) {
+                convertedCollection.add((T) convertString(value, type));
+            }
+            return Collections.unmodifiableList(convertedCollection);
+        } else if (collectionType.isAssignableFrom(Set.class)) {
+            Set<T> convertedCollection = new LinkedHashSet<>();
+            for (String value : collection) {
+                convertedCollection.add((T) convertString(value, type));
+            }
+            return Collections.unmodifiableSet(convertedCollection);
         }
-
-        return Collections.unmodifiableCollection(convertedCollection);
+        throw new IllegalArgumentException("Unsupported collection type " + collectionType);
     }
 }
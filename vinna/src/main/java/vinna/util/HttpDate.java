@@ -0,0 +1,73 @@
+package vinna.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses dates as RFC 1123 HTTP dates (e.g. Sun, 06 Nov 1994 08:49:37 GMT).
+ * <p/>
+ * HTTP dates have a one second resolution, and most of the formatted dates are the current one: the last formatted
+ * second is cached, and formatted again only once per second.
+ */
+public final class HttpDate {
+    private static final ThreadLocal<SimpleDateFormat> FORMATS = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return format;
+        }
+    };
+
+    private static volatile Formatted current = new Formatted(Long.MIN_VALUE, null);
+
+    private HttpDate() {
+    }
+
+    public static String now() {
+        long millis = System.currentTimeMillis();
+        Formatted formatted = current;
+        if (formatted.second != millis / 1000) {
+            formatted = new Formatted(millis / 1000, FORMATS.get().format(new Date(millis)));
+            current = formatted;
+        }
+        return formatted.value;
+    }
+
+    public static String format(long millis) {
+        Formatted formatted = current;
+        if (formatted.second == second(millis)) {
+            return formatted.value;
+        }
+        return FORMATS.get().format(new Date(millis));
+    }
+
+    /**
+     * @return the milliseconds of an RFC 1123 HTTP date
+     * @throws IllegalArgumentException if the date isn't an RFC 1123 date
+     */
+    public static long parse(String date) {
+        try {
+            return FORMATS.get().parse(date.trim()).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid HTTP date: " + date, e);
+        }
+    }
+
+    private static long second(long millis) {
+        return millis >= 0 ? millis / 1000 : (millis - 999) / 1000;
+    }
+
+    private static final class Formatted {
+        private final long second;
+        private final String value;
+
+        private Formatted(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package vinna.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
 public class MultivaluedHashMap<K, V> extends HashMap<K, List<V>> {
 
     public void add(K key, V value) {
-        List<V> list = this.get(key);
+        List<V> list = super.get(key);
+        if (list == null) {
+            list = new ArrayList<>(1);
+            this.put(key, list);
+        }
         list.add(value);
-        this.put(key, list);
     }
 
     public V getFirst(K key) {
@@ -18,7 +22,7 @@ public class MultivaluedHashMap<K, V> extends HashMap<K, List<V>> {
     }
 
     public void putSingle(K key, V value) {
-        List<V> list = new ArrayList<>();
+        List<V> list = new ArrayList<>(1);
         list.add(value);
         this.put(key, list);
     }
@@ -27,10 +31,13 @@ public class MultivaluedHashMap<K, V> extends HashMap<K, List<V>> {
         return this.get(key).remove(value);
     }
 
+    /**
+     * @return the values of the key, or an immutable empty list if there are none
+     */
     @Override
     public List<V> get(Object key) {
         List<V> list = super.get(key);
-        return list != null ? list : new ArrayList<V>();
+        return list != null ? list : Collections.<V>emptyList();
     }
 
     @Override
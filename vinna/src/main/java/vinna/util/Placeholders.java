@@ -0,0 +1,90 @@
+package vinna.util;
+
+import vinna.exception.ConfigException;
+
+import java.util.*;
+
+/**
+ * Resolves the {name} placeholders of configuration values.
+ * <p/>
+ * Every value is scanned once: a placeholder referencing another entry resolves that entry first (whatever the order
+ * in which the entries were declared), and its result is memoized. Placeholders that don't reference a known entry
+ * are left untouched.
+ */
+public final class Placeholders {
+
+    private Placeholders() {
+    }
+
+    /**
+     * @return a new map where every String value has its placeholders resolved
+     * @throws ConfigException if some values reference each other
+     */
+    public static Map<String, Object> resolve(Map<String, Object> values) {
+        Map<String, Object> resolved = new HashMap<>(values.size());
+        Set<String> visiting = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            resolveEntry(entry.getKey(), values, resolved, visiting);
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolves the placeholders of a single string, the values it references being resolved first.
+     *
+     * @throws ConfigException if the referenced values reference each other
+     */
+    public static String resolve(String s, Map<String, Object> values) {
+        return substitute(s, values, new HashMap<String, Object>(), new LinkedHashSet<String>());
+    }
+
+    private static Object resolveEntry(String key, Map<String, Object> values, Map<String, Object> resolved, Set<String> visiting) {
+        if (resolved.containsKey(key)) {
+            return resolved.get(key);
+        }
+        Object value = values.get(key);
+        if (value instanceof String && ((String) value).indexOf('{') >= 0) {
+            if (!visiting.add(key)) {
+                StringBuilder cycle = new StringBuilder();
+                for (String name : visiting) {
+                    cycle.append(name).append(" -> ");
+                }
+                throw new ConfigException("Circular reference between configuration values: " + cycle + key);
+            }
+            value = substitute((String) value, values, resolved, visiting);
+            visiting.remove(key);
+        }
+        resolved.put(key, value);
+        return value;
+    }
+
+    private static String substitute(String s, Map<String, Object> values, Map<String, Object> resolved, Set<String> visiting) {
+        int open = s.indexOf('{');
+        if (open < 0) {
+            return s;
+        }
+        StringBuilder res = new StringBuilder(s.length() + 16);
+        int from = 0;
+        while (open >= 0) {
+            int close = s.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            String name = s.substring(open + 1, close);
+            Object value = null;
+            if (values.containsKey(name)) {
+                value = resolveEntry(name, values, resolved, visiting);
+            }
+            if (value != null) {
+                res.append(s, from, open).append(value.toString());
+                from = close + 1;
+                open = s.indexOf('{', from);
+            } else {
+                // not a placeholder we know of, keep it and look for one starting after this brace
+                open = s.indexOf('{', open + 1);
+            }
+        }
+        res.append(s, from, s.length());
+        return res.toString();
+    }
+}
@@ -0,0 +1,193 @@
+package vinna.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A buffered writer encoding straight to UTF-8 into a pooled byte buffer.
+ * <p/>
+ * Unlike an {@link java.io.OutputStreamWriter}, there is no intermediate char buffer nor charset encoder: every char
+ * is encoded once, directly into the byte buffer, which is only handed to the underlying stream when it is full or
+ * when the writer is flushed.
+ * <p/>
+ * Closing the writer flushes it and gives its buffer back to the pool, but doesn't close the underlying stream (which
+ * is owned by the servlet container).
+ */
+public class Utf8Writer extends Writer {
+    private static final byte REPLACEMENT = (byte) '?';
+
+    private final OutputStream out;
+    private final BufferPool pool;
+    private byte[] buffer;
+    private int position;
+    private char pendingHighSurrogate;
+
+    public Utf8Writer(OutputStream out) {
+        this(out, BufferPool.DEFAULT);
+    }
+
+    public Utf8Writer(OutputStream out, BufferPool pool) {
+        this.out = out;
+        this.pool = pool;
+        this.buffer = pool.acquire();
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final char c = cbuf[i];
+            if (c < 0x80 && pendingHighSurrogate == 0) {
+                if (position == buffer.length) {
+                    flushBuffer();
+                }
+                buffer[position++] = (byte) c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x80 && pendingHighSurrogate == 0) {
+                if (position == buffer.length) {
+                    flushBuffer();
+                }
+                buffer[position++] = (byte) c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes the chars are encoded to, unpaired surrogates included
+     */
+    public static long encodedLength(CharSequence chars) {
+        long res = 0;
+        final int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            final char c = chars.charAt(i);
+            if (c < 0x80) {
+                res++;
+            } else if (c < 0x800) {
+                res += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                if (i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    res += 4;
+                    i++;
+                } else {
+                    res++;
+                }
+            } else if (Character.isLowSurrogate(c)) {
+                res++;
+            } else {
+                res += 3;
+            }
+        }
+        return res;
+    }
+
+    private void encode(char c) throws IOException {
+        if (pendingHighSurrogate != 0) {
+            final char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int codePoint = Character.toCodePoint(high, c);
+                ensureCapacity(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            // unpaired high surrogate
+            put(REPLACEMENT);
+        }
+
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            ensureCapacity(2);
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            // unpaired low surrogate
+            put(REPLACEMENT);
+        } else {
+            ensureCapacity(3);
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = b;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (buffer.length - position < size) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Writer closed");
+        }
+    }
+
+    /**
+     * Sends the buffered bytes to the underlying stream and flushes it.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (pendingHighSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                put(REPLACEMENT);
+            }
+            flushBuffer();
+            out.flush();
+        } finally {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -8,13 +8,31 @@ import java.io.InputStreamReader;
 import java.util.*;
 
 public class VinnaMessagesControl extends ResourceBundle.Control {
+    private final List<String> formats;
+
+    public VinnaMessagesControl() {
+        this.formats = null;
+    }
+
+    public VinnaMessagesControl(String basePackage) {
+        this.formats = Collections.unmodifiableList(Arrays.asList(basePackage.replace(".", "/"), "vinna"));
+    }
 
     @Override
     public List<String> getFormats(String baseName) {
+        if (formats != null) {
+            return formats;
+        }
         // May the gods forgive me for doing this
         return Arrays.asList(VinnaContext.get().vinna.getBasePackage().replace(".", "/"), "vinna");
     }
 
+    @Override
+    public Locale getFallbackLocale(String baseName, Locale locale) {
+        // with an explicit base package, missing locales fall back on the base bundle, not on the JVM default locale
+        return formats != null ? null : super.getFallbackLocale(baseName, locale);
+    }
+
     @Override
     public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload) throws IllegalAccessException, InstantiationException, IOException {
         String name = toBundleName(baseName, locale) + ".properties";
@@ -0,0 +1,110 @@
+package vinna;
+
+import org.junit.Test;
+import vinna.exception.VuntimeException;
+import vinna.helpers.MockedRequest;
+import vinna.response.Response;
+import vinna.route.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class AnnotatedRoutesTest {
+
+    public static final class FinalController {
+        static String lastName;
+
+        public Response hello(String name) {
+            lastName = name;
+            return null;
+        }
+    }
+
+    public static class OtherController {
+        static String lastName;
+
+        public Response hello(String name) {
+            lastName = name;
+            return null;
+        }
+
+        public Response count(int count) {
+            return null;
+        }
+    }
+
+    // what the vinna-apt processor generates for @Get("/hello/{name}")
+    private static final class FinalControllerRoutes extends AnnotatedRoutes {
+        @Override
+        protected void routes(String prefix, List<Route> routes) {
+            routes.add(route("GET", prefix, "/hello/(?<name>[^/]+)", Arrays.<String>asList("name"),
+                    new CompiledAction(null, FinalController.class, "hello", new ActionArgument[]{new ActionArgument.Variable("name")}, new Class<?>[]{String.class}) {
+                        @Override
+                        protected Response invoke(Object controller, Object[] args) {
+                            return ((FinalController) controller).hello((String) args[0]);
+                        }
+                    }));
+        }
+    }
+
+    @Test
+    public void prefixesTheRoutesAndCallsFinalControllers() {
+        Router router = new Router();
+        router.addRoutes(new FinalControllerRoutes().getRoutes("/app"));
+        assertNull(router.match(MockedRequest.get("/hello/joe").build()));
+
+        MockedRequest request = MockedRequest.get("/app/hello/joe").build();
+        RouteResolution resolution = router.match(request);
+        assertNotNull(resolution);
+
+        Vinna vinna = new Vinna();
+        vinna.init(Collections.<String, Object>emptyMap());
+        resolution.callAction(request, vinna);
+        assertEquals("joe", FinalController.lastName);
+    }
+
+    @Test
+    public void invokesThroughReflectionWithAnotherControllerFactory() {
+        Router router = new Router();
+        router.addRoutes(new FinalControllerRoutes().getRoutes(""));
+        Vinna vinna = new Vinna() {
+            @Override
+            protected ControllerFactory controllerFactory(Map<String, Object> config) {
+                return new ControllerFactory() {
+                    @Override
+                    public Object create(String id, Class<?> clazz) {
+                        return new OtherController();
+                    }
+                };
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+
+        MockedRequest request = MockedRequest.get("/hello/jane").build();
+        router.match(request).callAction(request, vinna);
+        assertEquals("jane", OtherController.lastName);
+    }
+
+    @Test(expected = VuntimeException.class)
+    public void rejectsANullPrimitiveArgument() {
+        Router router = new Router();
+        router.addRoute(new Route("GET", Pattern.compile("/count"), Collections.<String>emptyList(),
+                Collections.<String, Pattern>emptyMap(), Collections.<String, Pattern>emptyMap(),
+                new CompiledAction(null, OtherController.class, "count", new ActionArgument[]{new ActionArgument.Const<>(null)}, new Class<?>[]{int.class}) {
+                    @Override
+                    protected Response invoke(Object controller, Object[] args) {
+                        return ((OtherController) controller).count((Integer) args[0]);
+                    }
+                }));
+        Vinna vinna = new Vinna();
+        vinna.init(Collections.<String, Object>emptyMap());
+
+        MockedRequest request = MockedRequest.get("/count").build();
+        router.match(request).callAction(request, vinna);
+    }
+}
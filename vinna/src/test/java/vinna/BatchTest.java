@@ -0,0 +1,233 @@
+package vinna;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import vinna.interceptor.InterceptorAdapter;
+import vinna.json.JsonResponse;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class BatchTest {
+
+    private final AtomicInteger intercepted = new AtomicInteger();
+    private Vinna vinna;
+
+    public static class Controller {
+        public Response hello(String name, String accept) {
+            Map<String, String> entity = new HashMap<>();
+            entity.put("hello", name);
+            entity.put("accept", accept);
+            return new JsonResponse().entity(entity);
+        }
+
+        public Response tags(java.util.Collection<String> tags) {
+            return ResponseBuilder.withStatus(201).setHeader("X-Tags", tags.size());
+        }
+
+        public Response fail() {
+            throw new IllegalStateException("failing");
+        }
+
+        public Response any() {
+            return ResponseBuilder.withStatus(418);
+        }
+    }
+
+    @After
+    public void destroy() {
+        vinna.destroy();
+    }
+
+    private VinnaHandler handler(int threads) {
+        vinna = new Vinna() {
+            @Override
+            protected void registerCallback(Map<String, Object> config) {
+                registerInterceptor(new InterceptorAdapter() {
+                    @Override
+                    public void beforeMatch(VinnaContext context) {
+                        intercepted.incrementAndGet();
+                    }
+                });
+            }
+
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/hello/{name}").withController(Controller.class).hello(param("name").asString(), req.header("Accept").asString());
+                post("/tags").withController(Controller.class).tags(req.param("tag").asCollection(String.class));
+                get("/fail").withController(Controller.class).fail();
+                post("/{path: .*}").withController(Controller.class).any();
+            }
+        };
+        Map<String, Object> config = new HashMap<>();
+        config.put(Vinna.BATCH_PATH, "/batch");
+        config.put(Vinna.BATCH_THREADS, threads);
+        config.put(Vinna.BATCH_MAX_REQUESTS, "4");
+        config.put(Vinna.BATCH_MAX_BYTES, "256");
+        vinna.init(config);
+        return new VinnaHandler(vinna, null);
+    }
+
+    private static HttpServletRequest request(String path, String body) throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getContentType()).thenReturn("application/json");
+        when(request.getHeaderNames()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return Collections.enumeration(Arrays.asList("Accept", "Content-Type"));
+            }
+        });
+        when(request.getHeaders("Accept")).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return Collections.enumeration(Collections.singletonList("application/json"));
+            }
+        });
+        when(request.getParameterMap()).thenReturn(Collections.<String, String[]>emptyMap());
+        final ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes("UTF-8"));
+        when(request.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+        });
+        return request;
+    }
+
+    private static HttpServletResponse response(final ByteArrayOutputStream body) throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return response;
+    }
+
+    private static JsonNode batch(VinnaHandler handler, String body, HttpServletResponse response, ByteArrayOutputStream out) throws Exception {
+        assertTrue(handler.handle(request("/batch", body), response));
+        return new ObjectMapper().readTree(out.toByteArray());
+    }
+
+    private void runsTheSubRequestsInOrder(int threads) throws Exception {
+        VinnaHandler handler = handler(threads);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = response(out);
+        JsonNode results = batch(handler, "[{\"path\": \"/hello/bob\"}," +
+                "{\"method\": \"post\", \"path\": \"/tags?tag=a\", \"params\": {\"tag\": [\"b\", \"c\"]}}," +
+                "{\"path\": \"/missing\"}," +
+                "{\"path\": \"/fail\"}]", response, out);
+
+        verify(response).setStatus(200);
+        assertEquals(4, results.size());
+        assertEquals(200, results.get(0).get("status").asInt());
+        assertTrue(results.get(0).get("headers").get("Content-Type").asText().startsWith("application/json"));
+        JsonNode hello = new ObjectMapper().readTree(results.get(0).get("body").asText());
+        assertEquals("bob", hello.get("hello").asText());
+        assertEquals("application/json", hello.get("accept").asText());
+
+        assertEquals(201, results.get(1).get("status").asInt());
+        assertEquals("3", results.get(1).get("headers").get("X-Tags").asText());
+        assertEquals(404, results.get(2).get("status").asInt());
+        assertEquals(500, results.get(3).get("status").asInt());
+        // the batch request, then each sub-request
+        assertEquals(5, intercepted.get());
+    }
+
+    @Test
+    public void runsTheSubRequestsOneAfterTheOther() throws Exception {
+        runsTheSubRequestsInOrder(0);
+    }
+
+    @Test
+    public void runsTheSubRequestsInParallel() throws Exception {
+        runsTheSubRequestsInOrder(3);
+    }
+
+    @Test
+    public void restoresTheContextOfTheBatch() throws Exception {
+        VinnaHandler handler = handler(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicInteger executed = new AtomicInteger();
+        vinna.getInterceptors().add(new InterceptorAdapter() {
+            @Override
+            public void afterExecute(VinnaContext context) {
+                assertSame(context, VinnaContext.get());
+                executed.incrementAndGet();
+            }
+        });
+        handler = new VinnaHandler(vinna, null);
+        batch(handler, "[{\"path\": \"/hello/bob\"}, {\"path\": \"/hello/alice\"}]", response(out), out);
+
+        assertEquals(3, executed.get());
+    }
+
+    @Test
+    public void rejectsTheInvalidBatches() throws Exception {
+        VinnaHandler handler = handler(0);
+        String[] invalids = {"{", "{\"path\": \"/hello/bob\"}", "[{\"path\": \"hello\"}]", "[{\"path\": \"/hello/bob\"}, 12]"};
+        for (String invalid : invalids) {
+            HttpServletResponse response = response(new ByteArrayOutputStream());
+            assertTrue(handler.handle(request("/batch", invalid), response));
+            verify(response).setStatus(400);
+        }
+    }
+
+    @Test
+    public void rejectsTheNestedBatches() throws Exception {
+        VinnaHandler handler = handler(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonNode results = batch(handler, "[{\"path\": \"/batch\", \"method\": \"POST\", \"body\": \"[]\"}]", response(out), out);
+        assertEquals(400, results.get(0).get("status").asInt());
+    }
+
+    @Test
+    public void rejectsTheBatchesWithTooManySubRequests() throws Exception {
+        VinnaHandler handler = handler(0);
+        HttpServletResponse response = response(new ByteArrayOutputStream());
+        assertTrue(handler.handle(request("/batch", "[{\"path\": \"/a\"}, {\"path\": \"/b\"}, {\"path\": \"/c\"}, {\"path\": \"/d\"}, {\"path\": \"/e\"}]"), response));
+        verify(response).setStatus(413);
+    }
+
+    @Test
+    public void rejectsTheBatchesLargerThanAllowed() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            name.append('x');
+        }
+        HttpServletResponse response = response(new ByteArrayOutputStream());
+        assertTrue(handler(0).handle(request("/batch", "[{\"path\": \"/hello/" + name + "\"}]"), response));
+        verify(response).setStatus(413);
+    }
+
+    @Test
+    public void comesBeforeTheApplicationRoutes() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonNode results = batch(handler(0), "[{\"path\": \"/hello/bob\"}]", response(out), out);
+        assertEquals(200, results.get(0).get("status").asInt());
+    }
+}
@@ -0,0 +1,105 @@
+package vinna;
+
+import org.junit.Test;
+import vinna.helpers.MockedRequest;
+import vinna.http.Accept;
+import vinna.http.MediaType;
+import vinna.route.RouteResolution;
+import vinna.route.RoutesParser;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ContentNegotiationTest {
+
+    private static final String ROUTES = "GET /todos foo.html()\n" +
+            "  produces: text/html\n" +
+            "GET /todos foo.json()\n" +
+            "  produces: application/json, text/javascript\n" +
+            "POST /todos foo.create()\n" +
+            "  consumes: application/json\n" +
+            "GET /other foo.any()\n";
+
+    private Vinna app(final String routes) {
+        Vinna vinna = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                loadRoutes(new StringReader(routes));
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+        return vinna;
+    }
+
+    private static String matched(Vinna app, MockedRequest request) {
+        RouteResolution resolution = app.getRouter().match(request);
+        return resolution == null ? null : resolution.action.toString();
+    }
+
+    @Test
+    public void selectsTheRouteProducingTheBestQuality() {
+        Vinna app = app(ROUTES);
+        assertEquals("foo.json", matched(app, MockedRequest.get("/todos").header("Accept", "text/html;q=0.5, application/*").build()));
+        assertEquals("foo.html", matched(app, MockedRequest.get("/todos").header("Accept", "text/*, application/json;q=0.9").build()));
+        assertEquals("foo.json", matched(app, MockedRequest.get("/todos").header("Accept", "text/javascript").build()));
+        assertNull(matched(app, MockedRequest.get("/todos").header("Accept", "image/png").build()));
+    }
+
+    @Test
+    public void keepsTheFirstRouteWithoutAcceptHeader() {
+        Vinna app = app(ROUTES);
+        assertEquals("foo.html", matched(app, MockedRequest.get("/todos").build()));
+        assertEquals("foo.any", matched(app, MockedRequest.get("/other").header("Accept", "image/png").build()));
+    }
+
+    @Test
+    public void matchesTheContentType() {
+        Vinna app = app(ROUTES);
+        assertNotNull(matched(app, MockedRequest.post("/todos").header("Content-Type", "application/json; charset=utf-8").build()));
+        assertNull(matched(app, MockedRequest.post("/todos").header("Content-Type", "text/plain").build()));
+        assertNull(matched(app, MockedRequest.post("/todos").build()));
+    }
+
+    @Test
+    public void declaresTheMediaTypesProgrammatically() {
+        Vinna app = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/todos").produces("application/json").withControllerId("foo").withMethod("json()");
+                get("/todos").produces("text/html").withControllerId("foo").withMethod("html()");
+            }
+        };
+        app.init(Collections.<String, Object>emptyMap());
+        assertEquals("foo.html", matched(app, MockedRequest.get("/todos").header("Accept", "text/html").build()));
+    }
+
+    @Test
+    public void cachesTheParsedAcceptHeaders() {
+        Accept accept = Accept.of("text/html, application/xhtml+xml, */*;q=0.8");
+        assertSame(accept, Accept.of("text/html, application/xhtml+xml, */*;q=0.8"));
+        assertEquals(1f, accept.quality(MediaType.parse("application/xhtml+xml")), 0f);
+        assertEquals(0.8f, accept.quality(MediaType.parse("image/png")), 0f);
+        assertSame(Accept.ANY, Accept.of((String) null));
+    }
+
+    @Test
+    public void readsTheConstraintsOfThePathVariablesNamedLikeOptions() {
+        RoutesParser.ParsedRoute route = new RoutesParser(new StringReader("GET /{produces}/{coalesce} foo.show()\n" +
+                "  produces: [a-z]+\n" +
+                "  coalesce: \\d+\n" +
+                "  consumes: application/json\n")).parse("").get(0);
+        assertEquals("[a-z]+", route.pathVariablesConstraints.get("produces"));
+        assertEquals("\\d+", route.pathVariablesConstraints.get("coalesce"));
+        assertTrue(route.produces.isEmpty());
+        assertNull(route.coalesce);
+        assertEquals(Collections.singletonList("application/json"), route.consumes);
+    }
+
+    @Test(expected = vinna.exception.ConfigException.class)
+    public void rejectsInvalidMediaTypes() {
+        new RoutesParser(new StringReader("GET /a pass\n  produces: json\n")).parse("");
+    }
+}
@@ -0,0 +1,148 @@
+package vinna;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import vinna.deferred.CapturedRequest;
+import vinna.deferred.DeferredTask;
+import vinna.exception.VuntimeException;
+import vinna.interceptor.InterceptorAdapter;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DeferredTest {
+
+    private static final BlockingQueue<CapturedRequest> captured = new LinkedBlockingQueue<>();
+
+    private static final DeferredTask CAPTURE = new DeferredTask() {
+        @Override
+        public void run(CapturedRequest request) {
+            captured.add(request);
+        }
+    };
+
+    public static class Controller {
+        public Response show(String id) {
+            VinnaContext.get().afterResponse(CAPTURE);
+            return ResponseBuilder.withStatus(201);
+        }
+
+        public Response pass() {
+            VinnaContext.get().afterResponse(CAPTURE);
+            return ResponseBuilder.pass();
+        }
+    }
+
+    private static Vinna vinna() {
+        Vinna vinna = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/items/{id}").withController(Controller.class).show(param("id").asString());
+                get("/pass").withController(Controller.class).pass();
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+        return vinna;
+    }
+
+    private static HttpServletRequest request(String path) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.singletonList("X-Trace")));
+        when(request.getHeaders("X-Trace")).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return Collections.enumeration(Collections.singletonList("abc"));
+            }
+        });
+        when(request.getParameterNames()).thenReturn(Collections.enumeration(Collections.singletonList("q")));
+        when(request.getParameterValues("q")).thenReturn(new String[]{"x"});
+        return request;
+    }
+
+    private static HttpServletResponse response() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        when(response.getStatus()).thenReturn(201);
+        return response;
+    }
+
+    @Test
+    public void runsTheTasksAfterTheResponseIsFlushed() throws Exception {
+        captured.clear();
+        Vinna vinna = vinna();
+        HttpServletResponse response = response();
+        assertTrue(new VinnaHandler(vinna, null).handle(request("/items/12"), response));
+
+        CapturedRequest request = captured.poll(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        InOrder inOrder = inOrder(response);
+        inOrder.verify(response).setStatus(201);
+        inOrder.verify(response).flushBuffer();
+        assertEquals("GET", request.method);
+        assertEquals("/items/12", request.path);
+        assertEquals("10.0.0.1", request.remoteAddr);
+        assertEquals(201, request.status);
+        assertEquals("12", request.matchedVars.get("id"));
+        assertEquals("x", request.getParameter("q"));
+        assertEquals("abc", request.getHeader("x-trace"));
+        vinna.destroy();
+        assertEquals(1, vinna.getDeferredExecutor().getCompleted());
+    }
+
+    @Test
+    public void runsTheTasksDeferredBeforeAFailedMatch() throws Exception {
+        captured.clear();
+        Vinna vinna = new Vinna() {
+            @Override
+            protected void registerCallback(Map<String, Object> config) {
+                registerInterceptor(new InterceptorAdapter() {
+                    @Override
+                    public void beforeMatch(VinnaContext context) {
+                        context.afterResponse(CAPTURE);
+                        throw new VuntimeException("failing");
+                    }
+                });
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+        HttpServletResponse response = response();
+        new VinnaHandler(vinna, null).handle(request("/items/12"), response);
+
+        assertNotNull(captured.poll(5, TimeUnit.SECONDS));
+        InOrder inOrder = inOrder(response);
+        inOrder.verify(response).setStatus(500);
+        inOrder.verify(response).flushBuffer();
+        vinna.destroy();
+    }
+
+    @Test
+    public void runsTheTasksOfThePassedRequestsWithoutFlushing() throws Exception {
+        captured.clear();
+        Vinna vinna = vinna();
+        HttpServletResponse response = response();
+        assertFalse(new VinnaHandler(vinna, null).handle(request("/pass"), response));
+
+        assertNotNull(captured.poll(5, TimeUnit.SECONDS));
+        verify(response, never()).flushBuffer();
+        vinna.destroy();
+    }
+}
@@ -0,0 +1,68 @@
+package vinna;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.MissingResourceException;
+
+public class MessageCatalogTest {
+
+    @Test
+    public void fallsBackOnVinnaMessages() {
+        MessageCatalog catalog = new MessageCatalog("foo");
+        Assert.assertEquals("{0} is required", catalog.get(Locale.ENGLISH, "vinna.required"));
+    }
+
+    @Test
+    public void formatsWithTheRequestedLocale() {
+        MessageCatalog catalog = new MessageCatalog("foo");
+        Assert.assertEquals("title is required", catalog.format(Locale.ENGLISH, "vinna.required", "title"));
+        Assert.assertEquals("title est obligatoire", catalog.format(Locale.FRENCH, "vinna.required", "title"));
+    }
+
+    @Test
+    public void formatsTheFallbackMessagesWithTheRequestedLocale() {
+        MessageCatalog catalog = new MessageCatalog("foo");
+        Assert.assertEquals("name should be at least 1.234 characters long", catalog.format(Locale.GERMAN, "vinna.longerThan", "name", 1234));
+        Assert.assertEquals("name should be at least 1,234 characters long", catalog.format(Locale.ENGLISH, "vinna.longerThan", "name", 1234));
+    }
+
+    @Test
+    public void reusesCachedFormats() {
+        MessageCatalog catalog = new MessageCatalog("foo");
+        Assert.assertEquals("name should be at least 3 characters long", catalog.format(Locale.ENGLISH, "vinna.longerThan", "name", 3));
+        Assert.assertEquals("title should be at least 12 characters long", catalog.format(Locale.ENGLISH, "vinna.longerThan", "title", 12));
+    }
+
+    @Test
+    public void preloadsTheConfiguredLocales() {
+        MessageCatalog catalog = new MessageCatalog("foo", Arrays.asList(Locale.ENGLISH, Locale.FRENCH));
+        Assert.assertTrue(catalog.getLoadedLocales().containsAll(Arrays.asList(Locale.ENGLISH, Locale.FRENCH)));
+    }
+
+    @Test
+    public void appPreloadsTheMessagesLocales() {
+        Vinna app = new Vinna();
+        app.init(Collections.<String, Object>singletonMap(Vinna.MESSAGES_LOCALES, "en, fr_FR"));
+        Assert.assertTrue(app.getMessages().getLoadedLocales().containsAll(Arrays.asList(Locale.ENGLISH, Locale.FRANCE)));
+    }
+
+    @Test
+    public void onlyCachesTheBundleLocales() {
+        MessageCatalog catalog = new MessageCatalog("foo");
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals("title est obligatoire", catalog.format(new Locale("fr", "FR", "v" + i), "vinna.required", "title"));
+            Assert.assertEquals("title is required", catalog.format(new Locale("x" + i), "vinna.required", "title"));
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList(Locale.FRENCH, Locale.ROOT)), catalog.getLoadedLocales());
+    }
+
+    @Test(expected = MissingResourceException.class)
+    public void failsWithAnUnknownKey() {
+        new MessageCatalog("foo").get(Locale.ENGLISH, "no.such.key");
+    }
+}
@@ -0,0 +1,89 @@
+package vinna;
+
+import org.junit.Test;
+import vinna.exception.PassException;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PassTest {
+
+    public static class Controller {
+        public Response maybe(String what) {
+            if ("pass".equals(what)) {
+                return ResponseBuilder.pass();
+            }
+            if ("throw".equals(what)) {
+                throw new PassException();
+            }
+            return ResponseBuilder.withStatus(204);
+        }
+    }
+
+    private static VinnaHandler handler() {
+        Vinna vinna = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/css/{file*}").pass();
+                get("/maybe/{what}").withController(Controller.class).maybe(param("what").asString());
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+        return new VinnaHandler(vinna, null);
+    }
+
+    private static HttpServletRequest request(String path) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.<String>emptyList()));
+        when(request.getParameterMap()).thenReturn(Collections.<String, String[]>emptyMap());
+        return request;
+    }
+
+    private static HttpServletResponse response() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        return response;
+    }
+
+    @Test
+    public void passesWithoutCallingAnAction() throws Exception {
+        VinnaHandler handler = handler();
+        HttpServletResponse response = response();
+        VinnaContext context = handler.match(request("/css/bootstrap.min.css"), response);
+
+        assertTrue(context.isResolved());
+        assertTrue(context.isPass());
+        assertFalse(handler.execute(context));
+        verify(response, never()).setStatus(anyInt());
+    }
+
+    @Test
+    public void passesTheActionsReturningOrThrowingAPass() throws Exception {
+        VinnaHandler handler = handler();
+        assertFalse(handler.handle(request("/maybe/pass"), response()));
+        assertFalse(handler.handle(request("/maybe/throw"), response()));
+
+        HttpServletResponse response = response();
+        assertTrue(handler.handle(request("/maybe/not"), response));
+        verify(response).setStatus(204);
+    }
+
+    @Test
+    public void passExceptionsHaveNoStackTrace() {
+        assertEquals(0, PassException.INSTANCE.getStackTrace().length);
+        assertEquals(0, new PassException().getStackTrace().length);
+    }
+}
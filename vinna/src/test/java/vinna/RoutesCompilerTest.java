@@ -0,0 +1,116 @@
+package vinna;
+
+import org.junit.Assume;
+import org.junit.Test;
+import vinna.helpers.MockedRequest;
+import vinna.response.Response;
+import vinna.route.CompiledRoutes;
+import vinna.route.RouteResolution;
+import vinna.route.Router;
+import vinna.route.RoutesCompiler;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.*;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class RoutesCompilerTest {
+
+    private static final String ROUTES = "GET /users/{id} vinna.RoutesCompilerTest$Controller.show({id: int}, \"x\")\n" +
+            "  id: \\d+\n" +
+            "  coalesce(200): req.param.page\n" +
+            "\n" +
+            "GET /static pass\n" +
+            "  produces: text/html\n" +
+            "GET /dyn/{action} vinna.RoutesCompilerTest$Controller.{action}()\n";
+
+    public static class Controller {
+        static int lastId;
+
+        public Response show(int id, String constant) {
+            lastId = id;
+            return null;
+        }
+
+        public Response index() {
+            return null;
+        }
+    }
+
+    private RoutesCompiler compiler(String basePackage, String routes) {
+        RoutesCompiler compiler = new RoutesCompiler(basePackage, "controllers", "", getClass().getClassLoader());
+        compiler.add("routes", new StringReader(routes));
+        return compiler;
+    }
+
+    @Test
+    public void bindsTheActionsToTheControllersMethods() throws IOException {
+        RoutesCompiler compiler = compiler("gen", ROUTES);
+        assertEquals(Collections.<String>emptyList(), compiler.getErrors());
+        assertEquals(3, compiler.getRoutesCount());
+
+        StringWriter source = new StringWriter();
+        compiler.write(source);
+        assertTrue(source.toString().contains("((vinna.RoutesCompilerTest.Controller) controller).show((java.lang.Integer) args[0], (java.lang.String) args[1])"));
+        assertTrue(source.toString().contains("new ActionArgument.Variable(\"id\").typed(int.class, null)"));
+        assertTrue(source.toString().contains("MediaType.parseAll(\"text/html\"), MediaType.parseAll(),"));
+        assertTrue(source.toString().contains(", 200L, names(\"req.param.page\")))"));
+        assertTrue(source.toString().contains("new InvokeMethodAction(\"vinna.RoutesCompilerTest$Controller\", \"{action}\""));
+    }
+
+    @Test
+    public void reportsUnknownMethodsWithTheirLine() {
+        RoutesCompiler compiler = compiler("gen", "GET /a pass\n\nGET /b vinna.RoutesCompilerTest$Controller.nope()\n");
+        assertEquals(1, compiler.getErrors().size());
+        assertTrue(compiler.getErrors().get(0), compiler.getErrors().get(0).startsWith("routes:3: "));
+    }
+
+    @Test
+    public void reportsUnknownControllers() {
+        RoutesCompiler compiler = compiler("gen", "GET /a nope.index()\n");
+        assertEquals(1, compiler.getErrors().size());
+    }
+
+    @Test
+    public void generatesCompilableRoutes() throws Exception {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(javac);
+
+        File dir = Files.createTempDirectory("vinna-routes").toFile();
+        File sourceFile = new File(dir, "gen/compiled/" + CompiledRoutes.CLASS_NAME + ".java");
+        assertTrue(sourceFile.getParentFile().mkdirs());
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(sourceFile), "utf-8")) {
+            compiler("gen.compiled", ROUTES).write(writer);
+        }
+        assertEquals(0, javac.run(null, null, null, "-nowarn", "-encoding", "utf-8",
+                "-cp", System.getProperty("java.class.path"), "-d", dir.getPath(), sourceFile.getPath()));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, getClass().getClassLoader())) {
+            CompiledRoutes compiled = CompiledRoutes.load(loader, "gen.compiled");
+            assertNotNull(compiled);
+            assertEquals(Collections.singletonList("routes"), compiled.getSources());
+
+            Router router = new Router();
+            router.addRoutes(compiled.getRoutes());
+            assertNull(router.match(MockedRequest.get("/users/abc").build()));
+
+            MockedRequest request = MockedRequest.get("/users/42").build();
+            RouteResolution resolution = router.match(request);
+            assertNotNull(resolution);
+            Vinna vinna = new Vinna();
+            vinna.init(Collections.<String, Object>emptyMap());
+            resolution.callAction(request, vinna);
+            assertEquals(42, Controller.lastId);
+        }
+    }
+
+    @Test
+    public void hasNoCompiledRoutesByDefault() {
+        assertNull(CompiledRoutes.load(getClass().getClassLoader(), "foo"));
+    }
+}
@@ -0,0 +1,81 @@
+package vinna;
+
+import org.junit.Test;
+import vinna.helpers.MockedRequest;
+import vinna.route.Router;
+import vinna.route.RoutesWatcher;
+
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RoutesReloadTest {
+
+    private static class EditableRoutesVinna extends Vinna {
+        private volatile String routes;
+
+        private EditableRoutesVinna(String routes) {
+            this.routes = routes;
+            init(Collections.<String, Object>emptyMap());
+        }
+
+        @Override
+        protected void routes(Map<String, Object> config) {
+            loadRoutes(new StringReader(routes));
+        }
+    }
+
+    @Test
+    public void publishesTheReloadedRoutesAsANewSnapshot() {
+        EditableRoutesVinna app = new EditableRoutesVinna("GET /users pass");
+        Router previous = app.getRouter();
+
+        app.routes = "GET /accounts pass";
+        assertTrue(app.reloadRoutes());
+
+        assertNotSame(previous, app.getRouter());
+        assertNotNull(app.getRouter().match(MockedRequest.get("/accounts").build()));
+        assertNull(app.getRouter().match(MockedRequest.get("/users").build()));
+        // requests already matching against the previous snapshot are unaffected
+        assertNotNull(previous.match(MockedRequest.get("/users").build()));
+    }
+
+    @Test
+    public void keepsThePreviousRoutesWhenTheNewOnesAreInvalid() {
+        EditableRoutesVinna app = new EditableRoutesVinna("GET /users pass");
+        Router previous = app.getRouter();
+
+        app.routes = "GET /users";
+        assertFalse(app.reloadRoutes());
+
+        assertSame(previous, app.getRouter());
+        assertNotNull(app.getRouter().match(MockedRequest.get("/users").build()));
+    }
+
+    @Test
+    public void notifiesTheChangesOfTheWatchedFiles() throws Exception {
+        Path dir = Files.createTempDirectory("vinna-routes");
+        Path routes = dir.resolve("routes");
+        Files.write(routes, "GET /users pass\n".getBytes(Charset.forName("utf-8")));
+
+        final CountDownLatch changed = new CountDownLatch(1);
+        try (RoutesWatcher watcher = new RoutesWatcher(Collections.singletonList(routes), new Runnable() {
+            @Override
+            public void run() {
+                changed.countDown();
+            }
+        })) {
+            watcher.start();
+            Files.write(dir.resolve("unrelated"), "x".getBytes(Charset.forName("utf-8")));
+            Files.write(routes, "GET /accounts pass\n".getBytes(Charset.forName("utf-8")));
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
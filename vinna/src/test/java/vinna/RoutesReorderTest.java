@@ -0,0 +1,137 @@
+package vinna;
+
+import org.junit.Test;
+import vinna.helpers.MockedRequest;
+import vinna.route.Route;
+import vinna.route.RouteResolution;
+import vinna.route.Router;
+import vinna.route.RoutesParser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RoutesReorderTest {
+
+    private static final String API_ROUTES = "GET /admin/users admin.users()\n" +
+            "GET /admin/stats admin.stats()\n" +
+            "POST /api/items api.create()\n" +
+            "GET /api/items/{id} api.legacy()\n" +
+            "  req.param.v1\n" +
+            "GET /{section}/{page}/{id} page.show()\n" +
+            "  req.header.X-Page\n" +
+            "GET /api/items/{id} api.get()\n" +
+            "GET /api/items/{id} api.xml()\n" +
+            "  req.header.Accept: application/xml\n";
+
+    private static Router router(String routes) throws InterruptedException {
+        Vinna app = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+            }
+        };
+        app.init(Collections.<String, Object>emptyMap());
+        Router router = new Router(1);
+        router.addRoutes(new RoutesParser(new StringReader(routes)).load("", app));
+        // past the reordering period
+        Thread.sleep(5);
+        return router;
+    }
+
+    private static String matched(Router router, MockedRequest request) {
+        RouteResolution resolution = router.match(request);
+        return resolution == null ? null : resolution.action.toString();
+    }
+
+    private static List<String> order(Router router) {
+        List<String> order = new ArrayList<>();
+        for (Route route : router.getRoutes()) {
+            order.add(route.toString().replaceAll("^Route\\{(\\S+) .* (\\S+) }$", "$1 $2"));
+        }
+        return order;
+    }
+
+    @Test
+    public void movesTheHotRoutesBeforeTheExclusiveOnes() throws Exception {
+        Router router = router(API_ROUTES);
+        for (int i = 0; i < 1024; i++) {
+            assertEquals("api.get", matched(router, MockedRequest.get("/api/items/" + i).build()));
+        }
+
+        List<String> order = order(router);
+        // api.legacy and page.show may match the same requests, api.get stays after them
+        assertTrue(order.indexOf("GET api.get") > order.indexOf("GET api.legacy"));
+        assertTrue(order.indexOf("GET api.get") > order.indexOf("GET page.show"));
+        assertTrue(order.indexOf("GET api.get") < order.indexOf("GET admin.users"));
+        assertTrue(order.indexOf("GET api.get") < order.indexOf("GET admin.stats"));
+        assertTrue(order.indexOf("GET api.get") < order.indexOf("POST api.create"));
+        assertTrue(order.indexOf("GET api.get") < order.indexOf("GET api.xml"));
+    }
+
+    @Test
+    public void keepsMatchingTheSameRoutes() throws Exception {
+        Router reordered = router(API_ROUTES);
+        Router declared = router(API_ROUTES);
+        for (int i = 0; i < 1024; i++) {
+            matched(reordered, MockedRequest.get("/admin/stats").build());
+            matched(reordered, MockedRequest.get("/docs/help/1").header("X-Page", "1").build());
+        }
+        assertFalse(order(declared).equals(order(reordered)));
+
+        List<MockedRequest> requests = new ArrayList<>();
+        requests.add(MockedRequest.get("/admin/users").build());
+        requests.add(MockedRequest.get("/admin/stats").build());
+        requests.add(MockedRequest.head("/admin/stats").build());
+        requests.add(MockedRequest.post("/api/items").build());
+        requests.add(MockedRequest.get("/api/items/1").param("v1", "true").build());
+        requests.add(MockedRequest.get("/api/items/1").header("Accept", "application/xml").build());
+        requests.add(MockedRequest.get("/api/items/1").build());
+        requests.add(MockedRequest.get("/docs/help/1").header("X-Page", "1").build());
+        requests.add(MockedRequest.get("/api/items/help").build());
+        requests.add(MockedRequest.get("/api/items/help").header("X-Page", "1").build());
+        requests.add(MockedRequest.get("/admin/help").build());
+        requests.add(MockedRequest.get("/nowhere").build());
+        for (MockedRequest request : requests) {
+            assertEquals(request.getMethod() + " " + request.getPath(), matched(declared, request), matched(reordered, request));
+        }
+    }
+
+    @Test
+    public void appendsTheRoutesAddedAfterAReordering() throws Exception {
+        Router router = router(API_ROUTES);
+        for (int i = 0; i < 1024; i++) {
+            matched(router, MockedRequest.get("/admin/stats").build());
+        }
+        Vinna app = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+            }
+        };
+        app.init(Collections.<String, Object>emptyMap());
+        router.addRoutes(new RoutesParser(new StringReader("GET /admin/stats late.stats()\nGET /late late.show()\n")).load("", app));
+
+        assertEquals("admin.stats", matched(router, MockedRequest.get("/admin/stats").build()));
+        assertEquals("late.show", matched(router, MockedRequest.get("/late").build()));
+    }
+
+    @Test
+    public void keepsTheDeclarationOrderByDefault() throws Exception {
+        Vinna app = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                loadRoutes(new StringReader(API_ROUTES));
+            }
+        };
+        app.init(Collections.<String, Object>emptyMap());
+        List<String> declared = order(app.getRouter());
+        for (int i = 0; i < 1024; i++) {
+            matched(app.getRouter(), MockedRequest.get("/admin/stats").build());
+        }
+        assertEquals(declared, order(app.getRouter()));
+        assertEquals("GET admin.users", declared.get(0));
+    }
+}
@@ -0,0 +1,96 @@
+package vinna.deferred;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DeferredExecutorTest {
+
+    private static CapturedRequest request() {
+        return new CapturedRequest("GET", "/a", "127.0.0.1", 0, null,
+                Collections.<String, List<String>>emptyMap(), Collections.<String, List<String>>emptyMap());
+    }
+
+    private static DeferredTask blocking(final CountDownLatch started, final CountDownLatch release) {
+        return new DeferredTask() {
+            @Override
+            public void run(CapturedRequest request) throws Exception {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+        };
+    }
+
+    private static final DeferredTask NOOP = new DeferredTask() {
+        @Override
+        public void run(CapturedRequest request) {
+        }
+    };
+
+    @Test
+    public void dropsTheTasksWhenTheQueueIsFull() throws Exception {
+        DeferredExecutor executor = new DeferredExecutor(1, 1, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(executor.submit(blocking(started, release), request()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(executor.submit(NOOP, request()));
+        assertFalse(executor.submit(NOOP, request()));
+        assertEquals(1, executor.getQueued());
+        assertEquals(2, executor.getSubmitted());
+        assertEquals(1, executor.getDropped());
+
+        release.countDown();
+        executor.shutdown(5000);
+        assertEquals(2, executor.getCompleted());
+    }
+
+    @Test
+    public void waitsForSomeRoomUpToTheOfferTimeout() throws Exception {
+        DeferredExecutor executor = new DeferredExecutor(1, 1, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(blocking(started, release), request());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(NOOP, request());
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            }
+        }).start();
+        assertTrue(executor.submit(NOOP, request()));
+
+        executor.shutdown(5000);
+        assertEquals(3, executor.getCompleted());
+        assertEquals(0, executor.getDropped());
+    }
+
+    @Test
+    public void countsTheFailingTasks() throws Exception {
+        DeferredExecutor executor = new DeferredExecutor(1, 10, 0);
+        executor.submit(new DeferredTask() {
+            @Override
+            public void run(CapturedRequest request) {
+                throw new IllegalStateException("failing on purpose");
+            }
+        }, request());
+        executor.submit(NOOP, request());
+
+        executor.shutdown(5000);
+        assertEquals(1, executor.getFailed());
+        assertEquals(1, executor.getCompleted());
+    }
+}
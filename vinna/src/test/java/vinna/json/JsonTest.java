@@ -0,0 +1,130 @@
+package vinna.json;
+
+import org.junit.Test;
+import vinna.Vinna;
+import vinna.exception.InvalidRequestException;
+import vinna.http.Request;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+import vinna.route.ActionArgument;
+import vinna.route.InvokeMethodAction;
+import vinna.route.RouteResolution;
+import vinna.route.RoutesParser;
+
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonTest {
+
+    public static class Item {
+        public String name;
+        public int count;
+
+        public Item() {
+        }
+
+        public Item(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+    private static RouteResolution.Action.Environment body(String json) throws IOException {
+        return body(json, null);
+    }
+
+    private static RouteResolution.Action.Environment body(String json, Vinna vinna) throws IOException {
+        Request request = mock(Request.class);
+        when(request.getInputStream()).thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        return new RouteResolution.Action.Environment(request, Collections.<String, String>emptyMap(), vinna);
+    }
+
+    private static String write(JsonResponse response) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        response.writeBody(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+        });
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void parsesTheJsonBodyArgument() {
+        List<ActionArgument> args = RoutesParser.parseArgs("{req.body: json}, {req.body}", "foo");
+        assertTrue(args.get(0) instanceof JsonBody);
+        assertTrue(args.get(1) instanceof ActionArgument.RequestBody);
+    }
+
+    @Test
+    public void readsTheBodyIntoTheTargetType() throws IOException {
+        Item item = (Item) new JsonBody().resolve(body("{\"name\": \"été\", \"count\": 3}"), Item.class);
+        assertEquals("été", item.name);
+        assertEquals(3, item.count);
+        assertSame(Json.reader(Item.class), Json.reader(Item.class));
+    }
+
+    @Test(expected = InvalidRequestException.class)
+    public void rejectsMalformedBodies() throws IOException {
+        new JsonBody().resolve(body("{\"name\": "), Item.class);
+    }
+
+    public static class ItemController {
+        public Response save(Item item) {
+            return ResponseBuilder.withStatus(201);
+        }
+    }
+
+    @Test
+    public void answersTheMalformedBodiesWithABadRequest() throws IOException {
+        Vinna vinna = new Vinna();
+        vinna.init(Collections.<String, Object>emptyMap());
+        InvokeMethodAction action = new InvokeMethodAction(null, ItemController.class, "save", Arrays.<ActionArgument>asList(new JsonBody()));
+        assertEquals(400, ((ResponseBuilder) action.execute(body("{\"name\": ", vinna))).getStatus());
+    }
+
+    @Test
+    public void writesTheEntity() throws IOException {
+        assertEquals("{\"name\":\"€\",\"count\":1}", write(new JsonResponse().entity(new Item("€", 1))));
+        assertEquals("null", write(new JsonResponse()));
+        assertEquals("application/json; charset=utf-8", new JsonResponse(400).getFirstHeader("Content-Type"));
+    }
+
+    @Test
+    public void streamsIterables() throws IOException {
+        final int size = 10000;
+        Iterable<Item> items = new Iterable<Item>() {
+            @Override
+            public Iterator<Item> iterator() {
+                return new Iterator<Item>() {
+                    int i;
+
+                    public boolean hasNext() {
+                        return i < size;
+                    }
+
+                    public Item next() {
+                        return new Item("item", i++);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+        String json = write(new JsonResponse().entity(items));
+        assertTrue(json.startsWith("[{\"name\":\"item\",\"count\":0},"));
+        assertTrue(json.endsWith(",{\"name\":\"item\",\"count\":9999}]"));
+        assertEquals("[1,null,\"a\"]", write(new JsonResponse().entity(Arrays.asList(1, null, "a"))));
+    }
+}
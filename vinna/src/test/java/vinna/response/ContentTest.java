@@ -0,0 +1,70 @@
+package vinna.response;
+
+import org.junit.Test;
+import vinna.http.VinnaRequestWrapper;
+import vinna.http.VinnaResponseWrapper;
+
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class ContentTest {
+
+    private static byte[] write(Content body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void knowsTheLengthOfTheBytesAndChars() throws IOException {
+        String s = "Les élèves ont ½ € et un 😀 !\uD800";
+        Content utf8 = Content.of(s, StandardCharsets.UTF_8);
+        assertEquals(write(utf8).length, utf8.length());
+        assertArrayEquals(write(utf8), write(utf8));
+
+        Content latin1 = Content.of("élève", StandardCharsets.ISO_8859_1);
+        assertEquals(5, latin1.length());
+        assertArrayEquals("élève".getBytes(StandardCharsets.ISO_8859_1), write(latin1));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4).put(new byte[]{1, 2, 3, 4});
+        buffer.flip().position(1);
+        Content direct = Content.of(buffer);
+        assertEquals(3, direct.length());
+        assertArrayEquals(new byte[]{2, 3, 4}, write(direct));
+        assertEquals(1, buffer.position());
+
+        assertEquals(-1, Content.of(new ByteArrayInputStream(new byte[3])).length());
+    }
+
+    @Test
+    public void setsTheContentLengthWhenKnown() throws Exception {
+        VinnaResponseWrapper response = mock(VinnaResponseWrapper.class);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+        });
+        new StringResponse("Hé").execute(mock(VinnaRequestWrapper.class), response);
+        verify(response).setContentLength(3);
+        assertArrayEquals("Hé".getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+
+        new ResponseBuilder(200).content(new Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(42);
+            }
+        }).execute(mock(VinnaRequestWrapper.class), response);
+        verify(response, times(1)).setContentLength(anyInt());
+    }
+}
@@ -0,0 +1,131 @@
+package vinna.response;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import vinna.Vinna;
+import vinna.VinnaContext;
+import vinna.VinnaHandler;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ForwardTest {
+
+    private static final List<VinnaContext> contexts = new ArrayList<>();
+
+    public static class Controller {
+        public Response old(String id) {
+            contexts.add(VinnaContext.get());
+            return new Forward("/new/" + id + "?from=old");
+        }
+
+        public Response current(String id, String from) {
+            contexts.add(VinnaContext.get());
+            return ResponseBuilder.withStatus(200).setHeader("X-Id", id).setHeader("X-From", from);
+        }
+
+        public Response jsp() {
+            return new Forward("/WEB-INF/page.jsp");
+        }
+
+        public Response loop() {
+            return new Forward("/loop");
+        }
+    }
+
+    private static VinnaHandler handler() {
+        Vinna vinna = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/old/{id}").withController(Controller.class).old(param("id").asString());
+                get("/new/{id}").withController(Controller.class).current(param("id").asString(), req.param("from").asString());
+                get("/page").withController(Controller.class).jsp();
+                get("/loop").withController(Controller.class).loop();
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+        return new VinnaHandler(vinna, null);
+    }
+
+    private static HttpServletRequest request(String path) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getRequestURI()).thenReturn(path);
+        when(request.getContextPath()).thenReturn("");
+        when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.<String>emptyList()));
+        when(request.getParameterMap()).thenReturn(Collections.<String, String[]>emptyMap());
+        final Map<String, Object> attributes = new HashMap<>();
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        return request;
+    }
+
+    private static HttpServletResponse response() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        return response;
+    }
+
+    @Test
+    public void forwardsToARouteInProcess() throws Exception {
+        contexts.clear();
+        HttpServletRequest request = request("/old/12");
+        HttpServletResponse response = response();
+        assertTrue(handler().handle(request, response));
+
+        verify(response).setStatus(200);
+        verify(response).setHeader("X-Id", "12");
+        verify(response).setHeader("X-From", "old");
+        verify(request, never()).getRequestDispatcher(anyString());
+        assertEquals(2, contexts.size());
+        assertSame(contexts.get(0), contexts.get(1));
+        assertEquals("/new/12", contexts.get(1).request.getPath());
+        verify(request).setAttribute(RequestDispatcher.FORWARD_SERVLET_PATH, "/old/12");
+    }
+
+    @Test
+    public void forwardsTheOtherPathsThroughTheContainer() throws Exception {
+        HttpServletRequest request = request("/page");
+        RequestDispatcher dispatcher = mock(RequestDispatcher.class);
+        when(request.getRequestDispatcher("/WEB-INF/page.jsp")).thenReturn(dispatcher);
+        assertTrue(handler().handle(request, response()));
+
+        verify(dispatcher).forward(any(ServletRequest.class), any(ServletResponse.class));
+    }
+
+    @Test
+    public void stopsTheForwardLoops() throws Exception {
+        HttpServletResponse response = response();
+        assertTrue(handler().handle(request("/loop"), response));
+        verify(response).setStatus(500);
+    }
+}
@@ -0,0 +1,73 @@
+package vinna.response;
+
+import org.junit.Test;
+import vinna.exception.ConfigException;
+import vinna.http.Cookie;
+import vinna.http.VinnaRequestWrapper;
+import vinna.http.VinnaResponseWrapper;
+
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class FrozenResponseTest {
+
+    private static ByteArrayOutputStream capture(VinnaResponseWrapper response) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+        });
+        return bytes;
+    }
+
+    @Test
+    public void sendsTheSameResponseForEveryRequest() throws Exception {
+        ResponseBuilder builder = new StringResponse("Page non trouvée").status(404);
+        builder.type("text/plain").addHeader("X-Tag", "a").addHeader("X-Tag", "b");
+        FrozenResponse frozen = builder.freeze();
+
+        for (int i = 0; i < 2; i++) {
+            VinnaResponseWrapper response = mock(VinnaResponseWrapper.class);
+            ByteArrayOutputStream bytes = capture(response);
+            frozen.execute(mock(VinnaRequestWrapper.class), response);
+            verify(response).setStatus(404);
+            verify(response).setHeader("Content-Type", "text/plain");
+            verify(response).setHeader("X-Tag", "a");
+            verify(response).addHeader("X-Tag", "b");
+            verify(response).setContentLength(17);
+            assertArrayEquals("Page non trouvée".getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+        }
+    }
+
+    @Test
+    public void sendsNoContentLengthForBodylessStatuses() throws Exception {
+        VinnaResponseWrapper response = mock(VinnaResponseWrapper.class);
+        Redirect.NOT_MODIFIED.execute(mock(VinnaRequestWrapper.class), response);
+        verify(response).setStatus(304);
+        verify(response, never()).setContentLength(anyInt());
+        verify(response, never()).getOutputStream();
+
+        response = mock(VinnaResponseWrapper.class);
+        ClientError.NOT_FOUND.execute(mock(VinnaRequestWrapper.class), response);
+        verify(response).setContentLength(0);
+        assertEquals(204, Success.NO_CONTENT.getStatus());
+    }
+
+    @Test(expected = ConfigException.class)
+    public void cannotFreezeRelativeRedirects() {
+        Redirect.found("/login").freeze();
+    }
+
+    @Test(expected = ConfigException.class)
+    public void cannotFreezeCookies() {
+        Success.ok().cookie(new Cookie("a", "b")).freeze();
+    }
+}
@@ -0,0 +1,70 @@
+package vinna.response;
+
+import org.junit.Test;
+import vinna.http.VinnaResponseWrapper;
+import vinna.util.HttpDate;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ResponseHeadersTest {
+
+    @Test
+    public void formatsRfc1123Dates() {
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDate.format(784111777000L));
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDate.format(784111777999L));
+        assertEquals("Sun, 06 Nov 1994 08:49:38 GMT", HttpDate.format(784111778000L));
+        assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpDate.format(0L));
+    }
+
+    @Test
+    public void setReplacesAllTheValuesIgnoringCase() {
+        ResponseHeaders headers = new ResponseHeaders();
+        headers.add("X-Tag", "a");
+        headers.add("Vary", "Accept");
+        headers.add("x-tag", "b");
+        headers.set("X-TAG", "c");
+
+        assertEquals(2, headers.size());
+        assertEquals("Vary", headers.name(0));
+        assertEquals(Arrays.asList("c"), headers.getAll("x-tag"));
+    }
+
+    @Test
+    public void growsBeyondItsInitialCapacity() {
+        ResponseHeaders headers = new ResponseHeaders();
+        for (int i = 0; i < 20; i++) {
+            headers.add("X-Tag", Integer.toString(i));
+        }
+        assertEquals(20, headers.getAll("X-Tag").size());
+        assertEquals("0", headers.getFirst("X-Tag"));
+        assertFalse(headers.isAdded(0));
+        assertTrue(headers.isAdded(19));
+        assertNull(headers.getFirst("X-Missing"));
+    }
+
+    @Test
+    public void writesTypedHeadersThroughTheContainer() throws Exception {
+        VinnaResponseWrapper response = mock(VinnaResponseWrapper.class);
+        ResponseBuilder builder = ResponseBuilder.withStatus(302)
+                .lastModified(new Date(784111777000L))
+                .setIntHeader("Retry-After", 120)
+                .setHeader("X-Size", 4000000000L)
+                .addHeader("X-Tag", "a").addHeader("X-Tag", "b");
+
+        assertEquals(new Date(784111777000L), builder.getFirstHeader("Last-Modified"));
+        assertEquals(Integer.valueOf(120), builder.getFirstHeader("Retry-After"));
+        assertEquals(Long.valueOf(4000000000L), builder.getFirstHeader("X-Size"));
+        assertEquals(Arrays.<Object>asList("a", "b"), builder.getHeaders("X-Tag"));
+
+        builder.redirect(null).execute(null, response);
+        verify(response).setDateHeader("Last-Modified", 784111777000L);
+        verify(response).setIntHeader("Retry-After", 120);
+        verify(response).setHeader("X-Size", "4000000000");
+        verify(response).setHeader("X-Tag", "a");
+        verify(response).addHeader("X-Tag", "b");
+    }
+}
@@ -0,0 +1,229 @@
+package vinna.route;
+
+import org.junit.Test;
+import vinna.Vinna;
+import vinna.VinnaHandler;
+import vinna.exception.ConfigException;
+import vinna.helpers.MockedRequest;
+import vinna.http.Cookie;
+import vinna.json.JsonResponse;
+import vinna.response.Response;
+import vinna.response.ResponseBuilder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class CoalescingActionTest {
+
+    private static volatile CountDownLatch entered;
+    private static volatile CountDownLatch release;
+
+    public static class Controller {
+        public Response slow(String page) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseBuilder.withStatus(200).setHeader("X-Page", page).setHeader("Vary", "Accept-Language");
+        }
+
+        public Response login(String page) {
+            slow(page);
+            return ResponseBuilder.withStatus(200).cookie(new Cookie("session", page));
+        }
+
+        public Response stream(String page) {
+            slow(page);
+            return new JsonResponse().entity(new Iterable<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return Collections.singletonList("row").iterator();
+                }
+            });
+        }
+    }
+
+    private static Vinna vinna(final long maxWait) {
+        Vinna vinna = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/slow").coalesce(maxWait, "req.param.page").withController(Controller.class).slow(req.param("page").asString());
+                get("/login").coalesce(maxWait, "req.param.page").withController(Controller.class).login(req.param("page").asString());
+                get("/stream").coalesce(maxWait, "req.param.page").withController(Controller.class).stream(req.param("page").asString());
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+        return vinna;
+    }
+
+    private static CoalescingAction action(Vinna vinna) {
+        return action(vinna, "/slow");
+    }
+
+    private static CoalescingAction action(Vinna vinna, String path) {
+        return (CoalescingAction) vinna.getRouter().match(MockedRequest.get(path).build()).action;
+    }
+
+    private static HttpServletRequest request(String page, String language) {
+        return request("/slow", page, language);
+    }
+
+    private static HttpServletRequest request(String path, String page, String language) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.<String>emptyList()));
+        when(request.getHeaders("Accept-Language")).thenReturn(Collections.enumeration(Collections.singletonList(language)));
+        when(request.getParameter("page")).thenReturn(page);
+        when(request.getParameterValues("page")).thenReturn(new String[]{page});
+        when(request.getParameterMap()).thenReturn(Collections.singletonMap("page", new String[]{page}));
+        return request;
+    }
+
+    private static HttpServletResponse response() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        return response;
+    }
+
+    /**
+     * Sends the requests concurrently, the first one being processed before the others are sent, and releases the
+     * action once they are all sent.
+     */
+    private static List<HttpServletResponse> send(final VinnaHandler handler, List<HttpServletRequest> requests) throws Exception {
+        entered = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        List<HttpServletResponse> responses = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            final HttpServletRequest request = requests.get(i);
+            final HttpServletResponse response = response();
+            responses.add(response);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handler.handle(request, response);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+            if (i == 0) {
+                assertTrue(entered.await(5, TimeUnit.SECONDS));
+            }
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        return responses;
+    }
+
+    @Test
+    public void callsTheActionOnceForTheIdenticalRequests() throws Exception {
+        Vinna vinna = vinna(5000);
+        List<HttpServletResponse> responses = send(new VinnaHandler(vinna, null), Arrays.asList(
+                request("1", "fr"), request("1", "fr"), request("1", "fr"), request("2", "fr")));
+
+        CoalescingAction action = action(vinna);
+        assertEquals(2, action.getExecutions());
+        assertEquals(2, action.getShared());
+        for (int i = 0; i < 3; i++) {
+            verify(responses.get(i)).setStatus(200);
+            verify(responses.get(i)).setHeader("X-Page", "1");
+        }
+        verify(responses.get(3)).setHeader("X-Page", "2");
+    }
+
+    @Test
+    public void callsTheActionForTheRequestsDifferingOnAVaryHeader() throws Exception {
+        Vinna vinna = vinna(5000);
+        send(new VinnaHandler(vinna, null), Arrays.asList(request("1", "fr"), request("1", "fr"), request("1", "en")));
+
+        CoalescingAction action = action(vinna);
+        assertEquals(2, action.getExecutions());
+        assertEquals(1, action.getShared());
+    }
+
+    @Test
+    public void callsTheActionWhenTheWaitTimesOut() throws Exception {
+        Vinna vinna = vinna(20);
+        List<HttpServletResponse> responses = send(new VinnaHandler(vinna, null), Arrays.asList(request("1", "fr"), request("1", "fr")));
+
+        CoalescingAction action = action(vinna);
+        assertEquals(2, action.getExecutions());
+        assertEquals(0, action.getShared());
+        verify(responses.get(1)).setHeader("X-Page", "1");
+    }
+
+    @Test
+    public void doesNotShareTheResponsesSettingCookies() throws Exception {
+        Vinna vinna = vinna(5000);
+        List<HttpServletResponse> responses = send(new VinnaHandler(vinna, null), Arrays.asList(
+                request("/login", "1", "fr"), request("/login", "1", "fr"), request("/login", "1", "fr")));
+
+        CoalescingAction action = action(vinna, "/login");
+        assertEquals(3, action.getExecutions());
+        assertEquals(0, action.getShared());
+        for (HttpServletResponse response : responses) {
+            verify(response).addCookie(any(javax.servlet.http.Cookie.class));
+        }
+    }
+
+    @Test
+    public void doesNotBufferTheStreamingResponses() throws Exception {
+        Vinna vinna = vinna(5000);
+        send(new VinnaHandler(vinna, null), Arrays.asList(request("/stream", "1", "fr"), request("/stream", "1", "fr")));
+
+        CoalescingAction action = action(vinna, "/stream");
+        assertEquals(2, action.getExecutions());
+        assertEquals(0, action.getShared());
+    }
+
+    @Test
+    public void parsesTheCoalesceOption() {
+        List<RoutesParser.ParsedRoute> routes = new RoutesParser(new StringReader(
+                "GET /a Controller.a()\n  coalesce(250): req.param.page, req.header.Accept\n" +
+                        "GET /b Controller.b()\n  coalesce\n" +
+                        "GET /c Controller.c()\n")).parse("");
+
+        assertEquals(Arrays.asList("req.param.page", "req.header.Accept"), routes.get(0).coalesce);
+        assertEquals(250, routes.get(0).coalesceWait);
+        assertEquals(Collections.<String>emptyList(), routes.get(1).coalesce);
+        assertEquals(CoalescingAction.DEFAULT_MAX_WAIT_MS, routes.get(1).coalesceWait);
+        assertNull(routes.get(2).coalesce);
+    }
+
+    @Test(expected = ConfigException.class)
+    public void rejectsTheInvalidKeys() {
+        new RoutesParser(new StringReader("GET /a Controller.a()\n  coalesce: page\n")).parse("");
+    }
+
+    @Test(expected = ConfigException.class)
+    public void onlyCoalescesTheReadOnlyRoutes() {
+        new RoutesParser(new StringReader("POST /a Controller.a()\n  coalesce: req.param.page\n")).parse("");
+    }
+}
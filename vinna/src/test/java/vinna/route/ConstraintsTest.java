@@ -0,0 +1,95 @@
+package vinna.route;
+
+import org.junit.Test;
+import vinna.http.Request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ConstraintsTest {
+
+    private static Route route(String path, String header, String headerPattern, String param) {
+        Map<String, Pattern> headers = new HashMap<>();
+        if (header != null) {
+            headers.put(header, headerPattern == null ? null : Pattern.compile(headerPattern));
+        }
+        Map<String, Pattern> params = new HashMap<>();
+        if (param != null) {
+            params.put(param, null);
+        }
+        return new Route("GET", Pattern.compile(path), Collections.<String>emptyList(), params, headers, PassAction.INSTANCE);
+    }
+
+    private static Request request(String path, String version) {
+        Request request = mock(Request.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPath()).thenReturn(path);
+        when(request.getHeaderValues(anyString())).thenReturn(Collections.<String>emptyList());
+        when(request.getParameters(anyString())).thenReturn(Collections.<String>emptyList());
+        if (version != null) {
+            when(request.getHeaderValues("X-Api-Version")).thenReturn(Collections.singletonList(version));
+        }
+        return request;
+    }
+
+    @Test
+    public void evaluatesASharedConstraintOncePerRequest() {
+        Router router = new Router();
+        List<Route> routes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Map<String, Pattern> headers = new HashMap<>();
+            headers.put("X-Api-Version", Pattern.compile("2"));
+            headers.put("X-Tenant", Pattern.compile("t" + i));
+            routes.add(new Route("GET", Pattern.compile("/items/.*"), Collections.<String>emptyList(),
+                    Collections.<String, Pattern>emptyMap(), headers, PassAction.INSTANCE));
+        }
+        router.addRoutes(routes);
+
+        Request request = request("/items/1", "2");
+        when(request.getHeaderValues("X-Tenant")).thenReturn(Collections.singletonList("t49"));
+        assertNotNull(router.match(request));
+        verify(request, times(1)).getHeaderValues("X-Api-Version");
+        verify(request, times(50)).getHeaderValues("X-Tenant");
+
+        request = request("/items/1", "3");
+        when(request.getHeaderValues("X-Tenant")).thenReturn(Collections.singletonList("t49"));
+        assertNull(router.match(request));
+        verify(request, times(1)).getHeaderValues("X-Api-Version");
+    }
+
+    @Test
+    public void comparesTheLiteralValuesAndRunsThePatterns() {
+        Route literal = route("/items", "X-Api-Version", "2", null);
+        Route pattern = route("/items", "X-Api-Version", "[0-9]+", null);
+        Route present = route("/items", "X-Api-Version", null, null);
+
+        for (Route route : Arrays.asList(literal, pattern, present)) {
+            assertNotNull(route.match(request("/items", "2")));
+            assertNull(route.match(request("/items", null)));
+        }
+        assertNull(literal.match(request("/items", "22")));
+        assertNotNull(pattern.match(request("/items", "22")));
+        assertNull(pattern.match(request("/items", "v2")));
+        assertNotNull(present.match(request("/items", "v2")));
+    }
+
+    @Test
+    public void keepsTheDistinctConstraintsApart() {
+        Constraints constraints = new Constraints(new Route[]{
+                route("/a", "X-Api-Version", "2", "q"),
+                route("/b", "x-api-version", "2", "q"),
+                route("/c", "X-Api-Version", "3", "Q"),
+                route("/d", null, null, null)});
+        // version 2, version 3, q and Q
+        assertEquals(4, constraints.size());
+        assertNull(new Constraints(new Route[]{route("/d", null, null, null)}).newResults(request("/d", null)));
+    }
+}
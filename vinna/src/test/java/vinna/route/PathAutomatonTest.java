@@ -0,0 +1,86 @@
+package vinna.route;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class PathAutomatonTest {
+
+    private static final List<String> PATHS = Arrays.asList("", "/", "/users", "/users/", "/users/42", "/users/42/",
+            "/users/abc", "/users/42/edit", "/users/me/edit", "/files/a/b/c.txt", "/files/", "/api/v1/items/7",
+            "/api/v2/items/x7", "/x/help", "/aa", "/aab", "/abab", "/ab\n", "/café", "/emoji/😀",
+            "/tab\there", "/a.b", "/a-b", "/UPPER", "/2024-01-31", "/%20");
+
+    private static List<Pattern> patterns(String... regexes) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : regexes) {
+            patterns.add(Pattern.compile(regex));
+        }
+        return patterns;
+    }
+
+    private static void assertSameAsRegex(List<Pattern> patterns) {
+        PathAutomaton automaton = new PathAutomaton(patterns);
+        for (String path : PATHS) {
+            long[] candidates = automaton.match(path);
+            for (int i = 0; i < patterns.size(); i++) {
+                boolean matches = patterns.get(i).matcher(path).matches();
+                if (automaton.isFallback(i)) {
+                    assertTrue(PathAutomaton.isCandidate(candidates, i));
+                } else {
+                    assertEquals(patterns.get(i) + " on '" + path + "'", matches, PathAutomaton.isCandidate(candidates, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesLikeJavaRegexps() {
+        List<Pattern> patterns = patterns(
+                RoutesParser.parsePath("/users/{id}", Collections.<String, String>emptyMap()).pathPattern.pattern(),
+                RoutesParser.parsePath("/users/{id}", Collections.singletonMap("id", "\\d+")).pathPattern.pattern(),
+                RoutesParser.parsePath("/users/{id}/edit", Collections.<String, String>emptyMap()).pathPattern.pattern(),
+                RoutesParser.parsePath("/files/{path*}", Collections.<String, String>emptyMap()).pathPattern.pattern(),
+                RoutesParser.parsePath("{section}/help", Collections.<String, String>emptyMap()).pathPattern.pattern(),
+                "/", "/users/?", "/api/v[0-9]+/items/(?<id>x?\\d{1,3})", "/a{2}b?", "/(?:ab)+", "/ab$", "^/aa",
+                "/ab\\n", "/caf.", "/emoji/.", "/tab\\there", "/a\\.b", "/a[-.]b", "/[^a-z/]+", "/\\d{4}-\\d\\d-\\d{2}",
+                "/\\x25\\u0032\\d", "/(a|ab)(c|bcd)?", "/\\w+", "/\\S*", "/a*", "/(a*)*b", "/[a-c&]b");
+        PathAutomaton automaton = new PathAutomaton(patterns);
+        assertEquals(0, automaton.getFallbackCount());
+        assertSameAsRegex(patterns);
+    }
+
+    @Test
+    public void leavesTheUnsupportedConstructsToJavaRegexps() {
+        List<Pattern> patterns = patterns("/(a)\\1", "/(?=users).*", "/(?i)users", "/users\\b.*", "/\\p{Alpha}+",
+                "/\\Qa.b\\E", "/a*+b", "/[a-z&&[^b]]+", "/users/(?<id>\\d+)");
+        PathAutomaton automaton = new PathAutomaton(patterns);
+        assertEquals(patterns.size() - 1, automaton.getFallbackCount());
+        assertFalse(automaton.isFallback(patterns.size() - 1));
+        assertSameAsRegex(patterns);
+
+        List<Pattern> flagged = Collections.singletonList(Pattern.compile("/users", Pattern.CASE_INSENSITIVE));
+        assertEquals(1, new PathAutomaton(flagged).getFallbackCount());
+        assertSameAsRegex(flagged);
+    }
+
+    @Test
+    public void handlesManyRoutes() {
+        List<Pattern> patterns = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            patterns.add(RoutesParser.parsePath("/r" + i + "/{id}", Collections.singletonMap("id", "\\d+")).pathPattern);
+        }
+        PathAutomaton automaton = new PathAutomaton(patterns);
+        long[] candidates = automaton.match("/r142/7");
+        for (int i = 0; i < patterns.size(); i++) {
+            assertEquals(i == 142, PathAutomaton.isCandidate(candidates, i));
+        }
+        assertFalse(PathAutomaton.isCandidate(automaton.match("/r142/x"), 142));
+    }
+}
@@ -0,0 +1,109 @@
+package vinna.sse;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BroadcasterTest {
+
+    private final Broadcaster broadcaster = new Broadcaster(2, 2, 0);
+
+    @After
+    public void close() {
+        broadcaster.close();
+    }
+
+    private static class Client extends OutputStream {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final CountDownLatch closed = new CountDownLatch(1);
+        final CountDownLatch blocked;
+
+        Client(boolean blocking) {
+            blocked = new CountDownLatch(blocking ? 1 : 0);
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            bytes.write(b);
+        }
+
+        String received() {
+            synchronized (this) {
+                return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+            }
+        }
+
+        Client subscribe(Broadcaster broadcaster) {
+            broadcaster.add(this, new Runnable() {
+                @Override
+                public void run() {
+                    closed.countDown();
+                }
+            });
+            return this;
+        }
+    }
+
+    private static void awaitReceived(Client client, String expected) throws InterruptedException {
+        for (int i = 0; i < 200 && !client.received().equals(expected); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, client.received());
+    }
+
+    @Test
+    public void encodesTheEvents() {
+        assertEquals("id: 7\nevent: stats\nretry: 1000\ndata: a\ndata: b\n\n",
+                new Event("a\r\nb").id("7").name("stats").retry(1000).toString());
+        assertEquals("data: \n\n", new Event(null).toString());
+    }
+
+    @Test
+    public void sendsTheEventsToAllTheSubscribers() throws InterruptedException {
+        Client[] clients = new Client[50];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Client(false).subscribe(broadcaster);
+        }
+        broadcaster.broadcast("one");
+        broadcaster.broadcast(new Event("two").name("n"));
+        for (Client client : clients) {
+            awaitReceived(client, "data: one\n\nevent: n\ndata: two\n\n");
+        }
+        assertEquals(50, broadcaster.getSubscribersCount());
+    }
+
+    @Test
+    public void evictsTheSlowClients() throws InterruptedException {
+        Client slow = new Client(true).subscribe(broadcaster);
+        Client fast = new Client(false).subscribe(broadcaster);
+        for (int i = 0; i < 4; i++) {
+            broadcaster.broadcast("e" + i);
+            Thread.sleep(20);
+        }
+        assertTrue(slow.closed.await(1, TimeUnit.SECONDS));
+        assertEquals(1, broadcaster.getSubscribersCount());
+        awaitReceived(fast, "data: e0\n\ndata: e1\n\ndata: e2\n\ndata: e3\n\n");
+        slow.blocked.countDown();
+    }
+
+    @Test
+    public void closesTheStreamsWhenClosed() throws InterruptedException {
+        Client client = new Client(false).subscribe(broadcaster);
+        broadcaster.close();
+        assertTrue(client.closed.await(1, TimeUnit.SECONDS));
+        assertEquals(0, broadcaster.getSubscribersCount());
+    }
+}
@@ -0,0 +1,142 @@
+package vinna.template;
+
+import liquidrods.Template;
+import org.junit.Test;
+import vinna.Vinna;
+import vinna.VinnaHandler;
+import vinna.response.Response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LiquidrodsViewTest {
+
+    private static final List<String> ITEMS = Arrays.asList("a", "b", "c", "d", "e");
+
+    /**
+     * Renders what a template would: a flush point after the head, then the items.
+     */
+    public static class Page extends LiquidrodsView {
+        private final Iterable<String> items;
+
+        public Page(boolean streaming, Iterable<String> items) {
+            templateReader = new StringReader("");
+            streaming(streaming);
+            this.items = flushEvery(2, items);
+        }
+
+        @Override
+        protected void render(Template template, Writer writer) throws IOException {
+            writer.write("<head>");
+            flush();
+            for (String item : items) {
+                writer.write(item);
+            }
+            writer.write("</body>");
+        }
+
+        static <T> Iterable<T> lazyOf(Iterator<T> iterator) {
+            return lazy(iterator);
+        }
+    }
+
+    public static class Controller {
+        public Response streamed() {
+            return new Page(true, ITEMS);
+        }
+
+        public Response buffered() {
+            return new Page(false, ITEMS);
+        }
+
+        public Response lazy() {
+            return new Page(true, Page.lazyOf(ITEMS.iterator()));
+        }
+    }
+
+    /**
+     * Records the chunks sent to the client, i.e. what was written between two flushes.
+     */
+    private static final class ChunksStream extends ServletOutputStream {
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private final List<String> chunks = new ArrayList<>();
+
+        @Override
+        public void write(int b) {
+            pending.write(b);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (pending.size() > 0) {
+                chunks.add(pending.toString("utf-8"));
+                pending.reset();
+            }
+        }
+    }
+
+    private static List<String> render(String path) throws Exception {
+        Vinna vinna = new Vinna() {
+            @Override
+            protected void routes(Map<String, Object> config) {
+                get("/streamed").withController(Controller.class).streamed();
+                get("/buffered").withController(Controller.class).buffered();
+                get("/lazy").withController(Controller.class).lazy();
+            }
+        };
+        vinna.init(Collections.<String, Object>emptyMap());
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.<String>emptyList()));
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        ChunksStream out = new ChunksStream();
+        when(response.getOutputStream()).thenReturn(out);
+
+        assertTrue(new VinnaHandler(vinna, null).handle(request, response));
+        return out.chunks;
+    }
+
+    @Test
+    public void sendsTheContentAtTheFlushPoints() throws Exception {
+        assertEquals(Arrays.asList("<head>", "ab", "cd", "e</body>"), render("/streamed"));
+    }
+
+    @Test
+    public void ignoresTheFlushPointsUnlessStreaming() throws Exception {
+        assertEquals(Collections.singletonList("<head>abcde</body>"), render("/buffered"));
+    }
+
+    @Test
+    public void rendersTheLazyValuesAsTheyAreRead() throws Exception {
+        assertEquals(Arrays.asList("<head>", "ab", "cd", "e</body>"), render("/lazy"));
+    }
+
+    @Test
+    public void iteratesTheLazyValuesOnce() {
+        Iterable<String> items = Page.lazyOf(ITEMS.iterator());
+        Iterator<String> iterator = items.iterator();
+        assertEquals("a", iterator.next());
+        try {
+            items.iterator();
+            fail("A lazy value should only be iterated once");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
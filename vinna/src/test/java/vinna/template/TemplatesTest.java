@@ -0,0 +1,80 @@
+package vinna.template;
+
+import liquidrods.Config;
+import liquidrods.Template;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import vinna.exception.VuntimeException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class TemplatesTest {
+
+    private File root;
+    private URLClassLoader loader;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("templates").toFile();
+        write(Templates.INDEX, "# Generated by the vinna-maven-plugin, do not edit\nviews/page.html\n");
+        write("views/page.html", "Hello {{name}}");
+        loader = new URLClassLoader(new URL[]{root.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        loader.close();
+        delete(root);
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "utf-8")) {
+            writer.write(content);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Test
+    public void preloadsTheIndexedTemplates() {
+        Templates templates = new Templates(true);
+        assertEquals(1, templates.preload(loader, "views/"));
+
+        assertTrue(new File(root, "views/page.html").delete());
+        Template template = templates.get(loader, "views/page.html", new Config());
+        assertSame(template, templates.get(loader, "views/page.html", new Config()));
+        assertEquals("views/page.html", templates.resolve(loader, "page", "other/page.html", "views/page.html"));
+    }
+
+    @Test
+    public void preloadsNothingWithoutTheCache() {
+        assertEquals(0, new Templates(false).preload(loader, "views/"));
+    }
+
+    @Test(expected = VuntimeException.class)
+    public void keepsTheTemplatesOfEachApplication() {
+        new Templates(true).preload(loader, "views/");
+        assertTrue(new File(root, "views/page.html").delete());
+        new Templates(true).get(loader, "views/page.html", new Config());
+    }
+}
@@ -0,0 +1,51 @@
+package vinna.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import vinna.exception.ConfigException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class PlaceholdersTest {
+
+    @Test
+    public void resolvesWhateverTheDeclarationOrder() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("c", "{b}/c");
+        values.put("b", "{a}/b");
+        values.put("a", "root");
+        values.put("count", 3);
+
+        Map<String, Object> resolved = Placeholders.resolve(values);
+        Assert.assertEquals("root/b/c", resolved.get("c"));
+        Assert.assertEquals("root/b", resolved.get("b"));
+        Assert.assertEquals(3, resolved.get("count"));
+    }
+
+    @Test
+    public void keepsUnknownPlaceholders() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", "root");
+        values.put("b", "{unknown}{a} {not closed");
+
+        Assert.assertEquals("{unknown}root {not closed", Placeholders.resolve(values).get("b"));
+    }
+
+    @Test
+    public void resolvesASingleValue() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("b", "{a}/b");
+        values.put("a", "root");
+
+        Assert.assertEquals("root/b/c {unknown}", Placeholders.resolve("{b}/c {unknown}", values));
+    }
+
+    @Test(expected = ConfigException.class)
+    public void failsOnCircularReferences() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", "{b}");
+        values.put("b", "{a}");
+        Placeholders.resolve(values);
+    }
+}
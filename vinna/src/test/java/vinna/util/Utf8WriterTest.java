@@ -0,0 +1,61 @@
+package vinna.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class Utf8WriterTest {
+
+    private static byte[] encode(String s, int bufferSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Writer writer = new Utf8Writer(out, new BufferPool(bufferSize, 1));
+        writer.write(s);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void encodesAscii() throws IOException {
+        String s = "<html><body>Hello</body></html>";
+        Assert.assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), encode(s, 8192));
+    }
+
+    @Test
+    public void encodesMultiBytesChars() throws IOException {
+        String s = "Les élèves ont ½ € et un 😀 !";
+        Assert.assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), encode(s, 8192));
+    }
+
+    @Test
+    public void encodesAcrossBufferBoundaries() throws IOException {
+        String s = "aé€😀bçd😀€€é";
+        for (int size = 4; size < 12; size++) {
+            Assert.assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), encode(s, size));
+        }
+    }
+
+    @Test
+    public void encodesSurrogatePairsSplitAcrossWrites() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Writer writer = new Utf8Writer(out, new BufferPool(16, 1));
+        writer.write("x\uD83D");
+        writer.write("\uDE00y");
+        writer.close();
+        Assert.assertArrayEquals("x😀y".getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() throws IOException {
+        Assert.assertArrayEquals("a?b?".getBytes(StandardCharsets.UTF_8), encode("a\uDE00b\uD83D", 16));
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWhenWritingAfterClose() throws IOException {
+        Utf8Writer writer = new Utf8Writer(new ByteArrayOutputStream());
+        writer.close();
+        writer.write("nope");
+    }
+}